@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import usdot.fhwa.stol.c2c.c2c_mvt.decoders.JsonDecoder;
+
+/**
+ * Compares splitting a multi-megabyte payload of concatenated JSON messages
+ * with the byte scanner of {@link JsonDecoder} against the previous splitter
+ * that decoded every character and encoded it again.
+ *
+ * Run with: mvnw -Pbenchmark -DskipTests verify -Djmh.includes=JsonDecoderBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonDecoderBenchmark
+{
+	/**
+	 * Approximate size of the payload in megabytes
+	 */
+	@Param({"1", "8", "32"})
+	public int megabytes;
+
+
+	/**
+	 * The concatenated messages
+	 */
+	private byte[] payload;
+
+
+	/**
+	 * Decoder under test
+	 */
+	private JsonDecoder decoder;
+
+
+	/**
+	 * Builds the payload from messages with nested objects, escaped quotes and
+	 * non-ASCII characters so every state of the splitter is exercised
+	 */
+	@Setup
+	public void setup()
+	{
+		StringBuilder payloadBuilder = new StringBuilder();
+		int target = megabytes * 1024 * 1024;
+		for (int count = 0; payloadBuilder.length() < target; count++)
+		{
+			payloadBuilder.append("{\"message\":{\"header\":{\"messageId\":").append(count)
+				.append(",\"owner\":\"Centre de gestion du trafic éè\"},")
+				.append("\"devices\":[{\"id\":\"cctv-").append(count).append("\",\"name\":\"Camera \\\"North\\\" {A}\",")
+				.append("\"location\":{\"lat\":38.95,\"lon\":-77.14}},{\"id\":\"dms-").append(count)
+				.append("\",\"text\":[\"ROAD WORK [AHEAD]\",\"→ EXIT 12\"]}]}}\n");
+		}
+		payload = payloadBuilder.toString().getBytes(StandardCharsets.UTF_8);
+		decoder = new JsonDecoder();
+	}
+
+
+	/**
+	 * Splits the payload into slices that share its content
+	 * @return the slices
+	 * @throws Exception
+	 */
+	@Benchmark
+	public ArrayList<ByteBuffer> byteScannerSlices()
+		throws Exception
+	{
+		return decoder.separateMessages(ByteBuffer.wrap(payload), StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * Splits the payload into copies of each message
+	 * @return the messages
+	 * @throws Exception
+	 */
+	@Benchmark
+	public ArrayList<byte[]> byteScannerCopies()
+		throws Exception
+	{
+		return decoder.separateMessages(payload, StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * Splits the payload with the previous char based splitter
+	 * @return the messages
+	 * @throws Exception
+	 */
+	@Benchmark
+	public ArrayList<byte[]> legacyCharSplitter()
+		throws Exception
+	{
+		return separateMessagesByChar(payload, StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * The splitter JsonDecoder used before the byte scanner, kept here as the
+	 * baseline. Each char is decoded, written to a Writer that encodes it
+	 * again and copied out of a ByteArrayOutputStream at the end of a message.
+	 * @param messageBytes the message(s) in bytes
+	 * @param charset encoding of the bytes
+	 * @return list of separate messages
+	 * @throws Exception
+	 */
+	private static ArrayList<byte[]> separateMessagesByChar(byte[] messageBytes, Charset charset)
+		throws Exception
+	{
+		ArrayList<byte[]> messageList = new ArrayList<byte[]>();
+		try (ByteArrayInputStream byteInputStream = new ByteArrayInputStream(messageBytes);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(byteInputStream, charset)))
+		{
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, charset));
+			char startingBrace = '{';
+			char closingBrace = '}';
+			int braceCount = 0;
+			int state = 0; // 0 before root, 1 read, 2 in quote, 3 escape, 4 between messages
+			int charRead;
+			while ((charRead = reader.read()) >= 0)
+			{
+				char curChar = (char)charRead;
+				if (state != 4)
+					writer.write(charRead);
+				if (state == 0 || (state == 4 && (curChar == '[' || curChar == '{')))
+				{
+					if (state == 0 && curChar != '[' && curChar != '{')
+						throw new Exception("JSON data must start with [ or {");
+					if (state == 4)
+						writer.write(charRead);
+					startingBrace = curChar;
+					closingBrace = startingBrace == '[' ? ']' : '}';
+					++braceCount;
+					state = 1;
+				}
+				else if (state == 1)
+				{
+					if (curChar == startingBrace)
+						++braceCount;
+					else if (curChar == closingBrace)
+						--braceCount;
+
+					if (curChar == '"')
+						state = 2;
+					if (braceCount == 0)
+					{
+						writer.close();
+						messageList.add(outputStream.toByteArray());
+						outputStream.reset();
+						writer = new BufferedWriter(new OutputStreamWriter(outputStream, charset));
+						state = 4;
+					}
+				}
+				else if (state == 2)
+				{
+					if (curChar == '\\')
+						state = 3;
+					else if (curChar == '"')
+						state = 1;
+				}
+				else if (state == 3)
+					state = 2;
+			}
+			writer.close();
+		}
+
+		return messageList;
+	}
+}
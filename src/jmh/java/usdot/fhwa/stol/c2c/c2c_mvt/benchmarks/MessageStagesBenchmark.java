@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import usdot.fhwa.stol.c2c.c2c_mvt.C2CMVTException;
+import usdot.fhwa.stol.c2c.c2c_mvt.decoders.JsonDecoder;
+import usdot.fhwa.stol.c2c.c2c_mvt.messages.JsonC2CMessage;
+import usdot.fhwa.stol.c2c.c2c_mvt.parsers.NGTMDDJsonParser;
+import usdot.fhwa.stol.c2c.c2c_mvt.validators.NGTMDDJsonValidator;
+
+/**
+ * Measures each stage a single ngTMDD message goes through: checking its
+ * syntax, identifying its message type from the parsed message or from the
+ * bytes, and validating it against the schema. Every stage is measured for a
+ * message that passes validation and one that fails for each message type.
+ *
+ * Run with: mvnw -Pbenchmark -DskipTests verify -Djmh.includes=MessageStagesBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageStagesBenchmark
+{
+	/**
+	 * Name of the sample message from {@link NgTmddSamples}
+	 */
+	@Param({NgTmddSamples.ACTIVITY_LOG_VALID, NgTmddSamples.ACTIVITY_LOG_INVALID, NgTmddSamples.CCTV_IMAGE_LINK_VALID, NgTmddSamples.CCTV_IMAGE_LINK_INVALID})
+	public String sample;
+
+
+	/**
+	 * The message in bytes
+	 */
+	private ByteBuffer messageBytes;
+
+
+	/**
+	 * The message after its syntax was checked, with its message type set
+	 */
+	private JsonC2CMessage message;
+
+
+	/**
+	 * Decoder under test
+	 */
+	private JsonDecoder decoder;
+
+
+	/**
+	 * Parser under test
+	 */
+	private NGTMDDJsonParser parser;
+
+
+	/**
+	 * Validator under test
+	 */
+	private NGTMDDJsonValidator validator;
+
+
+	/**
+	 * Creates the components and parses the message once. The schema is
+	 * compiled by validating the message once so the benchmarks measure the
+	 * cached schema that the application uses.
+	 * @throws Exception
+	 */
+	@Setup
+	public void setup()
+		throws Exception
+	{
+		messageBytes = ByteBuffer.wrap(NgTmddSamples.get(sample));
+		decoder = new JsonDecoder();
+		parser = new NGTMDDJsonParser();
+		validator = new NGTMDDJsonValidator(new ClassPathResource("ngTMDD/ngTMDD_Schema_v1.0.json"));
+		message = decoder.checkSyntax(messageBytes);
+		message.setMessageType(parser.identifyMessageType(message));
+		validateMessage();
+	}
+
+
+	/**
+	 * Checks the syntax of the message, building the complete JSON tree
+	 * @return the parsed message
+	 * @throws C2CMVTException
+	 */
+	@Benchmark
+	public JsonC2CMessage checkSyntax()
+		throws C2CMVTException
+	{
+		return decoder.checkSyntax(messageBytes);
+	}
+
+
+	/**
+	 * Identifies the message type of the parsed message
+	 * @return the message type
+	 * @throws C2CMVTException
+	 */
+	@Benchmark
+	public String identifyMessageType()
+		throws C2CMVTException
+	{
+		return parser.identifyMessageType(message);
+	}
+
+
+	/**
+	 * Reads the message type from the bytes without parsing the message
+	 * @return the message type
+	 */
+	@Benchmark
+	public String sniffMessageType()
+	{
+		return parser.sniffMessageType(messageBytes);
+	}
+
+
+	/**
+	 * Validates the parsed message against the schema. Failures are returned
+	 * instead of thrown so the cost of building the error message is measured.
+	 * @return the error message, or null if the message is valid
+	 */
+	@Benchmark
+	public String validateMessage()
+	{
+		try
+		{
+			validator.validateMessage(message);
+			return null;
+		}
+		catch (C2CMVTException ex)
+		{
+			return ex.originalException.getMessage();
+		}
+	}
+}
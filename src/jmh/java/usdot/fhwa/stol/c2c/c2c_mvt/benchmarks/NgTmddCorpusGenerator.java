@@ -0,0 +1,1035 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.springframework.core.io.ClassPathResource;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Generates ngTMDD messages by walking ngTMDD/ngTMDD_Schema_v1.0.json, for
+ * building corpora of any size to load test the application and to benchmark
+ * the decoder and validator with. Every message type listed in the oneOf of
+ * the root "message" property can be generated. Valid messages have every
+ * required property, including properties required by an if/then, and a
+ * random selection of optional properties. Optional properties whose schemas
+ * require different types are left out since no value of them is valid.
+ * Invalid messages are valid messages with one defect: a required property
+ * removed, a value that is not in its enum, or a value of the wrong type.
+ * <p>
+ * The generator is seeded, so the same options always produce the same corpus.
+ * The size of the messages is controlled by the maximum depth at which optional
+ * properties and array items are generated, the maximum number of items in an
+ * array, the share of optional properties that are generated and the maximum
+ * length of generated Strings.
+ * <p>
+ * Run from the command line with the benchmark profile, for example:
+ * mvnw -Pbenchmark test-compile exec:exec@generate-corpus -Dcorpus.args="--output=target/corpus.ndjson --format=ndjson --size=1g"
+ * <p>
+ * Options, each written as --name=value:
+ * <ul>
+ * <li>output: file to write, required</li>
+ * <li>format: concatenated (pretty printed messages one after the other, like
+ * an upload of a .json file) or ndjson (one message per line), default concatenated</li>
+ * <li>size: stop once the file has this many bytes, with an optional k, m or g
+ * suffix</li>
+ * <li>messages: stop after this many messages, default 1000 if size is not set</li>
+ * <li>invalid: share of invalid messages from 0 to 1, default 0.1</li>
+ * <li>types: comma separated message types to generate, default every type</li>
+ * <li>depth: maximum depth of optional properties and array items, default 4</li>
+ * <li>fanout: maximum number of items in an array, default 3</li>
+ * <li>optional: share of optional properties that are generated from 0 to 1, default 0.5</li>
+ * <li>string-length: maximum length of generated Strings, default 16</li>
+ * <li>seed: seed of the random values, default 1</li>
+ * </ul>
+ */
+public final class NgTmddCorpusGenerator
+{
+	/**
+	 * Schema the messages are generated from
+	 */
+	public static final String SCHEMA = "ngTMDD/ngTMDD_Schema_v1.0.json";
+
+
+	/**
+	 * How messages are written to the corpus file
+	 */
+	public enum Format
+	{
+		/**
+		 * Pretty printed messages one after the other
+		 */
+		CONCATENATED,
+
+
+		/**
+		 * One message per line
+		 */
+		NDJSON
+	}
+
+
+	/**
+	 * The defect that makes a message invalid
+	 */
+	public enum Defect
+	{
+		/**
+		 * A required property is removed
+		 */
+		MISSING_REQUIRED,
+
+
+		/**
+		 * A property has a value that is not in its enum
+		 */
+		WRONG_ENUM,
+
+
+		/**
+		 * A property has a value of the wrong type
+		 */
+		WRONG_TYPE
+	}
+
+
+	/**
+	 * Characters of generated Strings
+	 */
+	private static final String ALPHANUMERIC = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+
+	/**
+	 * Depth past which required properties are assumed to recurse without end
+	 */
+	private static final int RECURSION_LIMIT = 64;
+
+
+	/**
+	 * Start of the range of generated date-times
+	 */
+	private static final Instant EPOCH = Instant.parse("2025-01-01T00:00:00Z");
+
+
+	/**
+	 * The constraints of a schema with its $refs and allOfs merged into it. The
+	 * schemas of properties and items are flattened when they are first used.
+	 */
+	private static final class FlatSchema
+	{
+		/**
+		 * JSON type of the value, null if not constrained
+		 */
+		private String type;
+
+
+		/**
+		 * True if the merged schemas require different types, so no value is valid
+		 */
+		private boolean conflictingTypes;
+
+
+		/**
+		 * The only valid value, or null
+		 */
+		private JsonNode constValue;
+
+
+		/**
+		 * The valid values, or null
+		 */
+		private JsonNode enumValues;
+
+
+		/**
+		 * Format of a String value, or null
+		 */
+		private String format;
+
+
+		/**
+		 * Pattern a String value contains a match of, or null
+		 */
+		private String pattern;
+
+
+		/**
+		 * Minimum of a number value, or null
+		 */
+		private Double minimum;
+
+
+		/**
+		 * Maximum of a number value, or null
+		 */
+		private Double maximum;
+
+
+		/**
+		 * Minimum number of items of an Array value
+		 */
+		private int minItems;
+
+
+		/**
+		 * Schemas of each property of an Object value, in the order they are declared
+		 */
+		private final LinkedHashMap<String, List<JsonNode>> propertySchemas = new LinkedHashMap<>();
+
+
+		/**
+		 * Names of the required properties
+		 */
+		private final LinkedHashSet<String> required = new LinkedHashSet<>();
+
+
+		/**
+		 * Schemas of the items of an Array value
+		 */
+		private final List<JsonNode> itemSchemas = new ArrayList<>();
+
+
+		/**
+		 * Schemas of which exactly one must be satisfied
+		 */
+		private final List<JsonNode> oneOf = new ArrayList<>();
+
+
+		/**
+		 * Entries of allOf with an if and a then
+		 */
+		private final List<JsonNode> conditionals = new ArrayList<>();
+
+
+		/**
+		 * Flattened schemas of the properties that have been generated
+		 */
+		private final HashMap<String, FlatSchema> properties = new HashMap<>();
+
+
+		/**
+		 * Flattened schema of the items, once an item has been generated
+		 */
+		private FlatSchema items;
+
+
+		/**
+		 * Gets the flattened schema of a property
+		 * @param key name of the property
+		 * @param generator flattens the schemas of the property the first time
+		 * @return the flattened schema, empty if the property has no schema
+		 */
+		private FlatSchema property(String key, NgTmddCorpusGenerator generator)
+		{
+			FlatSchema property = properties.get(key);
+			if (property == null)
+			{
+				property = generator.flattenAll(propertySchemas.getOrDefault(key, List.of()));
+				properties.put(key, property);
+			}
+			return property;
+		}
+
+
+		/**
+		 * Gets the flattened schema of the items
+		 * @param generator flattens the schemas of the items the first time
+		 * @return the flattened schema, empty if the items have no schema
+		 */
+		private FlatSchema items(NgTmddCorpusGenerator generator)
+		{
+			if (items == null)
+				items = generator.flattenAll(itemSchemas);
+			return items;
+		}
+	}
+
+
+	/**
+	 * A property of a generated message that a defect can be applied to
+	 * @param parent the Object that has the property
+	 * @param key name of the property
+	 * @param defect the defect that makes the message invalid
+	 */
+	private record Site(ObjectNode parent, String key, Defect defect)
+	{
+	}
+
+
+	/**
+	 * The root of the schema
+	 */
+	private final JsonNode root;
+
+
+	/**
+	 * Schema of each message type, in the order of the root oneOf
+	 */
+	private final LinkedHashMap<String, JsonNode> messageTypes = new LinkedHashMap<>();
+
+
+	/**
+	 * Flattened schemas by the schema they were flattened from
+	 */
+	private final IdentityHashMap<JsonNode, FlatSchema> flattened = new IdentityHashMap<>();
+
+
+	/**
+	 * Compiled patterns used to check generated Strings
+	 */
+	private final HashMap<String, Pattern> patterns = new HashMap<>();
+
+
+	/**
+	 * Creates the JSON nodes of the messages
+	 */
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+
+	/**
+	 * Source of every random choice
+	 */
+	private final Random random;
+
+
+	/**
+	 * Maximum depth at which optional properties and array items are generated
+	 */
+	private int maxDepth = 4;
+
+
+	/**
+	 * Maximum number of items in a generated array
+	 */
+	private int maxFanOut = 3;
+
+
+	/**
+	 * Share of optional properties that are generated
+	 */
+	private double optionalRatio = 0.5;
+
+
+	/**
+	 * Maximum length of generated Strings
+	 */
+	private int maxStringLength = 16;
+
+
+	/**
+	 * Constructor
+	 * @param schema the ngTMDD schema
+	 * @param seed seed of the random values
+	 */
+	public NgTmddCorpusGenerator(JsonNode schema, long seed)
+	{
+		root = schema;
+		random = new Random(seed);
+		for (JsonNode branch : schema.path("properties").path("message").path("oneOf"))
+		{
+			JsonNode messageSchema = resolve(branch.path("$ref").asText());
+			messageTypes.put(flatten(messageSchema).property("messageType", this).constValue.asText(), messageSchema);
+		}
+	}
+
+
+	/**
+	 * Creates a generator for the schema on the classpath
+	 * @param seed seed of the random values
+	 * @return the generator
+	 * @throws IOException if the schema cannot be read
+	 */
+	public static NgTmddCorpusGenerator fromClasspath(long seed)
+		throws IOException
+	{
+		try (InputStream schemaStream = new ClassPathResource(SCHEMA).getInputStream())
+		{
+			return new NgTmddCorpusGenerator(new ObjectMapper().readTree(schemaStream), seed);
+		}
+	}
+
+
+	/**
+	 * @param maxDepth maximum depth at which optional properties and array
+	 * items are generated
+	 */
+	public void setMaxDepth(int maxDepth)
+	{
+		this.maxDepth = maxDepth;
+	}
+
+
+	/**
+	 * @param maxFanOut maximum number of items in a generated array
+	 */
+	public void setMaxFanOut(int maxFanOut)
+	{
+		this.maxFanOut = Math.max(1, maxFanOut);
+	}
+
+
+	/**
+	 * @param optionalRatio share of optional properties that are generated,
+	 * from 0 to 1
+	 */
+	public void setOptionalRatio(double optionalRatio)
+	{
+		this.optionalRatio = optionalRatio;
+	}
+
+
+	/**
+	 * @param maxStringLength maximum length of generated Strings
+	 */
+	public void setMaxStringLength(int maxStringLength)
+	{
+		this.maxStringLength = Math.max(1, maxStringLength);
+	}
+
+
+	/**
+	 * @return the message types that can be generated
+	 */
+	public List<String> getMessageTypes()
+	{
+		return new ArrayList<>(messageTypes.keySet());
+	}
+
+
+	/**
+	 * Generates a message that is valid against the schema
+	 * @param messageType the message type
+	 * @return the message, with the generated message type as the value of
+	 * the "message" property
+	 */
+	public ObjectNode generateValid(String messageType)
+	{
+		return wrap(generate(flatten(getMessageSchema(messageType)), 0, null));
+	}
+
+
+	/**
+	 * Generates a message that is not valid against the schema. If the message
+	 * has no property the defect can be applied to, one of the other defects
+	 * is applied instead.
+	 * @param messageType the message type
+	 * @param defect the defect that makes the message invalid
+	 * @return the message, with the generated message type as the value of
+	 * the "message" property
+	 */
+	public ObjectNode generateInvalid(String messageType, Defect defect)
+	{
+		ArrayList<Site> sites = new ArrayList<>();
+		JsonNode message = generate(flatten(getMessageSchema(messageType)), 0, sites);
+		List<Site> candidates = sites.stream().filter(site -> site.defect() == defect).toList();
+		if (candidates.isEmpty())
+			candidates = sites;
+		if (candidates.isEmpty()) // every message type has at least messageType and something else, but be safe
+		{
+			((ObjectNode)message).put("messageType", 0);
+			return wrap(message);
+		}
+
+		Site site = candidates.get(random.nextInt(candidates.size()));
+		switch (site.defect())
+		{
+			case MISSING_REQUIRED -> site.parent().remove(site.key());
+			case WRONG_ENUM -> site.parent().put(site.key(), "not a valid " + site.key());
+			case WRONG_TYPE -> site.parent().set(site.key(), wrongType(site.parent().get(site.key())));
+		}
+		return wrap(message);
+	}
+
+
+	/**
+	 * Writes a corpus of messages, going through the message types in order
+	 * @param out where the corpus is written
+	 * @param format how the messages are written
+	 * @param types message types to generate
+	 * @param maxBytes stop once this many bytes are written, 0 for no limit
+	 * @param maxMessages stop once this many messages are written, 0 for no limit
+	 * @param invalidRatio share of invalid messages, from 0 to 1
+	 * @return the number of messages and invalid messages written and the number of bytes written
+	 * @throws IOException if the corpus cannot be written
+	 */
+	public long[] writeCorpus(OutputStream out, Format format, List<String> types, long maxBytes, long maxMessages, double invalidRatio)
+		throws IOException
+	{
+		if (maxBytes <= 0 && maxMessages <= 0)
+			throw new IllegalArgumentException("A size or a number of messages is required");
+
+		ObjectWriter writer = format == Format.NDJSON ? objectMapper.writer() : objectMapper.writerWithDefaultPrettyPrinter();
+		Defect[] defects = Defect.values();
+		long messages = 0;
+		long invalid = 0;
+		long bytes = 0;
+		while ((maxBytes <= 0 || bytes < maxBytes) && (maxMessages <= 0 || messages < maxMessages))
+		{
+			String messageType = types.get((int)(messages % types.size()));
+			ObjectNode message;
+			if (random.nextDouble() < invalidRatio)
+			{
+				message = generateInvalid(messageType, defects[random.nextInt(defects.length)]);
+				++invalid;
+			}
+			else
+			{
+				message = generateValid(messageType);
+			}
+			byte[] messageBytes = writer.writeValueAsBytes(message);
+			out.write(messageBytes);
+			out.write('\n');
+			bytes += messageBytes.length + 1;
+			++messages;
+		}
+		return new long[] {messages, invalid, bytes};
+	}
+
+
+	/**
+	 * Writes a corpus file with the options given on the command line
+	 * @param args options, each written as --name=value, see the class documentation
+	 * @throws IOException if the schema cannot be read or the corpus cannot be written
+	 */
+	public static void main(String[] args)
+		throws IOException
+	{
+		HashMap<String, String> options = new HashMap<>();
+		for (String arg : args)
+		{
+			int separator = arg.indexOf('=');
+			if (!arg.startsWith("--") || separator < 0)
+				throw new IllegalArgumentException("Options are written as --name=value, got " + arg);
+			options.put(arg.substring(2, separator), arg.substring(separator + 1));
+		}
+		if (!options.containsKey("output"))
+			throw new IllegalArgumentException("--output is required");
+
+		NgTmddCorpusGenerator generator = fromClasspath(Long.parseLong(options.getOrDefault("seed", "1")));
+		generator.setMaxDepth(Integer.parseInt(options.getOrDefault("depth", "4")));
+		generator.setMaxFanOut(Integer.parseInt(options.getOrDefault("fanout", "3")));
+		generator.setOptionalRatio(Double.parseDouble(options.getOrDefault("optional", "0.5")));
+		generator.setMaxStringLength(Integer.parseInt(options.getOrDefault("string-length", "16")));
+
+		List<String> types = options.containsKey("types") ? Arrays.asList(options.get("types").split(",")) : generator.getMessageTypes();
+		for (String type : types)
+			generator.getMessageSchema(type);
+		Format format = Format.valueOf(options.getOrDefault("format", "concatenated").toUpperCase());
+		long maxBytes = options.containsKey("size") ? parseSize(options.get("size")) : 0;
+		long maxMessages = Long.parseLong(options.getOrDefault("messages", maxBytes > 0 ? "0" : "1000"));
+		double invalidRatio = Double.parseDouble(options.getOrDefault("invalid", "0.1"));
+
+		Path output = Path.of(options.get("output"));
+		if (output.toAbsolutePath().getParent() != null)
+			Files.createDirectories(output.toAbsolutePath().getParent());
+		long[] counts;
+		try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output), 1 << 16))
+		{
+			counts = generator.writeCorpus(out, format, types, maxBytes, maxMessages, invalidRatio);
+		}
+		System.out.printf("Wrote %d messages (%d invalid) of %d message types, %d bytes, to %s%n", counts[0], counts[1], types.size(), counts[2], output);
+	}
+
+
+	/**
+	 * Parses a number of bytes with an optional k, m or g suffix
+	 * @param size the number of bytes
+	 * @return the number of bytes
+	 */
+	private static long parseSize(String size)
+	{
+		String lowerCase = size.trim().toLowerCase();
+		int shift = switch (lowerCase.charAt(lowerCase.length() - 1))
+		{
+			case 'k' -> 10;
+			case 'm' -> 20;
+			case 'g' -> 30;
+			default -> 0;
+		};
+		if (shift > 0)
+			lowerCase = lowerCase.substring(0, lowerCase.length() - 1);
+		return Long.parseLong(lowerCase) << shift;
+	}
+
+
+	/**
+	 * Gets the schema of a message type
+	 * @param messageType the message type
+	 * @return the schema
+	 * @throws IllegalArgumentException if the schema does not have the message type
+	 */
+	private JsonNode getMessageSchema(String messageType)
+	{
+		JsonNode messageSchema = messageTypes.get(messageType);
+		if (messageSchema == null)
+			throw new IllegalArgumentException("Unknown message type " + messageType);
+		return messageSchema;
+	}
+
+
+	/**
+	 * Puts a generated message in the root Object
+	 * @param message the generated message
+	 * @return the root Object
+	 */
+	private ObjectNode wrap(JsonNode message)
+	{
+		ObjectNode rootObject = objectMapper.createObjectNode();
+		rootObject.set("message", message);
+		return rootObject;
+	}
+
+
+	/**
+	 * Generates a value that satisfies a schema
+	 * @param schema the flattened schema
+	 * @param depth number of Objects and Arrays the value is in
+	 * @param sites receives the properties defects can be applied to, null
+	 * when generating a valid message
+	 * @return the value
+	 */
+	private JsonNode generate(FlatSchema schema, int depth, List<Site> sites)
+	{
+		if (depth > RECURSION_LIMIT)
+			throw new IllegalStateException("Required properties of the schema recurse past a depth of " + RECURSION_LIMIT);
+		if (schema.constValue != null)
+			return schema.constValue;
+		if (!schema.oneOf.isEmpty())
+			return generate(flatten(schema.oneOf.get(random.nextInt(schema.oneOf.size()))), depth, sites);
+		if (schema.enumValues != null)
+			return schema.enumValues.get(random.nextInt(schema.enumValues.size()));
+
+		String type = schema.type;
+		if (type == null)
+			type = !schema.propertySchemas.isEmpty() ? "object" : !schema.itemSchemas.isEmpty() ? "array" : "string";
+		return switch (type)
+		{
+			case "object" -> generateObject(schema, depth, sites);
+			case "array" -> generateArray(schema, depth, sites);
+			case "string" -> objectMapper.getNodeFactory().textNode(generateString(schema));
+			case "number" -> objectMapper.getNodeFactory().numberNode(Math.round(generateNumber(schema) * 1000) / 1000.0);
+			case "integer" -> objectMapper.getNodeFactory().numberNode(Math.round(generateNumber(schema)));
+			case "boolean" -> objectMapper.getNodeFactory().booleanNode(random.nextBoolean());
+			default -> throw new IllegalArgumentException("Unsupported type " + type);
+		};
+	}
+
+
+	/**
+	 * Generates an Object with every required property and some of the
+	 * optional properties, then adds the properties required by the if/then
+	 * conditions the Object matches
+	 * @param schema the flattened schema
+	 * @param depth number of Objects and Arrays the Object is in
+	 * @param sites receives the properties defects can be applied to, or null
+	 * @return the Object
+	 */
+	private ObjectNode generateObject(FlatSchema schema, int depth, List<Site> sites)
+	{
+		ObjectNode object = objectMapper.createObjectNode();
+		for (String key : schema.propertySchemas.keySet())
+		{
+			boolean required = schema.required.contains(key);
+			if (required || depth < maxDepth && random.nextDouble() < optionalRatio && !schema.property(key, this).conflictingTypes)
+				putProperty(object, schema.property(key, this), key, required, depth, sites);
+		}
+		for (String key : schema.required) // required without a schema in properties
+		{
+			if (!object.has(key))
+				putProperty(object, new FlatSchema(), key, true, depth, sites);
+		}
+
+		for (JsonNode conditional : schema.conditionals)
+		{
+			if (!matches(conditional.path("if"), object))
+				continue;
+			FlatSchema then = flatten(conditional.path("then"));
+			for (String key : then.required)
+			{
+				if (!object.has(key))
+					putProperty(object, schema.propertySchemas.containsKey(key) ? schema.property(key, this) : then.property(key, this), key, true, depth, sites);
+				else if (sites != null)
+					sites.add(new Site(object, key, Defect.MISSING_REQUIRED));
+			}
+		}
+		return object;
+	}
+
+
+	/**
+	 * Generates the value of a property and records which defects can be
+	 * applied to it
+	 * @param object the Object the property is put in
+	 * @param schema the flattened schema of the property
+	 * @param key name of the property
+	 * @param required true if the property is required
+	 * @param depth number of Objects and Arrays the Object is in
+	 * @param sites receives the properties defects can be applied to, or null
+	 */
+	private void putProperty(ObjectNode object, FlatSchema schema, String key, boolean required, int depth, List<Site> sites)
+	{
+		object.set(key, generate(schema, depth + 1, sites));
+		if (sites == null || depth == 0 && key.equals("messageType")) // keep the message type so the message can still be identified
+			return;
+
+		if (required)
+			sites.add(new Site(object, key, Defect.MISSING_REQUIRED));
+		if (schema.enumValues != null && schema.constValue == null)
+			sites.add(new Site(object, key, Defect.WRONG_ENUM));
+		if (schema.type != null || schema.constValue != null || schema.enumValues != null)
+			sites.add(new Site(object, key, Defect.WRONG_TYPE));
+	}
+
+
+	/**
+	 * Generates an Array with up to the maximum fan out items, or the minimum
+	 * number of items past the maximum depth
+	 * @param schema the flattened schema
+	 * @param depth number of Objects and Arrays the Array is in
+	 * @param sites receives the properties defects can be applied to, or null
+	 * @return the Array
+	 */
+	private ArrayNode generateArray(FlatSchema schema, int depth, List<Site> sites)
+	{
+		ArrayNode array = objectMapper.createArrayNode();
+		int count = Math.max(schema.minItems, depth < maxDepth ? 1 + random.nextInt(maxFanOut) : 0);
+		FlatSchema items = schema.items(this);
+		for (int i = 0; i < count; i++)
+			array.add(generate(items, depth + 1, sites));
+		return array;
+	}
+
+
+	/**
+	 * Generates a String that satisfies the format or pattern of a schema
+	 * @param schema the flattened schema
+	 * @return the String
+	 */
+	private String generateString(FlatSchema schema)
+	{
+		if ("date-time".equals(schema.format))
+			return DateTimeFormatter.ISO_INSTANT.format(EPOCH.plus(random.nextInt(365 * 24 * 60 * 60), ChronoUnit.SECONDS));
+		if (schema.pattern != null)
+			return generatePatternString(schema.pattern);
+
+		int length = 1 + random.nextInt(maxStringLength);
+		StringBuilder value = new StringBuilder(length);
+		for (int i = 0; i < length; i++)
+			value.append(ALPHANUMERIC.charAt(random.nextInt(ALPHANUMERIC.length())));
+		return value.toString();
+	}
+
+
+	/**
+	 * Generates a String that contains a match of a pattern. Literals, groups,
+	 * character classes, \s, \d, \w and the quantifiers +, *, ? and {n,m} are
+	 * supported, which is every pattern the schema uses.
+	 * @param pattern the pattern
+	 * @return the String
+	 * @throws IllegalArgumentException if the String does not match the pattern
+	 */
+	private String generatePatternString(String pattern)
+	{
+		StringBuilder value = new StringBuilder();
+		int index = 0;
+		while (index < pattern.length())
+		{
+			char c = pattern.charAt(index++);
+			String candidates;
+			switch (c)
+			{
+				case '(', ')', '^', '$' ->
+				{
+					continue;
+				}
+				case '.' -> candidates = ALPHANUMERIC;
+				case '\\' ->
+				{
+					char escaped = pattern.charAt(index++);
+					candidates = switch (escaped)
+					{
+						case 's' -> " ";
+						case 'd' -> "0123456789";
+						case 'w' -> ALPHANUMERIC;
+						default -> String.valueOf(escaped);
+					};
+				}
+				case '[' ->
+				{
+					int end = pattern.indexOf(']', index + 1);
+					candidates = characterClass(pattern.substring(index, end));
+					index = end + 1;
+				}
+				default -> candidates = String.valueOf(c);
+			}
+
+			int min = 1;
+			int max = 1;
+			if (index < pattern.length())
+			{
+				switch (pattern.charAt(index))
+				{
+					case '+' -> max = Math.max(1, maxStringLength);
+					case '*' ->
+					{
+						min = 0;
+						max = maxStringLength;
+					}
+					case '?' -> min = 0;
+					case '{' ->
+					{
+						int end = pattern.indexOf('}', index);
+						String[] bounds = pattern.substring(index + 1, end).split(",", -1);
+						min = Integer.parseInt(bounds[0]);
+						max = bounds.length == 1 ? min : bounds[1].isEmpty() ? min + maxStringLength : Integer.parseInt(bounds[1]);
+						index = end;
+					}
+					default -> --index;
+				}
+				++index;
+			}
+			for (int count = min + random.nextInt(max - min + 1); count > 0; count--)
+				value.append(candidates.charAt(random.nextInt(candidates.length())));
+		}
+
+		String generated = value.toString();
+		if (!patterns.computeIfAbsent(pattern, Pattern::compile).matcher(generated).find())
+			throw new IllegalArgumentException("Cannot generate a String for pattern " + pattern);
+		return generated;
+	}
+
+
+	/**
+	 * Lists the characters of a character class
+	 * @param body the character class without its brackets
+	 * @return the characters
+	 */
+	private static String characterClass(String body)
+	{
+		if (body.startsWith("^"))
+			throw new IllegalArgumentException("Negated character classes are not supported: " + body);
+
+		StringBuilder characters = new StringBuilder();
+		for (int i = 0; i < body.length(); i++)
+		{
+			char c = body.charAt(i);
+			if (c == '\\' && i + 1 < body.length())
+				characters.append(body.charAt(++i));
+			else if (i + 2 < body.length() && body.charAt(i + 1) == '-')
+			{
+				for (char rangeChar = c; rangeChar <= body.charAt(i + 2); rangeChar++)
+					characters.append(rangeChar);
+				i += 2;
+			}
+			else
+				characters.append(c);
+		}
+		return characters.toString();
+	}
+
+
+	/**
+	 * Generates a number between the minimum and maximum of a schema, 0 to
+	 * 10000 if they are not set
+	 * @param schema the flattened schema
+	 * @return the number
+	 */
+	private double generateNumber(FlatSchema schema)
+	{
+		double min = schema.minimum != null ? schema.minimum : 0;
+		double max = schema.maximum != null ? schema.maximum : min + 10000;
+		return min + random.nextDouble() * (max - min);
+	}
+
+
+	/**
+	 * Creates a value of a different JSON type than the given value
+	 * @param value the valid value
+	 * @return the value of the wrong type
+	 */
+	private JsonNode wrongType(JsonNode value)
+	{
+		if (value.isTextual())
+			return objectMapper.getNodeFactory().numberNode(random.nextInt(1000));
+		if (value.isObject())
+			return objectMapper.createArrayNode();
+		if (value.isArray())
+			return objectMapper.createObjectNode();
+		return objectMapper.getNodeFactory().textNode(value.asText());
+	}
+
+
+	/**
+	 * Checks a generated value against the "if" of an if/then. The const,
+	 * enum, properties and contains keywords are checked, which is every
+	 * keyword the schema uses in an "if".
+	 * @param schema the "if" schema
+	 * @param value the generated value
+	 * @return true if the value matches
+	 */
+	private boolean matches(JsonNode schema, JsonNode value)
+	{
+		if (schema.has("const") && !schema.get("const").equals(value))
+			return false;
+		if (schema.has("enum"))
+		{
+			boolean found = false;
+			for (JsonNode enumValue : schema.get("enum"))
+				found |= enumValue.equals(value);
+			if (!found)
+				return false;
+		}
+		if (value.isObject())
+		{
+			for (Map.Entry<String, JsonNode> property : schema.path("properties").properties())
+			{
+				JsonNode propertyValue = value.get(property.getKey());
+				if (propertyValue != null && !matches(property.getValue(), propertyValue))
+					return false;
+			}
+		}
+		if (value.isArray() && schema.has("contains"))
+		{
+			boolean found = false;
+			for (JsonNode item : value)
+				found |= matches(schema.get("contains"), item);
+			if (!found)
+				return false;
+		}
+		return true;
+	}
+
+
+	/**
+	 * Flattens a schema, merging its $ref and the entries of its allOf that
+	 * are not if/then conditions into it
+	 * @param schema the schema
+	 * @return the flattened schema, shared by every caller
+	 */
+	private FlatSchema flatten(JsonNode schema)
+	{
+		FlatSchema flat = flattened.get(schema);
+		if (flat == null)
+		{
+			flat = new FlatSchema();
+			merge(flat, schema);
+			flattened.put(schema, flat);
+		}
+		return flat;
+	}
+
+
+	/**
+	 * Merges the constraints of a schema into a flattened schema
+	 * @param flat the flattened schema
+	 * @param schema the schema to merge
+	 */
+	private void merge(FlatSchema flat, JsonNode schema)
+	{
+		if (schema.has("$ref"))
+			merge(flat, resolve(schema.get("$ref").asText()));
+		if (schema.has("type"))
+		{
+			String type = schema.get("type").isArray() ? schema.get("type").get(0).asText() : schema.get("type").asText();
+			if (flat.type == null || flat.type.equals("number") && type.equals("integer"))
+				flat.type = type;
+			else if (!flat.type.equals(type) && !(flat.type.equals("integer") && type.equals("number")))
+				flat.conflictingTypes = true;
+		}
+		if (schema.has("const"))
+			flat.constValue = schema.get("const");
+		if (flat.enumValues == null && schema.has("enum"))
+			flat.enumValues = schema.get("enum");
+		if (schema.has("format"))
+			flat.format = schema.get("format").asText();
+		if (schema.has("pattern"))
+			flat.pattern = schema.get("pattern").asText();
+		if (schema.has("minimum"))
+			flat.minimum = schema.get("minimum").asDouble();
+		if (schema.has("maximum"))
+			flat.maximum = schema.get("maximum").asDouble();
+		flat.minItems = Math.max(flat.minItems, schema.path("minItems").asInt());
+		for (Map.Entry<String, JsonNode> property : schema.path("properties").properties())
+			flat.propertySchemas.computeIfAbsent(property.getKey(), key -> new ArrayList<>()).add(property.getValue());
+		for (JsonNode key : schema.path("required"))
+			flat.required.add(key.asText());
+		if (schema.has("items"))
+			flat.itemSchemas.add(schema.get("items"));
+		for (JsonNode branch : schema.path("oneOf"))
+			flat.oneOf.add(branch);
+		for (JsonNode entry : schema.path("allOf"))
+		{
+			if (entry.has("if"))
+				flat.conditionals.add(entry);
+			else
+				merge(flat, entry);
+		}
+	}
+
+
+	/**
+	 * Flattens a list of schemas into one
+	 * @param schemas the schemas, which must all be satisfied
+	 * @return the flattened schema
+	 */
+	private FlatSchema flattenAll(List<JsonNode> schemas)
+	{
+		if (schemas.size() == 1)
+			return flatten(schemas.get(0));
+
+		FlatSchema flat = new FlatSchema();
+		for (JsonNode schema : schemas)
+			merge(flat, schema);
+		return flat;
+	}
+
+
+	/**
+	 * Resolves a $ref in the schema document
+	 * @param ref the reference, like #/$defs/DateTime
+	 * @return the referenced schema
+	 * @throws IllegalArgumentException if the reference is not in the document
+	 */
+	private JsonNode resolve(String ref)
+	{
+		JsonNode schema = ref.startsWith("#") ? root.at(ref.substring(1)) : null;
+		if (schema == null || schema.isMissingNode())
+			throw new IllegalArgumentException("Cannot resolve " + ref);
+		return schema;
+	}
+}
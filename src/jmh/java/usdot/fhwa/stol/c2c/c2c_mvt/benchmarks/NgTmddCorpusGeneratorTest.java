@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.benchmarks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import com.fasterxml.jackson.databind.JsonNode;
+import usdot.fhwa.stol.c2c.c2c_mvt.C2CMVTException;
+import usdot.fhwa.stol.c2c.c2c_mvt.decoders.JsonDecoder;
+import usdot.fhwa.stol.c2c.c2c_mvt.messages.JsonC2CMessage;
+import usdot.fhwa.stol.c2c.c2c_mvt.validators.NGTMDDJsonValidator;
+
+/**
+ * Unit tests for NgTmddCorpusGenerator, checks the generated messages 
+ * against the validator the corpus is used to load test. Built and run with
+ * the benchmark profile.
+ */
+class NgTmddCorpusGeneratorTest {
+
+	private NgTmddCorpusGenerator generator;
+	private NGTMDDJsonValidator validator;
+	private JsonDecoder decoder;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		generator = NgTmddCorpusGenerator.fromClasspath(42);
+		validator = new NGTMDDJsonValidator(new ClassPathResource(NgTmddCorpusGenerator.SCHEMA));
+		decoder = new JsonDecoder();
+	}
+
+	private JsonC2CMessage toMessage(String messageType, JsonNode json) throws Exception {
+		JsonC2CMessage message = decoder.checkSyntax(json.toString().getBytes(StandardCharsets.UTF_8));
+		message.setMessageType(messageType);
+		return message;
+	}
+
+	@Test
+	void testGenerateValid_PassesValidatorForEveryMessageType() throws Exception {
+		assertThat(generator.getMessageTypes()).isNotEmpty();
+		for (String messageType : generator.getMessageTypes()) {
+			JsonC2CMessage message = toMessage(messageType, generator.generateValid(messageType));
+			validator.validateMessage(message);
+		}
+	}
+
+	@Test
+	void testGenerateInvalid_EveryDefectFailsValidatorForEveryMessageType() throws Exception {
+		for (String messageType : generator.getMessageTypes()) {
+			for (NgTmddCorpusGenerator.Defect defect : NgTmddCorpusGenerator.Defect.values()) {
+				JsonC2CMessage message = toMessage(messageType, generator.generateInvalid(messageType, defect));
+				assertThatThrownBy(() -> validator.validateMessage(message))
+					.as("%s with %s", messageType, defect)
+					.isInstanceOf(C2CMVTException.class);
+			}
+		}
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * ngTMDD messages used by the benchmarks. Each message type has a message that
+ * passes validation against ngTMDD/ngTMDD_Schema_v1.0.json and one that fails,
+ * since reporting a failure walks more of the schema than a message that passes.
+ */
+public final class NgTmddSamples
+{
+	/**
+	 * Names of the samples, usable as the values of a JMH @Param
+	 */
+	public static final String ACTIVITY_LOG_VALID = "ActivityLogRequest-valid";
+	public static final String ACTIVITY_LOG_INVALID = "ActivityLogRequest-invalid";
+	public static final String CCTV_IMAGE_LINK_VALID = "CCTVImageLinkRequest-valid";
+	public static final String CCTV_IMAGE_LINK_INVALID = "CCTVImageLinkRequest-invalid";
+
+
+	/**
+	 * The samples keyed by name
+	 */
+	private static final Map<String, String> SAMPLES = Map.of(
+		ACTIVITY_LOG_VALID, """
+		{
+			"message":
+			{
+				"messageType": "ActivityLogRequest",
+				"ownerOrganizationId": "org_id",
+				"externalOrganizationId": "ext_org_id",
+				"requestId": "request_id"
+			}
+		}
+		""",
+		ACTIVITY_LOG_INVALID, """
+		{
+			"message":
+			{
+				"messageType": "ActivityLogRequest",
+				"ownerOrganizationId": 12,
+				"requestId": "request_id"
+			}
+		}
+		""",
+		CCTV_IMAGE_LINK_VALID, """
+		{
+			"message":
+			{
+				"messageType": "CCTVImageLinkRequest",
+				"deviceInformationRequest":
+				{
+					"ownerOrganization":
+					{
+						"organizationId": "myorg"
+					},
+					"deviceType": "cctv camera",
+					"deviceInformationType": "image link"
+				},
+				"cctvId": "cctv-1",
+				"imageType": "snapshot"
+			}
+		}
+		""",
+		CCTV_IMAGE_LINK_INVALID, """
+		{
+			"message":
+			{
+				"messageType": "CCTVImageLinkRequest",
+				"deviceInformationRequest":
+				{
+					"ownerOrganization":
+					{
+						"organizationId": "myorg"
+					},
+					"deviceType": "cctv camera",
+					"deviceInformationType": "image link"
+				},
+				"imageType": "suppressed"
+			}
+		}
+		""");
+
+
+	/**
+	 * Not instantiated
+	 */
+	private NgTmddSamples()
+	{
+	}
+
+
+	/**
+	 * Gets a sample
+	 * @param name name of the sample
+	 * @return the sample encoded as UTF-8
+	 */
+	public static byte[] get(String name)
+	{
+		String sample = SAMPLES.get(name);
+		if (sample == null)
+			throw new IllegalArgumentException("Unknown sample " + name);
+
+		return sample.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.controllers;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import usdot.fhwa.stol.c2c.c2c_mvt.C2CMVTApplication;
+import usdot.fhwa.stol.c2c.c2c_mvt.benchmarks.NgTmddSamples;
+import usdot.fhwa.stol.c2c.c2c_mvt.jobs.ValidationJob;
+
+/**
+ * Measures validating an uploaded file from end to end: checking security,
+ * separating the messages, and checking the syntax of, identifying, validating
+ * and saving each message, with the records added to the log. The controller
+ * is created by Spring with the same configuration as the application, but
+ * without the web server. The file repeats the valid and invalid samples of
+ * {@link NgTmddSamples} until it has the number of messages being measured.
+ * <p>
+ * It is in the controllers package to call the package-private
+ * {@link StandardValidationController#validateMessages(ValidationJob, ByteBuffer, String)}
+ * that jobs submitted through the user interface run.
+ *
+ * Run with: mvnw -Pbenchmark -DskipTests verify -Djmh.includes=PipelineBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PipelineBenchmark
+{
+	/**
+	 * Number of messages in the uploaded file
+	 */
+	@Param({"100", "1000"})
+	public int messages;
+
+
+	/**
+	 * The Spring context of the controller
+	 */
+	private ConfigurableApplicationContext context;
+
+
+	/**
+	 * Controller under test
+	 */
+	private StandardValidationController controller;
+
+
+	/**
+	 * The uploaded file
+	 */
+	private byte[] payload;
+
+
+	/**
+	 * Starts the application without the web server and builds the file. The
+	 * validation result cache is disabled so the repeated samples are 
+	 * validated every time.
+	 */
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		context = new SpringApplicationBuilder(C2CMVTApplication.class)
+			.web(WebApplicationType.NONE)
+			.properties("logging.level.usdot.fhwa.stol.c2c.c2c_mvt=WARN", "c2c-mvt.cache.max-entries=0")
+			.run();
+		controller = context.getBean(StandardValidationController.class);
+
+		String[] samples = {NgTmddSamples.ACTIVITY_LOG_VALID, NgTmddSamples.ACTIVITY_LOG_INVALID, NgTmddSamples.CCTV_IMAGE_LINK_VALID, NgTmddSamples.CCTV_IMAGE_LINK_INVALID};
+		ByteArrayOutputStream file = new ByteArrayOutputStream();
+		for (int i = 0; i < messages; i++)
+			file.writeBytes(NgTmddSamples.get(samples[i % samples.length]));
+		payload = file.toByteArray();
+	}
+
+
+	/**
+	 * Validates the file as a new job with the message type detected
+	 * @return the job
+	 */
+	@Benchmark
+	public ValidationJob validateMessages()
+	{
+		ValidationJob job = new ValidationJob("benchmark.json", "ngTMDD", "1.0", "UTF-8", "Auto Detect");
+		controller.validateMessages(job, ByteBuffer.wrap(payload), ".json");
+		return job;
+	}
+
+
+	/**
+	 * Deletes the messages saved during the iteration so they do not fill the
+	 * working directory
+	 */
+	@TearDown(Level.Iteration)
+	public void deleteMessages()
+	{
+		controller.deleteMessages();
+	}
+
+
+	/**
+	 * Stops the application
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		context.close();
+	}
+}
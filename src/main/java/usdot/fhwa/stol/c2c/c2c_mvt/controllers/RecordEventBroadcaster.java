@@ -0,0 +1,482 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.controllers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Pushes validation records to clients with Server-Sent Events as they are
+ * added instead of clients polling for the whole in memory log. Each record
+ * is sent as a "record" event whose id is the sequence number of the record,
+ * so a client that reconnects with the Last-Event-ID header only receives the
+ * records it missed. Clearing the log is sent as a "reset" event, as is a
+ * Last-Event-ID after the last record in memory, which happens when the 
+ * server restarted and its sequence numbers started over, so the client 
+ * clears its records and receives every record from the start.
+ * <p>
+ * Sends happen on sender threads so the threads that validate messages never
+ * wait for clients. Adding a record only signals each client, and one sender
+ * at a time per client reads the client's records after the last one it sent
+ * from the record store, so every client receives the records in sequence 
+ * order without duplicates even when records are added by several threads.
+ * A slow client only delays its own records: what it has not received is 
+ * its position in the bounded record store, so records it falls behind on 
+ * are dropped once they are overwritten, and a client whose send has been
+ * blocked for c2c-mvt.events.stall-ms is disconnected.
+ */
+@Component
+public class RecordEventBroadcaster
+{
+	/**
+	 * Logger instance
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(RecordEventBroadcaster.class);
+
+
+	/**
+	 * Reads the records that are in memory
+	 */
+	@FunctionalInterface
+	public interface RecordSource
+	{
+		/**
+		 * Copies the records with a sequence number greater than since
+		 * @param since sequence number of the last record the client has
+		 * @param limit maximum number of records to copy
+		 * @param records receives the records in sequence order
+		 * @return the sequence number of the first copied record, or of the
+		 * next record to read if none were copied
+		 */
+		long copyRecordsSince(long since, int limit, List<String> records);
+	}
+
+
+	/**
+	 * A connected client, the sequence number of the last record sent to it
+	 * and the events waiting to be sent to it
+	 */
+	private static final class Subscriber
+	{
+		/**
+		 * Connection to the client
+		 */
+		private final SseEmitter emitter;
+
+
+		/**
+		 * Sequence number of the last record sent to the client, only used
+		 * by the sender of the client
+		 */
+		private long lastSequence;
+
+
+		/**
+		 * Number of times the client was signalled since its sender last 
+		 * checked, a sender is running while it is not 0
+		 */
+		private final AtomicInteger signals = new AtomicInteger();
+
+
+		/**
+		 * Sequence number of the last record cleared from the log when a 
+		 * "reset" event is waiting to be sent, otherwise -1
+		 */
+		private final AtomicLong resetThrough = new AtomicLong(-1);
+
+
+		/**
+		 * Set when a keep-alive comment is waiting to be sent
+		 */
+		private volatile boolean heartbeatDue;
+
+
+		/**
+		 * Time in milliseconds since the epoch the current send started, 0
+		 * when no send is in progress
+		 */
+		private volatile long sendingSince;
+
+
+		/**
+		 * Set once the client is removed, nothing more is sent to it
+		 */
+		private volatile boolean closed;
+
+
+		/**
+		 * Constructor
+		 * @param emitter connection to the client
+		 * @param lastSequence sequence number of the last record the client has
+		 */
+		private Subscriber(SseEmitter emitter, long lastSequence)
+		{
+			this.emitter = emitter;
+			this.lastSequence = lastSequence;
+		}
+	}
+
+
+	/**
+	 * Time in milliseconds a connection stays open before the client has to
+	 * reconnect, EventSource clients reconnect and resume automatically
+	 */
+	@Value("${c2c-mvt.events.timeout-ms:1800000}")
+	private long timeout;
+
+
+	/**
+	 * Time in milliseconds between keep-alive comments, used to detect
+	 * clients that have disconnected
+	 */
+	@Value("${c2c-mvt.events.heartbeat-ms:15000}")
+	private long heartbeat;
+
+
+	/**
+	 * Time in milliseconds a send to a client can be blocked, by a client 
+	 * that stopped reading, before the client is disconnected
+	 */
+	@Value("${c2c-mvt.events.stall-ms:30000}")
+	private long stallTimeout;
+
+
+	/**
+	 * Maximum number of records read from the record source at a time
+	 */
+	private static final int BATCH_SIZE = 256;
+
+
+	/**
+	 * Connected clients
+	 */
+	private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+
+	/**
+	 * Schedules the keep-alive comments
+	 */
+	private ScheduledExecutorService scheduler;
+
+
+	/**
+	 * Sends the events, each client has at most one sender running at a time
+	 * so a blocked client only holds its own thread
+	 */
+	private ExecutorService senders;
+
+
+	/**
+	 * Reads the records that are sent to the clients
+	 */
+	private volatile RecordSource recordSource = (since, limit, records) -> since + 1;
+
+
+	/**
+	 * Gets the sequence number of the last record in the record source
+	 */
+	private volatile LongSupplier lastSequence = () -> Long.MAX_VALUE;
+
+
+	/**
+	 * Creates the sender threads and schedules the keep-alive comments
+	 */
+	@PostConstruct
+	public void init()
+	{
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable ->
+		{
+			Thread thread = new Thread(runnable, "c2c-mvt-record-events");
+			thread.setDaemon(true);
+			return thread;
+		});
+		AtomicInteger senderCount = new AtomicInteger();
+		senders = Executors.newCachedThreadPool(runnable ->
+		{
+			Thread thread = new Thread(runnable, "c2c-mvt-record-sender-" + senderCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		if (heartbeat > 0)
+			scheduler.scheduleWithFixedDelay(this::sendHeartbeat, heartbeat, heartbeat, TimeUnit.MILLISECONDS);
+	}
+
+
+	/**
+	 * Closes every connection and stops the sender threads
+	 */
+	@PreDestroy
+	public void shutdown()
+	{
+		scheduler.shutdownNow();
+		senders.shutdownNow();
+		for (Subscriber subscriber : subscribers)
+		{
+			remove(subscriber);
+			subscriber.emitter.complete();
+		}
+	}
+
+
+	/**
+	 * Sets the source of the records sent to the clients
+	 * @param recordSource the source
+	 * @param lastSequence gets the sequence number of the last record in the
+	 * source
+	 */
+	public void setRecordSource(RecordSource recordSource, LongSupplier lastSequence)
+	{
+		this.recordSource = recordSource;
+		this.lastSequence = lastSequence;
+	}
+
+
+	/**
+	 * @return the number of connected clients
+	 */
+	public int getSubscriberCount()
+	{
+		return subscribers.size();
+	}
+
+
+	/**
+	 * Opens a connection for a client. The records after since that are in
+	 * memory are sent first, followed by every record that is added afterwards.
+	 * @param since sequence number of the last record the client has, 0 to
+	 * receive every record in memory
+	 * @return the connection
+	 */
+	public SseEmitter subscribe(long since)
+	{
+		return subscribe(new SseEmitter(timeout), since);
+	}
+
+
+	/**
+	 * Starts sending the records after since to a connection
+	 * @param emitter the connection
+	 * @param since sequence number of the last record the client has
+	 * @return the connection
+	 */
+	SseEmitter subscribe(SseEmitter emitter, long since)
+	{
+		Subscriber subscriber = new Subscriber(emitter, since);
+		emitter.onCompletion(() -> remove(subscriber));
+		emitter.onTimeout(() -> remove(subscriber));
+		emitter.onError(ex -> remove(subscriber));
+		subscribers.add(subscriber);
+		signal(subscriber);
+		return emitter;
+	}
+
+
+	/**
+	 * Signals that records were added to the record source. The sender of 
+	 * each client sends every record after the last one the client has, so 
+	 * this can be called by several threads in any order.
+	 */
+	public void publish()
+	{
+		for (Subscriber subscriber : subscribers)
+			signal(subscriber);
+	}
+
+
+	/**
+	 * Starts a sender for a client unless one is already running, in which
+	 * case the running sender checks the client again before it stops
+	 * @param subscriber the client
+	 */
+	private void signal(Subscriber subscriber)
+	{
+		if (senders == null || subscriber.signals.getAndIncrement() != 0)
+			return;
+
+		try
+		{
+			senders.execute(() -> sendPending(subscriber));
+		}
+		catch (RejectedExecutionException ex) // shutting down
+		{
+			subscriber.signals.set(0);
+		}
+	}
+
+
+	/**
+	 * Sends the events waiting for a client until it has not been signalled
+	 * while sending them. Runs on a sender thread, one at a time per client.
+	 * @param subscriber the client
+	 */
+	private void sendPending(Subscriber subscriber)
+	{
+		int signals;
+		do
+		{
+			signals = subscriber.signals.get();
+			long resetThrough = subscriber.resetThrough.getAndSet(-1);
+			if (resetThrough >= 0)
+			{
+				if (!send(subscriber, SseEmitter.event().id(Long.toString(resetThrough)).name("reset").data("")))
+					return;
+				subscriber.lastSequence = Math.max(subscriber.lastSequence, resetThrough);
+			}
+			if (subscriber.heartbeatDue)
+			{
+				subscriber.heartbeatDue = false;
+				if (!send(subscriber, SseEmitter.event().comment("keep-alive")))
+					return;
+			}
+			if (!sendNewRecords(subscriber))
+				return;
+		}
+		while (!subscriber.signals.compareAndSet(signals, 0));
+	}
+
+
+	/**
+	 * Sends the records after the subscriber's last sequence number. If 
+	 * records it has not received were overwritten the records continue at
+	 * the oldest one still in memory. If its last sequence number is after
+	 * the last record, the sequence numbers started over and it is sent a 
+	 * "reset" event followed by every record in memory. Only called by the
+	 * sender of the client.
+	 * @param subscriber the client
+	 * @return false if the client was removed because sending failed
+	 */
+	private boolean sendNewRecords(Subscriber subscriber)
+	{
+		if (subscriber.lastSequence > lastSequence.getAsLong())
+		{
+			if (!send(subscriber, SseEmitter.event().id("0").name("reset").data("")))
+				return false;
+			subscriber.lastSequence = 0;
+		}
+
+		ArrayList<String> records = new ArrayList<>(BATCH_SIZE);
+		while (true)
+		{
+			records.clear();
+			long sequence = recordSource.copyRecordsSince(subscriber.lastSequence, BATCH_SIZE, records);
+			if (records.isEmpty())
+				return true;
+			
+			for (String record : records)
+			{
+				if (!send(subscriber, SseEmitter.event().id(Long.toString(sequence)).name("record").data(record)))
+					return false;
+				subscriber.lastSequence = sequence++;
+			}
+		}
+	}
+
+
+	/**
+	 * Tells every connected client that the log was cleared
+	 * @param lastSequence sequence number of the last record that was cleared
+	 */
+	public void publishReset(long lastSequence)
+	{
+		for (Subscriber subscriber : subscribers)
+		{
+			subscriber.resetThrough.accumulateAndGet(lastSequence, Math::max);
+			signal(subscriber);
+		}
+	}
+
+
+	/**
+	 * Sends a comment to every client so connections that were closed by the
+	 * client are detected and removed, and disconnects the clients whose 
+	 * send has been blocked for longer than the stall timeout
+	 */
+	void sendHeartbeat()
+	{
+		long now = System.currentTimeMillis();
+		for (Subscriber subscriber : subscribers)
+		{
+			long sendingSince = subscriber.sendingSince;
+			if (sendingSince != 0 && now - sendingSince > stallTimeout)
+			{
+				LOGGER.debug("Removing record event client that stopped reading");
+				remove(subscriber);
+				subscriber.emitter.completeWithError(new IOException("Client stopped reading record events"));
+				continue;
+			}
+			subscriber.heartbeatDue = true;
+			signal(subscriber);
+		}
+	}
+
+
+	/**
+	 * Sends an event to a client and removes the client if it fails
+	 * @param subscriber the client
+	 * @param event the event
+	 * @return true if the event was sent
+	 */
+	private boolean send(Subscriber subscriber, SseEmitter.SseEventBuilder event)
+	{
+		if (subscriber.closed) // disconnected while waiting
+			return false;
+		subscriber.sendingSince = System.currentTimeMillis();
+		try
+		{
+			subscriber.emitter.send(event);
+			return true;
+		}
+		catch (IOException | IllegalStateException ex)
+		{
+			LOGGER.debug("Removing disconnected record event client: " + ex.getMessage());
+			remove(subscriber);
+			subscriber.emitter.completeWithError(ex);
+			return false;
+		}
+		finally
+		{
+			subscriber.sendingSince = 0;
+		}
+	}
+
+
+	/**
+	 * Stops sending events to a client
+	 * @param subscriber the client
+	 */
+	private void remove(Subscriber subscriber)
+	{
+		subscriber.closed = true;
+		subscribers.remove(subscriber);
+	}
+}
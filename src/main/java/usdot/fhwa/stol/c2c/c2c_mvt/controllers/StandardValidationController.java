@@ -20,41 +20,86 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.UUID;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
-import org.springframework.core.io.Resource;
 import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import usdot.fhwa.stol.c2c.c2c_mvt.C2CMVTException;
 import usdot.fhwa.stol.c2c.c2c_mvt.C2CMVTApplication;
 import usdot.fhwa.stol.c2c.c2c_mvt.decoders.Decoder;
+import usdot.fhwa.stol.c2c.c2c_mvt.jobs.OrderedResults;
+import usdot.fhwa.stol.c2c.c2c_mvt.jobs.ValidationJob;
+import usdot.fhwa.stol.c2c.c2c_mvt.jobs.ValidationJobEngine;
+import usdot.fhwa.stol.c2c.c2c_mvt.messages.ByteBufferInputStream;
 import usdot.fhwa.stol.c2c.c2c_mvt.messages.C2CBaseMessage;
+import usdot.fhwa.stol.c2c.c2c_mvt.metrics.ValidationJobEvent;
+import usdot.fhwa.stol.c2c.c2c_mvt.metrics.ValidationMetrics;
+import usdot.fhwa.stol.c2c.c2c_mvt.metrics.ValidationMetrics.Stage;
+import usdot.fhwa.stol.c2c.c2c_mvt.metrics.ValidationMetrics.StageTimer;
 import usdot.fhwa.stol.c2c.c2c_mvt.parsers.Parser;
+import usdot.fhwa.stol.c2c.c2c_mvt.records.ValidationRecordStore;
+import usdot.fhwa.stol.c2c.c2c_mvt.standards.C2CMVTStandardComponents;
 import usdot.fhwa.stol.c2c.c2c_mvt.standards.C2CMVTStandards;
+import usdot.fhwa.stol.c2c.c2c_mvt.storage.MessageStore;
+import usdot.fhwa.stol.c2c.c2c_mvt.storage.RetentionJanitor;
+import usdot.fhwa.stol.c2c.c2c_mvt.storage.WatchFolderIngestor;
+import usdot.fhwa.stol.c2c.c2c_mvt.validators.JsonSchemaRegistry;
+import usdot.fhwa.stol.c2c.c2c_mvt.validators.SchemaValidationException;
+import usdot.fhwa.stol.c2c.c2c_mvt.validators.ValidationError;
+import usdot.fhwa.stol.c2c.c2c_mvt.validators.ValidationResultCache;
 import usdot.fhwa.stol.c2c.c2c_mvt.validators.Validator;
 
 /**
@@ -76,9 +121,53 @@ public class StandardValidationController
 
 	
 	/**
-	 * Flag indicating if a message is currently being validated
+	 * Runs the validation jobs created for uploads
 	 */
-	private final AtomicBoolean validationInProgress = new AtomicBoolean(false);
+	@Autowired
+	private ValidationJobEngine jobEngine;
+
+
+	/**
+	 * Pushes validation records to clients with Server-Sent Events
+	 */
+	@Autowired
+	private RecordEventBroadcaster recordEventBroadcaster;
+
+
+	/**
+	 * Records the time taken by each stage of validating a message
+	 */
+	@Autowired
+	private ValidationMetrics metrics;
+
+
+	/**
+	 * Saves the validated messages by content
+	 */
+	@Autowired
+	private MessageStore messageStore;
+
+
+	/**
+	 * Keeps the results of validated messages so repeated messages are not
+	 * validated again
+	 */
+	@Autowired
+	private ValidationResultCache resultCache;
+
+
+	/**
+	 * Evicts saved messages and validation records past the retention limits
+	 */
+	@Autowired
+	private RetentionJanitor retentionJanitor;
+
+
+	/**
+	 * Validates the files dropped into the watched directories
+	 */
+	@Autowired
+	private WatchFolderIngestor watchFolderIngestor;
 
 	
 	/**
@@ -93,11 +182,82 @@ public class StandardValidationController
 	private static final Logger LOGGER = LoggerFactory.getLogger(StandardValidationController.class);
 
 	
+	/**
+	 * Number of records kept in memory until the configuration is read
+	 */
+	private static final int DEFAULT_RECORD_CAPACITY = 10000;
+
+
+	/**
+	 * Maximum number of validation records kept in memory, once it is reached
+	 * each new record overwrites the oldest one
+	 */
+	@Value("${c2c-mvt.records.capacity:10000}")
+	private int recordCapacity;
+
+
+	/**
+	 * Bodies sent to /validate that are larger than this many bytes, or whose
+	 * length is not known, get their results as NDJSON while they are validated
+	 */
+	@Value("${c2c-mvt.validate.stream-threshold:1048576}")
+	private long validateStreamThreshold;
+
+
+	/**
+	 * Results of a /validate job streamed as NDJSON that can wait to be 
+	 * written to the response before reading the next message waits
+	 */
+	@Value("${c2c-mvt.validate.result-queue-depth:256}")
+	private int validateResultQueueDepth;
+
+
+	/**
+	 * Time in milliseconds a streamed response of /validate or /downloadLog
+	 * can take before the servlet container cuts it off, 0 for no limit. Without it the 
+	 * container's default of 30 seconds applies.
+	 */
+	@Value("${c2c-mvt.responses.timeout-ms:3600000}")
+	private long responseTimeout;
+
+
+	/**
+	 * Maximum length in bytes of a message of a stream, a job whose stream 
+	 * has a longer message fails
+	 */
+	@Value("${c2c-mvt.jobs.max-message-bytes:16777216}")
+	private int maxMessageBytes;
+
+
+	/**
+	 * Maximum number of bytes a compressed upload or file is inflated to, a
+	 * job whose input inflates past it fails. 0 for no limit.
+	 */
+	@Value("${c2c-mvt.jobs.max-inflated-bytes:4294967296}")
+	private long maxInflatedBytes;
+
+
+	/**
+	 * Directories on the server whose files can be validated with /validateFile,
+	 * none if empty
+	 */
+	@Value("${c2c-mvt.ingest.allowed-directories:}")
+	private String[] allowedDirectories;
+
+
 	/**
 	 * In memory log used for storing messages related to validation that will 
-	 * be sent to the client
+	 * be sent to the client. Each record has a sequence number that clients
+	 * use as a cursor to only request the records they do not have.
 	 */
-	private static final ArrayList<String> VALIDATION_RECORDS = new ArrayList<>();
+	private static volatile ValidationRecordStore recordStore = new ValidationRecordStore(DEFAULT_RECORD_CAPACITY);
+
+
+	/**
+	 * Pushes each record to connected clients as it is added, set when the 
+	 * controller is initialized
+	 */
+	private static volatile RecordEventBroadcaster recordBroadcaster;
 
 	
 	/**
@@ -111,6 +271,17 @@ public class StandardValidationController
 	 */
 	private static final String FILE_DIR = "messages";
 
+	/**
+	 * Directory where the validation result cache is persisted
+	 */
+	private static final String CACHE_DIR = "cache";
+
+	/**
+	 * Size of the buffer of the compressed bytes read while inflating an upload
+	 */
+	private static final int INFLATE_BUFFER_SIZE = 64 * 1024;
+
+
 	/**
 	 * Timeout in milliseconds used to reset {@link MaxUploadSizeExceededExceptionHandler#requestTimes}
 	 */
@@ -127,17 +298,27 @@ public class StandardValidationController
 	/**
 	 * Initializes the controller. This method sets {@link #workingDirectory} 
 	 * and reads src/main/resources/c2c-mvt.json to read the configuration of
-	 * C2C standards that are implemented into {@link #c2CStandards}
+	 * C2C standards that are implemented into {@link #c2CStandards}. Once 
+	 * the standards are loaded the {@link WatchFolderIngestor} is started 
+	 * with the validation of server files.
+	 * @throws IllegalStateException if the configuration cannot be read or 
+	 * names a Decoder, Parser, Validator or schema file that cannot be loaded,
+	 * so the application does not start with a broken configuration
 	 */
 	@PostConstruct
 	public void init()
 	{
+		setRecordStore(recordCapacity);
+		recordEventBroadcaster.setRecordSource(StandardValidationController::copyRecordsSince, () -> recordStore.getLastSequence());
+		retentionJanitor.setRecordStore(() -> recordStore);
+		setRecordBroadcaster(recordEventBroadcaster);
 		try
 		{
 			Path workingDirPath = determineWorkingDirectory();
 			workingDirectory = workingDirPath.toString();
 			Files.createDirectories(workingDirPath);
-			Files.createDirectories(Path.of(workingDirectory, FILE_DIR));
+			messageStore.open(Path.of(workingDirectory, FILE_DIR));
+			resultCache.open(Path.of(workingDirectory, CACHE_DIR));
 			LOGGER.info("Working directory set to " + workingDirectory);
 		}
 		catch (IOException ex)
@@ -145,6 +326,7 @@ public class StandardValidationController
 			logException(LOGGER, ex, "Failed to set a working directory", null);
 		}
 		deleteMessages();
+		jobEngine.setEvictionListener(retentionJanitor::releaseJob);
 		
 		try
 		{
@@ -153,7 +335,30 @@ public class StandardValidationController
 		catch (C2CMVTException ex)
 		{
 			logException(LOGGER, ex.originalException, ex.additionalMessage, null);
+			throw new IllegalStateException(ex.additionalMessage, ex);
 		}
+		registerGauges();
+		watchFolderIngestor.start(workingDirectory, (job, file) -> validateMappedFile(job, file, getFileExtension(file.getFileName().toString())), 
+			(job, message) -> addLogRecord(job, message, null));
+	}
+
+
+	/**
+	 * Registers the gauges of the job queue, the in memory log and the saved
+	 * messages with {@link #metrics}
+	 */
+	private void registerGauges()
+	{
+		metrics.gauge("c2cmvt.jobs.queued", "Jobs waiting for a worker", null, jobEngine, ValidationJobEngine::getQueuedJobs);
+		metrics.gauge("c2cmvt.jobs.running", "Jobs being validated by a worker", null, jobEngine, ValidationJobEngine::getRunningJobs);
+		metrics.gauge("c2cmvt.jobs.active", "Jobs queued or being validated, including streamed uploads", null, jobEngine, ValidationJobEngine::getActiveJobs);
+		metrics.gauge("c2cmvt.records.retained", "Validation records kept in memory", null, this, controller -> recordStore.getSize());
+		metrics.gauge("c2cmvt.messages.disk", "Bytes of the messages saved in the messages directory", "bytes", messageStore, MessageStore::getBytesOnDisk);
+		metrics.gauge("c2cmvt.messages.stored", "Distinct messages saved in the messages directory", null, messageStore, MessageStore::getStoredMessages);
+		metrics.gauge("c2cmvt.cache.entries", "Validation results kept in the result cache", null, resultCache, ValidationResultCache::getSize);
+		metrics.gauge("c2cmvt.messages.segments", "Segment files in the messages directory", null, messageStore, MessageStore::getSegmentCount);
+		metrics.gauge("c2cmvt.messages.queued", "Messages waiting to be written to a segment", null, messageStore, MessageStore::getQueuedWrites);
+		metrics.gauge("c2cmvt.messages.deduplicated", "Messages not written because a message with the same content was saved", null, messageStore, MessageStore::getDuplicates);
 	}
 	
 	
@@ -161,37 +366,80 @@ public class StandardValidationController
 	{
 		return Path.of(System.getProperty("user.home"), "c2c-mvt");
 	}
+
+
+	/**
+	 * Gets the working directory of the application
+	 * @return the path of the working directory, null if it could not be set
+	 */
+	String getWorkingDirectory()
+	{
+		return workingDirectory;
+	}
 	
 	
 	/**
 	 * Creates a String representing a JSON Object which contains the status of the controller 
-	 * (whether or not validation is currently happening) and if bIncludeMessages 
-	 * is true all of the messages related to validation that are in memory
+	 * (whether or not validation is currently happening and how many jobs are
+	 * running and queued) and if bIncludeMessages is true the messages 
+	 * related to validation that are in memory and were added after the 
+	 * record with the sequence number since.
+	 * <p>
+	 * The "cursor" of the response is the sequence number of the last record
+	 * returned and is passed as since by the next request so only new records
+	 * are sent. "more" is true if there are records after the cursor that did
+	 * not fit in the limit, "missed" is the number of records after since that
+	 * were overwritten or expired before they could be returned and "cleared"
+	 * is true if the log was reset with /resetLog after the record with the 
+	 * sequence number since. A
+	 * since after the last record, left from before the server restarted and
+	 * its sequence numbers started over, is also "cleared" and the records 
+	 * are returned from the start.
 	 * @param includeValidationRecords flag to include messages in the response
+	 * @param since sequence number of the last record the client has, 0 for
+	 * every record in memory
+	 * @param limit maximum number of records to include, 0 for no limit
 	 * @return {@link ResponseEntity} with status code 200 and the String 
 	 * representing a JSON Object as the body if no exceptions occur, otherwise 
 	 * the status code is 500 and the body contains an error message
 	 */
 	@PostMapping("/status")
-    public ResponseEntity<String> getStatus(@RequestParam(name = "include_validation_records") boolean includeValidationRecords) 
+    public ResponseEntity<String> getStatus(@RequestParam(name = "include_validation_records") boolean includeValidationRecords,
+		@RequestParam(name = "since", defaultValue = "0") long since,
+		@RequestParam(name = "limit", defaultValue = "0") int limit) 
 	{
 		try
 		{
-			LOGGER.debug(String.format("getStatus() invoked with include_validation_records = %b", includeValidationRecords));
+			LOGGER.debug(String.format("getStatus() invoked with include_validation_records = %b, since = %d, limit = %d", includeValidationRecords, since, limit));
 			ObjectMapper objectMapper = new ObjectMapper();
 			ObjectNode jsonObject = objectMapper.createObjectNode();
-			jsonObject.put("validating", validationInProgress.get());
+			jsonObject.put("validating", jobEngine.isValidating());
+			jsonObject.put("running", jobEngine.getRunningJobs());
+			jsonObject.put("queued", jobEngine.getQueuedJobs());
+			ValidationRecordStore store = recordStore;
 			if (includeValidationRecords)
 			{
+				since = Math.max(0, since);
+				boolean cleared = since < store.getClearedThrough();
+				if (since > store.getLastSequence())
+				{
+					since = 0;
+					cleared = true;
+				}
+				ArrayList<String> records = new ArrayList<>();
+				long first = store.readSince(since, limit > 0 ? limit : store.getCapacity(), records);
+				long cursor = first + records.size() - 1;
 				ArrayNode msgArray = jsonObject.putArray("messages");
-				synchronized (VALIDATION_RECORDS)
+				for (String msg : records)
 				{
-					for (String msg : VALIDATION_RECORDS)
-					{
-						msgArray.add(msg);
-					}
+					msgArray.add(msg);
 				}
+				jsonObject.put("cursor", cursor);
+				jsonObject.put("more", cursor < store.getLastSequence());
+				jsonObject.put("missed", Math.max(0, first - Math.max(since, store.getClearedThrough()) - 1));
+				jsonObject.put("cleared", cleared);
 			}
+			jsonObject.put("sequence", store.getLastSequence());
 			return ResponseEntity.ok(objectMapper.writeValueAsString(jsonObject));
 		}
 		catch (Exception ex)
@@ -202,6 +450,40 @@ public class StandardValidationController
 	}
 
 	
+	/**
+	 * Opens a Server-Sent Events stream of the validation records. The records
+	 * in memory after the given sequence number are sent first, then each new
+	 * record as it is added, so clients do not need to poll {@link #getStatus}
+	 * for records. Each record is a "record" event with the sequence number
+	 * as its id, and clearing the log is a "reset" event. Browsers reconnect
+	 * automatically and send the id of the last event in the Last-Event-ID 
+	 * header, which takes precedence over since.
+	 * @param lastEventId sequence number of the last record received before
+	 * reconnecting, sent by the browser
+	 * @param since sequence number of the last record the client has, 0 to 
+	 * receive every record in memory
+	 * @return the event stream
+	 */
+	@GetMapping(path = "/records/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter streamRecords(@RequestHeader(name = "Last-Event-ID", required = false) String lastEventId, 
+									@RequestParam(name = "since", defaultValue = "0") long since)
+	{
+		LOGGER.debug(String.format("streamRecords() invoked with Last-Event-ID = %s and since = %d", lastEventId, since));
+		if (lastEventId != null)
+		{
+			try
+			{
+				since = Long.parseLong(lastEventId.trim());
+			}
+			catch (NumberFormatException ex)
+			{
+				LOGGER.debug("Ignoring invalid Last-Event-ID " + lastEventId);
+			}
+		}
+		return recordEventBroadcaster.subscribe(since);
+	}
+
+	
 	/**
 	 * Reads the configuration object {@link #c2CStandards} to create a String 
 	 * representing a JSON Array containing all of the implemented C2C standards.
@@ -323,9 +605,64 @@ public class StandardValidationController
 	
 	
 	/**
-	 * If there isn't a message currently being validated, this method assigns
-	 * a UUID to the file that is uploaded, saves it to disk, and creates a new
-	 * thread to asynchronously validate the message.
+	 * Creates a String representing a JSON Array that contains the statistics
+	 * of the compiled schemas held by {@link JsonSchemaRegistry}, which shows
+	 * how often each compiled schema is reused and what it cost to build.
+	 * @return {@link ResponseEntity} with status code 200 and the String 
+	 * representing a JSON Array as the body if no exceptions occur, otherwise 
+	 * the status code is 500 and the body contains an error message
+	 */
+	@GetMapping("/metrics/schemas")
+	public ResponseEntity<String> getSchemaStatistics()
+	{
+		try
+		{
+			LOGGER.debug("getSchemaStatistics() invoked");
+			return ResponseEntity.ok(JsonSchemaRegistry.getStatisticsAsJsonArray());
+		}
+		catch (Exception ex)
+		{
+			logException(LOGGER, ex, "Failed to get schema statistics", null);
+			return ResponseEntity.internalServerError().body("{\"error\": \"Failed to get schema statistics\"}");
+		}
+	}
+	
+	
+	/**
+	 * Creates a String representing a JSON Object that contains the statistics
+	 * of the in memory validation records: the capacity and eviction policy of
+	 * the store, the range of sequence numbers that can still be read, how many
+	 * records were overwritten and how many clients receive record events.
+	 * @return {@link ResponseEntity} with status code 200 and the String 
+	 * representing a JSON Object as the body if no exceptions occur, otherwise 
+	 * the status code is 500 and the body contains an error message
+	 */
+	@GetMapping("/metrics/records")
+	public ResponseEntity<String> getRecordStatistics()
+	{
+		try
+		{
+			LOGGER.debug("getRecordStatistics() invoked");
+			ObjectMapper objectMapper = new ObjectMapper();
+			ObjectNode jsonObject = recordStore.getStatisticsAsJson(objectMapper);
+			jsonObject.put("subscribers", recordEventBroadcaster.getSubscriberCount());
+			return ResponseEntity.ok(objectMapper.writeValueAsString(jsonObject));
+		}
+		catch (Exception ex)
+		{
+			logException(LOGGER, ex, "Failed to get record statistics", null);
+			return ResponseEntity.internalServerError().body("{\"error\": \"Failed to get record statistics\"}");
+		}
+	}
+	
+	
+	/**
+	 * Creates a validation job for the file that is uploaded and queues it to
+	 * be validated asynchronously by {@link ValidationJobEngine}. Several jobs
+	 * can be validated at the same time. The upload is refused if the queue
+	 * of jobs waiting to be validated is full. Files ending in .gz are kept
+	 * compressed and inflated while their messages are separated, so the 
+	 * upload size limit applies to the compressed file.
 	 * @param data a file containing the message to validate
 	 * @param standard name of the C2C standard
 	 * @param version version of the C2C standard
@@ -333,9 +670,9 @@ public class StandardValidationController
 	 * @param messageType the type of message being validated, if known and necessary
 	 * to validate
 	 * @return {@link ResponseEntity} with status code 200 and a String 
-	 * representing a JSON Object saying the message was received as the body 
-	 * if no exceptions occur, otherwise the status code is 500 and the body 
-	 * contains an error message
+	 * representing a JSON Object saying the message was received and the id of
+	 * the job as the body if no exceptions occur, status code 503 if the queue
+	 * is full, otherwise the status code is 400 and the body contains an error message
 	 */
 	@PostMapping("/upload")
 	public ResponseEntity<String> uploadMessages(@RequestParam(name = "uploaded_file") MultipartFile data, @RequestParam(name = "standard") String standard, 
@@ -344,20 +681,24 @@ public class StandardValidationController
 	{
 		try
 		{
-			if (validationInProgress.get())
-				return ResponseEntity.internalServerError().body("{\"error\": \"Failed to upload. Validation in progress\"}");
-			
 			String originalFilename = data.getOriginalFilename();
 			if (originalFilename == null)
 				throw new IOException("Failed to determine file type");
-			int lastPeriodPos = originalFilename.lastIndexOf(".");
-			String fileExtension = lastPeriodPos >= 0 ? originalFilename.substring(lastPeriodPos) : "";
+			String fileExtension = getFileExtension(originalFilename);
 			
 			LOGGER.debug(String.format("uploadMessages() invoked with file name %s and length %d", originalFilename, data.getSize()));
 			byte[] messageBytes = data.getBytes();
-			validationInProgress.set(true);
-			new Thread(() -> validateMessages(messageBytes, fileExtension, standard, version, encoding, messageType)).start();
-			return ResponseEntity.ok("{\"msg\": \"Received\"}");
+			ValidationJob job = new ValidationJob(originalFilename, standard, version, encoding, messageType);
+			if (isGzipFile(originalFilename))
+				jobEngine.submit(job, submittedJob -> validateCompressed(submittedJob, messageBytes, fileExtension));
+			else
+				jobEngine.submit(job, submittedJob -> validateMessages(submittedJob, ByteBuffer.wrap(messageBytes), fileExtension));
+			return ResponseEntity.ok(String.format("{\"msg\": \"Received\", \"job_id\": \"%s\"}", job.getId()));
+		}
+		catch (RejectedExecutionException ex)
+		{
+			LOGGER.warn("Upload refused, the validation queue is full");
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("{\"error\": \"Failed to upload. Validation queue is full\"}");
 		}
 		catch (Exception ex)
 		{
@@ -368,221 +709,1110 @@ public class StandardValidationController
 	
 	
 	/**
-	 * Deletes all files that have been uploaded for validation and resets the
-	 * in memory list of messages.
+	 * Creates a validation job for a file that is already on the server, such
+	 * as a capture saved by a C2C gateway, and queues it like {@link #uploadMessages}.
+	 * The file must be inside one of the directories listed in 
+	 * c2c-mvt.ingest.allowed-directories. It is memory mapped when the job 
+	 * runs and its messages are separated and validated straight from the 
+	 * mapped file, so it is not copied into the heap and repeated runs reuse
+	 * the operating system's page cache. Files ending in .gz are inflated 
+	 * from the mapped file while their messages are separated. Paths that do
+	 * not exist get the same 403 as files outside the allowed directories, so
+	 * the response does not tell which files exist on the server.
+	 * @param path path of the file on the server
+	 * @param standard name of the C2C standard
+	 * @param version version of the C2C standard
+	 * @param encoding encoding used for the message
+	 * @param messageType the type of message being validated, if known and necessary
+	 * to validate
 	 * @return {@link ResponseEntity} with status code 200 and a String 
-	 * representing a JSON Object saying the reset was a success as the body 
-	 * if no exceptions occur, otherwise the status code is 500 and the body 
-	 * contains an error message
+	 * representing a JSON Object saying the file was received and the id of
+	 * the job as the body if no exceptions occur, status code 403 if the path
+	 * is not a file in an allowed directory, status code 503 if the queue is full,
+	 * otherwise the status code is 400 and the body contains an error message
 	 */
-	@GetMapping("/resetLog")
-	public ResponseEntity<String> resetLog()
+	@PostMapping("/validateFile")
+	public ResponseEntity<String> validateFile(@RequestParam(name = "path") String path, @RequestParam(name = "standard") String standard, 
+								 @RequestParam(name = "version") String version, @RequestParam(name = "encoding") String encoding, 
+								 @RequestParam(name = "message_type") String messageType)
 	{
 		try
 		{
-			LOGGER.debug("resetLog() invoked");
-			synchronized (VALIDATION_RECORDS)
+			LOGGER.debug(String.format("validateFile() invoked with path %s", path));
+			Path file = resolveAllowedFile(path);
+			if (file == null)
 			{
-				VALIDATION_RECORDS.clear();
+				LOGGER.warn("Refused to validate " + path + ", it is not a file in an allowed directory");
+				return ResponseEntity.status(HttpStatus.FORBIDDEN).body("{\"error\": \"File is not in an allowed directory\"}");
 			}
-			deleteMessages();
-			return ResponseEntity.ok("{\"msg\": \"Success\"}");
+			String fileName = file.getFileName().toString();
+			ValidationJob job = new ValidationJob(fileName, standard, version, encoding, messageType);
+			jobEngine.submit(job, submittedJob -> validateMappedFile(submittedJob, file, getFileExtension(fileName)));
+			return ResponseEntity.ok(String.format("{\"msg\": \"Received\", \"job_id\": \"%s\"}", job.getId()));
+		}
+		catch (RejectedExecutionException ex)
+		{
+			LOGGER.warn("File refused, the validation queue is full");
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("{\"error\": \"Failed to validate file. Validation queue is full\"}");
 		}
 		catch (Exception ex)
 		{
 			logException(LOGGER, ex, null, null);
-			return ResponseEntity.badRequest().body("{\"error\": \"Failed to upload.\"}");
+			return ResponseEntity.badRequest().body("{\"error\": \"Failed to validate file.\"}");
 		}
 	}
 
 
 	/**
-	 * Deletes stored messages that have been submitted for validation.
+	 * Resolves a path to a regular file inside one of the directories of
+	 * c2c-mvt.ingest.allowed-directories. Symbolic links and .. are resolved
+	 * before the directories are compared, so they cannot be used to reach 
+	 * files outside of them. A path that does not exist, is not a regular 
+	 * file or is not in an allowed directory gives the same result so 
+	 * callers cannot probe which files exist.
+	 * @param path path of the file
+	 * @return the real path of the file, null if it is not a regular file in
+	 * an allowed directory
+	 * @throws IOException if an allowed directory cannot be resolved
 	 */
-	public void deleteMessages()
+	Path resolveAllowedFile(String path)
+		throws IOException
 	{
-		try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(Path.of(workingDirectory, FILE_DIR)))
+		Path file;
+		try
 		{
-			for (Path file : directoryStream)
-			{
-				Files.deleteIfExists(file);
-			}
+			file = Path.of(path).toRealPath();
 		}
-		catch (Exception ex)
+		catch (IOException | InvalidPathException ex)
 		{
-			logException(LOGGER, ex, null, null);
+			return null;
 		}
+		if (!Files.isRegularFile(file))
+			return null;
+		for (String allowedDirectory : allowedDirectories)
+		{
+			if (allowedDirectory.isBlank())
+				continue;
+			Path directory = Path.of(allowedDirectory.trim());
+			if (Files.isDirectory(directory) && file.startsWith(directory.toRealPath()))
+				return file;
+		}
+		return null;
 	}
-	
-	
+
+
 	/**
-	 * Creates a zip file containing all of the messages related to validation
-	 * and each file that has been uploaded for validation.
-	 * @return {@link ResponseEntity} with status code 200 and the zipped file as the body 
-	 * if no exceptions occur, otherwise the status code is 500
+	 * Validates a file on the server from a memory mapping of it. The 
+	 * messages are slices of the mapping, so they are validated and saved 
+	 * without being copied into the heap. A buffer cannot map more than 
+	 * Integer.MAX_VALUE bytes, so larger files are read from the file channel
+	 * by {@link #validateStream} instead, which keeps one message at a time 
+	 * in memory.
+	 * @param job the job the file belongs to
+	 * @param file the file
+	 * @param fileExt file extension used when saving the messages
 	 */
-	@GetMapping("/downloadLog")
-	public ResponseEntity<Resource> downloadLog()
+	void validateMappedFile(ValidationJob job, Path file, String fileExt)
 	{
-		LOGGER.debug("downloadLog() invoked");
-		try 
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
 		{
-			byte[] zipFile = createLogBundle();
-			HttpHeaders httpHeaders = new HttpHeaders();
-			httpHeaders.setContentDisposition(ContentDisposition.builder("attachment").filename("c2c-mvt-logs.zip").build());
-			return ResponseEntity.ok().headers(httpHeaders).contentLength(zipFile.length).contentType(MediaType.APPLICATION_OCTET_STREAM).body(new ByteArrayResource(zipFile));
+			long size = channel.size();
+			boolean mappable = size <= Integer.MAX_VALUE;
+			if (isGzipFile(file.getFileName().toString()))
+			{
+				InputStream compressed = mappable ? new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, size)) : Channels.newInputStream(channel);
+				try (InputStream input = limitInflated(new GZIPInputStream(compressed, INFLATE_BUFFER_SIZE), maxInflatedBytes))
+				{
+					validateStream(job, input, fileExt);
+				}
+			}
+			else if (mappable)
+			{
+				validateMessages(job, channel.map(FileChannel.MapMode.READ_ONLY, 0, size), fileExt);
+			}
+			else
+			{
+				validateStream(job, Channels.newInputStream(channel), fileExt);
+			}
 		}
 		catch (IOException ex)
 		{
-			logException(LOGGER, ex, null, null);
-			return ResponseEntity.internalServerError().build();
+			job.fail();
+			addLogRecord(job, "Validation failed to complete", null);
+			logException(job, LOGGER, ex, "Failed to read " + file, null);
 		}
 	}
-	
-	
+
+
 	/**
-	 * Creates a .zip file that contains all of the messages and validation log
-	 * records.
-	 * @return a byte array that is a .zip file
-	 * @throws IOException 
+	 * Validates messages sent as the raw body of the request while the body
+	 * is still being received. Unlike {@link #uploadMessages} the body is not
+	 * held in memory or limited by the multipart size limits, so captures of 
+	 * any size can be validated. Each message is validated as soon as it has
+	 * been received, and the job is listed by /jobs and can be followed with
+	 * /job while the body is being read. The job runs on the request thread 
+	 * and the response is sent once every message has been validated. At 
+	 * most c2c-mvt.jobs.max-streams streamed uploads are validated at the 
+	 * same time. Bodies sent with a gzip or deflate Content-Encoding, or with
+	 * a file name ending in .gz, are inflated while they are read.
+	 * @param request the request, its body contains the messages
+	 * @param standard name of the C2C standard
+	 * @param version version of the C2C standard
+	 * @param encoding encoding used for the message
+	 * @param messageType the type of message being validated, if known and necessary
+	 * to validate
+	 * @param fileName name used for the job and to determine the extension of
+	 * the saved messages
+	 * @return {@link ResponseEntity} with status code 200 and a String 
+	 * representing a JSON Object describing the finished job as the body if 
+	 * no exceptions occur, status code 503 if too many streamed uploads are 
+	 * being validated, otherwise the status code is 400 and the body contains
+	 * an error message
 	 */
-	private byte[] createLogBundle()
-		throws IOException
+	@PostMapping("/uploadStream")
+	public ResponseEntity<String> uploadStream(HttpServletRequest request, @RequestParam(name = "standard") String standard, 
+								 @RequestParam(name = "version") String version, @RequestParam(name = "encoding") String encoding, 
+								 @RequestParam(name = "message_type") String messageType,
+								 @RequestParam(name = "file_name", defaultValue = "stream.json") String fileName)
 	{
-		byte[] newlineBytes = "\n".getBytes(StandardCharsets.UTF_8);
-		try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream())
+		try (InputStream input = inflate(request.getInputStream(), request.getHeader(HttpHeaders.CONTENT_ENCODING), fileName, maxInflatedBytes))
 		{
-			try (ZipOutputStream zipStream = new ZipOutputStream(new BufferedOutputStream(outputStream)))
-			{
-				zipStream.putNextEntry(new ZipEntry("validation_results.txt"));
-				synchronized (VALIDATION_RECORDS)
-				{
-					for (String msg : VALIDATION_RECORDS)
-					{
-						zipStream.write(msg.getBytes(StandardCharsets.UTF_8));
-						zipStream.write(newlineBytes);
-					}
-				}
-				zipStream.closeEntry();
-
-				try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(Path.of(workingDirectory, FILE_DIR)))
-				{
-					for (Path file : directoryStream)
-					{
-						zipStream.putNextEntry(new ZipEntry(file.getFileName().toString()));
-						zipStream.write(Files.readAllBytes(file));
-						zipStream.closeEntry();
-					}
-				}
-			}
-			return outputStream.toByteArray();
+			String fileExtension = getFileExtension(fileName);
+			
+			LOGGER.debug(String.format("uploadStream() invoked with file name %s", fileName));
+			ValidationJob job = new ValidationJob(fileName, standard, version, encoding, messageType);
+			jobEngine.runOnCallingThread(job, runningJob -> validateStream(runningJob, input, fileExtension));
+			ObjectMapper objectMapper = new ObjectMapper();
+			return ResponseEntity.ok(objectMapper.writeValueAsString(job.toJson(objectMapper, false)));
+		}
+		catch (RejectedExecutionException ex)
+		{
+			LOGGER.warn("Streamed upload refused, too many streamed uploads are being validated");
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("{\"error\": \"Failed to upload. Too many streamed uploads are being validated\"}");
+		}
+		catch (Exception ex)
+		{
+			logException(LOGGER, ex, null, null);
+			return ResponseEntity.badRequest().body("{\"error\": \"Failed to upload.\"}");
 		}
 	}
 	
+	
 	/**
-	 * Validates the given payload by instantiating the configured Decoder, Parser,
-	 * and Validator for the given C2C standard, version, encoding, and message
-	 * type. The method is package private so that it can be called from the test classes.
-	 * @param messageBytes messages to validate
-	 * @param fileExt file extension of the uploaded file
+	 * Validates the messages sent as the raw body of the request and responds
+	 * with the result of each message instead of the formatted validation 
+	 * records, so clients do not need to poll /status or /job and parse the
+	 * records. The body can hold concatenated JSON messages or NDJSON. The 
+	 * job is submitted to {@link ValidationJobEngine} like any other job, so
+	 * the request is refused when the validation queue is full, and is 
+	 * listed by /jobs. The response is written once the job has finished, or
+	 * while it runs for NDJSON.
+	 * <p>
+	 * Each result has the number of the message, starting at 1, its message
+	 * type, whether it passed, and when it did not the stage that failed and
+	 * the errors with the JSON Pointer of the value that failed. Small bodies
+	 * get a JSON Object describing the job with the results in "results". 
+	 * Bodies larger than c2c-mvt.validate.stream-threshold, bodies sent 
+	 * without a length, or requests that accept application/x-ndjson get 
+	 * chunked NDJSON instead: one result per line written as soon as the 
+	 * message is validated, in message order, followed by a line with the 
+	 * job in "job". The body is then read by the job while the response 
+	 * thread writes the results, so it is never held in memory, and reading
+	 * waits while c2c-mvt.validate.result-queue-depth results have not been
+	 * written. Bodies sent with a gzip or deflate 
+	 * Content-Encoding, or with a file name ending in .gz, are always 
+	 * inflated while they are read and get NDJSON since their inflated 
+	 * length is not known. Either response can take up to 
+	 * c2c-mvt.responses.timeout-ms, including the time the job waits in the
+	 * validation queue.
+	 * @param request the request, its body contains the messages
+	 * @param accept the Accept header of the request
 	 * @param standard name of the C2C standard
 	 * @param version version of the C2C standard
 	 * @param encoding encoding used for the message
-	 * @param selectedMessageType the type of message being validated, if known and necessary
+	 * @param messageType the type of message being validated, if known and necessary
 	 * to validate
+	 * @param fileName name used for the job and to determine the extension of
+	 * the saved messages
+	 * @return {@link ResponseEntity} with status code 200 and the results as
+	 * the body if no exceptions occur, status code 503 if the validation 
+	 * queue is full, otherwise the status code is 400 and the body contains
+	 * an error message
 	 */
-	void validateMessages(byte[] messageBytes, String fileExt, String standard, String version, String encoding, String selectedMessageType)
+	@PostMapping("/validate")
+	public ResponseEntity<StreamingResponseBody> validate(HttpServletRequest request, @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+								 @RequestParam(name = "standard") String standard, @RequestParam(name = "version") String version, 
+								 @RequestParam(name = "encoding") String encoding, @RequestParam(name = "message_type") String messageType,
+								 @RequestParam(name = "file_name", defaultValue = "request.json") String fileName)
 	{
-		String uuidAsString = null;
 		try
 		{
-			Decoder<C2CBaseMessage> decoder = standards.getDecoderInstance(standard, version);
-			decoder.setEncoding(encoding);
-			if (!decoder.checkSecurity(messageBytes))
-				throw new C2CMVTException(new Exception("Found possible security threat. Did not attempt validation."), null);
-			ArrayList<byte[]> separatedMessages = trySeparateMessage(decoder, messageBytes, fileExt);
+			String fileExtension = getFileExtension(fileName);
+			long contentLength = request.getContentLengthLong();
 			
-			int msgTotal = separatedMessages.size();
-			int msgNum = 1;
-			for (byte[] msgBytes : separatedMessages)
+			LOGGER.debug(String.format("validate() invoked with file name %s and length %d", fileName, contentLength));
+			if (standards.getComponents(standard, version) == null)
+				throw new IllegalArgumentException(String.format("%s %s is not implemented", standard, version));
+
+			ValidationJob job = new ValidationJob(fileName, standard, version, encoding, messageType);
+			InputStream body = request.getInputStream();
+			InputStream input = inflate(body, request.getHeader(HttpHeaders.CONTENT_ENCODING), fileName, maxInflatedBytes);
+			if (input != body)
+				contentLength = -1;
+			ObjectMapper objectMapper = new ObjectMapper();
+			if (contentLength < 0 || contentLength > validateStreamThreshold || (accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE)))
 			{
+				ResultLineQueue results = new ResultLineQueue(objectMapper, validateResultQueueDepth);
 				try
 				{
-					UUID uuid = UUID.randomUUID();
-					uuidAsString = uuid.toString();
-					String filename = uuidAsString + fileExt;
-					try (BufferedOutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(Path.of(workingDirectory, FILE_DIR, filename))))
+					jobEngine.submit(job, runningJob ->
 					{
-						outputStream.write(msgBytes);
+						try (input)
+						{
+							validateStream(runningJob, input, fileExtension, results, results::reserve);
+						}
+						catch (IOException ex)
+						{
+							LOGGER.debug("Failed to close request body, " + ex.getMessage());
+						}
+						finally
+						{
+							results.close();
+						}
+					});
+				}
+				catch (RejectedExecutionException ex)
+				{
+					try
+					{
+						input.close();
 					}
-					catch (IOException | InvalidPathException ex)
+					catch (IOException closeEx)
 					{
-						throw new C2CMVTException(ex, String.format("Failed to save message to disk for message %d of %d", msgNum, msgTotal));
+						LOGGER.debug("Failed to close request body, " + closeEx.getMessage());
 					}
-					C2CBaseMessage message = decoder.checkSyntax(msgBytes);
-					Parser<C2CBaseMessage> parser = standards.getParserInstance(standard, version);
-					message.setMessageType(selectedMessageType);
-					if (selectedMessageType.toLowerCase().compareTo("auto detect") == 0)
-						message.setMessageType(parser.identifyMessageType(message));
-
-					parser.parseMessage(message);
-					Validator<C2CBaseMessage> validator = standards.getValidatorInstance(standard, version);
-					validator.validateMessage(message);
-					addLogRecord(String.format("Validation completed with no errors for message %d of %d", msgNum, msgTotal), uuidAsString);
-				}
-				catch (C2CMVTException ex)
-				{
-					addLogRecord(String.format("Validation completed with errors for message %d of %d", msgNum, msgTotal), uuidAsString);
-					logException(LOGGER, ex.originalException, ex.additionalMessage, uuidAsString);
-				}
-				finally
-				{
-					++msgNum;
+					throw ex;
 				}
+				setResponseTimeout(request);
+				return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(outputStream -> results.writeTo(outputStream, job));
+			}
+
+			byte[] messageBytes;
+			try (input)
+			{
+				messageBytes = input.readAllBytes();
 			}
+			ArrayNode resultArray = objectMapper.createArrayNode();
+			jobEngine.submit(job, runningJob -> validateMessages(runningJob, ByteBuffer.wrap(messageBytes), fileExtension, outcome -> resultArray.add(outcome.toJson(objectMapper))));
+			setResponseTimeout(request);
+			return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(outputStream ->
+			{
+				if (!awaitJob(job))
+					return;
+				ObjectNode jsonObject = job.toJson(objectMapper, false);
+				jsonObject.set("results", resultArray);
+				outputStream.write(objectMapper.writeValueAsBytes(jsonObject));
+			});
 		}
-		catch (C2CMVTException ex)
+		catch (RejectedExecutionException ex)
 		{
-			addLogRecord("Validation failed to complete", uuidAsString);
-			logException(LOGGER, ex.originalException, ex.additionalMessage, uuidAsString);
+			LOGGER.warn("Validate request refused, the validation queue is full");
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).contentType(MediaType.APPLICATION_JSON).body(outputStream -> outputStream.write("{\"error\": \"Failed to validate. Validation queue is full\"}".getBytes(StandardCharsets.UTF_8)));
 		}
-		finally
+		catch (Exception ex)
 		{
-			validationInProgress.set(false);
+			logException(LOGGER, ex, null, null);
+			return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(outputStream -> outputStream.write("{\"error\": \"Failed to validate.\"}".getBytes(StandardCharsets.UTF_8)));
 		}
 	}
-
-
-	private ArrayList<byte[]> trySeparateMessage(Decoder<C2CBaseMessage> decoder, byte[] messageBytes, String fileExt)
-		throws C2CMVTException
+	
+	
+	/**
+	 * Creates a String representing a JSON Object which contains the status of
+	 * the given validation job and if includeValidationRecords is true the 
+	 * validation records that belong to the job
+	 * @param jobId identifier of the job returned by {@link #uploadMessages}
+	 * @param includeValidationRecords flag to include the records of the job in the response
+	 * @return {@link ResponseEntity} with status code 200 and the String 
+	 * representing a JSON Object as the body if no exceptions occur, status
+	 * code 404 if the job does not exist, otherwise the status code is 500 
+	 * and the body contains an error message
+	 */
+	@PostMapping("/job")
+	public ResponseEntity<String> getJob(@RequestParam(name = "job_id") String jobId, 
+										 @RequestParam(name = "include_validation_records", defaultValue = "false") boolean includeValidationRecords)
 	{
 		try
 		{
-			return decoder.separateMessages(messageBytes);
+			LOGGER.debug(String.format("getJob() invoked with job_id = %s", jobId));
+			ValidationJob job = jobEngine.getJob(jobId);
+			if (job == null)
+				return ResponseEntity.status(HttpStatus.NOT_FOUND).body("{\"error\": \"Job not found\"}");
+
+			ObjectMapper objectMapper = new ObjectMapper();
+			return ResponseEntity.ok(objectMapper.writeValueAsString(job.toJson(objectMapper, includeValidationRecords)));
 		}
-		catch (C2CMVTException separateMessagesError)
+		catch (Exception ex)
 		{
-			String uuidAsString = UUID.randomUUID().toString();
-			try (BufferedOutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(Path.of(workingDirectory, FILE_DIR, uuidAsString + fileExt))))
-			{
-				outputStream.write(messageBytes);
+			logException(LOGGER, ex, null, null);
+			return ResponseEntity.internalServerError().body("{\"error\": \"Failed to get job\"}");
+		}
+	}
+	
+	
+	/**
+	 * Creates a String representing a JSON Array which contains the status of
+	 * every validation job that is active or still retained in memory, oldest first
+	 * @return {@link ResponseEntity} with status code 200 and the String 
+	 * representing a JSON Array as the body if no exceptions occur, otherwise 
+	 * the status code is 500 and the body contains an error message
+	 */
+	@GetMapping("/jobs")
+	public ResponseEntity<String> getJobs()
+	{
+		try
+		{
+			LOGGER.debug("getJobs() invoked");
+			ObjectMapper objectMapper = new ObjectMapper();
+			ArrayNode jobArray = objectMapper.createArrayNode();
+			for (ValidationJob job : jobEngine.getJobs())
+				jobArray.add(job.toJson(objectMapper, false));
+
+			return ResponseEntity.ok(objectMapper.writeValueAsString(jobArray));
+		}
+		catch (Exception ex)
+		{
+			logException(LOGGER, ex, null, null);
+			return ResponseEntity.internalServerError().body("{\"error\": \"Failed to get jobs\"}");
+		}
+	}
+	
+	
+	/**
+	 * Deletes all files that have been uploaded for validation and resets the
+	 * in memory list of messages.
+	 * @return {@link ResponseEntity} with status code 200 and a String 
+	 * representing a JSON Object saying the reset was a success as the body 
+	 * if no exceptions occur, otherwise the status code is 500 and the body 
+	 * contains an error message
+	 */
+	@GetMapping("/resetLog")
+	public ResponseEntity<String> resetLog()
+	{
+		try
+		{
+			LOGGER.debug("resetLog() invoked");
+			long lastSequence = recordStore.clear();
+			if (recordBroadcaster != null)
+				recordBroadcaster.publishReset(lastSequence);
+			deleteMessages();
+			retentionJanitor.releaseMessagesOfRemovedRecords();
+			return ResponseEntity.ok("{\"msg\": \"Success\"}");
+		}
+		catch (Exception ex)
+		{
+			logException(LOGGER, ex, null, null);
+			return ResponseEntity.badRequest().body("{\"error\": \"Failed to upload.\"}");
+		}
+	}
+
+
+	/**
+	 * Deletes stored messages that have been submitted for validation.
+	 */
+	public void deleteMessages()
+	{
+		messageStore.clear();
+	}
+	
+	
+	/**
+	 * Creates a zip file containing all of the messages related to validation
+	 * and each file that has been uploaded for validation. Messages still 
+	 * queued for the writer of the {@link MessageStore} are written first. 
+	 * The zip file is written to the response as it is created instead of 
+	 * being built in memory first, and writing it can take up to 
+	 * c2c-mvt.responses.timeout-ms so a large log is not cut off.
+	 * @param request the request
+	 * @return {@link ResponseEntity} with status code 200 and the zipped file as the body 
+	 * if no exceptions occur, otherwise the status code is 500
+	 */
+	@GetMapping("/downloadLog")
+	public ResponseEntity<StreamingResponseBody> downloadLog(HttpServletRequest request)
+	{
+		LOGGER.debug("downloadLog() invoked");
+		try 
+		{
+			ArrayList<String> records = getValidationRecords();
+			messageStore.flush(null);
+			List<MessageStore.Location> messages = messageStore.getLocations();
+			HttpHeaders httpHeaders = new HttpHeaders();
+			httpHeaders.setContentDisposition(ContentDisposition.builder("attachment").filename("c2c-mvt-logs.zip").build());
+			setResponseTimeout(request);
+			return ResponseEntity.ok().headers(httpHeaders).contentType(MediaType.APPLICATION_OCTET_STREAM).body(outputStream -> writeLogBundle(records, messages, outputStream));
+		}
+		catch (Exception ex)
+		{
+			logException(LOGGER, ex, null, null);
+			return ResponseEntity.internalServerError().build();
+		}
+	}
+	
+	
+	/**
+	 * Writes a .zip file that contains the given validation log records and 
+	 * the saved messages. The records are a copy taken when the download was
+	 * requested so adding records is not blocked while the zip file is 
+	 * written. Each message is copied from its segment file with a channel 
+	 * transfer, the messages of segments deleted while the zip file is 
+	 * written are skipped.
+	 * @param records the validation log records
+	 * @param messages locations of the saved messages, ordered by segment
+	 * @param outputStream receives the .zip file, not closed by this method
+	 * @throws IOException 
+	 */
+	static void writeLogBundle(List<String> records, List<MessageStore.Location> messages, OutputStream outputStream)
+		throws IOException
+	{
+		byte[] newlineBytes = "\n".getBytes(StandardCharsets.UTF_8);
+		ZipOutputStream zipStream = new ZipOutputStream(new BufferedOutputStream(StreamUtils.nonClosing(outputStream)));
+		try (zipStream)
+		{
+			zipStream.putNextEntry(new ZipEntry("validation_results.txt"));
+			for (String msg : records)
+			{
+				zipStream.write(msg.getBytes(StandardCharsets.UTF_8));
+				zipStream.write(newlineBytes);
+			}
+			zipStream.closeEntry();
+
+			WritableByteChannel zipChannel = Channels.newChannel(zipStream);
+			Path segmentFile = null;
+			FileChannel segmentChannel = null;
+			try
+			{
+				for (MessageStore.Location message : messages)
+				{
+					if (!message.segment().equals(segmentFile))
+					{
+						if (segmentChannel != null)
+							segmentChannel.close();
+						segmentFile = message.segment();
+						try
+						{
+							segmentChannel = FileChannel.open(segmentFile, StandardOpenOption.READ);
+						}
+						catch (NoSuchFileException ex) // deleted by /resetLog during the download
+						{
+							segmentChannel = null;
+							LOGGER.debug("Skipping deleted segment " + segmentFile.getFileName());
+						}
+					}
+					if (segmentChannel == null)
+						continue;
+
+					zipStream.putNextEntry(new ZipEntry(message.name()));
+					long position = message.offset();
+					long end = position + message.length();
+					while (position < end)
+					{
+						long transferred = segmentChannel.transferTo(position, end - position, zipChannel);
+						if (transferred <= 0)
+							break;
+						position += transferred;
+					}
+					zipStream.closeEntry();
+				}
+			}
+			finally
+			{
+				if (segmentChannel != null)
+					segmentChannel.close();
+			}
+		}
+	}
+	
+	/**
+	 * Wraps the body of an upload so it is inflated while it is read if it is
+	 * compressed. The Content-Encoding of the request decides, gzip, x-gzip 
+	 * and deflate are supported. Without one, files ending in .gz are gzip. 
+	 * Deflate is meant to be zlib data but some clients send raw deflate
+	 * data, so the zlib header is checked first.
+	 * @param input the body of the upload
+	 * @param contentEncoding the Content-Encoding of the request, null if there is none
+	 * @param fileName name of the uploaded file, null if it is not known
+	 * @param maxInflatedBytes reading the inflated body past this many bytes
+	 * throws an IOException, 0 for no limit
+	 * @return input if it is not compressed, otherwise a stream that inflates it
+	 * @throws IOException if the Content-Encoding is not supported or the gzip
+	 * header cannot be read
+	 */
+	static InputStream inflate(InputStream input, String contentEncoding, String fileName, long maxInflatedBytes)
+		throws IOException
+	{
+		String contentCoding = contentEncoding == null ? "" : contentEncoding.trim().toLowerCase(Locale.ROOT);
+		if (contentCoding.isEmpty() || contentCoding.equals("identity"))
+			contentCoding = isGzipFile(fileName) ? "gzip" : "";
+
+		switch (contentCoding)
+		{
+			case "":
+				return input;
+			case "gzip":
+			case "x-gzip":
+				return limitInflated(new GZIPInputStream(input, INFLATE_BUFFER_SIZE), maxInflatedBytes);
+			case "deflate":
+				PushbackInputStream pushback = new PushbackInputStream(input, 2);
+				byte[] header = pushback.readNBytes(2);
+				pushback.unread(header);
+				boolean zlib = header.length == 2 && (header[0] & 0x0f) == 8 && ((header[0] & 0xff) << 8 | (header[1] & 0xff)) % 31 == 0;
+				return limitInflated(new InflaterInputStream(pushback, new Inflater(!zlib), INFLATE_BUFFER_SIZE), maxInflatedBytes);
+			default:
+				throw new IOException("Unsupported Content-Encoding " + contentEncoding);
+		}
+	}
+
+
+	/**
+	 * Limits how many bytes can be read from an inflating stream, so a small
+	 * compressed upload that inflates to an enormous size, like a gzip bomb,
+	 * fails its job instead of being validated for as long as it inflates
+	 * @param inflated the inflating stream
+	 * @param maxInflatedBytes reading past this many bytes throws an 
+	 * IOException, 0 for no limit
+	 * @return the limited stream
+	 */
+	static InputStream limitInflated(InputStream inflated, long maxInflatedBytes)
+	{
+		return maxInflatedBytes > 0 ? new InflatedLimitInputStream(inflated, maxInflatedBytes) : inflated;
+	}
+
+
+	/**
+	 * Checks if the name of an uploaded file is the name of a gzip file
+	 * @param fileName name of the file, can be null
+	 * @return true if the name ends in .gz
+	 */
+	static boolean isGzipFile(String fileName)
+	{
+		return fileName != null && fileName.toLowerCase(Locale.ROOT).endsWith(".gz");
+	}
+
+
+	/**
+	 * Gets the file extension used to save the messages of an uploaded file.
+	 * The .gz extension of compressed files is left out since the messages 
+	 * are saved inflated.
+	 * @param fileName name of the file
+	 * @return the extension including the period, "" if there is none
+	 */
+	static String getFileExtension(String fileName)
+	{
+		if (isGzipFile(fileName))
+			fileName = fileName.substring(0, fileName.length() - 3);
+		int lastPeriodPos = fileName.lastIndexOf(".");
+		return lastPeriodPos >= 0 ? fileName.substring(lastPeriodPos) : "";
+	}
+
+
+	/**
+	 * Validates a gzip file kept compressed in memory. The file is inflated 
+	 * while {@link #validateStream} separates its messages, so it is never
+	 * completely inflated in memory.
+	 * @param job the job the file belongs to
+	 * @param compressed the gzip file
+	 * @param fileExt file extension used when saving the messages
+	 */
+	void validateCompressed(ValidationJob job, byte[] compressed, String fileExt)
+	{
+		try (InputStream input = limitInflated(new GZIPInputStream(new ByteArrayInputStream(compressed), INFLATE_BUFFER_SIZE), maxInflatedBytes))
+		{
+			validateStream(job, input, fileExt);
+		}
+		catch (IOException ex)
+		{
+			job.fail();
+			addLogRecord(job, "Validation failed to complete", null);
+			logException(job, LOGGER, ex, "Failed to decompress the upload", null);
+		}
+	}
+
+
+	/**
+	 * Validates the given payload as a new {@link ValidationJob} on the calling
+	 * thread. The method is package private so that it can be called from the test classes.
+	 * @param messageBytes messages to validate
+	 * @param fileExt file extension of the uploaded file
+	 * @param standard name of the C2C standard
+	 * @param version version of the C2C standard
+	 * @param encoding encoding used for the message
+	 * @param selectedMessageType the type of message being validated, if known and necessary
+	 * to validate
+	 */
+	void validateMessages(byte[] messageBytes, String fileExt, String standard, String version, String encoding, String selectedMessageType)
+	{
+		validateMessages(new ValidationJob(null, standard, version, encoding, selectedMessageType), ByteBuffer.wrap(messageBytes), fileExt);
+	}
+
+
+	/**
+	 * Validates the given payload with the configured Decoder, Parser, and 
+	 * Validator for the C2C standard, version, encoding, and message type of 
+	 * the job. They are looked up once for the job, the Parser and Validator
+	 * are shared by every message. The separated messages are validated in parallel by
+	 * {@link ValidationJobEngine#forEachMessage}. The validation records of each
+	 * message are added to the job and to the in memory log in message order so
+	 * the log reads the same as if the messages were validated one at a time.
+	 * The separated messages are slices of the payload, so the bytes of the 
+	 * upload are not copied while they are validated and saved to disk.
+	 * A {@link ValidationJobEvent} is emitted for the job when Java Flight
+	 * Recorder is recording.
+	 * @param job the job the payload belongs to
+	 * @param payload messages to validate
+	 * @param fileExt file extension of the uploaded file
+	 */
+	void validateMessages(ValidationJob job, ByteBuffer payload, String fileExt)
+	{
+		validateMessages(job, payload, fileExt, null);
+	}
+
+
+	/**
+	 * Validates the given payload like {@link #validateMessages(ValidationJob, ByteBuffer, String)}
+	 * and passes the outcome of each message to results in message order
+	 * @param job the job the payload belongs to
+	 * @param payload messages to validate
+	 * @param fileExt file extension of the uploaded file
+	 * @param results receives the outcome of each message, can be null
+	 */
+	void validateMessages(ValidationJob job, ByteBuffer payload, String fileExt, Consumer<MessageOutcome> results)
+	{
+		ValidationJobEvent jobEvent = new ValidationJobEvent();
+		jobEvent.begin();
+		long payloadBytes = payload.remaining();
+		try
+		{
+			C2CMVTStandardComponents components = standards.getComponents(job.getStandard(), job.getVersion());
+			Decoder<C2CBaseMessage> decoder = components.getDecoder();
+			Charset charset = Decoder.getCharset(job.getEncoding());
+			StageTimer stageTimer = metrics.startStage(Stage.CHECK_SECURITY, job, 0, payloadBytes);
+			boolean secure = decoder.checkSecurity(payload);
+			stageTimer.end(null, secure);
+			if (!secure)
+				throw new C2CMVTException(new Exception("Found possible security threat. Did not attempt validation."), null);
+			ArrayList<ByteBuffer> separatedMessages = trySeparateMessage(job, decoder, payload, charset, fileExt);
+			
+			int msgTotal = separatedMessages.size();
+			job.setMessagesTotal(msgTotal);
+			OrderedResults<MessageOutcome> outcomes = newOrderedOutcomes(job, results);
+			jobEngine.forEachMessage(msgTotal, index -> 
+			{
+				ByteBuffer message = separatedMessages.get(index);
+				outcomes.complete(index, validateOrFail(message, index + 1, msgTotal, () -> validateMessage(job, components, message, index + 1, msgTotal, fileExt)));
+			});
+		}
+		catch (C2CMVTException ex)
+		{
+			job.fail();
+			addLogRecord(job, "Validation failed to complete", null);
+			logException(job, LOGGER, ex.originalException, ex.additionalMessage, null);
+		}
+		finally
+		{
+			flushMessages(job);
+			jobEvent.commit(job, payloadBytes);
+		}
+	}
+
+
+	/**
+	 * Validates the messages of the stream while it is read. The Decoder of
+	 * the job separates the stream incrementally and each message is queued 
+	 * for validation by {@link ValidationJobEngine#forEachStreamedMessage} as
+	 * soon as it is complete, so the stream is never held in memory. A message
+	 * longer than c2c-mvt.jobs.max-message-bytes fails the job. Since
+	 * the number of messages is not known until the stream ends the records 
+	 * do not include the total. The records are still added in message order.
+	 * A {@link ValidationJobEvent} is emitted for the job when Java Flight
+	 * Recorder is recording.
+	 * @param job the job the stream belongs to
+	 * @param input the messages to validate
+	 * @param fileExt file extension used when saving the messages
+	 */
+	void validateStream(ValidationJob job, InputStream input, String fileExt)
+	{
+		validateStream(job, input, fileExt, null, null);
+	}
+
+
+	/**
+	 * Validates the messages of the stream like {@link #validateStream(ValidationJob, InputStream, String)}
+	 * and passes the outcome of each message to results in message order
+	 * @param job the job the stream belongs to
+	 * @param input the messages to validate
+	 * @param fileExt file extension used when saving the messages
+	 * @param results receives the outcome of each message, can be null
+	 * @param beforeMessage run on the thread reading the stream before each
+	 * message is queued for validation, can be null
+	 */
+	void validateStream(ValidationJob job, InputStream input, String fileExt, Consumer<MessageOutcome> results, Runnable beforeMessage)
+	{
+		ValidationJobEvent jobEvent = new ValidationJobEvent();
+		jobEvent.begin();
+		AtomicLong streamedBytes = new AtomicLong();
+		try
+		{
+			C2CMVTStandardComponents components = standards.getComponents(job.getStandard(), job.getVersion());
+			Decoder<C2CBaseMessage> decoder = components.getDecoder();
+			Charset charset = Decoder.getCharset(job.getEncoding());
+			OrderedResults<MessageOutcome> outcomes = newOrderedOutcomes(job, results);
+			AtomicInteger received = new AtomicInteger();
+			jobEngine.<ByteBuffer>forEachStreamedMessage(
+				sink -> decoder.separateMessages(input, charset, maxMessageBytes, message ->
+				{
+					job.setMessagesTotal(received.incrementAndGet());
+					streamedBytes.addAndGet(message.remaining());
+					if (beforeMessage != null)
+						beforeMessage.run();
+					sink.accept(message);
+				}),
+				(message, index) -> outcomes.complete(index, validateOrFail(message, index + 1, 0, () -> validateStreamedMessage(job, components, message, index + 1, fileExt))));
+		}
+		catch (C2CMVTException ex)
+		{
+			job.fail();
+			addLogRecord(job, "Validation failed to complete", null);
+			logException(job, LOGGER, ex.originalException, ex.additionalMessage, null);
+		}
+		finally
+		{
+			flushMessages(job);
+			jobEvent.commit(job, streamedBytes.get());
+		}
+	}
+
+
+	/**
+	 * Waits until the messages of the job are written by the {@link MessageStore}
+	 * so the job does not finish before its messages are saved. Messages that
+	 * could not be saved are recorded for the job.
+	 * @param job the job
+	 */
+	private void flushMessages(ValidationJob job)
+	{
+		try
+		{
+			messageStore.flush(job);
+		}
+		catch (IOException ex)
+		{
+			logException(job, LOGGER, ex, "Failed to save message to disk for messages of the job", null);
+		}
+	}
+
+
+	/**
+	 * Creates the {@link OrderedResults} that adds the records of each message
+	 * outcome to the job and the in memory log in message order
+	 * @param job the job the messages belong to
+	 * @param results receives each outcome after its records are added, can be null
+	 * @return the ordered results
+	 */
+	private OrderedResults<MessageOutcome> newOrderedOutcomes(ValidationJob job, Consumer<MessageOutcome> results)
+	{
+		return new OrderedResults<>(outcome ->
+		{
+			for (String record : outcome.records)
+				addRecord(job, record);
+			job.countMessage(outcome.passed);
+			job.countMessageType(outcome.messageType);
+			metrics.countMessage(job, outcome.messageType, outcome.passed, outcome.bytes);
+			if (results != null)
+				results.accept(outcome);
+		});
+	}
+
+
+	/**
+	 * Runs the validation of a message and turns an unexpected exception, 
+	 * one that is not a {@link C2CMVTException}, into an outcome that failed.
+	 * So is a {@link StackOverflowError}, which the recursive JSON parsers 
+	 * throw for a message nested thousands of levels deep. Every message then
+	 * has an outcome, so the records of the messages after
+	 * it are not held back by {@link OrderedResults} waiting for it.
+	 * @param msgBuffer the message
+	 * @param msgNum number of the message, starting at 1
+	 * @param msgTotal number of messages, 0 if it is not known
+	 * @param validation validates the message
+	 * @return the outcome of validating the message
+	 */
+	private static MessageOutcome validateOrFail(ByteBuffer msgBuffer, int msgNum, int msgTotal, Supplier<MessageOutcome> validation)
+	{
+		try
+		{
+			return validation.get();
+		}
+		catch (RuntimeException | StackOverflowError ex)
+		{
+			MessageOutcome outcome = new MessageOutcome();
+			outcome.number = msgNum;
+			outcome.bytes = msgBuffer.remaining();
+			outcome.errors = List.of(new ValidationError("", null, ex.toString()));
+			outcome.records.add(formatMessage("Validation completed with errors for message " + messageLabel(msgNum, msgTotal), null));
+			outcome.records.add(formatMessage(logToLogger(LOGGER, ex, "Unexpected error validating message " + messageLabel(msgNum, msgTotal)), null));
+			return outcome;
+		}
+	}
+
+
+	/**
+	 * Checks a streamed message for security threats before validating it 
+	 * with {@link #validateMessage}. A batch is checked as a whole before it is
+	 * separated, a stream can only be checked one message at a time.
+	 * @param job the job the message belongs to
+	 * @param components the Decoder, Parser and Validator of the job
+	 * @param msgBuffer the message
+	 * @param msgNum number of the message in the stream, starting at 1
+	 * @param fileExt file extension used when saving the message
+	 * @return the outcome of validating the message
+	 */
+	private MessageOutcome validateStreamedMessage(ValidationJob job, C2CMVTStandardComponents components, ByteBuffer msgBuffer, int msgNum, String fileExt)
+	{
+		StageTimer stageTimer = metrics.startStage(Stage.CHECK_SECURITY, job, msgNum, msgBuffer.remaining());
+		try
+		{
+			boolean secure = components.getDecoder().checkSecurity(msgBuffer);
+			stageTimer.end(null, secure);
+			if (!secure)
+				throw new C2CMVTException(new Exception("Found possible security threat. Did not attempt validation."), null);
+		}
+		catch (C2CMVTException ex)
+		{
+			MessageOutcome outcome = new MessageOutcome();
+			outcome.number = msgNum;
+			outcome.bytes = msgBuffer.remaining();
+			outcome.stage = Stage.CHECK_SECURITY.getTag();
+			outcome.errors = getErrors(ex);
+			outcome.records.add(formatMessage(String.format("Validation completed with errors for message %d", msgNum), null));
+			outcome.records.add(formatMessage(logToLogger(LOGGER, ex.originalException, ex.additionalMessage), null));
+			return outcome;
+		}
+		return validateMessage(job, components, msgBuffer, msgNum, 0, fileExt);
+	}
+
+
+	/**
+	 * Stores a single message with the {@link MessageStore} and checks its 
+	 * syntax, parses it and validates it. The validation records are collected in the returned 
+	 * {@link MessageOutcome} instead of being logged right away since messages 
+	 * can be validated out of order. When the message type is detected it is
+	 * first read from the bytes with {@link Parser#sniffMessageType(ByteBuffer)}
+	 * so the message is counted by type even if its syntax is not valid. The
+	 * time taken by each stage is recorded with {@link ValidationMetrics},
+	 * which also emits a flight recorder event for each stage.
+	 * <p>
+	 * A message with a result in the {@link ValidationResultCache} is not
+	 * checked, parsed or validated again, the cached result is used instead.
+	 * Results are cached unless the message failed for a reason other than
+	 * its content, such as the schema file failing to load.
+	 * @param job the job the message belongs to
+	 * @param components the Decoder, Parser and Validator of the job
+	 * @param msgBuffer the message, a slice of the payload
+	 * @param msgNum number of the message in the payload, starting at 1
+	 * @param msgTotal number of messages in the payload, 0 if it is not known
+	 * @param fileExt file extension of the uploaded file
+	 * @return the outcome of validating the message
+	 */
+	private MessageOutcome validateMessage(ValidationJob job, C2CMVTStandardComponents components, ByteBuffer msgBuffer, int msgNum, int msgTotal, String fileExt)
+	{
+		MessageOutcome outcome = new MessageOutcome();
+		outcome.number = msgNum;
+		String messageId = MessageStore.hash(msgBuffer);
+		Parser<C2CBaseMessage> parser = components.getParser();
+		boolean autoDetect = job.getMessageType().toLowerCase().compareTo("auto detect") == 0;
+		outcome.messageType = autoDetect ? parser.sniffMessageType(msgBuffer) : job.getMessageType();
+		outcome.bytes = msgBuffer.remaining();
+		StageTimer stageTimer = metrics.startStage(Stage.PERSIST, job, msgNum, outcome.bytes);
+		ValidationResultCache.Key cacheKey = null;
+		String error = null;
+		boolean cacheable = true;
+		try
+		{
+			try
+			{
+				messageStore.store(job, messageId, msgBuffer, fileExt);
+			}
+			catch (IOException | InvalidPathException ex)
+			{
+				throw new C2CMVTException(ex, "Failed to save message to disk for message " + messageLabel(msgNum, msgTotal));
+			}
+			cacheKey = getCacheKey(job, components, messageId);
+			ValidationResultCache.Result cached = cacheKey != null ? resultCache.get(cacheKey) : null;
+			if (cacheKey != null)
+				metrics.countCacheLookup(job, cached != null);
+			if (cached != null)
+			{
+				stageTimer.end(cached.messageType(), true);
+				return cachedOutcome(outcome, cached, messageId, messageLabel(msgNum, msgTotal));
+			}
+			stageTimer.next(Stage.CHECK_SYNTAX, outcome.messageType);
+			C2CBaseMessage message = components.getDecoder().checkSyntax(msgBuffer);
+			message.setMessageType(job.getMessageType());
+			if (autoDetect)
+			{
+				stageTimer.next(Stage.IDENTIFY_MESSAGE_TYPE, outcome.messageType);
+				message.setMessageType(parser.identifyMessageType(message));
+				outcome.messageType = message.getMessageType();
+			}
+
+			stageTimer.next(Stage.PARSE_MESSAGE, outcome.messageType);
+			parser.parseMessage(message);
+			stageTimer.next(Stage.VALIDATE_MESSAGE, outcome.messageType);
+			Validator<C2CBaseMessage> validator = components.getValidator();
+			validator.validateMessage(message);
+			stageTimer.end(outcome.messageType, true);
+			outcome.records.add(formatMessage("Validation completed with no errors for message " + messageLabel(msgNum, msgTotal), messageId));
+			outcome.passed = true;
+		}
+		catch (C2CMVTException ex)
+		{
+			stageTimer.end(outcome.messageType, false);
+			outcome.stage = stageTimer.getStage().getTag();
+			outcome.errors = getErrors(ex);
+			error = logToLogger(LOGGER, ex.originalException, ex.additionalMessage);
+			cacheable = stageTimer.getStage() != Stage.VALIDATE_MESSAGE || ex.originalException instanceof SchemaValidationException;
+			outcome.records.add(formatMessage("Validation completed with errors for message " + messageLabel(msgNum, msgTotal), messageId));
+			outcome.records.add(formatMessage(error, messageId));
+		}
+		if (cacheKey != null && cacheable)
+			resultCache.put(cacheKey, new ValidationResultCache.Result(outcome.passed, outcome.messageType, outcome.stage, error, outcome.errors));
+		return outcome;
+	}
+
+
+	/**
+	 * Gets the key of a message in the {@link ValidationResultCache}
+	 * @param job the job the message belongs to
+	 * @param components the Decoder, Parser and Validator of the job
+	 * @param messageId SHA-256 hash of the message
+	 * @return the key, null if the cache is disabled or the schema file 
+	 * cannot be fingerprinted
+	 */
+	private ValidationResultCache.Key getCacheKey(ValidationJob job, C2CMVTStandardComponents components, String messageId)
+	{
+		if (!resultCache.isEnabled())
+			return null;
+
+		try
+		{
+			return new ValidationResultCache.Key(job.getStandard(), job.getVersion(), job.getEncoding(),
+				components.getValidator().getSchemaFingerprint(), job.getMessageType(), messageId);
+		}
+		catch (IOException ex)
+		{
+			LOGGER.debug("Failed to fingerprint the schema file, the result is not cached", ex);
+			return null;
+		}
+	}
+
+
+	/**
+	 * Fills in the outcome of a message from its cached result. The error is
+	 * logged again without the stack trace it was logged with the first time.
+	 * @param outcome the outcome of the message
+	 * @param cached the cached result of the message
+	 * @param messageId SHA-256 hash of the message
+	 * @param label label of the message in the validation records
+	 * @return the outcome
+	 */
+	private static MessageOutcome cachedOutcome(MessageOutcome outcome, ValidationResultCache.Result cached, String messageId, String label)
+	{
+		outcome.messageType = cached.messageType();
+		outcome.passed = cached.passed();
+		outcome.stage = cached.stage();
+		outcome.errors = cached.errors();
+		if (cached.passed())
+		{
+			outcome.records.add(formatMessage("Validation completed with no errors for message " + label, messageId));
+			return outcome;
+		}
+		LOGGER.error(cached.error());
+		outcome.records.add(formatMessage("Validation completed with errors for message " + label, messageId));
+		outcome.records.add(formatMessage(cached.error(), messageId));
+		return outcome;
+	}
+
+
+	/**
+	 * Gets the errors of a message that failed. Schema failures have the
+	 * errors reported by the Validator, any other failure is a single error 
+	 * for the whole message.
+	 * @param ex the exception thrown while validating the message
+	 * @return the errors of the message
+	 */
+	private static List<ValidationError> getErrors(C2CMVTException ex)
+	{
+		if (ex.originalException instanceof SchemaValidationException schemaException)
+			return schemaException.getErrors();
+
+		String message = ex.originalException.getMessage();
+		if (ex.additionalMessage != null)
+			message = message != null ? ex.additionalMessage + ": " + message : ex.additionalMessage;
+		return List.of(new ValidationError("", null, message));
+	}
+
+
+	/**
+	 * Creates the text identifying a message in the validation records
+	 * @param msgNum number of the message, starting at 1
+	 * @param msgTotal number of messages, 0 if it is not known
+	 * @return "msgNum of msgTotal", or "msgNum" if the total is not known
+	 */
+	private static String messageLabel(int msgNum, int msgTotal)
+	{
+		if (msgTotal > 0)
+			return String.format("%d of %d", msgNum, msgTotal);
+
+		return Integer.toString(msgNum);
+	}
+
+
+	private ArrayList<ByteBuffer> trySeparateMessage(ValidationJob job, Decoder<C2CBaseMessage> decoder, ByteBuffer payload, Charset charset, String fileExt)
+		throws C2CMVTException
+	{
+		StageTimer stageTimer = metrics.startStage(Stage.SEPARATE_MESSAGES, job, 0, payload.remaining());
+		try
+		{
+			ArrayList<ByteBuffer> separatedMessages = decoder.separateMessages(payload, charset);
+			stageTimer.end(null, true);
+			return separatedMessages;
+		}
+		catch (C2CMVTException separateMessagesError)
+		{
+			stageTimer.end(null, false);
+			String payloadId = MessageStore.hash(payload);
+			try
+			{
+				messageStore.store(job, payloadId, payload, fileExt);
 			}
 			catch (IOException | InvalidPathException ioEx)
 			{
-				addLogRecord("Failed to save message to disk for message", uuidAsString);
-				logException(LOGGER, ioEx, null, uuidAsString);
+				addLogRecord(job, "Failed to save message to disk for message", payloadId);
+				logException(job, LOGGER, ioEx, null, payloadId);
 			}
 			throw separateMessagesError;
 		}
 	}
 
-	
+
+
 	/**
-	 * Formats the given message with a timestamp and the UUID of the message
-	 * currently being validated if a message is being validated
+	 * Formats the given message with a timestamp and the identifier of the 
+	 * message currently being validated if a message is being validated
 	 * @param msg message to format
 	 * @param msgUuid null if a message isn't being validated, otherwise the
-	 * uuid of the message being validated
+	 * identifier of the message being validated, the name of its stored file
+	 * without the extension
 	 * @return formatted message String
 	 */
 	private static String formatMessage(String msg, String msgUuid)
@@ -617,12 +1847,40 @@ public class StandardValidationController
 	 * uuid of the message being validated
 	 */
 	public static void logException(Logger logger, Exception ex, String extra, String messageUuid)
+	{
+		logException(null, logger, ex, extra, messageUuid);
+	}
+
+	/**
+	 * Logs an exception to the log4j2 file and calls {@link #addLogRecord(ValidationJob, String, String)} 
+	 * with the extra message and {@link Exception#toString()}
+	 * @param job the job being validated, null if the exception is not related to a job
+	 * @param logger Logger to use
+	 * @param ex Exception to log
+	 * @param extra Extra message to log
+	 * @param messageUuid null if a message isn't being validated, otherwise the
+	 * uuid of the message being validated
+	 */
+	static void logException(ValidationJob job, Logger logger, Exception ex, String extra, String messageUuid)
+	{
+		addLogRecord(job, logToLogger(logger, ex, extra), messageUuid);
+	}
+
+	/**
+	 * Logs an exception and its stack trace to the log4j2 file
+	 * @param logger Logger to use
+	 * @param ex Exception or error to log
+	 * @param extra Extra message to log
+	 * @return the extra message and {@link Throwable#toString()} to use as the
+	 * validation record of the exception
+	 */
+	private static String logToLogger(Logger logger, Throwable ex, String extra)
 	{
 		StringBuilder buffer = new StringBuilder();
 		if (extra != null)
 			buffer.append(extra).append('\n').append('\t');
 		buffer.append(ex.toString());
-		addLogRecord(buffer.toString(), messageUuid);
+		String record = buffer.toString();
 		buffer.append('\n').append('\t');
 		StackTraceElement[] stackTrace = ex.getStackTrace();
 		for (StackTraceElement sTE : stackTrace)
@@ -634,6 +1892,7 @@ public class StandardValidationController
 		
 		String logMsg = buffer.toString();
 		logger.error(logMsg);
+		return record;
 	}
 	
 	/**
@@ -644,26 +1903,455 @@ public class StandardValidationController
 	 */
 	public static void addLogRecord(String message, String messageUuid)
 	{
-		synchronized (VALIDATION_RECORDS)
+		addLogRecord(null, message, messageUuid);
+	}
+
+	/**
+	 * Adds the message to the in memory list of log messages {@link #message}
+	 * and to the records of the job
+	 * @param job the job being validated, null if the message is not related to a job
+	 * @param message The message to log
+	 * @param messageUuid null if a message isn't being validated, otherwise the
+	 * uuid of the message being validated
+	 */
+	static void addLogRecord(ValidationJob job, String message, String messageUuid)
+	{
+		addRecord(job, formatMessage(message, messageUuid));
+	}
+
+	/**
+	 * Adds an already formatted record to the in memory list of log messages
+	 * and to the records of the job
+	 * @param job the job being validated, null if the record is not related to a job
+	 * @param record the formatted record
+	 */
+	private static void addRecord(ValidationJob job, String record)
+	{
+		long sequence = recordStore.append(record);
+		if (job != null)
+			job.addRecord(record, sequence);
+		if (recordBroadcaster != null)
+			recordBroadcaster.publish();
+	}
+
+
+	/**
+	 * Replaces the record store with one of the configured capacity, keeping
+	 * the records added before the configuration was read. Static since the
+	 * records are static.
+	 * @param capacity maximum number of records kept in memory
+	 */
+	private static void setRecordStore(int capacity)
+	{
+		ValidationRecordStore oldStore = recordStore;
+		if (oldStore.getCapacity() == capacity)
+			return;
+		
+		ValidationRecordStore newStore = new ValidationRecordStore(capacity);
+		ArrayList<String> records = new ArrayList<>();
+		oldStore.readSince(0, oldStore.getCapacity(), records);
+		for (String record : records)
+			newStore.append(record);
+		recordStore = newStore;
+	}
+
+
+	/**
+	 * Sets the broadcaster that pushes records to clients. Static since the
+	 * records are static.
+	 * @param broadcaster the broadcaster
+	 */
+	private static void setRecordBroadcaster(RecordEventBroadcaster broadcaster)
+	{
+		recordBroadcaster = broadcaster;
+	}
+
+
+	/**
+	 * Copies the records in memory with a sequence number greater than since
+	 * @param since sequence number of the last record the caller has
+	 * @param limit maximum number of records to copy
+	 * @param records receives the records in sequence order
+	 * @return the sequence number of the first copied record, or of the next
+	 * record to read if none were copied
+	 */
+	static long copyRecordsSince(long since, int limit, List<String> records)
+	{
+		return recordStore.readSince(since, limit, records);
+	}
+
+
+	/**
+	 * Gets a copy of the records in memory. Needed for one of the unit tests.
+	 * @return ArrayList containing all of the records in memory
+	 */
+	public static ArrayList<String> getValidationRecords()
+	{
+		ValidationRecordStore store = recordStore;
+		ArrayList<String> copy = new ArrayList<>();
+		store.readSince(0, store.getCapacity(), copy);
+		return copy;
+	}
+
+
+	/**
+	 * The result of validating a single message of a job
+	 */
+	private static final class MessageOutcome
+	{
+		/**
+		 * Formatted validation records of the message
+		 */
+		private final ArrayList<String> records = new ArrayList<>(2);
+
+
+		/**
+		 * True if the message passed validation
+		 */
+		private boolean passed;
+
+
+		/**
+		 * Message type of the message, null if it is not known
+		 */
+		private String messageType;
+
+
+		/**
+		 * Length of the message in bytes
+		 */
+		private long bytes;
+
+
+		/**
+		 * Number of the message, starting at 1
+		 */
+		private int number;
+
+
+		/**
+		 * Tag of the stage that failed, null if the message passed validation
+		 */
+		private String stage;
+
+
+		/**
+		 * Errors of the message, empty if it passed validation
+		 */
+		private List<ValidationError> errors = List.of();
+
+
+		/**
+		 * Creates a JSON Object representing the result of the message
+		 * @param objectMapper mapper used to create the object
+		 * @return the JSON Object
+		 */
+		private ObjectNode toJson(ObjectMapper objectMapper)
 		{
-			VALIDATION_RECORDS.add(formatMessage(message, messageUuid));
+			ObjectNode jsonObject = objectMapper.createObjectNode();
+			jsonObject.put("index", number);
+			jsonObject.put("messageType", messageType);
+			jsonObject.put("passed", passed);
+			if (stage != null)
+				jsonObject.put("stage", stage);
+			ArrayNode errorArray = jsonObject.putArray("errors");
+			for (ValidationError error : errors)
+				errorArray.add(error.toJson(objectMapper));
+			return jsonObject;
 		}
 	}
 
 
 	/**
-	 * Gets a copy of the String contained in {@link #VALIDATION_RECORDS}. Needed
-	 * for one of the unit tests.
-	 * @return ArrayList containing all of the strings in {@link #VALIDATION_RECORDS}
+	 * Throws an IOException once more than the maximum number of bytes are
+	 * read from an inflating stream. The exception fails the job reading 
+	 * the stream like any other error reading its input.
 	 */
-	public static ArrayList<String> getValidationRecords()
+	private static final class InflatedLimitInputStream extends FilterInputStream
 	{
-		ArrayList<String> copy;
-		synchronized (VALIDATION_RECORDS)
+		/**
+		 * Maximum number of bytes that can be read
+		 */
+		private final long maxBytes;
+
+
+		/**
+		 * Number of bytes read
+		 */
+		private long bytesRead;
+
+
+		/**
+		 * Constructor
+		 * @param inflated the inflating stream
+		 * @param maxBytes maximum number of bytes that can be read
+		 */
+		private InflatedLimitInputStream(InputStream inflated, long maxBytes)
 		{
-			copy = new ArrayList<>(VALIDATION_RECORDS);
+			super(inflated);
+			this.maxBytes = maxBytes;
 		}
 
-		return copy;
+
+		@Override
+		public int read() throws IOException
+		{
+			int value = super.read();
+			if (value >= 0)
+				count(1);
+			return value;
+		}
+
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException
+		{
+			int read = super.read(bytes, offset, length);
+			if (read > 0)
+				count(read);
+			return read;
+		}
+
+
+		@Override
+		public long skip(long count) throws IOException
+		{
+			long skipped = super.skip(count);
+			count(skipped);
+			return skipped;
+		}
+
+
+		/**
+		 * Adds bytes to the number of bytes read
+		 * @param count number of bytes read
+		 * @throws IOException if more than the maximum number of bytes have 
+		 * been read
+		 */
+		private void count(long count) throws IOException
+		{
+			bytesRead += count;
+			if (bytesRead > maxBytes)
+				throw new IOException(String.format("Compressed input inflates to more than the maximum of %d bytes", maxBytes));
+		}
+	}
+
+
+	/**
+	 * Sets how long the streamed response of a request can take before the
+	 * servlet container cuts it off to c2c-mvt.responses.timeout-ms. It is 
+	 * called before the response body is returned, while the request has not
+	 * started asynchronous processing.
+	 * @param request the request
+	 */
+	private void setResponseTimeout(HttpServletRequest request)
+	{
+		AsyncWebRequest asyncRequest = WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest();
+		if (asyncRequest != null)
+			asyncRequest.setTimeout(responseTimeout > 0 ? responseTimeout : -1L);
+	}
+
+
+	/**
+	 * Waits until the job of a response has finished
+	 * @param job the job
+	 * @return false if the thread was interrupted while waiting
+	 */
+	private static boolean awaitJob(ValidationJob job)
+	{
+		try
+		{
+			job.awaitFinished();
+			return true;
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+
+	/**
+	 * Passes the result of each message from the threads validating the 
+	 * messages to the thread writing the response, which writes each result
+	 * as a line of NDJSON and flushes it so the client receives it as soon as
+	 * the message is validated. The validating threads only add results to 
+	 * the queue and never write to the response, so a slow client does not 
+	 * hold them. The thread reading the messages waits before each message 
+	 * while the maximum number of results have not been written, which bounds
+	 * the queue. Once a write fails, because the client disconnected, the 
+	 * remaining lines are dropped and the messages are still validated.
+	 */
+	private static final class ResultLineQueue implements Consumer<MessageOutcome>
+	{
+		/**
+		 * Mapper used to write the lines
+		 */
+		private final ObjectMapper objectMapper;
+
+
+		/**
+		 * Lines that have not been written, guarded by this
+		 */
+		private final ArrayDeque<ObjectNode> lines = new ArrayDeque<>();
+
+
+		/**
+		 * One permit for each message that can be read before its result is
+		 * written
+		 */
+		private final Semaphore unwritten;
+
+
+		/**
+		 * True once the job has added its last line, guarded by this
+		 */
+		private boolean closed;
+
+
+		/**
+		 * True once the thread writing the response has stopped taking 
+		 * lines, guarded by this
+		 */
+		private boolean abandoned;
+
+
+		/**
+		 * Constructor
+		 * @param objectMapper mapper used to write the lines
+		 * @param depth maximum number of results that have not been written
+		 */
+		private ResultLineQueue(ObjectMapper objectMapper, int depth)
+		{
+			this.objectMapper = objectMapper;
+			unwritten = new Semaphore(Math.max(1, depth));
+		}
+
+
+		/**
+		 * Waits until fewer than the maximum number of results have not been
+		 * written. Called by the thread reading the messages before each 
+		 * message.
+		 */
+		private void reserve()
+		{
+			unwritten.acquireUninterruptibly();
+		}
+
+
+		/**
+		 * Queues the result of the message. Called in message order by
+		 * {@link OrderedResults}, which never calls it concurrently.
+		 * @param outcome the outcome of the message
+		 */
+		@Override
+		public void accept(MessageOutcome outcome)
+		{
+			ObjectNode line = outcome.toJson(objectMapper);
+			synchronized (this)
+			{
+				if (abandoned)
+					return;
+				lines.addLast(line);
+				notifyAll();
+			}
+		}
+
+
+		/**
+		 * Called once the job has added its last line
+		 */
+		private synchronized void close()
+		{
+			closed = true;
+			notifyAll();
+		}
+
+
+		/**
+		 * Waits for the next line
+		 * @return the line, or null once the queue is closed and empty
+		 * @throws InterruptedException if the thread is interrupted while waiting
+		 */
+		private synchronized ObjectNode take() throws InterruptedException
+		{
+			while (lines.isEmpty() && !closed)
+				wait();
+			return lines.pollFirst();
+		}
+
+
+		/**
+		 * Writes the lines as they are queued, then the job once it has 
+		 * finished. If the thread is interrupted, or anything else stops the
+		 * writing early, the remaining lines are dropped and the thread 
+		 * reading the messages no longer waits.
+		 * @param outputStream the response
+		 * @param job the job the results belong to
+		 */
+		private void writeTo(OutputStream outputStream, ValidationJob job)
+		{
+			try
+			{
+				boolean failed = false;
+				ObjectNode line;
+				while ((line = take()) != null)
+				{
+					failed = failed || !writeLine(outputStream, line);
+					unwritten.release();
+				}
+
+				if (!failed && awaitJob(job))
+				{
+					ObjectNode jobLine = objectMapper.createObjectNode();
+					jobLine.set("job", job.toJson(objectMapper, false));
+					writeLine(outputStream, jobLine);
+				}
+			}
+			catch (InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+			}
+			finally
+			{
+				abandon();
+			}
+		}
+
+
+		/**
+		 * Drops the queued lines and every line queued afterwards and stops
+		 * the thread reading the messages from waiting
+		 */
+		private synchronized void abandon()
+		{
+			abandoned = true;
+			lines.clear();
+			unwritten.release(Integer.MAX_VALUE / 2);
+		}
+
+
+		/**
+		 * Writes the JSON Object as a line and flushes the response
+		 * @param outputStream the response
+		 * @param line the JSON Object
+		 * @return false if the write failed
+		 */
+		private boolean writeLine(OutputStream outputStream, ObjectNode line)
+		{
+			try
+			{
+				outputStream.write(objectMapper.writeValueAsBytes(line));
+				outputStream.write('\n');
+				outputStream.flush();
+				return true;
+			}
+			catch (IOException ex)
+			{
+				LOGGER.debug("Stopped writing results, " + ex.getMessage());
+				return false;
+			}
+		}
 	}
-}
+}
\ No newline at end of file
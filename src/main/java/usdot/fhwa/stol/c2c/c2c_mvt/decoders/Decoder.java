@@ -15,7 +15,12 @@
  */
 package usdot.fhwa.stol.c2c.c2c_mvt.decoders;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.function.Consumer;
 import usdot.fhwa.stol.c2c.c2c_mvt.C2CMVTException;
 import usdot.fhwa.stol.c2c.c2c_mvt.controllers.StandardValidationController;
 import usdot.fhwa.stol.c2c.c2c_mvt.messages.C2CBaseMessage;
@@ -24,6 +29,10 @@ import usdot.fhwa.stol.c2c.c2c_mvt.messages.C2CBaseMessage;
  * Base class that defines the interfaces and common variables for Decoders. All
  * of the functions throw a {@link C2CMVTException} to allow all of the Exception
  * handling and logging to be taken care of by {@link StandardValidationController}
+ * <p>
+ * Decoders do not keep state between calls. The encoding of the messages is
+ * passed to each call as a {@link Charset} resolved once per validation job
+ * with {@link #getCharset(String)}, so one Decoder can be shared by every job.
  * 
  * @param <T> A child class of {@link C2CBaseMessage} specific to the data format of the
  * C2C Standard that is being testing against.
@@ -33,53 +42,145 @@ import usdot.fhwa.stol.c2c.c2c_mvt.messages.C2CBaseMessage;
 public abstract class Decoder<T extends C2CBaseMessage>
 {	
 	/**
-	 * Name of the encoding that needs to be decoded
+	 * Resolves the name of an encoding to a {@link Charset}. Called once per 
+	 * validation job so the lookup is not repeated for every call.
+	 * @param encoding name of the encoding
+	 * @return the Charset of the encoding
+	 * @throws C2CMVTException if the encoding is not supported
+	 */
+	public static Charset getCharset(String encoding) throws C2CMVTException
+	{
+		try
+		{
+			return Charset.forName(encoding);
+		}
+		catch (Exception ex)
+		{
+			throw new C2CMVTException(ex, String.format("Unsupported encoding %s", encoding));
+		}
+	}
+	
+	/**
+	 * Method to implement the logic to separate messages that are concatenated.
+	 * The messages should be returned as slices of the payload so the bytes 
+	 * are not copied.
+	 * @param payload the message(s) to separate from position to limit
+	 * @param charset encoding of the message(s)
+	 * @return List of separated messages
+	 * @throws C2CMVTException
 	 */
-	protected String encoding;
+	public abstract ArrayList<ByteBuffer> separateMessages(ByteBuffer payload, Charset charset) throws C2CMVTException;
 	
 	/**
-	 * Method to implement the logic to separate messages that are concatenated
+	 * Separates messages that are concatenated and copies each message into 
+	 * its own array. Calls {@link #separateMessages(ByteBuffer, Charset)}.
 	 * @param messageBytes the message(s) to separate
+	 * @param charset encoding of the message(s)
 	 * @return List of separated messages as byte arrays
 	 * @throws C2CMVTException
 	 */
-	public abstract ArrayList<byte[]> separateMessages(byte[] messageBytes) throws C2CMVTException;
+	public ArrayList<byte[]> separateMessages(byte[] messageBytes, Charset charset) throws C2CMVTException
+	{
+		ArrayList<ByteBuffer> slices = separateMessages(ByteBuffer.wrap(messageBytes), charset);
+		ArrayList<byte[]> messageList = new ArrayList<byte[]>(slices.size());
+		for (ByteBuffer slice : slices)
+		{
+			byte[] message = new byte[slice.remaining()];
+			slice.duplicate().get(message);
+			messageList.add(message);
+		}
+
+		return messageList;
+	}
+	
+	/**
+	 * Separates messages that are concatenated while they are read from the
+	 * stream, passing each message to messageConsumer as soon as it is complete.
+	 * This default implementation reads the whole stream first and calls 
+	 * {@link #separateMessages(ByteBuffer, Charset)}, so the whole stream is
+	 * limited to maxMessageBytes. Decoders that can find messages 
+	 * incrementally should override it.
+	 * @param input the message(s) to separate, not closed by this method
+	 * @param charset encoding of the message(s)
+	 * @param maxMessageBytes maximum length of a message in bytes, the stream
+	 * is not read past a message that is longer
+	 * @param messageConsumer receives each message in the order they appear
+	 * @throws C2CMVTException if the stream cannot be read, a message is 
+	 * longer than maxMessageBytes or the messages cannot be separated
+	 */
+	public void separateMessages(InputStream input, Charset charset, int maxMessageBytes, Consumer<ByteBuffer> messageConsumer) throws C2CMVTException
+	{
+		ByteBuffer payload;
+		try
+		{
+			payload = ByteBuffer.wrap(input.readNBytes((int)Math.min(Integer.MAX_VALUE - 8L, maxMessageBytes + 1L)));
+		}
+		catch (IOException ex)
+		{
+			throw new C2CMVTException(ex, "Error occured in separateMessage()");
+		}
+		if (payload.remaining() > maxMessageBytes)
+			throw tooLarge(1, maxMessageBytes);
+		for (ByteBuffer message : separateMessages(payload, charset))
+			messageConsumer.accept(message);
+	}
+
+
+	/**
+	 * Creates the exception thrown when a streamed message is longer than
+	 * the maximum length
+	 * @param msgNum number of the message in the stream, starting at 1
+	 * @param maxMessageBytes maximum length of a message in bytes
+	 * @return the exception
+	 */
+	protected static C2CMVTException tooLarge(int msgNum, int maxMessageBytes)
+	{
+		return new C2CMVTException(new IOException(String.format("Message %d is longer than the maximum of %d bytes", msgNum, maxMessageBytes)), "Error occured in separateMessage()");
+	}
 	
 	/**
 	 * Method to implement the logic for checking for security threats
+	 * @param message the message to check from position to limit
+	 * @return true if no security threats are detected, false if a threat is detected
+	 * so the message can be ignore
+	 * @throws C2CMVTException
+	 */
+	public abstract boolean checkSecurity(ByteBuffer message) throws C2CMVTException;
+	
+	/**
+	 * Checks for security threats. Calls {@link #checkSecurity(ByteBuffer)}.
 	 * @param messageBytes the message to check
 	 * @return true if no security threats are detected, false if a threat is detected
 	 * so the message can be ignore
 	 * @throws C2CMVTException
 	 */
-	public abstract boolean checkSecurity(byte[] messageBytes) throws C2CMVTException;
+	public boolean checkSecurity(byte[] messageBytes) throws C2CMVTException
+	{
+		return checkSecurity(ByteBuffer.wrap(messageBytes));
+	}
 	
 	/**
 	 * Ensures the message has the expected syntax and creates the appropriate
 	 * {@link C2CBaseMessage}. Throws a C2CMVTException if the syntax is not valid.
+	 * The message should keep a reference to the given bytes instead of a copy.
 	 * @param <T> The type of {@link C2CBaseMessage} the Decoder creates, for example
 	 * messages in Json format would return a {@Link JsonC2CMessage}
-	 * @param messageBytes the message in bytes
+	 * @param message the message in bytes from position to limit
 	 * @return the {@link C2CBaseMessage} wrapping the message if it has the correct
 	 * syntax
 	 * @throws C2CMVTException
 	 */
-	public abstract T checkSyntax(byte[] messageBytes) throws C2CMVTException;
+	public abstract T checkSyntax(ByteBuffer message) throws C2CMVTException;
 	
 	/**
-	 * @return the name of encoding used for this Decoder
-	 */
-	public String getEncoding()
-	{
-		return encoding;
-	}
-	
-	/**
-	 * Sets the encoding used for this Decoder
-	 * @param encoding name of the encoding
+	 * Ensures the message has the expected syntax. Calls {@link #checkSyntax(ByteBuffer)}.
+	 * @param messageBytes the message in bytes
+	 * @return the {@link C2CBaseMessage} wrapping the message if it has the correct
+	 * syntax
+	 * @throws C2CMVTException
 	 */
-	public void setEncoding(String encoding)
+	public T checkSyntax(byte[] messageBytes) throws C2CMVTException
 	{
-		this.encoding = encoding;
+		return checkSyntax(ByteBuffer.wrap(messageBytes));
 	}
 }
@@ -17,16 +17,17 @@ package usdot.fhwa.stol.c2c.c2c_mvt.decoders;
 
 import com.github.erosb.jsonsKema.JsonParser;
 import com.github.erosb.jsonsKema.JsonValue;
-import java.io.BufferedInputStream;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Consumer;
 import usdot.fhwa.stol.c2c.c2c_mvt.C2CMVTException;
+import usdot.fhwa.stol.c2c.c2c_mvt.messages.ByteBufferInputStream;
 import usdot.fhwa.stol.c2c.c2c_mvt.messages.JsonC2CMessage;
 
 /**
@@ -36,142 +37,142 @@ import usdot.fhwa.stol.c2c.c2c_mvt.messages.JsonC2CMessage;
  */
 public class JsonDecoder extends Decoder<JsonC2CMessage>
 {
-	private static enum STATE
-	{
-		BEFORE_ROOT,
-		READ,
-		IN_QUOTE,
-		ESCAPE,
-		BETWEEN_MSGS
-	};
+	/**
+	 * Number of bytes read from a stream at a time
+	 */
+	private static final int STREAM_CHUNK_SIZE = 64 * 1024;
+
+
 	/**
 	 * Checks for multiple valid messages defined by the bytes. Tests for
 	 * and ignores Byte order marking and ensures that the bytes could define
-	 * a JSON Object or Array by testing for matching {} or [] respectively
-	 * 
-	 * 
-	 * @param messageBytes the message(s) in bytes
-	 * @return list of separate messages as byte[]
+	 * a JSON Object or Array by testing for matching {} or [] respectively.
+	 * The bytes are scanned with a {@link JsonMessageScanner} so they are 
+	 * never decoded into characters, and each message is returned as a slice
+	 * that shares its content with the payload. Encodings the scanner cannot 
+	 * read directly, such as UTF-16, are converted to UTF-8 first and the 
+	 * slices then share the content of the converted payload.
+	 * @param payload the message(s) from its position to its limit, the 
+	 * position is not changed
+	 * @param charset encoding of the message(s)
+	 * @return list of separate messages as slices of the payload
 	 * @throws C2CMVTException
 	 */
 	@Override
-	public ArrayList<byte[]> separateMessages(byte[] messageBytes)
+	public ArrayList<ByteBuffer> separateMessages(ByteBuffer payload, Charset charset)
 		throws C2CMVTException
 	{
-		ArrayList<byte[]> messageList = new ArrayList<byte[]>();
-		try (ByteArrayInputStream byteInputStream = new ByteArrayInputStream(messageBytes);
-			BufferedReader reader = new BufferedReader(new InputStreamReader(byteInputStream, Charset.forName(encoding))))
+		int from = payload.position();
+		from += JsonMessageScanner.bomLength(payload, from, payload.limit()); // skip BOM, only allowing UTF-8 right now
+		if (!JsonMessageScanner.supports(charset))
 		{
-			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-			BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, Charset.forName(encoding)));
-			if (messageBytes.length > 2 && messageBytes[0] == (byte)0xEF && messageBytes[1] == (byte)0xBB && messageBytes[2] == (byte)0xBF) // skip BOM, only allowing UTF-8 right now
-			{
-				for (int n = 0; n < 3; n++)
-					byteInputStream.read();
-			}
-			
-			char startingBrace = '{';
-			char closingBrace = '}';
-			int braceCount = 0;
-			STATE curState = STATE.BEFORE_ROOT;
-			int charsRead = 0;
-			int startQuote = -1;
-			int charRead;
-			while ((charRead = reader.read()) >= 0)
+			payload = StandardCharsets.UTF_8.encode(charset.decode(payload.duplicate().position(from)));
+			charset = StandardCharsets.UTF_8;
+			from = payload.position();
+		}
+
+		ArrayList<ByteBuffer> messageList = new ArrayList<ByteBuffer>();
+		JsonMessageScanner scanner = new JsonMessageScanner(charset);
+		int to = payload.limit();
+		int end;
+		while (from < to && (end = scanner.scan(payload, from, to)) >= 0)
+		{
+			int start = scanner.getMessageStart();
+			messageList.add(payload.slice(start, end - start));
+			from = end;
+		}
+		scanner.finish();
+
+		return messageList;
+	}
+
+
+	/**
+	 * Separates the messages of the stream with the same rules as 
+	 * {@link #separateMessages(ByteBuffer, Charset)} while the stream is read. The 
+	 * stream is read in chunks and each message is passed to messageConsumer
+	 * as soon as its closing brace is read, so only the chunk and the message
+	 * being read are held in memory. Each message is copied into its own 
+	 * buffer since the chunk is reused. Encodings the scanner cannot read 
+	 * directly are converted to UTF-8 with a {@link TranscodingInputStream} 
+	 * while they are read.
+	 * @param input the message(s) to separate, not closed by this method
+	 * @param charset encoding of the message(s)
+	 * @param maxMessageBytes maximum length of a message in bytes, checked
+	 * before the message is complete so a message that never ends is not
+	 * kept in memory
+	 * @param messageConsumer receives each message in the order they appear
+	 * @throws C2CMVTException if the stream cannot be read, a message is 
+	 * longer than maxMessageBytes or the stream ends in the middle of a message
+	 */
+	@Override
+	public void separateMessages(InputStream input, Charset charset, int maxMessageBytes, Consumer<ByteBuffer> messageConsumer)
+		throws C2CMVTException
+	{
+		if (!JsonMessageScanner.supports(charset))
+		{
+			input = new TranscodingInputStream(input, charset);
+			charset = StandardCharsets.UTF_8;
+		}
+
+		JsonMessageScanner scanner = new JsonMessageScanner(charset);
+		byte[] chunk = new byte[STREAM_CHUNK_SIZE];
+		ByteBuffer chunkBuffer = ByteBuffer.wrap(chunk);
+		ByteArrayOutputStream partialMessage = new ByteArrayOutputStream();
+		int msgNum = 1;
+		try
+		{
+			int count = input.readNBytes(chunk, 0, 3);
+			int from = JsonMessageScanner.bomLength(chunkBuffer, 0, count); // skip BOM, only allowing UTF-8 right now
+			while (count > 0)
 			{
-				++charsRead;
-				char curChar = (char)charRead;
-				if (curState != STATE.BETWEEN_MSGS)
-					writer.write(charRead);
-				switch (curState)
+				while (from < count)
 				{
-					case BEFORE_ROOT:
-					{
-						if (curChar != '[' && curChar != '{')
-							throw new Exception("JSON data must start with [ or {");
-						startingBrace = curChar;
-						closingBrace = startingBrace == '[' ? ']' : '}';
-						++braceCount;
-						curState = STATE.READ;
-						break;
-					}
-					case READ:
-					{
-						if (curChar == startingBrace)
-							++braceCount;
-						else if (curChar == closingBrace)
-							--braceCount;
-						
-						if (curChar == '"')
-						{
-							curState = STATE.IN_QUOTE;
-							startQuote = charsRead;
-						}
-						if (braceCount == 0)
-						{
-							writer.close();
-							messageList.add(outputStream.toByteArray());
-							outputStream.reset();
-							writer = new BufferedWriter(new OutputStreamWriter(outputStream, Charset.forName(encoding)));
-							curState = STATE.BETWEEN_MSGS;
-						}
-						break;
-					}
-					case IN_QUOTE:
+					int end = scanner.scan(chunkBuffer, from, count);
+					int start = scanner.getMessageStart();
+					int readFrom = start >= 0 ? start : from;
+					int readTo = end >= 0 ? end : count;
+					if ((end >= 0 || scanner.isInMessage()) && partialMessage.size() + (long)(readTo - readFrom) > maxMessageBytes)
+						throw tooLarge(msgNum, maxMessageBytes);
+					if (end < 0)
 					{
-						if (curChar == '\\')
-							curState = STATE.ESCAPE;
-						else if (curChar == '"')
-							curState = STATE.READ;
+						if (scanner.isInMessage()) // keep the start of the message until the rest arrives
+							partialMessage.write(chunk, readFrom, readTo - readFrom);
 						break;
 					}
-					case ESCAPE:
-					{
-						curState = STATE.IN_QUOTE;
-						break;
-					}
-					case BETWEEN_MSGS:
+
+					if (start >= 0)
+						messageConsumer.accept(ByteBuffer.wrap(Arrays.copyOfRange(chunk, start, end)));
+					else
 					{
-						if (curChar == '[' || curChar == '{')
-						{
-							writer.write(charRead);
-							startingBrace = curChar;
-							closingBrace = startingBrace == '[' ? ']' : '}';
-							++braceCount;
-							curState = STATE.READ;
-						}
-						break;
+						partialMessage.write(chunk, from, end - from);
+						messageConsumer.accept(ByteBuffer.wrap(partialMessage.toByteArray()));
+						partialMessage.reset();
 					}
+					++msgNum;
+					from = end;
 				}
-			}
-
-			writer.flush();
-			writer.close();
-			if (outputStream.size() != 0)
-			{
-				if (curState == STATE.IN_QUOTE)
-					throw new Exception(String.format("Reached end of file without finding closing double quote starting from character %d", startQuote));
-				else
-					throw new Exception("JSON data must end with ] or }");
+				from = 0;
+				count = Math.max(0, input.read(chunk));
 			}
 		}
-		catch (Exception ex)
+		catch (IOException ex)
 		{
 			throw new C2CMVTException(ex, "Error occured in separateMessage()");
 		}
-
-		return messageList;
+		scanner.finish();
 	}
 
+
 	/**
 	 * 
-	 * @param messageBytes message to check security on
+	 * @param message message to check security on
 	 * @return always true for now, since there are no threats we need to test 
 	 * for in json messages
 	 * @throws C2CMVTException
 	 */
 	@Override
-	public boolean checkSecurity(byte[] messageBytes)
+	public boolean checkSecurity(ByteBuffer message)
 		throws C2CMVTException
 	{
 		// don't need to implement any security checks since there are no SQL databases or script execution
@@ -181,19 +182,19 @@ public class JsonDecoder extends Decoder<JsonC2CMessage>
 	/**
 	 * Attempts to create a {@link JsonValue} which can be a Json Object or Array.
 	 * If the syntax is incorrect the JsonParser will throw an Exception.
-	 * @param messageBytes message in bytes to check
-	 * @return {@link JsonC2CMessage} that wrap yBytes and contains the created
-	 * Json Object/Array
+	 * @param message message in bytes to check from position to limit
+	 * @return {@link JsonC2CMessage} that wraps the bytes without copying them
+	 * and contains the created Json Object/Array
 	 * @throws C2CMVTException
 	 */
 	@Override
-	public JsonC2CMessage checkSyntax(byte[] messageBytes)
+	public JsonC2CMessage checkSyntax(ByteBuffer message)
 		throws C2CMVTException
 	{
 		try
 		{
-			JsonValue jsonValue = new JsonParser(new BufferedInputStream(new ByteArrayInputStream(messageBytes))).parse();
-			return new JsonC2CMessage(messageBytes, jsonValue);
+			JsonValue jsonValue = new JsonParser(new ByteBufferInputStream(message.duplicate())).parse();
+			return new JsonC2CMessage(message, jsonValue);
 		}
 		catch (Exception oEx)
 		{
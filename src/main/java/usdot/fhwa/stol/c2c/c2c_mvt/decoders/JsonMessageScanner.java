@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.decoders;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import usdot.fhwa.stol.c2c.c2c_mvt.C2CMVTException;
+
+/**
+ * Finds the boundaries of concatenated JSON Objects and Arrays by scanning
+ * bytes. Every character that matters for finding a boundary ({ } [ ] " \) is
+ * a single ASCII byte in UTF-8 and in single byte encodings that extend ASCII,
+ * and no other character contains those bytes, so the bytes never have to be
+ * decoded into characters. The scanner keeps its state between calls to
+ * {@link #scan(ByteBuffer, int, int)} so a payload can be scanned in pieces as
+ * it arrives.
+ */
+public class JsonMessageScanner
+{
+	private static enum STATE
+	{
+		BEFORE_ROOT,
+		READ,
+		IN_QUOTE,
+		ESCAPE,
+		BETWEEN_MSGS
+	};
+
+
+	/**
+	 * Characters whose bytes must be the ASCII bytes for the scanner to work
+	 */
+	private static final String STRUCTURAL_CHARS = "{}[]\"\\";
+
+
+	/**
+	 * Current state of the scanner
+	 */
+	private STATE curState = STATE.BEFORE_ROOT;
+
+
+	/**
+	 * The brace that starts the current message, { or [
+	 */
+	private byte startingBrace = '{';
+
+
+	/**
+	 * The brace that ends the current message, } or ]
+	 */
+	private byte closingBrace = '}';
+
+
+	/**
+	 * Number of starting braces that have not been closed
+	 */
+	private int braceCount;
+
+
+	/**
+	 * True if the bytes are UTF-8 so characters are counted by the first byte
+	 * of each sequence instead of by every byte
+	 */
+	private final boolean utf8;
+
+
+	/**
+	 * Number of Java chars the scanned bytes decode to, used in error messages
+	 */
+	private long charsRead;
+
+
+	/**
+	 * Character number of the double quote that started the current String
+	 */
+	private long startQuote = -1;
+
+
+	/**
+	 * Index of the first byte of the current message in the buffer of the
+	 * last call to {@link #scan(ByteBuffer, int, int)}, -1 if it started in an
+	 * earlier buffer
+	 */
+	private int messageStart = -1;
+
+
+	/**
+	 * Constructor
+	 * @param charset the encoding of the bytes, must be supported according to
+	 * {@link #supports(Charset)}
+	 */
+	public JsonMessageScanner(Charset charset)
+	{
+		utf8 = StandardCharsets.UTF_8.equals(charset);
+	}
+
+
+	/**
+	 * Checks if bytes in the given encoding can be scanned without decoding them.
+	 * That is the case for UTF-8 and for single byte encodings that encode the
+	 * structural JSON characters as ASCII.
+	 * @param charset the encoding
+	 * @return true if the scanner can be used for the encoding
+	 */
+	public static boolean supports(Charset charset)
+	{
+		if (StandardCharsets.UTF_8.equals(charset))
+			return true;
+		if (!charset.canEncode() || charset.newEncoder().maxBytesPerChar() != 1.0f)
+			return false;
+
+		return Arrays.equals(STRUCTURAL_CHARS.getBytes(charset), STRUCTURAL_CHARS.getBytes(StandardCharsets.US_ASCII));
+	}
+
+
+	/**
+	 * Gets the length of the UTF-8 Byte Order Mark at the given position
+	 * @param buffer the bytes
+	 * @param from index of the first byte
+	 * @param to index after the last byte
+	 * @return 3 if the bytes start with a Byte Order Mark, otherwise 0
+	 */
+	public static int bomLength(ByteBuffer buffer, int from, int to)
+	{
+		if (to - from > 2 && buffer.get(from) == (byte)0xEF && buffer.get(from + 1) == (byte)0xBB && buffer.get(from + 2) == (byte)0xBF)
+			return 3;
+
+		return 0;
+	}
+
+
+	/**
+	 * Scans bytes until the end of a message is found or the bytes run out.
+	 * Bytes between messages that are not { or [ are skipped.
+	 * @param buffer the bytes, read with absolute indices so its position is not changed
+	 * @param from index of the first byte to scan
+	 * @param to index after the last byte to scan
+	 * @return the index after the last byte of the message that ended, or -1
+	 * if no message ended before to
+	 * @throws C2CMVTException if the bytes do not start with { or [
+	 */
+	public int scan(ByteBuffer buffer, int from, int to)
+		throws C2CMVTException
+	{
+		if (isInMessage())
+			messageStart = -1;
+		for (int index = from; index < to; index++)
+		{
+			byte curByte = buffer.get(index);
+			if (!utf8)
+				++charsRead;
+			else if ((curByte & 0xC0) != 0x80) // count the first byte of a UTF-8 sequence, 4 byte sequences are 2 Java chars
+				charsRead += (curByte & 0xF8) == 0xF0 ? 2 : 1;
+			switch (curState)
+			{
+				case BEFORE_ROOT:
+				{
+					if (curByte != '[' && curByte != '{')
+						throw new C2CMVTException(new Exception("JSON data must start with [ or {"), "Error occured in separateMessage()");
+					startMessage(curByte, index);
+					break;
+				}
+				case READ:
+				{
+					if (curByte == startingBrace)
+						++braceCount;
+					else if (curByte == closingBrace)
+						--braceCount;
+
+					if (curByte == '"')
+					{
+						curState = STATE.IN_QUOTE;
+						startQuote = charsRead;
+					}
+					if (braceCount == 0)
+					{
+						curState = STATE.BETWEEN_MSGS;
+						return index + 1;
+					}
+					break;
+				}
+				case IN_QUOTE:
+				{
+					if (curByte == '\\')
+						curState = STATE.ESCAPE;
+					else if (curByte == '"')
+						curState = STATE.READ;
+					break;
+				}
+				case ESCAPE:
+				{
+					curState = STATE.IN_QUOTE;
+					break;
+				}
+				case BETWEEN_MSGS:
+				{
+					if (curByte == '[' || curByte == '{')
+						startMessage(curByte, index);
+					break;
+				}
+			}
+		}
+
+		return -1;
+	}
+
+
+	/**
+	 * Starts a new message
+	 * @param brace the brace that starts the message
+	 * @param index index of the brace
+	 */
+	private void startMessage(byte brace, int index)
+	{
+		startingBrace = brace;
+		closingBrace = startingBrace == '[' ? (byte)']' : (byte)'}';
+		++braceCount;
+		curState = STATE.READ;
+		messageStart = index;
+	}
+
+
+	/**
+	 * @return true if a message has started and not ended yet
+	 */
+	public boolean isInMessage()
+	{
+		return curState == STATE.READ || curState == STATE.IN_QUOTE || curState == STATE.ESCAPE;
+	}
+
+
+	/**
+	 * Gets the index of the first byte of the current message in the buffer
+	 * of the last call to {@link #scan(ByteBuffer, int, int)}
+	 * @return the index or -1 if the message started in an earlier buffer
+	 */
+	public int getMessageStart()
+	{
+		return messageStart;
+	}
+
+
+	/**
+	 * Checks that the payload did not end in the middle of a message. Call
+	 * this once all of the bytes have been scanned.
+	 * @throws C2CMVTException if the last message is not complete
+	 */
+	public void finish()
+		throws C2CMVTException
+	{
+		if (!isInMessage())
+			return;
+
+		if (curState == STATE.IN_QUOTE)
+			throw new C2CMVTException(new Exception(String.format("Reached end of file without finding closing double quote starting from character %d", startQuote)), "Error occured in separateMessage()");
+		else
+			throw new C2CMVTException(new Exception("JSON data must end with ] or }"), "Error occured in separateMessage()");
+	}
+}
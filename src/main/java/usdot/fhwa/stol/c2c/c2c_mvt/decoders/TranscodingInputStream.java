@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.decoders;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link InputStream} that reads a stream in one encoding as UTF-8. The 
+ * stream is converted a chunk at a time while it is read, so encodings the
+ * {@link JsonMessageScanner} cannot read directly, such as UTF-16, can be
+ * separated without reading the whole stream first. Malformed and 
+ * unmappable characters are replaced like {@link Charset#decode(ByteBuffer)}
+ * replaces them.
+ */
+class TranscodingInputStream extends InputStream
+{
+	/**
+	 * Number of characters converted at a time
+	 */
+	private static final int CHUNK_CHARS = 16 * 1024;
+
+
+	/**
+	 * Reads the characters of the stream
+	 */
+	private final Reader reader;
+
+
+	/**
+	 * Encodes the characters as UTF-8
+	 */
+	private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+		.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+
+	/**
+	 * Characters read but not encoded yet, ready to be read from
+	 */
+	private final CharBuffer chars = CharBuffer.allocate(CHUNK_CHARS).flip();
+
+
+	/**
+	 * Encoded bytes not read yet, ready to be read from. Large enough for
+	 * every character of a chunk so only a split surrogate pair is left in
+	 * {@link #chars}.
+	 */
+	private final ByteBuffer bytes = ByteBuffer.allocate(CHUNK_CHARS * 3 + 3).flip();
+
+
+	/**
+	 * True once the end of the stream was read and encoded
+	 */
+	private boolean ended;
+
+
+	/**
+	 * Constructor
+	 * @param input the stream, closed when this stream is closed
+	 * @param charset encoding of the stream
+	 */
+	TranscodingInputStream(InputStream input, Charset charset)
+	{
+		reader = new InputStreamReader(input, charset);
+	}
+
+
+	/**
+	 * Reads the next byte
+	 * @return the byte as an int from 0 to 255, or -1 at the end of the stream
+	 * @throws IOException if the stream cannot be read
+	 */
+	@Override
+	public int read()
+		throws IOException
+	{
+		byte[] single = new byte[1];
+		return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+	}
+
+
+	/**
+	 * Reads up to length bytes into the array
+	 * @param buffer the array to fill
+	 * @param offset index of the array to start at
+	 * @param length maximum number of bytes to read
+	 * @return number of bytes read, or -1 at the end of the stream
+	 * @throws IOException if the stream cannot be read
+	 */
+	@Override
+	public int read(byte[] buffer, int offset, int length)
+		throws IOException
+	{
+		if (length == 0)
+			return 0;
+
+		while (!bytes.hasRemaining())
+		{
+			if (ended)
+				return -1;
+			fill();
+		}
+		int count = Math.min(length, bytes.remaining());
+		bytes.get(buffer, offset, count);
+		return count;
+	}
+
+
+	/**
+	 * Reads the next chunk of characters and encodes them
+	 * @throws IOException if the stream cannot be read
+	 */
+	private void fill()
+		throws IOException
+	{
+		bytes.clear();
+		chars.compact();
+		int count = reader.read(chars);
+		chars.flip();
+		if (count < 0)
+		{
+			encoder.encode(chars, bytes, true);
+			encoder.flush(bytes);
+			ended = true;
+		}
+		else
+		{
+			encoder.encode(chars, bytes, false);
+		}
+		bytes.flip();
+	}
+
+
+	/**
+	 * Closes the stream
+	 * @throws IOException if the stream cannot be closed
+	 */
+	@Override
+	public void close()
+		throws IOException
+	{
+		reader.close();
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.jobs;
+
+import java.util.HashMap;
+import java.util.function.Consumer;
+
+/**
+ * Collects results that complete in any order and hands them to a consumer in
+ * index order. A result is passed on as soon as every result before it has
+ * completed, so consumers see progress while keeping a deterministic order.
+ * The number of results does not have to be known in advance, only results
+ * that are waiting for an earlier result are kept.
+ *
+ * @param <T> type of the results
+ */
+public class OrderedResults<T>
+{
+	/**
+	 * Completed results that are waiting for an earlier result, by index
+	 */
+	private final HashMap<Integer, T> results = new HashMap<>();
+
+
+	/**
+	 * Receives the results in index order
+	 */
+	private final Consumer<T> consumer;
+
+
+	/**
+	 * Index of the next result to hand to the consumer
+	 */
+	private int next;
+
+
+	/**
+	 * Constructor
+	 * @param consumer receives the results in index order
+	 */
+	public OrderedResults(Consumer<T> consumer)
+	{
+		this.consumer = consumer;
+	}
+
+
+	/**
+	 * Stores the result and passes every result that is now in order to the
+	 * consumer. The consumer is called while holding this object's lock so
+	 * results are never passed on concurrently.
+	 * @param index index of the result, starting at 0
+	 * @param result the result, must not be null
+	 */
+	public synchronized void complete(int index, T result)
+	{
+		results.put(index, result);
+		T nextResult;
+		while ((nextResult = results.remove(next)) != null)
+		{
+			++next;
+			consumer.accept(nextResult);
+		}
+	}
+}
@@ -0,0 +1,562 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.jobs;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * A request to validate an uploaded payload. Each job keeps its own status,
+ * message counts and validation records so that concurrent jobs do not mix
+ * their results.
+ */
+public class ValidationJob
+{
+	/**
+	 * States of a validation job
+	 */
+	public enum Status
+	{
+		QUEUED,
+		RUNNING,
+		COMPLETED,
+		FAILED
+	}
+
+
+	/**
+	 * Unique identifier of the job
+	 */
+	private final String id = UUID.randomUUID().toString();
+
+
+	/**
+	 * Name of the file that was uploaded, can be null
+	 */
+	private final String fileName;
+
+
+	/**
+	 * Name of the C2C standard
+	 */
+	private final String standard;
+
+
+	/**
+	 * Version of the C2C standard
+	 */
+	private final String version;
+
+
+	/**
+	 * Encoding used for the messages
+	 */
+	private final String encoding;
+
+
+	/**
+	 * The message type selected by the user
+	 */
+	private final String messageType;
+
+
+	/**
+	 * Time in milliseconds the job was created
+	 */
+	private final long submitted = System.currentTimeMillis();
+
+
+	/**
+	 * Time in milliseconds the job started running, 0 if it has not started
+	 */
+	private volatile long started;
+
+
+	/**
+	 * Time in milliseconds the job finished, 0 if it has not finished
+	 */
+	private volatile long finished;
+
+
+	/**
+	 * Current state of the job
+	 */
+	private volatile Status status = Status.QUEUED;
+
+
+	/**
+	 * Released once the job has finished
+	 */
+	private final CountDownLatch finishedLatch = new CountDownLatch(1);
+
+
+	/**
+	 * Number of messages found in the payload
+	 */
+	private final AtomicInteger messagesTotal = new AtomicInteger();
+
+
+	/**
+	 * Number of messages that passed validation
+	 */
+	private final AtomicInteger messagesPassed = new AtomicInteger();
+
+
+	/**
+	 * Number of messages that failed validation
+	 */
+	private final AtomicInteger messagesFailed = new AtomicInteger();
+
+
+	/**
+	 * Number of messages of each message type, keyed by message type
+	 */
+	private final ConcurrentHashMap<String, AtomicInteger> messageTypeCounts = new ConcurrentHashMap<>();
+
+
+	/**
+	 * Number of distinct message types a job counts until the engine sets 
+	 * the configured limit
+	 */
+	static final int DEFAULT_MESSAGE_TYPE_LIMIT = 250;
+
+
+	/**
+	 * Message type that messages of types past the limit are counted as
+	 */
+	public static final String OTHER_MESSAGE_TYPE = "other";
+
+
+	/**
+	 * Maximum number of distinct message types counted, new types are added
+	 * to {@link #messageTypeCounts} while holding its lock
+	 */
+	private volatile int messageTypeLimit = DEFAULT_MESSAGE_TYPE_LIMIT;
+
+
+	/**
+	 * Number of records a job keeps until the engine sets the configured limit
+	 */
+	static final int DEFAULT_RECORD_LIMIT = 1000;
+
+
+	/**
+	 * The latest validation records that belong to this job
+	 */
+	private final ArrayDeque<String> records = new ArrayDeque<>();
+
+
+	/**
+	 * Maximum number of records kept, guarded by {@link #records}
+	 */
+	private int recordLimit = DEFAULT_RECORD_LIMIT;
+
+
+	/**
+	 * Number of records dropped to stay within {@link #recordLimit}, guarded
+	 * by {@link #records}
+	 */
+	private long recordsOmitted;
+
+
+	/**
+	 * Sequence number of the job's latest record in the in memory log, 0 if
+	 * the job has not added a record there, guarded by {@link #records}
+	 */
+	private long lastRecordSequence;
+
+
+	/**
+	 * Names of the stored messages the job references, each is referenced
+	 * once no matter how many of the job's messages have the same content
+	 */
+	private final Set<String> storedMessages = ConcurrentHashMap.newKeySet();
+
+
+	/**
+	 * Constructor
+	 * @param fileName name of the uploaded file, can be null
+	 * @param standard name of the C2C standard
+	 * @param version version of the C2C standard
+	 * @param encoding encoding used for the messages
+	 * @param messageType the message type selected by the user
+	 */
+	public ValidationJob(String fileName, String standard, String version, String encoding, String messageType)
+	{
+		this.fileName = fileName;
+		this.standard = standard;
+		this.version = version;
+		this.encoding = encoding;
+		this.messageType = messageType;
+	}
+
+
+	/**
+	 * @return the unique identifier of the job
+	 */
+	public String getId()
+	{
+		return id;
+	}
+
+
+	/**
+	 * @return the name of the C2C standard
+	 */
+	public String getStandard()
+	{
+		return standard;
+	}
+
+
+	/**
+	 * @return the version of the C2C standard
+	 */
+	public String getVersion()
+	{
+		return version;
+	}
+
+
+	/**
+	 * @return the encoding used for the messages
+	 */
+	public String getEncoding()
+	{
+		return encoding;
+	}
+
+
+	/**
+	 * @return the message type selected by the user
+	 */
+	public String getMessageType()
+	{
+		return messageType;
+	}
+
+
+	/**
+	 * @return the name of the uploaded file, can be null
+	 */
+	public String getFileName()
+	{
+		return fileName;
+	}
+
+
+	/**
+	 * @return the number of messages found in the payload so far
+	 */
+	public int getMessagesTotal()
+	{
+		return messagesTotal.get();
+	}
+
+
+	/**
+	 * @return the number of messages that failed validation so far
+	 */
+	public int getMessagesFailed()
+	{
+		return messagesFailed.get();
+	}
+
+
+	/**
+	 * @return the current state of the job
+	 */
+	public Status getStatus()
+	{
+		return status;
+	}
+
+
+	/**
+	 * @return true if the job is queued or running
+	 */
+	public boolean isActive()
+	{
+		return status == Status.QUEUED || status == Status.RUNNING;
+	}
+
+
+	/**
+	 * Marks the job as running
+	 */
+	void start()
+	{
+		started = System.currentTimeMillis();
+		status = Status.RUNNING;
+	}
+
+
+	/**
+	 * Marks the job as finished. A job that has failed stays failed.
+	 */
+	void finish()
+	{
+		finished = System.currentTimeMillis();
+		if (status != Status.FAILED)
+			status = Status.COMPLETED;
+		finishedLatch.countDown();
+	}
+
+
+	/**
+	 * Waits until the job has finished
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public void awaitFinished() throws InterruptedException
+	{
+		finishedLatch.await();
+	}
+
+
+	/**
+	 * Marks the job as failed, meaning validation could not be completed
+	 * for the payload
+	 */
+	public void fail()
+	{
+		status = Status.FAILED;
+	}
+
+
+	/**
+	 * Sets the number of messages found in the payload
+	 * @param total number of messages
+	 */
+	public void setMessagesTotal(int total)
+	{
+		messagesTotal.set(total);
+	}
+
+
+	/**
+	 * Counts the result of validating one message
+	 * @param passed true if the message passed validation
+	 */
+	public void countMessage(boolean passed)
+	{
+		if (passed)
+			messagesPassed.incrementAndGet();
+		else
+			messagesFailed.incrementAndGet();
+	}
+
+
+	/**
+	 * Counts a message of the given message type. The message type can be 
+	 * read from a message that is not valid, so once the maximum number of
+	 * distinct message types is counted further types are counted as 
+	 * {@link #OTHER_MESSAGE_TYPE}, which keeps a job with many made up types
+	 * from growing without limit.
+	 * @param type the message type, null if it is not known
+	 */
+	public void countMessageType(String type)
+	{
+		if (type == null)
+			return;
+
+		AtomicInteger count = messageTypeCounts.get(type);
+		if (count == null)
+		{
+			synchronized (messageTypeCounts)
+			{
+				count = messageTypeCounts.get(type);
+				if (count == null)
+				{
+					if (messageTypeCounts.size() >= messageTypeLimit)
+						type = OTHER_MESSAGE_TYPE;
+					count = messageTypeCounts.computeIfAbsent(type, key -> new AtomicInteger());
+				}
+			}
+		}
+		count.incrementAndGet();
+	}
+
+
+	/**
+	 * Sets the maximum number of distinct message types the job counts
+	 * @param limit maximum number of message types
+	 */
+	void setMessageTypeLimit(int limit)
+	{
+		messageTypeLimit = Math.max(0, limit);
+	}
+
+
+	/**
+	 * Adds a formatted validation record to the job. Once the job has the
+	 * maximum number of records the oldest one is dropped, so a job with 
+	 * many messages does not keep a copy of every record in memory. Every
+	 * record is still added to the in memory log.
+	 * @param record the record
+	 */
+	public void addRecord(String record)
+	{
+		synchronized (records)
+		{
+			records.addLast(record);
+			while (records.size() > recordLimit)
+			{
+				records.removeFirst();
+				++recordsOmitted;
+			}
+		}
+	}
+
+
+	/**
+	 * Adds a formatted validation record to the job that was also added to
+	 * the in memory log
+	 * @param record the record
+	 * @param sequence sequence number of the record in the in memory log
+	 */
+	public void addRecord(String record, long sequence)
+	{
+		synchronized (records)
+		{
+			addRecord(record);
+			lastRecordSequence = Math.max(lastRecordSequence, sequence);
+		}
+	}
+
+
+	/**
+	 * @return the sequence number of the job's latest record in the in memory
+	 * log, 0 if the job has not added a record there
+	 */
+	public long getLastRecordSequence()
+	{
+		synchronized (records)
+		{
+			return lastRecordSequence;
+		}
+	}
+
+
+	/**
+	 * Sets the maximum number of records the job keeps
+	 * @param limit maximum number of records
+	 */
+	void setRecordLimit(int limit)
+	{
+		synchronized (records)
+		{
+			recordLimit = Math.max(0, limit);
+		}
+	}
+
+
+	/**
+	 * @return the number of records dropped to stay within the maximum number
+	 * of records
+	 */
+	public long getRecordsOmitted()
+	{
+		synchronized (records)
+		{
+			return recordsOmitted;
+		}
+	}
+
+
+	/**
+	 * Gets a copy of the latest validation records of the job
+	 * @return the validation records of the job
+	 */
+	public List<String> getRecords()
+	{
+		synchronized (records)
+		{
+			return new ArrayList<>(records);
+		}
+	}
+
+
+	/**
+	 * Adds a stored message to the messages the job references
+	 * @param name name of the stored message
+	 * @return true if the job did not reference the stored message yet
+	 */
+	public boolean referenceStoredMessage(String name)
+	{
+		return storedMessages.add(name);
+	}
+
+
+	/**
+	 * @return the names of the stored messages the job references
+	 */
+	public Set<String> getStoredMessages()
+	{
+		return storedMessages;
+	}
+
+
+	/**
+	 * Creates a JSON Object describing the job
+	 * @param objectMapper mapper used to create the JSON Object
+	 * @param includeRecords flag to include the validation records of the job
+	 * @return the JSON Object
+	 */
+	public ObjectNode toJson(ObjectMapper objectMapper, boolean includeRecords)
+	{
+		ObjectNode jsonObject = objectMapper.createObjectNode();
+		jsonObject.put("id", id);
+		jsonObject.put("file", fileName);
+		jsonObject.put("standard", standard);
+		jsonObject.put("version", version);
+		jsonObject.put("encoding", encoding);
+		jsonObject.put("messageType", messageType);
+		jsonObject.put("status", status.name());
+		jsonObject.put("validating", isActive());
+		jsonObject.put("submitted", submitted);
+		if (started != 0)
+			jsonObject.put("started", started);
+		if (finished != 0)
+			jsonObject.put("finished", finished);
+		jsonObject.put("messagesTotal", messagesTotal.get());
+		jsonObject.put("messagesPassed", messagesPassed.get());
+		jsonObject.put("messagesFailed", messagesFailed.get());
+		ObjectNode typeObject = jsonObject.putObject("messageTypes");
+		for (Map.Entry<String, AtomicInteger> typeCount : new TreeMap<>(messageTypeCounts).entrySet())
+			typeObject.put(typeCount.getKey(), typeCount.getValue().get());
+		jsonObject.put("recordsOmitted", getRecordsOmitted());
+		if (includeRecords)
+		{
+			ArrayNode recordArray = jsonObject.putArray("messages");
+			for (String record : getRecords())
+				recordArray.add(record);
+		}
+
+		return jsonObject;
+	}
+}
@@ -0,0 +1,610 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.jobs;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.ObjIntConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import usdot.fhwa.stol.c2c.c2c_mvt.C2CMVTException;
+
+/**
+ * Runs {@link ValidationJob}s on a bounded pool of worker threads. Jobs that
+ * cannot start right away wait in a queue of configurable depth and jobs
+ * submitted while the queue is full are rejected. Jobs that run on the 
+ * calling thread, such as streamed uploads, are limited separately and are
+ * rejected once the limit is reached. The messages of a job are validated in
+ * parallel on a second pool that is shared by all jobs, with a cap on how 
+ * many of its threads a single job can use. The pool sizes, the queue depth,
+ * the limits and the cap are configured in src/main/resources/application.properties.
+ */
+@Component
+public class ValidationJobEngine
+{
+	/**
+	 * Logger instance
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(ValidationJobEngine.class);
+
+
+	/**
+	 * Number of jobs that can run at the same time, 0 uses the number of
+	 * available processors
+	 */
+	@Value("${c2c-mvt.jobs.threads:0}")
+	private int threads;
+
+
+	/**
+	 * Number of jobs that can wait for a worker
+	 */
+	@Value("${c2c-mvt.jobs.queue-depth:16}")
+	private int queueDepth;
+
+
+	/**
+	 * Number of finished jobs kept in memory so their status can be requested
+	 */
+	@Value("${c2c-mvt.jobs.retained:100}")
+	private int retainedJobs;
+
+
+	/**
+	 * Number of threads used to validate messages for all jobs, 0 uses the 
+	 * number of available processors
+	 */
+	@Value("${c2c-mvt.jobs.message-threads:0}")
+	private int messageThreads;
+
+
+	/**
+	 * Maximum number of messages of a single job validated at the same time,
+	 * 0 uses the number of available processors
+	 */
+	@Value("${c2c-mvt.jobs.message-parallelism:0}")
+	private int messageParallelism;
+
+
+	/**
+	 * Number of streamed messages of a single job that can wait to be 
+	 * validated before the thread reading the stream validates them itself
+	 */
+	@Value("${c2c-mvt.jobs.stream-queue-depth:64}")
+	private int streamQueueDepth;
+
+
+	/**
+	 * Maximum number of records each job keeps for /job, older records of 
+	 * the job are only in the in memory log
+	 */
+	@Value("${c2c-mvt.jobs.max-job-records:1000}")
+	private int maxJobRecords;
+
+
+	/**
+	 * Maximum number of distinct message types each job counts, messages of
+	 * further types are counted as {@link ValidationJob#OTHER_MESSAGE_TYPE}
+	 */
+	@Value("${c2c-mvt.jobs.max-message-types:250}")
+	private int maxJobMessageTypes;
+
+
+	/**
+	 * Number of jobs that can run on the calling thread at the same time, 0
+	 * uses the number of job threads
+	 */
+	@Value("${c2c-mvt.jobs.max-streams:0}")
+	private int maxStreams;
+
+
+	/**
+	 * Executes the jobs
+	 */
+	private ThreadPoolExecutor executor;
+
+
+	/**
+	 * Validates the messages of the jobs
+	 */
+	private ForkJoinPool messagePool;
+
+
+	/**
+	 * Permits of the jobs run on the calling thread
+	 */
+	private Semaphore streamPermits;
+
+
+	/**
+	 * Jobs that are active or were retained after finishing, in submission order
+	 */
+	private final LinkedHashMap<String, ValidationJob> jobs = new LinkedHashMap<>();
+
+
+	/**
+	 * Number of jobs that are queued or running
+	 */
+	private final AtomicInteger activeJobs = new AtomicInteger();
+
+
+	/**
+	 * Receives the finished jobs that are no longer retained, can be null
+	 */
+	private volatile Consumer<ValidationJob> evictionListener;
+
+
+	/**
+	 * Creates the worker pool
+	 */
+	@PostConstruct
+	public void init()
+	{
+		int workers = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		AtomicInteger threadCount = new AtomicInteger();
+		executor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(Math.max(1, queueDepth)),
+			runnable ->
+			{
+				Thread thread = new Thread(runnable, "c2c-mvt-job-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		executor.allowCoreThreadTimeOut(true);
+		messagePool = new ForkJoinPool(messageThreads > 0 ? messageThreads : Runtime.getRuntime().availableProcessors());
+		if (messageParallelism <= 0)
+			messageParallelism = Runtime.getRuntime().availableProcessors();
+		streamPermits = new Semaphore(maxStreams > 0 ? maxStreams : workers);
+		LOGGER.info(String.format("Validation job engine started with %d workers, a queue depth of %d, %d streamed jobs, and %d message threads with up to %d per job", 
+			workers, Math.max(1, queueDepth), streamPermits.availablePermits(), messagePool.getParallelism(), messageParallelism));
+	}
+
+
+	/**
+	 * Stops accepting jobs and interrupts running jobs
+	 */
+	@PreDestroy
+	public void shutdown()
+	{
+		executor.shutdownNow();
+		messagePool.shutdownNow();
+	}
+
+
+	/**
+	 * Calls task for each index from 0 to count - 1 using up to the configured
+	 * number of message threads per job, and returns once every call has finished.
+	 * The calling thread takes part in the work. The order the indices are 
+	 * processed in is not defined, use {@link OrderedResults} to get results back in order.
+	 * An exception thrown by task is logged and the remaining indices are 
+	 * still processed.
+	 * @param count number of messages
+	 * @param task validates the message at the given index, should not throw
+	 * exceptions
+	 */
+	public void forEachMessage(int count, IntConsumer task)
+	{
+		int workers = Math.min(count, messageParallelism);
+		if (workers <= 1)
+		{
+			for (int index = 0; index < count; index++)
+				runMessageTask(task, index);
+			return;
+		}
+
+		AtomicInteger nextIndex = new AtomicInteger();
+		Runnable worker = () ->
+		{
+			int index;
+			while ((index = nextIndex.getAndIncrement()) < count)
+				runMessageTask(task, index);
+		};
+		CompletableFuture<?>[] helpers = new CompletableFuture<?>[workers - 1];
+		for (int i = 0; i < helpers.length; i++)
+			helpers[i] = CompletableFuture.runAsync(worker, messagePool);
+		try
+		{
+			worker.run();
+		}
+		finally
+		{
+			CompletableFuture.allOf(helpers).join();
+		}
+	}
+
+
+	/**
+	 * Calls task for an index, logging the exception it throws so the worker
+	 * calling it goes on to the next index
+	 * @param task validates the message at the given index
+	 * @param index the index
+	 */
+	private static void runMessageTask(IntConsumer task, int index)
+	{
+		try
+		{
+			task.accept(index);
+		}
+		catch (RuntimeException ex)
+		{
+			LOGGER.error("Failed to process message " + (index + 1), ex);
+		}
+	}
+
+
+	/**
+	 * Receives the items of a stream, see {@link #forEachStreamedMessage}
+	 * @param <T> type of the items
+	 */
+	@FunctionalInterface
+	public interface StreamProducer<T>
+	{
+		/**
+		 * Reads the stream and passes each item to sink as soon as it is complete
+		 * @param sink receives the items, blocks while too many items are waiting
+		 * @throws C2CMVTException if the stream cannot be read
+		 */
+		void produce(Consumer<T> sink) throws C2CMVTException;
+	}
+
+
+	/**
+	 * An item of a stream and its index
+	 * @param <T> type of the item
+	 */
+	private static final class StreamedItem<T>
+	{
+		/**
+		 * Index of the item in the stream, starting at 0
+		 */
+		private final int index;
+
+
+		/**
+		 * The item
+		 */
+		private final T item;
+
+
+		/**
+		 * Constructor
+		 * @param index index of the item in the stream
+		 * @param item the item
+		 */
+		private StreamedItem(int index, T item)
+		{
+			this.index = index;
+			this.item = item;
+		}
+	}
+
+
+	/**
+	 * Calls task for each item of a stream whose length is not known in advance.
+	 * The calling thread runs the producer and queues the items it produces
+	 * for helpers on the message threads, up to the configured number of 
+	 * message threads per job including the calling thread. A helper is 
+	 * only started when an item is queued and there is no free helper, and 
+	 * it ends once the queue is empty, so a stream that is waiting for its 
+	 * next item does not hold any message threads. When the queue, of the 
+	 * configured stream queue depth, is full the calling thread processes 
+	 * the oldest item itself, which also pauses reading the stream, so 
+	 * memory use does not depend on the length of the stream. Returns once
+	 * the stream has ended and every item has been processed.
+	 * @param <T> type of the items
+	 * @param producer reads the stream
+	 * @param task processes an item, receiving the item and its index, should
+	 * not throw exceptions
+	 * @throws C2CMVTException if the producer fails, items produced before 
+	 * the failure are still processed
+	 */
+	public <T> void forEachStreamedMessage(StreamProducer<T> producer, ObjIntConsumer<T> task)
+		throws C2CMVTException
+	{
+		AtomicInteger count = new AtomicInteger();
+		if (messageParallelism <= 1)
+		{
+			producer.produce(item -> runStreamedTask(task, new StreamedItem<>(count.getAndIncrement(), item)));
+			return;
+		}
+
+		ArrayBlockingQueue<StreamedItem<T>> queue = new ArrayBlockingQueue<>(Math.max(1, streamQueueDepth));
+		int maxHelpers = messageParallelism - 1;
+		Semaphore helpers = new Semaphore(maxHelpers);
+		Runnable helper = () ->
+		{
+			do
+			{
+				StreamedItem<T> next;
+				while ((next = queue.poll()) != null)
+					runStreamedTask(task, next);
+				helpers.release();
+			}
+			while (!queue.isEmpty() && helpers.tryAcquire()); // an item queued after the queue was found empty may not have started a helper
+		};
+		try
+		{
+			producer.produce(item ->
+			{
+				StreamedItem<T> streamedItem = new StreamedItem<>(count.getAndIncrement(), item);
+				while (!queue.offer(streamedItem))
+				{
+					StreamedItem<T> oldest = queue.poll();
+					if (oldest != null)
+						runStreamedTask(task, oldest);
+				}
+				if (helpers.tryAcquire())
+				{
+					try
+					{
+						messagePool.execute(helper);
+					}
+					catch (RejectedExecutionException ex)
+					{
+						helpers.release();
+					}
+				}
+			});
+		}
+		finally
+		{
+			StreamedItem<T> next;
+			while ((next = queue.poll()) != null)
+				runStreamedTask(task, next);
+			helpers.acquireUninterruptibly(maxHelpers);
+		}
+	}
+
+
+	/**
+	 * Calls task for a streamed item, logging the exception it throws so the
+	 * thread calling it goes on to the next item
+	 * @param <T> type of the item
+	 * @param task processes the item
+	 * @param streamedItem the item and its index
+	 */
+	private static <T> void runStreamedTask(ObjIntConsumer<T> task, StreamedItem<T> streamedItem)
+	{
+		try
+		{
+			task.accept(streamedItem.item, streamedItem.index);
+		}
+		catch (RuntimeException ex)
+		{
+			LOGGER.error("Failed to process streamed message " + (streamedItem.index + 1), ex);
+		}
+	}
+
+
+	/**
+	 * Queues the job to be run by a worker thread.
+	 * @param job the job
+	 * @param work the validation work of the job
+	 * @return the job
+	 * @throws RejectedExecutionException if the queue is full
+	 */
+	public ValidationJob submit(ValidationJob job, Consumer<ValidationJob> work)
+		throws RejectedExecutionException
+	{
+		job.setRecordLimit(maxJobRecords);
+		job.setMessageTypeLimit(maxJobMessageTypes);
+		synchronized (jobs)
+		{
+			jobs.put(job.getId(), job);
+		}
+		activeJobs.incrementAndGet();
+		try
+		{
+			executor.execute(() -> run(job, work));
+		}
+		catch (RejectedExecutionException ex)
+		{
+			activeJobs.decrementAndGet();
+			synchronized (jobs)
+			{
+				jobs.remove(job.getId());
+			}
+			throw ex;
+		}
+		return job;
+	}
+
+
+	/**
+	 * Runs the job on the calling thread instead of a worker thread, for work
+	 * that has to happen on the thread that owns its input, like reading a
+	 * request body. The job is listed and counted as active like a submitted
+	 * job. At most the configured number of these jobs run at the same time.
+	 * @param job the job
+	 * @param work the validation work of the job
+	 * @return the job once it has finished
+	 * @throws RejectedExecutionException if the maximum number of jobs are
+	 * already running on calling threads, the job is not run
+	 */
+	public ValidationJob runOnCallingThread(ValidationJob job, Consumer<ValidationJob> work)
+		throws RejectedExecutionException
+	{
+		if (!streamPermits.tryAcquire())
+			throw new RejectedExecutionException("Too many streamed jobs are running");
+
+		try
+		{
+			job.setRecordLimit(maxJobRecords);
+			job.setMessageTypeLimit(maxJobMessageTypes);
+			synchronized (jobs)
+			{
+				jobs.put(job.getId(), job);
+			}
+			activeJobs.incrementAndGet();
+			run(job, work);
+		}
+		finally
+		{
+			streamPermits.release();
+		}
+		return job;
+	}
+
+
+	/**
+	 * Runs the job and updates its status. A job whose work overflows the 
+	 * stack is failed like one that throws an exception instead of being 
+	 * reported as completed.
+	 * @param job the job
+	 * @param work the validation work of the job
+	 */
+	private void run(ValidationJob job, Consumer<ValidationJob> work)
+	{
+		job.start();
+		try
+		{
+			work.accept(job);
+		}
+		catch (RuntimeException | StackOverflowError ex)
+		{
+			job.fail();
+			LOGGER.error("Validation job " + job.getId() + " failed", ex);
+		}
+		finally
+		{
+			activeJobs.decrementAndGet();
+			job.finish();
+			evictFinishedJobs();
+		}
+	}
+
+
+	/**
+	 * Removes the oldest finished jobs when more than the configured number
+	 * of finished jobs are retained and passes them to the eviction listener
+	 * after releasing the lock of the jobs
+	 */
+	private void evictFinishedJobs()
+	{
+		ArrayList<ValidationJob> evicted = new ArrayList<>();
+		synchronized (jobs)
+		{
+			int finished = jobs.size() - activeJobs.get();
+			Iterator<ValidationJob> iterator = jobs.values().iterator();
+			while (finished > retainedJobs && iterator.hasNext())
+			{
+				ValidationJob job = iterator.next();
+				if (!job.isActive())
+				{
+					iterator.remove();
+					evicted.add(job);
+					--finished;
+				}
+			}
+		}
+		Consumer<ValidationJob> listener = evictionListener;
+		if (listener != null)
+		{
+			for (ValidationJob job : evicted)
+				listener.accept(job);
+		}
+	}
+
+
+	/**
+	 * Sets the listener that receives each finished job once it is no longer
+	 * retained, so the resources it references can be released
+	 * @param listener the listener
+	 */
+	public void setEvictionListener(Consumer<ValidationJob> listener)
+	{
+		evictionListener = listener;
+	}
+
+
+	/**
+	 * Gets the job with the given identifier
+	 * @param id identifier of the job
+	 * @return the job or null if it does not exist or is no longer retained
+	 */
+	public ValidationJob getJob(String id)
+	{
+		synchronized (jobs)
+		{
+			return jobs.get(id);
+		}
+	}
+
+
+	/**
+	 * Gets the jobs that are active or retained, oldest first
+	 * @return list of jobs
+	 */
+	public List<ValidationJob> getJobs()
+	{
+		synchronized (jobs)
+		{
+			return new ArrayList<>(jobs.values());
+		}
+	}
+
+
+	/**
+	 * @return true if any job is queued or running
+	 */
+	public boolean isValidating()
+	{
+		return activeJobs.get() > 0;
+	}
+
+
+	/**
+	 * @return the number of jobs waiting for a worker
+	 */
+	public int getQueuedJobs()
+	{
+		return executor.getQueue().size();
+	}
+
+
+	/**
+	 * @return the number of jobs that are running
+	 */
+	public int getRunningJobs()
+	{
+		return executor.getActiveCount();
+	}
+
+
+	/**
+	 * @return the number of jobs that are queued or running, including jobs
+	 * run on the calling thread
+	 */
+	public int getActiveJobs()
+	{
+		return activeJobs.get();
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.messages;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link InputStream} that reads the bytes of a {@link ByteBuffer} from its
+ * position to its limit without copying them into another buffer first.
+ * Reading advances the position of the buffer, so pass a duplicate if the
+ * buffer is shared.
+ */
+public class ByteBufferInputStream extends InputStream
+{
+	/**
+	 * The bytes to read
+	 */
+	private final ByteBuffer buffer;
+
+
+	/**
+	 * Constructor
+	 * @param buffer the bytes to read
+	 */
+	public ByteBufferInputStream(ByteBuffer buffer)
+	{
+		this.buffer = buffer;
+	}
+
+
+	/**
+	 * Reads the next byte
+	 * @return the byte as an int from 0 to 255, or -1 if there are no bytes left
+	 */
+	@Override
+	public int read()
+	{
+		if (!buffer.hasRemaining())
+			return -1;
+
+		return buffer.get() & 0xFF;
+	}
+
+
+	/**
+	 * Reads up to length bytes into the array
+	 * @param bytes the array to fill
+	 * @param offset index of the array to start at
+	 * @param length maximum number of bytes to read
+	 * @return number of bytes read, or -1 if there are no bytes left
+	 */
+	@Override
+	public int read(byte[] bytes, int offset, int length)
+	{
+		if (length == 0)
+			return 0;
+		if (!buffer.hasRemaining())
+			return -1;
+
+		int count = Math.min(length, buffer.remaining());
+		buffer.get(bytes, offset, count);
+		return count;
+	}
+
+
+	/**
+	 * Skips up to count bytes
+	 * @param count number of bytes to skip
+	 * @return number of bytes skipped
+	 */
+	@Override
+	public long skip(long count)
+	{
+		int skipped = (int)Math.max(0, Math.min(count, buffer.remaining()));
+		buffer.position(buffer.position() + skipped);
+		return skipped;
+	}
+
+
+	/**
+	 * @return the number of bytes left to read
+	 */
+	@Override
+	public int available()
+	{
+		return buffer.remaining();
+	}
+}
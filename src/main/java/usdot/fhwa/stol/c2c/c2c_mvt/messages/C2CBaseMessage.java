@@ -15,6 +15,9 @@
  */
 package usdot.fhwa.stol.c2c.c2c_mvt.messages;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
 /**
  * Base class used for messages in the application.
  * 
@@ -23,9 +26,10 @@ package usdot.fhwa.stol.c2c.c2c_mvt.messages;
 public class C2CBaseMessage 
 {
 	/**
-	 * Representation of the message as bytes
+	 * The bytes of the message from position to limit. This is usually a
+	 * slice of the uploaded payload, so it is never modified.
 	 */
-	protected byte[] messageBytes;
+	protected ByteBuffer messageBuffer;
 
 
 	/**
@@ -35,25 +39,64 @@ public class C2CBaseMessage
 	
 	
 	/**
-	 * Constructor. Sets {@link #messageBytes}
+	 * Constructor. Wraps the bytes without copying them.
 	 * @param messageBytes The message in bytes
 	 */
 	public C2CBaseMessage(byte[] messageBytes)
 	{
-		this.messageBytes = messageBytes;
+		this(ByteBuffer.wrap(messageBytes));
+	}
+
+
+	/**
+	 * Constructor. Sets {@link #messageBuffer} to a slice of the given buffer 
+	 * from its position to its limit without copying the bytes.
+	 * @param messageBuffer The message in bytes
+	 */
+	public C2CBaseMessage(ByteBuffer messageBuffer)
+	{
+		this.messageBuffer = messageBuffer.slice();
 	}
 	
 	
 	/**
-	 * Gets the byte array representation of the message
+	 * Gets the byte array representation of the message. The backing array is
+	 * returned if it holds exactly the message, otherwise the bytes are copied.
+	 * Prefer {@link #getBuffer()} to avoid the copy.
 	 * @return the byte array represenetation of the message
 	 */
 	public byte[] getBytes()
 	{
+		if (messageBuffer.hasArray() && messageBuffer.arrayOffset() == 0 && messageBuffer.array().length == messageBuffer.remaining())
+			return messageBuffer.array();
+
+		byte[] messageBytes = new byte[messageBuffer.remaining()];
+		messageBuffer.duplicate().get(messageBytes);
 		return messageBytes;
 	}
 
 
+	/**
+	 * Gets the bytes of the message without copying them
+	 * @return a new buffer sharing the bytes of the message, with its own 
+	 * position and limit
+	 */
+	public ByteBuffer getBuffer()
+	{
+		return messageBuffer.duplicate();
+	}
+
+
+	/**
+	 * Gets a stream that reads the bytes of the message without copying them
+	 * @return a new stream positioned at the start of the message
+	 */
+	public InputStream getInputStream()
+	{
+		return new ByteBufferInputStream(getBuffer());
+	}
+
+
 	/**
 	 * Setter for {@link C2CBaseMessage#messageType}
 	 * @param messageType the message type
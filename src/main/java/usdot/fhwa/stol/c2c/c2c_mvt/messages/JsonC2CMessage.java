@@ -16,6 +16,7 @@
 package usdot.fhwa.stol.c2c.c2c_mvt.messages;
 
 import com.github.erosb.jsonsKema.JsonValue;
+import java.nio.ByteBuffer;
 
 /**
  * Implementation of {@link C2CBaseMessage} for Json messages.
@@ -54,6 +55,19 @@ public class JsonC2CMessage extends C2CBaseMessage
 	}
 	
 	
+	/**
+	 * Constructor. Calls {@link C2CBaseMessage#C2CBaseMessage(ByteBuffer)} and
+	 * sets {@link #messageAsJson}
+	 * @param messageBuffer the message in bytes, not copied
+	 * @param messageAsJson the message as a Json Object or Array
+	 */
+	public JsonC2CMessage(ByteBuffer messageBuffer, JsonValue messageAsJson)
+	{
+		super(messageBuffer);
+		this.messageAsJson = messageAsJson;
+	}
+	
+	
 	/**
 	 * Returns a String representation of the Json message
 	 * @return String representation of the Json message
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Java Flight Recorder event for one stage of validating a message. Only
+ * stages that take longer than the threshold are recorded, 1 ms unless the
+ * recording's settings, like src/main/resources/jfr/c2c-mvt.jfc, change it.
+ */
+@Name(MessageStageEvent.NAME)
+@Label("Message Stage")
+@Category({"C2C MVT", "Validation"})
+@Description("A stage of validating a message")
+@Threshold("1 ms")
+@StackTrace(false)
+public class MessageStageEvent extends jdk.jfr.Event
+{
+	/**
+	 * Name of the event
+	 */
+	public static final String NAME = "usdot.c2cmvt.MessageStage";
+
+
+	/**
+	 * Identifier of the job the message belongs to
+	 */
+	@Label("Job Id")
+	String jobId;
+
+
+	/**
+	 * Number of the message in the upload, starting at 1, 0 for stages of the
+	 * whole upload
+	 */
+	@Label("Message Number")
+	int messageNumber;
+
+
+	/**
+	 * Length of the message, or of the upload for stages of the whole upload
+	 */
+	@Label("Size")
+	@DataAmount
+	long bytes;
+
+
+	/**
+	 * Message type of the message, null if it is not known
+	 */
+	@Label("Message Type")
+	String messageType;
+
+
+	/**
+	 * The stage, see {@link ValidationMetrics.Stage}
+	 */
+	@Label("Stage")
+	String stage;
+
+
+	/**
+	 * "success" or "error"
+	 */
+	@Label("Outcome")
+	String outcome;
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import usdot.fhwa.stol.c2c.c2c_mvt.jobs.ValidationJob;
+
+/**
+ * Java Flight Recorder event for validating the messages of a job, from
+ * separating the upload until the last message is validated
+ */
+@Name(ValidationJobEvent.NAME)
+@Label("Validation Job")
+@Category({"C2C MVT", "Validation"})
+@Description("Validating the messages of an upload")
+@StackTrace(false)
+public class ValidationJobEvent extends jdk.jfr.Event
+{
+	/**
+	 * Name of the event
+	 */
+	public static final String NAME = "usdot.c2cmvt.ValidationJob";
+
+
+	/**
+	 * Identifier of the job
+	 */
+	@Label("Job Id")
+	String jobId;
+
+
+	/**
+	 * Name of the uploaded file, null for streamed uploads
+	 */
+	@Label("File Name")
+	String fileName;
+
+
+	/**
+	 * Name and version of the C2C standard
+	 */
+	@Label("Standard")
+	String standard;
+
+
+	/**
+	 * The message type selected by the user
+	 */
+	@Label("Message Type")
+	String messageType;
+
+
+	/**
+	 * Number of messages in the upload
+	 */
+	@Label("Messages")
+	int messages;
+
+
+	/**
+	 * Number of messages that failed validation
+	 */
+	@Label("Failed Messages")
+	int failedMessages;
+
+
+	/**
+	 * Length of the upload
+	 */
+	@Label("Size")
+	@DataAmount
+	long bytes;
+
+
+	/**
+	 * "completed" or "failed" if the upload could not be validated
+	 */
+	@Label("Outcome")
+	String outcome;
+
+
+	/**
+	 * Ends the event and commits it with the counts of the job if it is enabled
+	 * @param job the job
+	 * @param bytes length of the upload
+	 */
+	public void commit(ValidationJob job, long bytes)
+	{
+		end();
+		if (!shouldCommit())
+			return;
+
+		jobId = job.getId();
+		fileName = job.getFileName();
+		standard = job.getStandard() + " " + job.getVersion();
+		messageType = job.getMessageType();
+		messages = job.getMessagesTotal();
+		failedMessages = job.getMessagesFailed();
+		this.bytes = bytes;
+		outcome = job.getStatus() == ValidationJob.Status.FAILED ? "failed" : "completed";
+		commit();
+	}
+}
@@ -0,0 +1,523 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import usdot.fhwa.stol.c2c.c2c_mvt.jobs.ValidationJob;
+
+/**
+ * Records how long each stage of validating a message takes and how many
+ * messages and bytes are validated, with Micrometer. The meters are tagged by
+ * standard, version, message type and outcome and are published on the
+ * /actuator/prometheus endpoint with the gauges registered by the controller.
+ * Stages are timed with a {@link StageTimer}, which also emits a
+ * {@link MessageStageEvent} when Java Flight Recorder is recording.
+ * <p>
+ * Message types are read from the uploaded messages, so the number of distinct
+ * message type tags is capped by c2c-mvt.metrics.max-message-types and further
+ * message types are tagged as "other". Meters are cached so recording a stage
+ * does not have to look the meter up in the registry.
+ */
+@Component
+public class ValidationMetrics
+{
+	/**
+	 * Name of the timer of the stages
+	 */
+	public static final String STAGE_TIMER = "c2cmvt.stage";
+
+
+	/**
+	 * Name of the counter of validated messages
+	 */
+	public static final String MESSAGES_COUNTER = "c2cmvt.messages";
+
+
+	/**
+	 * Name of the counter of the bytes of validated messages
+	 */
+	public static final String BYTES_COUNTER = "c2cmvt.messages.bytes";
+
+
+	/**
+	 * Name of the counter of validation result cache lookups
+	 */
+	public static final String CACHE_COUNTER = "c2cmvt.cache.lookups";
+
+
+	/**
+	 * Tag value used when a tag is not known
+	 */
+	public static final String UNKNOWN = "unknown";
+
+
+	/**
+	 * Tag value of message types past the cap
+	 */
+	public static final String OTHER = "other";
+
+
+	/**
+	 * The stages of validating a message
+	 */
+	public enum Stage
+	{
+		/**
+		 * {@link usdot.fhwa.stol.c2c.c2c_mvt.decoders.Decoder#checkSecurity}
+		 */
+		CHECK_SECURITY("checkSecurity"),
+
+
+		/**
+		 * {@link usdot.fhwa.stol.c2c.c2c_mvt.decoders.Decoder#separateMessages(java.nio.ByteBuffer, java.nio.charset.Charset)}
+		 */
+		SEPARATE_MESSAGES("separateMessages"),
+
+
+		/**
+		 * Saving the message to disk
+		 */
+		PERSIST("persist"),
+
+
+		/**
+		 * {@link usdot.fhwa.stol.c2c.c2c_mvt.decoders.Decoder#checkSyntax}
+		 */
+		CHECK_SYNTAX("checkSyntax"),
+
+
+		/**
+		 * {@link usdot.fhwa.stol.c2c.c2c_mvt.parsers.Parser#identifyMessageType}
+		 */
+		IDENTIFY_MESSAGE_TYPE("identifyMessageType"),
+
+
+		/**
+		 * {@link usdot.fhwa.stol.c2c.c2c_mvt.parsers.Parser#parseMessage}
+		 */
+		PARSE_MESSAGE("parseMessage"),
+
+
+		/**
+		 * {@link usdot.fhwa.stol.c2c.c2c_mvt.validators.Validator#validateMessage}
+		 */
+		VALIDATE_MESSAGE("validateMessage");
+
+
+		/**
+		 * Value of the stage tag
+		 */
+		private final String tag;
+
+
+		/**
+		 * Constructor
+		 * @param tag value of the stage tag
+		 */
+		Stage(String tag)
+		{
+			this.tag = tag;
+		}
+
+
+		/**
+		 * @return the value of the stage tag
+		 */
+		public String getTag()
+		{
+			return tag;
+		}
+	}
+
+
+	/**
+	 * Identifies a cached meter by its tags
+	 * @param stage the stage, null for the message counter
+	 * @param standard name of the C2C standard
+	 * @param version version of the C2C standard
+	 * @param messageType the message type tag
+	 * @param success true if the stage succeeded or the message passed validation
+	 */
+	private record MeterKey(Stage stage, String standard, String version, String messageType, boolean success)
+	{
+	}
+
+
+	/**
+	 * Registry the meters are registered with
+	 */
+	@Autowired
+	private MeterRegistry registry;
+
+
+	/**
+	 * Maximum number of distinct message type tags
+	 */
+	@Value("${c2c-mvt.metrics.max-message-types:250}")
+	private int maxMessageTypes;
+
+
+	/**
+	 * The stage timers
+	 */
+	private final ConcurrentHashMap<MeterKey, Timer> timers = new ConcurrentHashMap<>();
+
+
+	/**
+	 * The message counters
+	 */
+	private final ConcurrentHashMap<MeterKey, Counter> messageCounters = new ConcurrentHashMap<>();
+
+
+	/**
+	 * The byte counters by standard and version
+	 */
+	private final ConcurrentHashMap<MeterKey, Counter> byteCounters = new ConcurrentHashMap<>();
+
+
+	/**
+	 * The cache lookup counters by standard, version and result
+	 */
+	private final ConcurrentHashMap<MeterKey, Counter> cacheCounters = new ConcurrentHashMap<>();
+
+
+	/**
+	 * Message types that have been used as a tag
+	 */
+	private final Set<String> messageTypes = ConcurrentHashMap.newKeySet();
+
+
+	/**
+	 * Times the stages of a message or of an upload, one stage after the other
+	 */
+	public final class StageTimer
+	{
+		/**
+		 * The job the message belongs to
+		 */
+		private final ValidationJob job;
+
+
+		/**
+		 * Number of the message, starting at 1, 0 for stages of the whole upload
+		 */
+		private final int messageNumber;
+
+
+		/**
+		 * Length of the message or upload
+		 */
+		private final long bytes;
+
+
+		/**
+		 * The stage being timed
+		 */
+		private Stage stage;
+
+
+		/**
+		 * Value of {@link System#nanoTime()} when the stage started
+		 */
+		private long startNanos;
+
+
+		/**
+		 * Flight recorder event of the stage
+		 */
+		private MessageStageEvent event;
+
+
+		/**
+		 * Constructor, starts the first stage
+		 * @param stage the first stage
+		 * @param job the job the message belongs to
+		 * @param messageNumber number of the message, 0 for stages of the whole upload
+		 * @param bytes length of the message or upload
+		 */
+		private StageTimer(Stage stage, ValidationJob job, int messageNumber, long bytes)
+		{
+			this.job = job;
+			this.messageNumber = messageNumber;
+			this.bytes = bytes;
+			begin(stage);
+		}
+
+
+		/**
+		 * Starts a stage
+		 * @param stage the stage
+		 */
+		private void begin(Stage stage)
+		{
+			this.stage = stage;
+			event = new MessageStageEvent();
+			event.begin();
+			startNanos = System.nanoTime();
+		}
+
+
+		/**
+		 * @return the stage being timed, or the last stage once it has ended
+		 */
+		public Stage getStage()
+		{
+			return stage;
+		}
+
+
+		/**
+		 * Ends the current stage successfully and starts the next one
+		 * @param next the next stage
+		 * @param messageType message type of the message, null if it is not known
+		 */
+		public void next(Stage next, String messageType)
+		{
+			end(messageType, true);
+			begin(next);
+		}
+
+
+		/**
+		 * Ends the current stage and records its time
+		 * @param messageType message type of the message, null if it is not known
+		 * @param success true if the stage succeeded
+		 */
+		public void end(String messageType, boolean success)
+		{
+			recordStage(stage, job, messageType, success, System.nanoTime() - startNanos);
+			event.end();
+			if (event.shouldCommit())
+			{
+				event.jobId = job.getId();
+				event.messageNumber = messageNumber;
+				event.bytes = bytes;
+				event.messageType = messageType;
+				event.stage = stage.getTag();
+				event.outcome = success ? "success" : "error";
+				event.commit();
+			}
+		}
+	}
+
+
+	/**
+	 * Starts timing the stages of a message or of an upload
+	 * @param stage the first stage
+	 * @param job the job the message belongs to
+	 * @param messageNumber number of the message, starting at 1, 0 for stages
+	 * of the whole upload
+	 * @param bytes length of the message or upload
+	 * @return the timer of the stages
+	 */
+	public StageTimer startStage(Stage stage, ValidationJob job, int messageNumber, long bytes)
+	{
+		return new StageTimer(stage, job, messageNumber, bytes);
+	}
+
+
+	/**
+	 * Counts a validated message and its bytes
+	 * @param job the job the message belongs to
+	 * @param messageType message type of the message, null if it is not known
+	 * @param passed true if the message passed validation
+	 * @param bytes length of the message in bytes
+	 */
+	public void countMessage(ValidationJob job, String messageType, boolean passed, long bytes)
+	{
+		String standard = tagValue(job.getStandard());
+		String version = tagValue(job.getVersion());
+		MeterKey key = new MeterKey(null, standard, version, messageTypeTag(messageType), passed);
+		Counter counter = messageCounters.get(key);
+		if (counter == null)
+			counter = messageCounters.computeIfAbsent(key, this::newMessageCounter);
+		counter.increment();
+
+		MeterKey bytesKey = new MeterKey(null, standard, version, null, true);
+		Counter bytesCounter = byteCounters.get(bytesKey);
+		if (bytesCounter == null)
+			bytesCounter = byteCounters.computeIfAbsent(bytesKey, this::newBytesCounter);
+		bytesCounter.increment(bytes);
+	}
+
+
+	/**
+	 * Counts a lookup of a message in the validation result cache
+	 * @param job the job the message belongs to
+	 * @param hit true if the result of the message was cached
+	 */
+	public void countCacheLookup(ValidationJob job, boolean hit)
+	{
+		MeterKey key = new MeterKey(null, tagValue(job.getStandard()), tagValue(job.getVersion()), null, hit);
+		Counter counter = cacheCounters.get(key);
+		if (counter == null)
+			counter = cacheCounters.computeIfAbsent(key, this::newCacheCounter);
+		counter.increment();
+	}
+
+
+	/**
+	 * Records the time a stage took for a message of the job
+	 * @param stage the stage
+	 * @param job the job the message belongs to
+	 * @param messageType message type of the message, null if it is not known
+	 * @param success true if the stage succeeded
+	 * @param nanos time the stage took in nanoseconds
+	 */
+	private void recordStage(Stage stage, ValidationJob job, String messageType, boolean success, long nanos)
+	{
+		MeterKey key = new MeterKey(stage, tagValue(job.getStandard()), tagValue(job.getVersion()), messageTypeTag(messageType), success);
+		Timer timer = timers.get(key);
+		if (timer == null)
+			timer = timers.computeIfAbsent(key, this::newTimer);
+		timer.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+
+	/**
+	 * Registers a gauge
+	 * @param <T> type of the object the value is read from
+	 * @param name name of the gauge
+	 * @param description description of the gauge
+	 * @param baseUnit unit of the value, null if it does not have one
+	 * @param object the object the value is read from, it is only weakly
+	 * referenced by the gauge so it must be kept by the caller
+	 * @param value reads the value from the object
+	 */
+	public <T> void gauge(String name, String description, String baseUnit, T object, ToDoubleFunction<T> value)
+	{
+		Gauge.Builder<T> builder = Gauge.builder(name, object, value).description(description);
+		if (baseUnit != null)
+			builder.baseUnit(baseUnit);
+		builder.register(registry);
+	}
+
+
+	/**
+	 * Registers a counter
+	 * @param name name of the counter
+	 * @param description description of the counter
+	 * @param baseUnit unit of the value, null if it does not have one
+	 * @return the counter
+	 */
+	public Counter counter(String name, String description, String baseUnit)
+	{
+		Counter.Builder builder = Counter.builder(name).description(description);
+		if (baseUnit != null)
+			builder.baseUnit(baseUnit);
+		return builder.register(registry);
+	}
+
+
+	/**
+	 * Creates the timer of a stage
+	 * @param key tags of the timer
+	 * @return the timer
+	 */
+	private Timer newTimer(MeterKey key)
+	{
+		return Timer.builder(STAGE_TIMER)
+			.description("Time taken by each stage of validating a message")
+			.tags("stage", key.stage().getTag(), "standard", key.standard(), "version", key.version(),
+				"messageType", key.messageType(), "outcome", key.success() ? "success" : "error")
+			.register(registry);
+	}
+
+
+	/**
+	 * Creates the counter of validated messages
+	 * @param key tags of the counter
+	 * @return the counter
+	 */
+	private Counter newMessageCounter(MeterKey key)
+	{
+		return Counter.builder(MESSAGES_COUNTER)
+			.description("Messages validated")
+			.tags("standard", key.standard(), "version", key.version(), "messageType", key.messageType(),
+				"outcome", key.success() ? "passed" : "failed")
+			.register(registry);
+	}
+
+
+	/**
+	 * Creates the counter of the bytes of validated messages
+	 * @param key tags of the counter
+	 * @return the counter
+	 */
+	private Counter newBytesCounter(MeterKey key)
+	{
+		return Counter.builder(BYTES_COUNTER)
+			.description("Bytes of the messages validated")
+			.baseUnit("bytes")
+			.tags("standard", key.standard(), "version", key.version())
+			.register(registry);
+	}
+
+
+	/**
+	 * Creates the counter of validation result cache lookups
+	 * @param key tags of the counter
+	 * @return the counter
+	 */
+	private Counter newCacheCounter(MeterKey key)
+	{
+		return Counter.builder(CACHE_COUNTER)
+			.description("Lookups of messages in the validation result cache")
+			.tags("standard", key.standard(), "version", key.version(), "result", key.success() ? "hit" : "miss")
+			.register(registry);
+	}
+
+
+	/**
+	 * Gets the message type tag of a message type, the message type itself
+	 * until the cap of distinct message types is reached
+	 * @param messageType the message type, null if it is not known
+	 * @return the tag value
+	 */
+	private String messageTypeTag(String messageType)
+	{
+		if (messageType == null || messageType.isEmpty())
+			return UNKNOWN;
+		if (messageTypes.contains(messageType))
+			return messageType;
+		synchronized (messageTypes)
+		{
+			if (messageTypes.contains(messageType) || messageTypes.size() < maxMessageTypes && messageTypes.add(messageType))
+				return messageType;
+		}
+		return OTHER;
+	}
+
+
+	/**
+	 * @param value a tag value
+	 * @return the value, or {@link #UNKNOWN} if it is null
+	 */
+	private static String tagValue(String value)
+	{
+		return value == null ? UNKNOWN : value;
+	}
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.parsers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Finds a String value in the bytes of a JSON message without building a tree
+ * of the message. The bytes are read once from the start and reading stops as
+ * soon as the value is found, the values of other keys are skipped without
+ * being decoded. It is meant for deciding how to handle a message before its
+ * syntax is checked, so a message that is not valid JSON returns null instead
+ * of throwing an exception.
+ * <p>
+ * The bytes must be UTF-8, which is what {@link usdot.fhwa.stol.c2c.c2c_mvt.decoders.JsonDecoder}
+ * separates messages into.
+ */
+public final class JsonFieldSniffer
+{
+	/**
+	 * The message being read
+	 */
+	private final ByteBuffer buffer;
+
+
+	/**
+	 * Index of the next byte to read
+	 */
+	private int index;
+
+
+	/**
+	 * Index after the last byte of the message
+	 */
+	private final int limit;
+
+
+	/**
+	 * Constructor
+	 * @param message the message from position to limit
+	 */
+	private JsonFieldSniffer(ByteBuffer message)
+	{
+		buffer = message;
+		index = message.position();
+		limit = message.limit();
+	}
+
+
+	/**
+	 * Finds the String value at the path of keys, for example "message",
+	 * "messageType" finds the value of the "messageType" key of the Object that
+	 * is the value of the "message" key of the root Object.
+	 * @param message the message from position to limit, the position is not
+	 * changed
+	 * @param path the keys leading to the value
+	 * @return the value, or null if it is not found, is not a String or the
+	 * bytes before it are not valid JSON
+	 */
+	public static String findString(ByteBuffer message, String... path)
+	{
+		return new JsonFieldSniffer(message).find(path);
+	}
+
+
+	/**
+	 * Reads the Objects along the path
+	 * @param path the keys leading to the value
+	 * @return the value or null
+	 */
+	private String find(String[] path)
+	{
+		for (int depth = 0; depth < path.length; depth++)
+		{
+			if (next() != '{')
+				return null;
+
+			boolean found = false;
+			while (!found)
+			{
+				int b = next();
+				if (b != '"')
+					return null;
+				String key = readString();
+				if (key == null || next() != ':')
+					return null;
+				if (key.equals(path[depth]))
+				{
+					found = true;
+				}
+				else
+				{
+					if (!skipValue())
+						return null;
+					if (next() != ',')
+						return null;
+				}
+			}
+		}
+
+		if (next() != '"')
+			return null;
+		return readString();
+	}
+
+
+	/**
+	 * Skips whitespace and reads the next byte
+	 * @return the byte, or -1 at the end of the message
+	 */
+	private int next()
+	{
+		while (index < limit)
+		{
+			int b = buffer.get(index++) & 0xFF;
+			if (b != ' ' && b != '\t' && b != '\n' && b != '\r')
+				return b;
+		}
+		return -1;
+	}
+
+
+	/**
+	 * Reads a String whose opening double quote has been read and decodes its
+	 * escape sequences
+	 * @return the String, or null if it is not closed or has an invalid escape
+	 */
+	private String readString()
+	{
+		StringBuilder value = null;
+		int start = index;
+		while (index < limit)
+		{
+			int b = buffer.get(index++) & 0xFF;
+			if (b == '"')
+			{
+				String run = decode(start, index - 1);
+				return value == null ? run : value.append(run).toString();
+			}
+			if (b == '\\')
+			{
+				if (value == null)
+					value = new StringBuilder();
+				value.append(decode(start, index - 1));
+				if (index >= limit)
+					return null;
+				int escaped = buffer.get(index++);
+				switch (escaped)
+				{
+					case '"', '\\', '/' -> value.append((char)escaped);
+					case 'b' -> value.append('\b');
+					case 'f' -> value.append('\f');
+					case 'n' -> value.append('\n');
+					case 'r' -> value.append('\r');
+					case 't' -> value.append('\t');
+					case 'u' ->
+					{
+						if (index + 4 > limit)
+							return null;
+						int codeUnit = 0;
+						for (int i = 0; i < 4; i++)
+						{
+							int digit = Character.digit(buffer.get(index++), 16);
+							if (digit < 0)
+								return null;
+							codeUnit = codeUnit * 16 + digit;
+						}
+						value.append((char)codeUnit);
+					}
+					default ->
+					{
+						return null;
+					}
+				}
+				start = index;
+			}
+		}
+		return null;
+	}
+
+
+	/**
+	 * Decodes bytes of the message as UTF-8
+	 * @param from index of the first byte
+	 * @param to index after the last byte
+	 * @return the decoded String
+	 */
+	private String decode(int from, int to)
+	{
+		if (buffer.hasArray())
+			return new String(buffer.array(), buffer.arrayOffset() + from, to - from, StandardCharsets.UTF_8);
+
+		byte[] bytes = new byte[to - from];
+		buffer.get(from, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * Skips the value that starts at the next byte. Objects and Arrays are
+	 * skipped by counting brackets outside of Strings without checking what
+	 * is inside of them.
+	 * @return false if the value is not closed before the end of the message
+	 */
+	private boolean skipValue()
+	{
+		int b = next();
+		if (b == '"')
+			return skipString();
+		if (b == '{' || b == '[')
+		{
+			int depth = 1;
+			while (depth > 0 && index < limit)
+			{
+				b = buffer.get(index++);
+				if (b == '"')
+				{
+					if (!skipString())
+						return false;
+				}
+				else if (b == '{' || b == '[')
+					++depth;
+				else if (b == '}' || b == ']')
+					--depth;
+			}
+			return depth == 0;
+		}
+		if (b < 0 || b == ',' || b == '}' || b == ']' || b == ':')
+			return false;
+
+		while (index < limit) // number, true, false or null
+		{
+			b = buffer.get(index);
+			if (b == ',' || b == '}' || b == ']' || b == ' ' || b == '\t' || b == '\n' || b == '\r')
+				return true;
+			++index;
+		}
+		return true;
+	}
+
+
+	/**
+	 * Skips a String whose opening double quote has been read
+	 * @return false if the String is not closed
+	 */
+	private boolean skipString()
+	{
+		while (index < limit)
+		{
+			int b = buffer.get(index++);
+			if (b == '"')
+				return true;
+			if (b == '\\')
+				++index;
+		}
+		return false;
+	}
+}
@@ -16,6 +16,8 @@
 
 package usdot.fhwa.stol.c2c.c2c_mvt.parsers;
 
+import java.nio.ByteBuffer;
+
 import com.github.erosb.jsonsKema.JsonObject;
 import com.github.erosb.jsonsKema.JsonString;
 import com.github.erosb.jsonsKema.JsonTypingException;
@@ -82,4 +84,19 @@ public class NGTMDDJsonParser extends JsonParser
 		
 		return ((JsonString)messageType).getValue();
 	}
+
+
+	/**
+	 * Reads the value of the "messageType" key of the "message" Object from the
+	 * bytes of the message with {@link JsonFieldSniffer}. Reading stops at the
+	 * message type, so usually only the start of the message is read.
+	 * @param message the message in bytes from position to limit, the 
+	 * position is not changed
+	 * @return the message type, or null if it cannot be read from the bytes
+	 */
+	@Override
+	public String sniffMessageType(ByteBuffer message)
+	{
+		return JsonFieldSniffer.findString(message, "message", "messageType");
+	}
 }
@@ -16,6 +16,7 @@
 
 package usdot.fhwa.stol.c2c.c2c_mvt.parsers;
 
+import java.nio.ByteBuffer;
 import usdot.fhwa.stol.c2c.c2c_mvt.C2CMVTException;
 import usdot.fhwa.stol.c2c.c2c_mvt.controllers.StandardValidationController;
 import usdot.fhwa.stol.c2c.c2c_mvt.messages.C2CBaseMessage;
@@ -51,4 +52,21 @@ public abstract class Parser<T extends C2CBaseMessage>
 	 * @throws C2CMVTException 
 	 */
 	public abstract String identifyMessageType(T decodedMessage) throws C2CMVTException;
+	
+	
+	/**
+	 * Reads the message type from the bytes of a message before its syntax is
+	 * checked, so it can be used to decide how to handle the message without
+	 * paying for the complete parse. This does not replace
+	 * {@link #identifyMessageType(C2CBaseMessage)}, which also checks the 
+	 * structure of the message. The default implementation cannot read the
+	 * message type and returns null.
+	 * @param message the message in bytes from position to limit, the 
+	 * position is not changed
+	 * @return the message type, or null if it cannot be read from the bytes
+	 */
+	public String sniffMessageType(ByteBuffer message)
+	{
+		return null;
+	}
 }
@@ -0,0 +1,335 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.records;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Bounded in memory log of validation records. Every record gets a sequence
+ * number that is one greater than the previous record's, starting at 1, and
+ * the numbers keep increasing when the log is cleared. Records are kept in a
+ * ring of fixed capacity, and once it is full each new record overwrites the
+ * oldest one. Adding and reading records does not take locks, so threads
+ * validating messages do not wait for clients reading the log.
+ * <p>
+ * Readers use the sequence number of the last record they have as a cursor
+ * and only copy the records after it. A record whose sequence number has been
+ * handed out but that has not been stored yet ends a read, so readers never
+ * skip a record that is still being added.
+ */
+public class ValidationRecordStore
+{
+	/**
+	 * Name of the eviction policy, reported with the metrics
+	 */
+	public static final String EVICTION_POLICY = "overwrite-oldest";
+
+
+	/**
+	 * A record and its sequence number
+	 */
+	private static final class Slot
+	{
+		/**
+		 * Sequence number of the record
+		 */
+		private final long sequence;
+
+
+		/**
+		 * The formatted record
+		 */
+		private final String record;
+
+
+		/**
+		 * Time the record was added in milliseconds since the epoch
+		 */
+		private final long time;
+
+
+		/**
+		 * Constructor
+		 * @param sequence sequence number of the record
+		 * @param record the formatted record
+		 */
+		private Slot(long sequence, String record)
+		{
+			this.sequence = sequence;
+			this.record = record;
+			time = System.currentTimeMillis();
+		}
+	}
+
+
+	/**
+	 * The ring, the record with sequence number n is stored at n % capacity
+	 */
+	private final AtomicReferenceArray<Slot> slots;
+
+
+	/**
+	 * Maximum number of records kept
+	 */
+	private final int capacity;
+
+
+	/**
+	 * Sequence number of the next record
+	 */
+	private final AtomicLong nextSequence = new AtomicLong(1);
+
+
+	/**
+	 * Sequence number of the last record removed by {@link #clear()}
+	 */
+	private final AtomicLong clearedThrough = new AtomicLong();
+
+
+	/**
+	 * Sequence number of the last record removed by {@link #expireBefore}.
+	 * Expired records are skipped like cleared ones, but readers see them as
+	 * missed like overwritten records since the log was not reset.
+	 */
+	private final AtomicLong expiredThrough = new AtomicLong();
+
+
+	/**
+	 * Number of records overwritten before they were cleared
+	 */
+	private final LongAdder evicted = new LongAdder();
+
+
+	/**
+	 * Number of characters of the records in the ring
+	 */
+	private final AtomicLong retainedChars = new AtomicLong();
+
+
+	/**
+	 * Constructor
+	 * @param capacity maximum number of records kept, at least 1
+	 */
+	public ValidationRecordStore(int capacity)
+	{
+		this.capacity = Math.max(1, capacity);
+		slots = new AtomicReferenceArray<>(this.capacity);
+	}
+
+
+	/**
+	 * Adds a record, overwriting the oldest record if the store is full
+	 * @param record the formatted record
+	 * @return the sequence number of the record
+	 */
+	public long append(String record)
+	{
+		long sequence = nextSequence.getAndIncrement();
+		int index = (int)(sequence % capacity);
+		Slot slot = new Slot(sequence, record);
+		while (true)
+		{
+			Slot oldSlot = slots.get(index);
+			if (oldSlot != null && oldSlot.sequence > sequence) // a newer record already took the slot
+			{
+				evicted.increment();
+				return sequence;
+			}
+			if (slots.compareAndSet(index, oldSlot, slot))
+			{
+				retainedChars.addAndGet(record.length() - (oldSlot == null ? 0 : oldSlot.record.length()));
+				if (oldSlot != null)
+					evicted.increment();
+				return sequence;
+			}
+		}
+	}
+
+
+	/**
+	 * Copies the records with a sequence number greater than since, oldest
+	 * first. If records after since have been overwritten the copy starts at
+	 * the oldest record still in the store, which the returned sequence number
+	 * shows.
+	 * @param since sequence number of the last record the caller has, 0 for
+	 * every record in the store
+	 * @param limit maximum number of records to copy
+	 * @param records receives the records
+	 * @return the sequence number of the first copied record, or of the next
+	 * record to read if none were copied
+	 */
+	public long readSince(long since, int limit, List<String> records)
+	{
+		long last = nextSequence.get() - 1;
+		long first = Math.max(Math.max(since, getRemovedThrough()), last - capacity) + 1;
+		int copied = 0;
+		for (long sequence = first; sequence <= last && copied < limit; sequence++)
+		{
+			Slot slot = slots.get((int)(sequence % capacity));
+			if (slot == null || slot.sequence < sequence) // handed out but not stored yet, or cleared
+				break;
+			if (slot.sequence > sequence) // overwritten while reading
+			{
+				if (copied > 0)
+					break;
+				first = sequence + 1;
+				continue;
+			}
+			records.add(slot.record);
+			++copied;
+		}
+
+		return first;
+	}
+
+
+	/**
+	 * Removes every record. Sequence numbers are not reset.
+	 * @return the sequence number of the last record removed
+	 */
+	public long clear()
+	{
+		long last = nextSequence.get() - 1;
+		clearedThrough.accumulateAndGet(last, Math::max);
+		for (int index = 0; index < capacity; index++)
+		{
+			Slot slot = slots.get(index);
+			if (slot != null && slot.sequence <= last && slots.compareAndSet(index, slot, null))
+				retainedChars.addAndGet(-slot.record.length());
+		}
+		return last;
+	}
+
+
+	/**
+	 * Removes the oldest records that were added before the given time, 
+	 * stopping at the first newer record. Readers skip the removed records
+	 * the same way they skip cleared records, but they are not reported by
+	 * {@link #getClearedThrough()}. Sequence numbers are not reset.
+	 * @param time time in milliseconds since the epoch
+	 * @param limit maximum number of records to remove
+	 * @return the number of records removed
+	 */
+	public int expireBefore(long time, int limit)
+	{
+		long last = nextSequence.get() - 1;
+		long first = getFirstSequence();
+		long sequence = first;
+		while (sequence <= last && sequence - first < limit)
+		{
+			Slot slot = slots.get((int)(sequence % capacity));
+			if (slot == null || slot.sequence != sequence || slot.time >= time)
+				break;
+			++sequence;
+		}
+		if (sequence == first)
+			return 0;
+
+		long through = sequence - 1;
+		expiredThrough.accumulateAndGet(through, Math::max);
+		for (long expired = first; expired <= through; expired++)
+		{
+			int index = (int)(expired % capacity);
+			Slot slot = slots.get(index);
+			if (slot != null && slot.sequence <= through && slots.compareAndSet(index, slot, null))
+				retainedChars.addAndGet(-slot.record.length());
+		}
+		return (int)(through - first + 1);
+	}
+
+
+	/**
+	 * @return the sequence number of the last record added, 0 if none have been added
+	 */
+	public long getLastSequence()
+	{
+		return nextSequence.get() - 1;
+	}
+
+
+	/**
+	 * @return the sequence number of the oldest record that can still be read
+	 */
+	public long getFirstSequence()
+	{
+		long last = getLastSequence();
+		return Math.max(getRemovedThrough(), last - capacity) + 1;
+	}
+
+
+	/**
+	 * @return the sequence number of the last record removed by 
+	 * {@link #clear()} or {@link #expireBefore}
+	 */
+	private long getRemovedThrough()
+	{
+		return Math.max(clearedThrough.get(), expiredThrough.get());
+	}
+
+
+	/**
+	 * @return the sequence number of the last record removed by {@link #clear()},
+	 * 0 if the store has not been cleared. Records removed because they 
+	 * expired are not included.
+	 */
+	public long getClearedThrough()
+	{
+		return clearedThrough.get();
+	}
+
+
+	/**
+	 * @return the number of records that can be read
+	 */
+	public long getSize()
+	{
+		return getLastSequence() - getFirstSequence() + 1;
+	}
+
+
+	/**
+	 * @return the maximum number of records kept
+	 */
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+
+	/**
+	 * Creates a JSON Object with the configuration and usage of the store
+	 * @param objectMapper mapper used to create the JSON Object
+	 * @return the JSON Object
+	 */
+	public ObjectNode getStatisticsAsJson(ObjectMapper objectMapper)
+	{
+		ObjectNode jsonObject = objectMapper.createObjectNode();
+		jsonObject.put("capacity", capacity);
+		jsonObject.put("evictionPolicy", EVICTION_POLICY);
+		jsonObject.put("size", getSize());
+		jsonObject.put("firstSequence", getFirstSequence());
+		jsonObject.put("lastSequence", getLastSequence());
+		jsonObject.put("evicted", evicted.sum());
+		jsonObject.put("retainedChars", retainedChars.get());
+		return jsonObject;
+	}
+}
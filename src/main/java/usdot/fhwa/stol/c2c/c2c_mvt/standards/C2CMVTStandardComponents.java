@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.standards;
+
+import org.springframework.core.io.ClassPathResource;
+
+import usdot.fhwa.stol.c2c.c2c_mvt.C2CMVTException;
+import usdot.fhwa.stol.c2c.c2c_mvt.decoders.Decoder;
+import usdot.fhwa.stol.c2c.c2c_mvt.messages.C2CBaseMessage;
+import usdot.fhwa.stol.c2c.c2c_mvt.parsers.Parser;
+import usdot.fhwa.stol.c2c.c2c_mvt.validators.Validator;
+
+/**
+ * The Decoder, Parser and Validator of a version of a C2C standard. The classes
+ * named in the configuration file are resolved once when the file is read, so
+ * a misconfigured class or schema file is reported at startup instead of when
+ * the first message is validated. Decoders, Parsers and Validators do not keep
+ * state between messages, so one instance of each is shared by every 
+ * validation job.
+ */
+public class C2CMVTStandardComponents
+{
+	/**
+	 * The shared Decoder
+	 */
+	private final Decoder<C2CBaseMessage> decoder;
+
+
+	/**
+	 * The shared Parser
+	 */
+	private final Parser<C2CBaseMessage> parser;
+
+
+	/**
+	 * The shared Validator
+	 */
+	private final Validator<C2CBaseMessage> validator;
+
+
+	/**
+	 * Resolves the Decoder, Parser and Validator classes of the version and
+	 * creates the shared instances.
+	 * @param standardName name of the C2C standard
+	 * @param versionName name of the version of the C2C standard
+	 * @param version the version with the fully qualified class names and
+	 * schema file
+	 * @throws C2CMVTException if a class cannot be found, is not the right type
+	 * or cannot be instantiated, or if the schema file does not exist
+	 */
+	@SuppressWarnings("unchecked")
+	C2CMVTStandardComponents(String standardName, String versionName, C2CMVTStandardVersion version)
+		throws C2CMVTException
+	{
+		String component = "decoder";
+		try
+		{
+			decoder = (Decoder<C2CBaseMessage>)Class.forName(version.getDecoder()).asSubclass(Decoder.class).getDeclaredConstructor().newInstance();
+
+			component = "parser";
+			parser = (Parser<C2CBaseMessage>)Class.forName(version.getParser()).asSubclass(Parser.class).getDeclaredConstructor().newInstance();
+
+			component = "validator";
+			ClassPathResource schemaFile = new ClassPathResource(version.getSchema());
+			if (!schemaFile.exists())
+				throw new Exception(String.format("Schema file %s does not exist", version.getSchema()));
+			validator = (Validator<C2CBaseMessage>)Class.forName(version.getValidator()).asSubclass(Validator.class).getDeclaredConstructor(ClassPathResource.class).newInstance(schemaFile);
+		}
+		catch (Exception ex)
+		{
+			throw new C2CMVTException(ex, String.format("Failed to instantiate %s for version %s of standard %s", component, versionName, standardName));
+		}
+	}
+
+
+	/**
+	 * @return the shared Decoder
+	 */
+	public Decoder<C2CBaseMessage> getDecoder()
+	{
+		return decoder;
+	}
+
+
+	/**
+	 * @return the shared Parser
+	 */
+	public Parser<C2CBaseMessage> getParser()
+	{
+		return parser;
+	}
+
+
+	/**
+	 * @return the shared Validator
+	 */
+	public Validator<C2CBaseMessage> getValidator()
+	{
+		return validator;
+	}
+}
@@ -26,6 +26,8 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import usdot.fhwa.stol.c2c.c2c_mvt.C2CMVTException;
+
 /**
  * This class represents a C2C standard and all of its versions.
  */
@@ -38,13 +40,22 @@ public class C2CMVTStandardVersions
 	Map<String, C2CMVTStandardVersion> c2cStandardVersionMap = new HashMap<>();
 
 
+	/**
+	 * The resolved Decoder, Parser and Validator of each version of this C2C
+	 * standard. The key is the version name.
+	 */
+	Map<String, C2CMVTStandardComponents> c2cStandardComponentsMap = new HashMap<>();
+
+
 	/**
 	 * Creates a C2CMVTStandard object from the given JSON object which is detailed in the class
 	 * description of {@link C2CMVTStandards}.
 	 * @param standardName the name of the standard
 	 * @param standard the JSON object representing the standard
+	 * @throws C2CMVTException if the Decoder, Parser or Validator of a version
+	 * cannot be resolved
 	 */
-	C2CMVTStandardVersions(String standardName, ObjectNode standard) throws JsonMappingException, JsonProcessingException
+	C2CMVTStandardVersions(String standardName, ObjectNode standard) throws JsonMappingException, JsonProcessingException, C2CMVTException
 	{
 		ObjectNode versions = (ObjectNode)standard.get("versions");
 		Iterator<Entry<String, JsonNode>> versionIterator = versions.fields();
@@ -58,6 +69,7 @@ public class C2CMVTStandardVersions
 			version.setParser("usdot.fhwa.stol.c2c.c2c_mvt.parsers." + version.getParser());
 			version.setValidator("usdot.fhwa.stol.c2c.c2c_mvt.validators." + version.getValidator());
 			c2cStandardVersionMap.put(versionName, version);
+			c2cStandardComponentsMap.put(versionName, new C2CMVTStandardComponents(standardName, versionName, version));
 		}
 	}
 }
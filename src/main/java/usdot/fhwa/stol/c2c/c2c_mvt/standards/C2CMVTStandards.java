@@ -39,7 +39,8 @@ import usdot.fhwa.stol.c2c.c2c_mvt.validators.Validator;
 /**
  * This class reads the c2c-mvt.json file and stores the information in memory.
  * It provides methods to retrieve the list of C2C standards, versions, encodings, and message types.
- * It also provides methods to create instances of the Decoder, Parser, and Validator classes for the specified C2C standard and version.
+ * It also provides the Decoder, Parser, and Validator classes for the specified C2C standard and version, which
+ * are resolved when the file is read so a misconfigured class or schema file fails at startup.
  * The structure of the configuration file is a JSON Object as follows:
  * {
  * 	"standardName1": {
@@ -112,6 +113,10 @@ public class C2CMVTStandards
 				c2cStandardMap.put(standardName, new C2CMVTStandardVersions(standardName, (ObjectNode)entry.getValue()));
 			}
 		}
+		catch (C2CMVTException oEx)
+		{
+			throw oEx;
+		}
 		catch (Exception oEx)
 		{
 			throw new C2CMVTException(oEx, "Error reading C2C MVT configuration file");
@@ -202,69 +207,52 @@ public class C2CMVTStandards
 
 
 	/**
-	 * Creates a new instance of the Decoder for the given C2C standard and version
+	 * Gets the Decoder, Parser and Validator resolved for the given C2C standard
+	 * and version when the configuration file was read
 	 * @param standardName name of the C2C standard
 	 * @param versionName version of the C2C standard
-	 * @return a new instance of the Decoder for the given C2C standard and version
-	 * @throws C2CMVTException if an error occurs while creating the Decoder instance
+	 * @return the components of the given C2C standard and version
 	 */
-	@SuppressWarnings("unchecked")
-	public Decoder<C2CBaseMessage> getDecoderInstance(String standardName, String versionName) throws C2CMVTException
+	public C2CMVTStandardComponents getComponents(String standardName, String versionName)
 	{
-		C2CMVTStandardVersions standard = c2cStandardMap.get(standardName);
-		C2CMVTStandardVersion version = standard.c2cStandardVersionMap.get(versionName);
-		try
-		{
-			return (Decoder<C2CBaseMessage>)Class.forName(version.getDecoder()).getDeclaredConstructor().newInstance();
-		}
-		catch (Exception ex)
-		{
-			throw new C2CMVTException(ex, String.format("Failed to instantiate decoder for version %s of standard %s", standardName, versionName));
-		}
+		return c2cStandardMap.get(standardName).c2cStandardComponentsMap.get(versionName);
 	}
 
 
 	/**
-	 * Creates a new instance of the Parser for the given C2C standard and version
+	 * Gets the Decoder for the given C2C standard and version. The Decoder is
+	 * shared by every validation job.
 	 * @param standardName name of the C2C standard
 	 * @param versionName version of the C2C standard
-	 * @return a new instance of the Parser for the given C2C standard and version
-	 * @throws C2CMVTException if an error occurs while creating the Parser instance
+	 * @return the Decoder for the given C2C standard and version
 	 */
-	@SuppressWarnings("unchecked")
-	public Parser<C2CBaseMessage> getParserInstance(String standardName, String versionName) throws C2CMVTException
+	public Decoder<C2CBaseMessage> getDecoderInstance(String standardName, String versionName)
 	{
-		C2CMVTStandardVersions standard = c2cStandardMap.get(standardName);
-		C2CMVTStandardVersion version = standard.c2cStandardVersionMap.get(versionName);
-		try
-		{
-			return (Parser<C2CBaseMessage>)Class.forName(version.getParser()).getDeclaredConstructor().newInstance();
-		}
-		catch (Exception ex)
-		{
-			throw new C2CMVTException(ex, String.format("Failed to instantiate parser for version %s of standard %s", versionName, standardName));
-		}
+		return getComponents(standardName, versionName).getDecoder();
 	}
 
+
 	/**
-	 * Creates a new instance of the Validator for the given C2C standard and version
+	 * Gets the Parser for the given C2C standard and version. The Parser is
+	 * shared by every validation job.
 	 * @param standardName name of the C2C standard
 	 * @param versionName version of the C2C standard
-	 * @return a new instance of the Validator for the given C2C standard and version
-	 * @throws C2CMVTException if an error occurs while creating the Validator instance
+	 * @return the Parser for the given C2C standard and version
 	 */
-	@SuppressWarnings("unchecked")
-	public Validator<C2CBaseMessage> getValidatorInstance(String standardName, String versionName) throws C2CMVTException
+	public Parser<C2CBaseMessage> getParserInstance(String standardName, String versionName)
 	{
-		C2CMVTStandardVersions standard = c2cStandardMap.get(standardName);
-		C2CMVTStandardVersion version = standard.c2cStandardVersionMap.get(versionName);
-		try
-		{
-			return (Validator<C2CBaseMessage>)Class.forName(version.getValidator()).getDeclaredConstructor(ClassPathResource.class).newInstance(new ClassPathResource(version.getSchema()));
-		}
-		catch (Exception ex)
-		{
-			throw new C2CMVTException(ex, String.format("Failed to instantiate parser for version %s of standard %s", versionName, standardName));
-		}
+		return getComponents(standardName, versionName).getParser();
+	}
+
+	/**
+	 * Gets the Validator for the given C2C standard and version. The Validator
+	 * is shared by every validation job.
+	 * @param standardName name of the C2C standard
+	 * @param versionName version of the C2C standard
+	 * @return the Validator for the given C2C standard and version
+	 */
+	public Validator<C2CBaseMessage> getValidatorInstance(String standardName, String versionName)
+	{
+		return getComponents(standardName, versionName).getValidator();
 	}
 }
@@ -0,0 +1,1002 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.storage;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import usdot.fhwa.stol.c2c.c2c_mvt.jobs.ValidationJob;
+
+/**
+ * Saves the validated messages in the messages directory by content. A 
+ * message is identified by the SHA-256 hash of its bytes, so a message that
+ * is sent many times, like a heartbeat or a status message, is written once
+ * and every validation record of it refers to the same stored message.
+ * <p>
+ * Messages are not written by the threads validating them. New messages are
+ * queued for a writer thread that appends them in batches to segment files
+ * with a single gathering write per batch, so validation only waits for the
+ * disk when the queue is full. A new segment is started once the current 
+ * one reaches c2c-mvt.storage.segment-bytes. c2c-mvt.storage.fsync controls
+ * when the segment is forced to the disk: never (left to the operating 
+ * system), flush (when a job finishes) or batch (after every batch). An in 
+ * memory index maps each stored message to its segment, offset and length.
+ * <p>
+ * Each stored message counts the jobs that reference it. A job references a
+ * stored message once no matter how many of its messages have the same 
+ * content, and releases its references when it is no longer retained by 
+ * {@link usdot.fhwa.stol.c2c.c2c_mvt.jobs.ValidationJobEngine}. A segment is
+ * deleted once it is full and none of its messages are referenced, or when 
+ * it is evicted by the {@link RetentionJanitor}.
+ */
+@Component
+public class MessageStore
+{
+	/**
+	 * Logger instance
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(MessageStore.class);
+
+
+	/**
+	 * Computes the SHA-256 hashes, one per thread since a digest is not thread safe
+	 */
+	private static final ThreadLocal<MessageDigest> DIGESTS = ThreadLocal.withInitial(() ->
+	{
+		try
+		{
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException ex)
+		{
+			throw new IllegalStateException(ex);
+		}
+	});
+
+
+	/**
+	 * When segments are forced to the disk
+	 */
+	public enum FsyncPolicy
+	{
+		/**
+		 * Never, the operating system writes them when it chooses
+		 */
+		NEVER,
+
+
+		/**
+		 * When a job finishes and its messages are flushed
+		 */
+		FLUSH,
+
+
+		/**
+		 * After every batch is written
+		 */
+		BATCH
+	}
+
+
+	/**
+	 * Where a stored message is in the segment files
+	 * @param name name of the message, its identifier and file extension
+	 * @param segment the segment file
+	 * @param offset offset of the message in the segment file
+	 * @param length length of the message in bytes
+	 */
+	public record Location(String name, Path segment, long offset, int length)
+	{
+	}
+
+
+	/**
+	 * A segment file the messages are appended to
+	 */
+	private static final class Segment
+	{
+		/**
+		 * The segment file
+		 */
+		private final Path file;
+
+
+		/**
+		 * Appends to the file, null once the segment is full
+		 */
+		private FileChannel channel;
+
+
+		/**
+		 * Number of bytes written to the file
+		 */
+		private long size;
+
+
+		/**
+		 * Number of stored messages in the segment
+		 */
+		private int messages;
+
+
+		/**
+		 * Names of the messages written to the segment
+		 */
+		private final ArrayList<String> names = new ArrayList<>();
+
+
+		/**
+		 * Time the segment was last written in milliseconds since the epoch
+		 */
+		private long lastWritten = System.currentTimeMillis();
+
+
+		/**
+		 * Constructor
+		 * @param file the segment file
+		 * @param channel appends to the file
+		 */
+		private Segment(Path file, FileChannel channel)
+		{
+			this.file = file;
+			this.channel = channel;
+		}
+	}
+
+
+	/**
+	 * A message of the store
+	 */
+	private static final class StoredMessage
+	{
+		/**
+		 * Number of jobs that reference the message, only changed while the
+		 * map of the stored messages holds the lock of its key
+		 */
+		private int references = 1;
+
+
+		/**
+		 * Segment the message was written to, null until it is written or 
+		 * once it is evicted. The location is guarded by the lock of the 
+		 * segments.
+		 */
+		private Segment segment;
+
+
+		/**
+		 * True once the message was evicted, cleared or could not be written
+		 * while jobs still reference it. The message stays in the index as a
+		 * tombstone so releasing those jobs decrements its references and not
+		 * those of a message stored again with the same name. Storing it 
+		 * again writes it again. Guarded by the lock of the segments.
+		 */
+		private boolean evicted;
+
+
+		/**
+		 * Offset of the message in the segment
+		 */
+		private long offset;
+
+
+		/**
+		 * Length of the message in bytes
+		 */
+		private int length;
+	}
+
+
+	/**
+	 * A new message waiting for the writer
+	 * @param name name of the message
+	 * @param stored the message in the index, the write is skipped if it is
+	 * no longer in the index, was already written or was evicted when the 
+	 * writer gets to it
+	 * @param bytes the bytes of the message
+	 * @param job the job that stored the message
+	 * @param sequence number of the write, in queue order
+	 */
+	private record PendingWrite(String name, StoredMessage stored, ByteBuffer bytes, ValidationJob job, long sequence)
+	{
+	}
+
+
+	/**
+	 * The messages of a job that could not be written
+	 * @param first exception of the first message that could not be written
+	 * @param messages number of messages that could not be written
+	 */
+	private record WriteFailure(IOException first, int messages)
+	{
+	}
+
+
+	/**
+	 * Maximum number of messages waiting for the writer before storing a
+	 * message blocks
+	 */
+	@Value("${c2c-mvt.storage.queue-depth:1024}")
+	private int queueDepth;
+
+
+	/**
+	 * Size in bytes a segment reaches before a new one is started
+	 */
+	@Value("${c2c-mvt.storage.segment-bytes:67108864}")
+	private long segmentBytes;
+
+
+	/**
+	 * When segments are forced to the disk: never, flush or batch
+	 */
+	@Value("${c2c-mvt.storage.fsync:never}")
+	private String fsync;
+
+
+	/**
+	 * Parsed {@link #fsync}
+	 */
+	private FsyncPolicy fsyncPolicy;
+
+
+	/**
+	 * Directory the segments are saved in
+	 */
+	private volatile Path directory;
+
+
+	/**
+	 * The stored messages by name
+	 */
+	private final ConcurrentHashMap<String, StoredMessage> messages = new ConcurrentHashMap<>();
+
+
+	/**
+	 * Messages waiting for the writer
+	 */
+	private ArrayBlockingQueue<PendingWrite> queue;
+
+
+	/**
+	 * Orders the sequence numbers of the pending writes with their order in 
+	 * the queue
+	 */
+	private final Object enqueueLock = new Object();
+
+
+	/**
+	 * Sequence number of the last queued write, guarded by {@link #enqueueLock}
+	 */
+	private long enqueued;
+
+
+	/**
+	 * Sequence number of the last write the writer finished, guarded by 
+	 * {@link #progress}
+	 */
+	private long written;
+
+
+	/**
+	 * Notified when the writer finishes a batch
+	 */
+	private final Object progress = new Object();
+
+
+	/**
+	 * Guards the segments and the locations of the stored messages. Never 
+	 * held while changing {@link #messages}.
+	 */
+	private final Object segmentLock = new Object();
+
+
+	/**
+	 * Number of evicted messages still in the index because jobs reference
+	 * them, guarded by {@link #segmentLock}
+	 */
+	private int tombstones;
+
+
+	/**
+	 * Segment new messages are appended to, null until the next batch
+	 */
+	private Segment activeSegment;
+
+
+	/**
+	 * The segments in the directory, oldest first
+	 */
+	private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+
+
+	/**
+	 * Number used to name the next segment
+	 */
+	private long nextSegment;
+
+
+	/**
+	 * The messages of jobs that could not be written, reported when the job flushes
+	 */
+	private final ConcurrentHashMap<ValidationJob, WriteFailure> failures = new ConcurrentHashMap<>();
+
+
+	/**
+	 * Writes the queued messages
+	 */
+	private Thread writer;
+
+
+	/**
+	 * Number of bytes of the files in the directory
+	 */
+	private final AtomicLong bytesOnDisk = new AtomicLong();
+
+
+	/**
+	 * Number of messages that were not written because a message with the
+	 * same content was already stored
+	 */
+	private final AtomicLong duplicates = new AtomicLong();
+
+
+	/**
+	 * Sets the directory the segments are saved in, creating it if it does
+	 * not exist, counts the bytes of the files already in it and starts the
+	 * writer
+	 * @param directory the directory
+	 * @throws IOException if the directory cannot be created or listed
+	 */
+	public synchronized void open(Path directory)
+		throws IOException
+	{
+		Files.createDirectories(directory);
+		try (Stream<Path> files = Files.list(directory))
+		{
+			bytesOnDisk.set(files.mapToLong(file -> file.toFile().length()).sum());
+		}
+		this.directory = directory;
+		if (writer != null)
+			return;
+
+		fsyncPolicy = FsyncPolicy.valueOf(fsync.toUpperCase(Locale.ROOT));
+		queue = new ArrayBlockingQueue<>(queueDepth);
+		writer = new Thread(this::writeQueuedMessages, "c2c-mvt-message-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+
+	/**
+	 * Writes the queued messages and stops the writer
+	 */
+	@PreDestroy
+	public synchronized void close()
+	{
+		if (writer == null)
+			return;
+
+		try
+		{
+			flush(null);
+		}
+		catch (IOException ex)
+		{
+			LOGGER.error("Failed to write the queued messages", ex);
+		}
+		writer.interrupt();
+		try
+		{
+			writer.join();
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+		writer = null;
+		synchronized (segmentLock)
+		{
+			closeActiveSegment();
+		}
+	}
+
+
+	/**
+	 * @return the directory the segments are saved in
+	 */
+	public Path getDirectory()
+	{
+		return directory;
+	}
+
+
+	/**
+	 * Computes the identifier of a message, the SHA-256 hash of its bytes 
+	 * from position to limit in hex. The position of the buffer is not changed.
+	 * @param message the message
+	 * @return the identifier
+	 */
+	public static String hash(ByteBuffer message)
+	{
+		MessageDigest digest = DIGESTS.get();
+		digest.update(message.duplicate());
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+
+	/**
+	 * Stores the message as id + fileExt unless a message with the same 
+	 * content and extension is already stored, and adds a reference from the
+	 * job to it. A new message, or one that was evicted, is queued for the 
+	 * writer, this only blocks when the queue is full. The writer keeps a reference to the bytes of 
+	 * the message instead of a copy, so they must not be changed. The 
+	 * position of the buffer is not changed.
+	 * @param job the job the message belongs to
+	 * @param id identifier of the message returned by {@link #hash(ByteBuffer)}
+	 * @param message the message
+	 * @param fileExt file extension of the message
+	 * @throws IOException if interrupted while waiting for room in the queue
+	 */
+	public void store(ValidationJob job, String id, ByteBuffer message, String fileExt)
+		throws IOException
+	{
+		String name = id + fileExt;
+		boolean newReference = job.referenceStoredMessage(name);
+		boolean[] created = new boolean[1];
+		StoredMessage stored = messages.compute(name, (key, existing) ->
+		{
+			if (existing == null)
+			{
+				created[0] = true;
+				return new StoredMessage();
+			}
+			if (newReference)
+				++existing.references;
+			return existing;
+		});
+		if (!created[0] && !restore(stored))
+		{
+			duplicates.incrementAndGet();
+			return;
+		}
+
+		try
+		{
+			synchronized (enqueueLock)
+			{
+				queue.put(new PendingWrite(name, stored, message.duplicate(), job, enqueued + 1));
+				++enqueued;
+			}
+		}
+		catch (InterruptedException ex)
+		{
+			synchronized (segmentLock)
+			{
+				evict(stored);
+			}
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting to save " + name);
+		}
+	}
+
+
+	/**
+	 * Turns a tombstone back into a stored message that is waiting for the
+	 * writer. The caller's job references the message, so it stays in the 
+	 * index.
+	 * @param stored the message
+	 * @return true if the message was evicted and has to be written again
+	 */
+	private boolean restore(StoredMessage stored)
+	{
+		synchronized (segmentLock)
+		{
+			if (!stored.evicted)
+				return false;
+
+			stored.evicted = false;
+			--tombstones;
+			return true;
+		}
+	}
+
+
+	/**
+	 * Turns a stored message into a tombstone. Called while holding 
+	 * {@link #segmentLock}.
+	 * @param stored the message
+	 */
+	private void evict(StoredMessage stored)
+	{
+		stored.segment = null;
+		if (stored.evicted)
+			return;
+
+		stored.evicted = true;
+		++tombstones;
+	}
+
+
+	/**
+	 * Waits until every message queued before the call is written. If 
+	 * messages of the job could not be written an exception is thrown once.
+	 * Segments are forced to the disk if c2c-mvt.storage.fsync is flush.
+	 * @param job the job whose write failures are reported, null to only wait
+	 * @throws IOException if messages of the job could not be written, or 
+	 * if interrupted while waiting
+	 */
+	public void flush(ValidationJob job)
+		throws IOException
+	{
+		long target;
+		synchronized (enqueueLock)
+		{
+			target = enqueued;
+		}
+		synchronized (progress)
+		{
+			while (written < target)
+			{
+				try
+				{
+					progress.wait();
+				}
+				catch (InterruptedException ex)
+				{
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting for the messages to be saved");
+				}
+			}
+		}
+		if (fsyncPolicy == FsyncPolicy.FLUSH)
+		{
+			synchronized (segmentLock)
+			{
+				if (activeSegment != null)
+					activeSegment.channel.force(false);
+			}
+		}
+		WriteFailure failure = job != null ? failures.remove(job) : null;
+		if (failure != null)
+			throw new IOException(String.format("%d message(s) could not be saved", failure.messages()), failure.first());
+	}
+
+
+	/**
+	 * Run by the writer thread. Takes the queued messages in batches and 
+	 * writes each batch until the thread is interrupted.
+	 */
+	private void writeQueuedMessages()
+	{
+		ArrayList<PendingWrite> batch = new ArrayList<>();
+		while (true)
+		{
+			try
+			{
+				batch.add(queue.take());
+			}
+			catch (InterruptedException ex)
+			{
+				return;
+			}
+			queue.drainTo(batch, queueDepth);
+			try
+			{
+				writeBatch(batch);
+			}
+			catch (RuntimeException ex)
+			{
+				LOGGER.error("Failed to save a batch of messages", ex);
+			}
+			synchronized (progress)
+			{
+				written = batch.get(batch.size() - 1).sequence();
+				progress.notifyAll();
+			}
+			batch.clear();
+		}
+	}
+
+
+	/**
+	 * Appends the messages of the batch that are still waiting in the index
+	 * to the active segment with a gathering write and records where each 
+	 * was written. A message that was evicted and stored again while its 
+	 * first write was still queued has two writes in the queue, only the 
+	 * first one in the batch is written. If the batch cannot be written its messages become 
+	 * tombstones, the failure is kept for their jobs and a new segment is 
+	 * started for the next batch.
+	 * @param batch the batch
+	 */
+	private void writeBatch(List<PendingWrite> batch)
+	{
+		ArrayList<PendingWrite> writes = new ArrayList<>(batch.size());
+		Set<StoredMessage> claimed = Collections.newSetFromMap(new IdentityHashMap<>());
+		IOException failure = null;
+		synchronized (segmentLock)
+		{
+			long batchBytes = 0;
+			for (PendingWrite write : batch)
+			{
+				StoredMessage stored = write.stored();
+				if (messages.get(write.name()) == stored && stored.segment == null && !stored.evicted && claimed.add(stored))
+				{
+					writes.add(write);
+					batchBytes += write.bytes().remaining();
+				}
+			}
+			if (writes.isEmpty())
+				return;
+
+			try
+			{
+				Segment segment = getActiveSegment(batchBytes);
+				ByteBuffer[] buffers = new ByteBuffer[writes.size()];
+				int[] lengths = new int[buffers.length];
+				for (int i = 0; i < buffers.length; i++)
+				{
+					buffers[i] = writes.get(i).bytes();
+					lengths[i] = buffers[i].remaining();
+				}
+				long offset = segment.size;
+				long remaining = batchBytes;
+				while (remaining > 0)
+				{
+					long count = segment.channel.write(buffers);
+					segment.size += count;
+					bytesOnDisk.addAndGet(count);
+					remaining -= count;
+				}
+				if (fsyncPolicy == FsyncPolicy.BATCH)
+					segment.channel.force(false);
+
+				for (int i = 0; i < lengths.length; i++)
+				{
+					StoredMessage stored = writes.get(i).stored();
+					stored.segment = segment;
+					stored.offset = offset;
+					stored.length = lengths[i];
+					offset += lengths[i];
+					++segment.messages;
+					segment.names.add(writes.get(i).name());
+				}
+				segment.lastWritten = System.currentTimeMillis();
+			}
+			catch (IOException | InvalidPathException ex)
+			{
+				failure = ex instanceof IOException ioException ? ioException : new IOException(ex);
+				closeActiveSegment();
+				for (PendingWrite write : writes)
+					evict(write.stored());
+			}
+		}
+		if (failure == null)
+			return;
+
+		LOGGER.error("Failed to save " + writes.size() + " message(s)", failure);
+		for (PendingWrite write : writes)
+		{
+			failures.merge(write.job(), new WriteFailure(failure, 1), (previous, next) -> new WriteFailure(previous.first(), previous.messages() + 1));
+		}
+	}
+
+
+	/**
+	 * Gets the segment the next batch is appended to. The active segment is
+	 * closed and a new one started if the batch would take it past 
+	 * c2c-mvt.storage.segment-bytes. Called while holding {@link #segmentLock}.
+	 * @param batchBytes number of bytes of the batch
+	 * @return the active segment
+	 * @throws IOException if a new segment file cannot be created
+	 */
+	private Segment getActiveSegment(long batchBytes)
+		throws IOException
+	{
+		if (activeSegment != null && activeSegment.size > 0 && activeSegment.size + batchBytes > segmentBytes)
+			closeActiveSegment();
+		if (activeSegment == null)
+		{
+			Path file = directory.resolve(String.format("segment-%010d.log", nextSegment++));
+			FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			activeSegment = new Segment(file, channel);
+			segments.addLast(activeSegment);
+		}
+		return activeSegment;
+	}
+
+
+	/**
+	 * Closes the active segment so no more messages are appended to it, and
+	 * deletes it if none of its messages are stored. Called while holding 
+	 * {@link #segmentLock}.
+	 */
+	private void closeActiveSegment()
+	{
+		Segment segment = activeSegment;
+		if (segment == null)
+			return;
+
+		activeSegment = null;
+		try
+		{
+			segment.channel.close();
+		}
+		catch (IOException ex)
+		{
+			LOGGER.error("Failed to close " + segment.file, ex);
+		}
+		segment.channel = null;
+		if (segment.messages == 0)
+			deleteSegment(segment);
+	}
+
+
+	/**
+	 * Releases the references of the job. Stored messages and tombstones that
+	 * are no longer referenced by any job are removed from the index, and a 
+	 * full segment is deleted once none of its messages are stored.
+	 * @param job the job
+	 */
+	public void release(ValidationJob job)
+	{
+		failures.remove(job);
+		release(job.getStoredMessages());
+	}
+
+
+	/**
+	 * Releases one reference to each of the stored messages, like 
+	 * {@link #release(ValidationJob)} for a job that has already been flushed
+	 * @param names names of the stored messages a job referenced
+	 */
+	public void release(Collection<String> names)
+	{
+		for (String name : names)
+		{
+			StoredMessage[] removed = new StoredMessage[1];
+			messages.computeIfPresent(name, (key, stored) ->
+			{
+				if (--stored.references > 0)
+					return stored;
+
+				removed[0] = stored;
+				return null;
+			});
+			if (removed[0] == null)
+				continue;
+
+			synchronized (segmentLock)
+			{
+				Segment segment = removed[0].segment;
+				if (removed[0].evicted)
+					--tombstones;
+				else if (segment != null && --segment.messages == 0 && segment != activeSegment)
+					deleteSegment(segment);
+			}
+		}
+	}
+
+
+	/**
+	 * Deletes every file in the directory and forgets the stored messages.
+	 * Messages still referenced by jobs stay in the index as tombstones until
+	 * the jobs are released. Messages still queued are skipped by the writer.
+	 */
+	public void clear()
+	{
+		failures.clear();
+		synchronized (segmentLock)
+		{
+			for (StoredMessage stored : messages.values())
+				evict(stored);
+			closeActiveSegment();
+			segments.clear();
+			try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory))
+			{
+				for (Path file : directoryStream)
+					delete(file);
+			}
+			catch (IOException ex)
+			{
+				LOGGER.error("Failed to delete the stored messages", ex);
+			}
+		}
+	}
+
+
+	/**
+	 * Evicts the oldest segment if it was last written before the given time,
+	 * or if the files in the directory take more than maxBytes or there are 
+	 * more than maxSegments segments. The messages of the segment are evicted
+	 * even if jobs still reference them, and stay in the index as tombstones
+	 * until those jobs are released. The active segment is closed first if it
+	 * is the oldest.
+	 * @param writtenBefore time in milliseconds since the epoch, segments last
+	 * written before it are evicted
+	 * @param maxBytes maximum number of bytes of the files, 0 for no maximum
+	 * @param maxSegments maximum number of segments, 0 for no maximum
+	 * @return the number of bytes reclaimed, -1 if no segment was evicted
+	 */
+	public long evictOldestSegment(long writtenBefore, long maxBytes, int maxSegments)
+	{
+		synchronized (segmentLock)
+		{
+			Segment segment = segments.peekFirst();
+			if (segment == null)
+				return -1;
+			boolean expired = segment.lastWritten < writtenBefore;
+			boolean overBytes = maxBytes > 0 && bytesOnDisk.get() > maxBytes;
+			boolean overSegments = maxSegments > 0 && segments.size() > maxSegments;
+			if (!expired && !overBytes && !overSegments)
+				return -1;
+
+			long before = bytesOnDisk.get();
+			if (segment == activeSegment)
+				closeActiveSegment();
+			for (String name : segment.names)
+			{
+				StoredMessage stored = messages.get(name);
+				if (stored != null && stored.segment == segment)
+					evict(stored);
+			}
+			segment.messages = 0;
+			deleteSegment(segment);
+			return before - bytesOnDisk.get();
+		}
+	}
+
+
+	/**
+	 * Removes a segment from the segments and deletes its file. Called while
+	 * holding {@link #segmentLock}.
+	 * @param segment the segment
+	 */
+	private void deleteSegment(Segment segment)
+	{
+		segments.remove(segment);
+		delete(segment.file);
+	}
+
+
+	/**
+	 * Deletes a file of the directory and subtracts its length from the 
+	 * bytes on disk. Files that were already deleted are ignored.
+	 * @param file the file
+	 */
+	private void delete(Path file)
+	{
+		try
+		{
+			long size = Files.size(file);
+			Files.delete(file);
+			bytesOnDisk.addAndGet(-size);
+		}
+		catch (NoSuchFileException ex)
+		{
+			// already deleted by a concurrent reset
+		}
+		catch (IOException ex)
+		{
+			LOGGER.error("Failed to delete " + file, ex);
+		}
+	}
+
+
+	/**
+	 * Gets the locations of the written messages, ordered by segment and 
+	 * offset so they can be read sequentially. Call {@link #flush} first to 
+	 * include the queued messages.
+	 * @return the locations
+	 */
+	public List<Location> getLocations()
+	{
+		ArrayList<Location> locations = new ArrayList<>(messages.size());
+		synchronized (segmentLock)
+		{
+			for (Map.Entry<String, StoredMessage> entry : messages.entrySet())
+			{
+				StoredMessage stored = entry.getValue();
+				if (stored.segment != null)
+					locations.add(new Location(entry.getKey(), stored.segment.file, stored.offset, stored.length));
+			}
+		}
+		locations.sort(Comparator.comparing(Location::segment).thenComparingLong(Location::offset));
+		return locations;
+	}
+
+
+	/**
+	 * @return the number of bytes of the files in the directory
+	 */
+	public long getBytesOnDisk()
+	{
+		return bytesOnDisk.get();
+	}
+
+
+	/**
+	 * @return the number of stored messages, not counting tombstones
+	 */
+	public int getStoredMessages()
+	{
+		synchronized (segmentLock)
+		{
+			return Math.max(0, messages.size() - tombstones);
+		}
+	}
+
+
+	/**
+	 * @return the number of messages that were not written because a message
+	 * with the same content was already stored
+	 */
+	public long getDuplicates()
+	{
+		return duplicates.get();
+	}
+
+
+	/**
+	 * @return the number of segment files
+	 */
+	public int getSegmentCount()
+	{
+		synchronized (segmentLock)
+		{
+			return segments.size();
+		}
+	}
+
+
+	/**
+	 * @return the number of messages waiting for the writer
+	 */
+	public int getQueuedWrites()
+	{
+		ArrayBlockingQueue<PendingWrite> pending = queue;
+		return pending == null ? 0 : pending.size();
+	}
+}
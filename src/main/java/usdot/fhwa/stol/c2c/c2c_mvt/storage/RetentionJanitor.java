@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.storage;
+
+import io.micrometer.core.instrument.Counter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import usdot.fhwa.stol.c2c.c2c_mvt.jobs.ValidationJob;
+import usdot.fhwa.stol.c2c.c2c_mvt.metrics.ValidationMetrics;
+import usdot.fhwa.stol.c2c.c2c_mvt.records.ValidationRecordStore;
+
+/**
+ * Keeps the saved messages and the in memory validation records within the
+ * configured retention limits on a background thread. Segments of the 
+ * {@link MessageStore} are evicted oldest first once they are older than
+ * c2c-mvt.retention.ttl-ms, or while the messages directory holds more than
+ * c2c-mvt.retention.max-bytes or c2c-mvt.retention.max-files segment files.
+ * Records older than the TTL are removed from the record store, which is
+ * already limited to c2c-mvt.records.capacity records.
+ * <p>
+ * The stored messages of a job that is no longer retained are released once
+ * none of the job's records are kept in the record store, so every message 
+ * mentioned by a record in the log is still in the downloaded log.
+ * <p>
+ * Each pass evicts at most c2c-mvt.retention.batch-size segments and a 
+ * fixed number of records, and another pass is queued right away if there is
+ * more to evict, so the locks of the stores are only held briefly and 
+ * validating messages is never stalled behind a large cleanup.
+ */
+@Component
+public class RetentionJanitor
+{
+	/**
+	 * Logger instance
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(RetentionJanitor.class);
+
+
+	/**
+	 * Maximum number of records removed by a pass
+	 */
+	private static final int RECORD_BATCH_SIZE = 1024;
+
+
+	/**
+	 * Time in milliseconds between passes
+	 */
+	@Value("${c2c-mvt.retention.interval-ms:60000}")
+	private long interval;
+
+
+	/**
+	 * Age in milliseconds after which messages and records are evicted, 0 to
+	 * keep them regardless of age
+	 */
+	@Value("${c2c-mvt.retention.ttl-ms:0}")
+	private long ttl;
+
+
+	/**
+	 * Maximum number of bytes of the messages directory, 0 for no maximum
+	 */
+	@Value("${c2c-mvt.retention.max-bytes:0}")
+	private long maxBytes;
+
+
+	/**
+	 * Maximum number of segment files in the messages directory, 0 for no maximum
+	 */
+	@Value("${c2c-mvt.retention.max-files:0}")
+	private int maxFiles;
+
+
+	/**
+	 * Maximum number of segments evicted by a pass
+	 */
+	@Value("${c2c-mvt.retention.batch-size:16}")
+	private int batchSize;
+
+
+	/**
+	 * The saved messages
+	 */
+	@Autowired
+	private MessageStore messageStore;
+
+
+	/**
+	 * Publishes the reclaimed bytes and records
+	 */
+	@Autowired
+	private ValidationMetrics metrics;
+
+
+	/**
+	 * Gets the current record store, which is replaced when its capacity changes
+	 */
+	private volatile Supplier<ValidationRecordStore> recordStore = () -> null;
+
+
+	/**
+	 * Stored messages of jobs that are no longer retained, held until the
+	 * records of the job are removed from the record store
+	 * @param lastSequence sequence number of the job's latest record
+	 * @param names names of the stored messages the job referenced
+	 */
+	private record PendingRelease(long lastSequence, List<String> names) {}
+
+
+	/**
+	 * Stored messages waiting for the records of their jobs to be removed, 
+	 * ordered by the job's latest record
+	 */
+	private final PriorityQueue<PendingRelease> pendingReleases = new PriorityQueue<>(Comparator.comparingLong(PendingRelease::lastSequence));
+
+
+	/**
+	 * Bytes of evicted segments
+	 */
+	private Counter reclaimedBytes;
+
+
+	/**
+	 * Number of expired records
+	 */
+	private Counter expiredRecords;
+
+
+	/**
+	 * Runs the passes
+	 */
+	private ScheduledExecutorService executor;
+
+
+	/**
+	 * Registers the counters and schedules the passes
+	 */
+	@PostConstruct
+	public void init()
+	{
+		reclaimedBytes = metrics.counter("c2cmvt.retention.reclaimed", "Bytes of message segments evicted by the retention janitor", "bytes");
+		expiredRecords = metrics.counter("c2cmvt.retention.records", "Validation records removed by the retention janitor", null);
+		executor = Executors.newSingleThreadScheduledExecutor(runnable ->
+		{
+			Thread thread = new Thread(runnable, "c2c-mvt-retention");
+			thread.setDaemon(true);
+			return thread;
+		});
+		if (interval > 0)
+			executor.scheduleWithFixedDelay(this::runPass, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+
+	/**
+	 * Stops the passes
+	 */
+	@PreDestroy
+	public void shutdown()
+	{
+		executor.shutdownNow();
+	}
+
+
+	/**
+	 * Sets the source of the record store the records are removed from
+	 * @param recordStore gets the current record store
+	 */
+	public void setRecordStore(Supplier<ValidationRecordStore> recordStore)
+	{
+		this.recordStore = recordStore;
+	}
+
+
+	/**
+	 * Releases the stored messages of a job that is no longer retained. The
+	 * messages are released right away if none of the job's records are kept
+	 * in the record store, otherwise once they have been removed.
+	 * @param job the job
+	 */
+	public void releaseJob(ValidationJob job)
+	{
+		ValidationRecordStore store = recordStore.get();
+		long lastSequence = job.getLastRecordSequence();
+		if (store == null || lastSequence < store.getFirstSequence())
+		{
+			messageStore.release(job);
+			return;
+		}
+
+		synchronized (pendingReleases)
+		{
+			pendingReleases.add(new PendingRelease(lastSequence, new ArrayList<>(job.getStoredMessages())));
+		}
+		releaseMessagesOfRemovedRecords();
+	}
+
+
+	/**
+	 * Releases the stored messages of the jobs that are no longer retained
+	 * and whose records have all been removed from the record store, because
+	 * they were overwritten, expired or the log was reset
+	 */
+	public void releaseMessagesOfRemovedRecords()
+	{
+		ValidationRecordStore store = recordStore.get();
+		if (store == null)
+			return;
+
+		long firstSequence = store.getFirstSequence();
+		ArrayList<PendingRelease> released = new ArrayList<>();
+		synchronized (pendingReleases)
+		{
+			while (!pendingReleases.isEmpty() && pendingReleases.peek().lastSequence() < firstSequence)
+				released.add(pendingReleases.poll());
+		}
+		for (PendingRelease release : released)
+			messageStore.release(release.names());
+	}
+
+
+	/**
+	 * Runs a pass and queues another one if the limits are still exceeded
+	 */
+	private void runPass()
+	{
+		try
+		{
+			if (evict(System.currentTimeMillis()))
+				executor.execute(this::runPass);
+		}
+		catch (RuntimeException ex)
+		{
+			LOGGER.error("Retention pass failed", ex);
+		}
+	}
+
+
+	/**
+	 * Evicts up to a batch of the oldest segments and records that exceed
+	 * the retention limits, then releases the stored messages of the jobs
+	 * whose records have all been removed
+	 * @param now the current time in milliseconds since the epoch
+	 * @return true if the batch was full, so there may be more to evict
+	 */
+	boolean evict(long now)
+	{
+		long cutoff = ttl > 0 ? now - ttl : Long.MIN_VALUE;
+		int segments = 0;
+		long reclaimed;
+		while (segments < batchSize && (reclaimed = messageStore.evictOldestSegment(cutoff, maxBytes, maxFiles)) >= 0)
+		{
+			++segments;
+			reclaimedBytes.increment(reclaimed);
+		}
+
+		int records = 0;
+		ValidationRecordStore store = recordStore.get();
+		if (ttl > 0 && store != null)
+		{
+			records = store.expireBefore(cutoff, RECORD_BATCH_SIZE);
+			expiredRecords.increment(records);
+		}
+		releaseMessagesOfRemovedRecords();
+		if (segments > 0 || records > 0)
+			LOGGER.debug(String.format("Evicted %d segments and %d records", segments, records));
+		return segments == batchSize || records == RECORD_BATCH_SIZE;
+	}
+}
@@ -0,0 +1,709 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.storage;
+
+import io.micrometer.core.instrument.Counter;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import usdot.fhwa.stol.c2c.c2c_mvt.jobs.ValidationJob;
+import usdot.fhwa.stol.c2c.c2c_mvt.jobs.ValidationJobEngine;
+import usdot.fhwa.stol.c2c.c2c_mvt.metrics.ValidationMetrics;
+
+/**
+ * Validates the capture files C2C gateways drop into the directories of
+ * c2c-mvt.watch.directories without anyone uploading them. New files are
+ * found with a {@link WatchService}, and a file is queued as a validation
+ * job with the configured standard, version, encoding and message type once
+ * its size and modification time have not changed for c2c-mvt.watch.stable-ms,
+ * so files that are still being written are not validated. The files are 
+ * validated from a memory mapping like the ones posted to /validateFile.
+ * <p>
+ * At most c2c-mvt.watch.max-jobs files are queued or being validated at a
+ * time so a burst of captures does not fill the queue of the job engine
+ * used by uploads. After its job finishes a file is added to a checkpoint
+ * file in the working directory and moved into c2c-mvt.watch.processed-directory.
+ * Files in the checkpoint are not validated again after a restart, which also
+ * covers files that are left in place when no processed directory is set.
+ * A file whose validation throws is queued again, waiting longer after each
+ * failure, and after c2c-mvt.watch.max-attempts failures it is checkpointed
+ * and moved into c2c-mvt.watch.failed-directory with an error record.
+ * <p>
+ * The ingestor is started by the controller, which provides how a file is
+ * validated and how records are added to the log.
+ */
+@Component
+public class WatchFolderIngestor
+{
+	/**
+	 * Logger instance
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(WatchFolderIngestor.class);
+
+
+	/**
+	 * Name of the checkpoint file in the working directory
+	 */
+	static final String CHECKPOINT_FILE = "watch-checkpoint.txt";
+
+
+	/**
+	 * Directories that are watched for new files, none if empty
+	 */
+	@Value("${c2c-mvt.watch.directories:}")
+	private String[] directories;
+
+
+	/**
+	 * Standard the files are validated against
+	 */
+	@Value("${c2c-mvt.watch.standard:ngTMDD}")
+	private String standard;
+
+
+	/**
+	 * Version of the standard
+	 */
+	@Value("${c2c-mvt.watch.version:1.0}")
+	private String version;
+
+
+	/**
+	 * Encoding of the files
+	 */
+	@Value("${c2c-mvt.watch.encoding:UTF-8}")
+	private String encoding;
+
+
+	/**
+	 * Message type of the messages in the files
+	 */
+	@Value("${c2c-mvt.watch.message-type:Auto Detect}")
+	private String messageType;
+
+
+	/**
+	 * Time in milliseconds the size and modification time of a file must be
+	 * unchanged before it is validated
+	 */
+	@Value("${c2c-mvt.watch.stable-ms:5000}")
+	private long stableTime;
+
+
+	/**
+	 * Time in milliseconds between checks of the files waiting to be validated
+	 */
+	@Value("${c2c-mvt.watch.poll-ms:1000}")
+	private long pollInterval;
+
+
+	/**
+	 * Maximum number of files queued or being validated at a time
+	 */
+	@Value("${c2c-mvt.watch.max-jobs:2}")
+	private int maxJobs;
+
+
+	/**
+	 * Directory, relative to the watched directory, that validated files are
+	 * moved into, files are left in place if empty
+	 */
+	@Value("${c2c-mvt.watch.processed-directory:processed}")
+	private String processedDirectory;
+
+
+	/**
+	 * Number of times validating a file can throw before the file is given 
+	 * up on
+	 */
+	@Value("${c2c-mvt.watch.max-attempts:3}")
+	private int maxAttempts;
+
+
+	/**
+	 * Directory, relative to the watched directory, that files given up on
+	 * are moved into, files are left in place if empty
+	 */
+	@Value("${c2c-mvt.watch.failed-directory:failed}")
+	private String failedDirectory;
+
+
+	/**
+	 * Runs the validation jobs
+	 */
+	@Autowired
+	private ValidationJobEngine jobEngine;
+
+
+	/**
+	 * Publishes the number of files validated
+	 */
+	@Autowired
+	private ValidationMetrics metrics;
+
+
+	/**
+	 * Validates a file as part of its job
+	 */
+	private BiConsumer<ValidationJob, Path> validator;
+
+
+	/**
+	 * Adds a record to the log and to the records of a job
+	 */
+	private BiConsumer<ValidationJob, String> errorLog;
+
+
+	/**
+	 * Number of files validated
+	 */
+	private Counter ingestedFiles;
+
+
+	/**
+	 * Notified of new and modified files in the watched directories
+	 */
+	private WatchService watchService;
+
+
+	/**
+	 * The watched directories by their watch key
+	 */
+	private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+
+
+	/**
+	 * Files waiting to become stable, only used by the watcher thread
+	 */
+	private final Map<Path, Candidate> candidates = new HashMap<>();
+
+
+	/**
+	 * Files whose validation threw before they were checkpointed, added back
+	 * as candidates by the watcher thread
+	 */
+	private final ConcurrentLinkedQueue<Path> retries = new ConcurrentLinkedQueue<>();
+
+
+	/**
+	 * Number of times validating a file threw, by checkpoint key
+	 */
+	private final Map<String, Integer> failures = new ConcurrentHashMap<>();
+
+
+	/**
+	 * Files queued or being validated
+	 */
+	private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+
+
+	/**
+	 * Keys of the files in the checkpoint file
+	 */
+	private final Set<String> checkpoint = ConcurrentHashMap.newKeySet();
+
+
+	/**
+	 * The checkpoint file
+	 */
+	private Path checkpointFile;
+
+
+	/**
+	 * Finds and queues the files
+	 */
+	private Thread watcher;
+
+
+	/**
+	 * Size and modification time of a file when it was last checked and the
+	 * time they were first seen with those values
+	 */
+	private static class Candidate
+	{
+		/**
+		 * Size of the file in bytes, -1 before the first check
+		 */
+		long size = -1;
+
+
+		/**
+		 * Modification time of the file in milliseconds since the epoch
+		 */
+		long modified;
+
+
+		/**
+		 * Time in milliseconds since the epoch the size and modification 
+		 * time were first seen
+		 */
+		long stableSince;
+	}
+
+
+	/**
+	 * Starts watching the configured directories if there are any
+	 * @param workingDirectory directory the checkpoint is kept in, null if
+	 * there is none
+	 * @param validator validates a file as part of its job
+	 * @param errorLog adds a record to the log and to the records of a job
+	 */
+	public void start(String workingDirectory, BiConsumer<ValidationJob, Path> validator, BiConsumer<ValidationJob, String> errorLog)
+	{
+		if (directories.length == 0 || (directories.length == 1 && directories[0].isBlank()))
+			return;
+
+		if (workingDirectory == null)
+		{
+			LOGGER.error("Watched directories are not monitored, there is no working directory for the checkpoint");
+			return;
+		}
+		this.validator = validator;
+		this.errorLog = errorLog;
+		try
+		{
+			open(Path.of(workingDirectory, CHECKPOINT_FILE));
+		}
+		catch (IOException ex)
+		{
+			LOGGER.error("Failed to start watching directories", ex);
+			return;
+		}
+		watcher = new Thread(this::watch, "c2c-mvt-watch");
+		watcher.setDaemon(true);
+		watcher.start();
+	}
+
+
+	/**
+	 * Stops watching the directories. Jobs already queued are left to the 
+	 * job engine.
+	 */
+	@PreDestroy
+	public void shutdown()
+	{
+		if (watcher != null)
+			watcher.interrupt();
+		try
+		{
+			if (watchService != null)
+				watchService.close();
+		}
+		catch (IOException ex)
+		{
+			LOGGER.warn("Failed to close the watch service", ex);
+		}
+	}
+
+
+	/**
+	 * Loads the checkpoint, registers the directories with a new watch 
+	 * service and adds the files already in them as candidates
+	 * @param checkpointFile the checkpoint file
+	 * @throws IOException if the checkpoint cannot be read or written or the
+	 * watch service cannot be created
+	 */
+	void open(Path checkpointFile)
+		throws IOException
+	{
+		ingestedFiles = metrics.counter("c2cmvt.watch.files", "Files validated from the watched directories", null);
+		this.checkpointFile = checkpointFile;
+		loadCheckpoint();
+		watchService = checkpointFile.getFileSystem().newWatchService();
+		for (String directory : directories)
+		{
+			if (directory.isBlank())
+				continue;
+			Path path = Path.of(directory.trim()).toAbsolutePath();
+			if (!Files.isDirectory(path))
+			{
+				LOGGER.warn("Watched directory " + path + " does not exist");
+				continue;
+			}
+			watchedDirectories.put(path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY), path);
+			addCandidates(path);
+			LOGGER.info("Watching " + path + " for files to validate");
+		}
+	}
+
+
+	/**
+	 * Reads the checkpoint file and rewrites it with only the files that are
+	 * still in place and unchanged, since files that were moved or replaced
+	 * can never match again
+	 * @throws IOException if the file cannot be read or written
+	 */
+	private void loadCheckpoint()
+		throws IOException
+	{
+		checkpoint.clear();
+		if (!Files.exists(checkpointFile))
+			return;
+
+		List<String> kept = new ArrayList<>();
+		for (String line : Files.readAllLines(checkpointFile, StandardCharsets.UTF_8))
+		{
+			String[] fields = line.split("\t", 3);
+			if (fields.length < 3)
+				continue;
+			try
+			{
+				Path file = Path.of(fields[2]);
+				if (Files.isRegularFile(file) && line.equals(getKey(file, Files.size(file), Files.getLastModifiedTime(file).toMillis())))
+				{
+					checkpoint.add(line);
+					kept.add(line);
+				}
+			}
+			catch (IOException | RuntimeException ex)
+			{
+				LOGGER.debug("Dropped checkpoint entry " + line);
+			}
+		}
+		Files.write(checkpointFile, kept, StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * Gets the checkpoint key of a file
+	 * @param file the file
+	 * @param size size of the file in bytes
+	 * @param modified modification time of the file in milliseconds since the epoch
+	 * @return the key
+	 */
+	private static String getKey(Path file, long size, long modified)
+	{
+		return size + "\t" + modified + "\t" + file.toAbsolutePath();
+	}
+
+
+	/**
+	 * Checks if a file should be validated. Hidden files and files with the 
+	 * .tmp or .part extension used while a file is copied are skipped.
+	 * @param file the file
+	 * @return true if the file can be validated
+	 */
+	private static boolean isIngestible(Path file)
+	{
+		String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+		return !name.startsWith(".") && !name.endsWith(".tmp") && !name.endsWith(".part") && Files.isRegularFile(file);
+	}
+
+
+	/**
+	 * Adds the files in a directory as candidates
+	 * @param directory the directory
+	 */
+	private void addCandidates(Path directory)
+	{
+		try (Stream<Path> files = Files.list(directory))
+		{
+			files.filter(WatchFolderIngestor::isIngestible).forEach(file -> candidates.putIfAbsent(file, new Candidate()));
+		}
+		catch (IOException ex)
+		{
+			LOGGER.warn("Failed to list " + directory, ex);
+		}
+	}
+
+
+	/**
+	 * Waits for changes to the watched directories and checks the candidates
+	 * until the watch service is closed
+	 */
+	private void watch()
+	{
+		try
+		{
+			while (!Thread.currentThread().isInterrupted())
+			{
+				WatchKey key = watchService.poll(pollInterval, TimeUnit.MILLISECONDS);
+				if (key != null)
+					processEvents(key);
+				scan(System.currentTimeMillis());
+			}
+		}
+		catch (InterruptedException | ClosedWatchServiceException ex)
+		{
+			LOGGER.debug("Stopped watching directories");
+		}
+	}
+
+
+	/**
+	 * Adds the files of the pending changes and the files to retry as 
+	 * candidates and queues the candidates that have become stable
+	 * @param now the current time in milliseconds since the epoch
+	 */
+	void scan(long now)
+	{
+		WatchKey key;
+		while ((key = watchService.poll()) != null)
+			processEvents(key);
+		Path retry;
+		while ((retry = retries.poll()) != null)
+		{
+			if (Files.isRegularFile(retry))
+				candidates.putIfAbsent(retry, new Candidate());
+		}
+		checkCandidates(now);
+	}
+
+
+	/**
+	 * Adds the files created or modified in a directory as candidates. All
+	 * of the files in the directory are added if events were lost.
+	 * @param key the watch key of the directory
+	 */
+	private void processEvents(WatchKey key)
+	{
+		Path directory = watchedDirectories.get(key);
+		for (WatchEvent<?> event : key.pollEvents())
+		{
+			if (directory == null)
+				continue;
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+			{
+				addCandidates(directory);
+				continue;
+			}
+			Path file = directory.resolve((Path)event.context());
+			if (isIngestible(file))
+				candidates.putIfAbsent(file, new Candidate());
+		}
+		if (!key.reset())
+		{
+			watchedDirectories.remove(key);
+			LOGGER.warn("Stopped watching " + directory + ", it is no longer accessible");
+		}
+	}
+
+
+	/**
+	 * Queues the candidates whose size and modification time have not
+	 * changed for the stable time, times one more than the number of times
+	 * their validation threw, while fewer than the maximum number of files
+	 * are queued or being validated. Candidates in the checkpoint are
+	 * moved without being validated again.
+	 * @param now the current time in milliseconds since the epoch
+	 */
+	private void checkCandidates(long now)
+	{
+		Iterator<Map.Entry<Path, Candidate>> iterator = candidates.entrySet().iterator();
+		while (iterator.hasNext())
+		{
+			Map.Entry<Path, Candidate> entry = iterator.next();
+			Path file = entry.getKey();
+			Candidate candidate = entry.getValue();
+			if (inFlight.contains(file))
+			{
+				iterator.remove();
+				continue;
+			}
+			long size;
+			long modified;
+			try
+			{
+				size = Files.size(file);
+				modified = Files.getLastModifiedTime(file).toMillis();
+			}
+			catch (IOException ex)
+			{
+				iterator.remove();
+				continue;
+			}
+			if (size != candidate.size || modified != candidate.modified)
+			{
+				candidate.size = size;
+				candidate.modified = modified;
+				candidate.stableSince = now;
+				continue;
+			}
+			String key = getKey(file, size, modified);
+			if (now - candidate.stableSince < stableTime * (1 + failures.getOrDefault(key, 0)))
+				continue;
+
+			if (checkpoint.contains(key))
+			{
+				iterator.remove();
+				moveFile(file, processedDirectory, null);
+				continue;
+			}
+			if (inFlight.size() >= maxJobs)
+				return;
+			try
+			{
+				submit(file, key);
+				iterator.remove();
+			}
+			catch (RejectedExecutionException ex)
+			{
+				LOGGER.debug("Validation queue is full, " + file + " will be queued later");
+				return;
+			}
+		}
+	}
+
+
+	/**
+	 * Queues a file as a validation job. When the job finishes the file is
+	 * added to the checkpoint and moved, whether or not it was valid, so 
+	 * files that cannot be read are not retried forever. If the validation
+	 * throws, the file is not checkpointed and becomes a candidate again, 
+	 * until it has thrown the maximum number of times. The file is then 
+	 * checkpointed and moved into the failed directory, and an error record
+	 * is added to its job.
+	 * @param file the file
+	 * @param key checkpoint key of the file
+	 * @throws RejectedExecutionException if the queue of the job engine is full
+	 */
+	private void submit(Path file, String key)
+	{
+		ValidationJob job = new ValidationJob(file.getFileName().toString(), standard, version, encoding, messageType);
+		inFlight.add(file);
+		try
+		{
+			jobEngine.submit(job, submittedJob ->
+			{
+				try
+				{
+					validator.accept(submittedJob, file);
+					failures.remove(key);
+					addToCheckpoint(key);
+					moveFile(file, processedDirectory, submittedJob);
+					ingestedFiles.increment();
+				}
+				catch (RuntimeException | StackOverflowError ex)
+				{
+					recordFailure(file, key, submittedJob, ex);
+					throw ex;
+				}
+				finally
+				{
+					inFlight.remove(file);
+				}
+			});
+			LOGGER.info(String.format("Queued %s as job %s", file, job.getId()));
+		}
+		catch (RejectedExecutionException ex)
+		{
+			inFlight.remove(file);
+			throw ex;
+		}
+	}
+
+
+	/**
+	 * Counts a validation of a file that threw. The file is queued again 
+	 * until it has failed the maximum number of times, then it is 
+	 * checkpointed and moved into the failed directory so it is not 
+	 * validated again.
+	 * @param file the file
+	 * @param key checkpoint key of the file
+	 * @param job the job whose validation threw
+	 * @param ex what the validation threw
+	 */
+	private void recordFailure(Path file, String key, ValidationJob job, Throwable ex)
+	{
+		int attempts = failures.merge(key, 1, Integer::sum);
+		if (attempts < maxAttempts)
+		{
+			LOGGER.warn(String.format("Validation of %s failed, it will be queued again (attempt %d of %d)", file, attempts, maxAttempts));
+			retries.add(file);
+			return;
+		}
+		failures.remove(key);
+		errorLog.accept(job, String.format("Gave up validating %s after %d failed attempts, the last failed with %s", file, attempts, ex));
+		addToCheckpoint(key);
+		moveFile(file, failedDirectory, job);
+	}
+
+
+	/**
+	 * Adds a file to the checkpoint and appends it to the checkpoint file
+	 * @param key checkpoint key of the file
+	 */
+	private void addToCheckpoint(String key)
+	{
+		checkpoint.add(key);
+		synchronized (checkpoint)
+		{
+			try
+			{
+				Files.writeString(checkpointFile, key + System.lineSeparator(), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+			}
+			catch (IOException ex)
+			{
+				LOGGER.error("Failed to save " + key + " to the checkpoint", ex);
+			}
+		}
+	}
+
+
+	/**
+	 * Moves a file into the processed or failed directory. If a file with
+	 * the same name was already moved there the job id is added to the name.
+	 * @param file the file
+	 * @param targetDirectory the directory relative to the watched directory,
+	 * the file is left in place if empty
+	 * @param job the job that validated the file, null if it was validated
+	 * before a restart
+	 */
+	private void moveFile(Path file, String targetDirectory, ValidationJob job)
+	{
+		if (targetDirectory.isBlank())
+			return;
+		try
+		{
+			Path directory = file.getParent().resolve(targetDirectory.trim());
+			Files.createDirectories(directory);
+			Path target = directory.resolve(file.getFileName());
+			if (Files.exists(target))
+				target = directory.resolve((job != null ? job.getId() : Long.toString(System.currentTimeMillis())) + "-" + file.getFileName());
+			Files.move(file, target);
+		}
+		catch (IOException ex)
+		{
+			LOGGER.warn("Failed to move " + file + " to " + targetDirectory, ex);
+		}
+	}
+}
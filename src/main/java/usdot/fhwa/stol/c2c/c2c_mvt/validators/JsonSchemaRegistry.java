@@ -0,0 +1,482 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.validators;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.springframework.core.io.ClassPathResource;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.erosb.jsonsKema.JsonParser;
+import com.github.erosb.jsonsKema.JsonValue;
+import com.github.erosb.jsonsKema.Schema;
+import com.github.erosb.jsonsKema.SchemaLoader;
+
+/**
+ * Process wide registry of compiled JSON Schemas. Loading a schema file means
+ * reading it, parsing it into a {@link JsonValue} and running the {@link SchemaLoader},
+ * which for large schemas like the ngTMDD schema is far more expensive than
+ * validating a single message. Each schema is compiled once, the first time it
+ * is requested, and the resulting {@link Schema} is shared by every thread.
+ *
+ * Only the {@link Schema} is shared. {@link com.github.erosb.jsonsKema.Validator}
+ * instances keep state while visiting a message so callers create a new one
+ * per validation, which is cheap compared to loading the schema.
+ *
+ * Entries are keyed by the path of the schema file on the classpath. The path
+ * is configured per standard and version in c2c-mvt.json so versions that
+ * share a schema file also share the compiled schema. Validators can also
+ * register variants of a schema, for example a schema narrowed down to a single
+ * message type, which are keyed by the path and the name of the variant.
+ *
+ * The registry also fingerprints each schema file with the SHA-256 hash of its
+ * contents. When the file changes the compiled schemas of the file are removed
+ * so they are rebuilt from the new contents, and the new fingerprint tells
+ * caches of validation results that their results no longer apply.
+ */
+public final class JsonSchemaRegistry
+{
+	/**
+	 * Compiled schemas keyed by the classpath location of the schema file
+	 */
+	private static final Map<String, Entry> ENTRIES = new ConcurrentHashMap<>();
+
+
+	/**
+	 * Parsed schema files used to build schema variants, keyed by the classpath
+	 * location of the schema file
+	 */
+	private static final Map<String, ObjectNode> DOCUMENTS = new ConcurrentHashMap<>();
+
+
+	/**
+	 * Fingerprints of the schema files keyed by the classpath location of the
+	 * schema file
+	 */
+	private static final Map<String, Fingerprint> FINGERPRINTS = new ConcurrentHashMap<>();
+
+
+	/**
+	 * Minimum time in milliseconds between checks of the last modified time
+	 * of a schema file
+	 */
+	private static final long FINGERPRINT_CHECK_MILLIS = 1000;
+
+
+	/**
+	 * Private constructor, all access goes through the static methods
+	 */
+	private JsonSchemaRegistry()
+	{
+	}
+
+
+	/**
+	 * Gets the compiled schema for the given schema file, compiling it if this
+	 * is the first request for the file.
+	 * @param schemaFile the schema file
+	 * @return the compiled schema
+	 * @throws IOException if the schema file cannot be read
+	 */
+	public static Schema getSchema(ClassPathResource schemaFile)
+		throws IOException
+	{
+		return ENTRIES.computeIfAbsent(schemaFile.getPath(), path -> new Entry()).get(() -> readSchemaBytes(schemaFile));
+	}
+
+
+	/**
+	 * Gets the compiled variant of the given schema file, compiling it if this
+	 * is the first request for the variant. The variant is built by passing the
+	 * parsed schema file to variantBuilder, which must not modify the document
+	 * it is given.
+	 * @param schemaFile the schema file
+	 * @param variant name of the variant, unique for the schema file
+	 * @param variantBuilder creates the JSON Schema of the variant from the schema file
+	 * @return the compiled variant
+	 * @throws IOException if the schema file cannot be read
+	 */
+	public static Schema getSchema(ClassPathResource schemaFile, String variant, Function<ObjectNode, JsonNode> variantBuilder)
+		throws IOException
+	{
+		return ENTRIES.computeIfAbsent(schemaFile.getPath() + "#" + variant, path -> new Entry()).get(() ->
+		{
+			JsonNode variantJson = variantBuilder.apply(getSchemaDocument(schemaFile));
+			return new ObjectMapper().writeValueAsBytes(variantJson);
+		});
+	}
+
+
+	/**
+	 * Gets the schema file parsed into a Jackson tree. The same tree is
+	 * returned to every caller so it must not be modified.
+	 * @param schemaFile the schema file
+	 * @return the parsed schema file
+	 * @throws IOException if the schema file cannot be read or is not a JSON Object
+	 */
+	public static ObjectNode getSchemaDocument(ClassPathResource schemaFile)
+		throws IOException
+	{
+		ObjectNode document = DOCUMENTS.get(schemaFile.getPath());
+		if (document == null)
+		{
+			JsonNode schemaJson = new ObjectMapper().readTree(readSchemaBytes(schemaFile));
+			if (!schemaJson.isObject())
+				throw new IOException("JSON Schema file must contain a JSON Object");
+			document = (ObjectNode)schemaJson;
+			ObjectNode existing = DOCUMENTS.putIfAbsent(schemaFile.getPath(), document);
+			if (existing != null)
+				document = existing;
+		}
+
+		return document;
+	}
+
+
+	/**
+	 * Copies each definition referenced by a "$ref" inside of node from document 
+	 * into target at the same location, along with the definitions those reference.
+	 * Only references local to the document ("#/...") are followed. This allows
+	 * a small schema to be created from part of a large one while keeping the 
+	 * schema locations, and therefore error pointers, the same.
+	 * @param document the complete schema
+	 * @param node the part of the schema whose references should be copied
+	 * @param target the schema being built
+	 */
+	public static void copyReferencedDefinitions(ObjectNode document, JsonNode node, ObjectNode target)
+	{
+		if (node.isArray())
+		{
+			for (JsonNode child : node)
+				copyReferencedDefinitions(document, child, target);
+			return;
+		}
+		if (!node.isObject())
+			return;
+
+		JsonNode ref = node.get("$ref");
+		if (ref != null && ref.isTextual() && ref.asText().startsWith("#/"))
+		{
+			String pointer = ref.asText().substring(1);
+			if (target.at(pointer).isMissingNode())
+			{
+				JsonNode definition = document.at(pointer);
+				if (!definition.isMissingNode())
+				{
+					String[] tokens = pointer.substring(1).split("/");
+					ObjectNode parent = target;
+					for (int i = 0; i < tokens.length - 1; i++)
+					{
+						String token = unescapePointerToken(tokens[i]);
+						JsonNode child = parent.get(token);
+						parent = child != null && child.isObject() ? (ObjectNode)child : parent.putObject(token);
+					}
+					parent.set(unescapePointerToken(tokens[tokens.length - 1]), definition);
+					copyReferencedDefinitions(document, definition, target);
+				}
+			}
+		}
+
+		for (JsonNode child : node)
+			copyReferencedDefinitions(document, child, target);
+	}
+
+
+	/**
+	 * Decodes the ~0 and ~1 escape sequences of a JSON Pointer token
+	 * @param token the escaped token
+	 * @return the decoded token
+	 */
+	private static String unescapePointerToken(String token)
+	{
+		return token.replace("~1", "/").replace("~0", "~");
+	}
+
+
+	/**
+	 * Removes all of the compiled schemas so they are rebuilt on the next request.
+	 */
+	public static void clear()
+	{
+		ENTRIES.clear();
+		DOCUMENTS.clear();
+		FINGERPRINTS.clear();
+	}
+
+
+	/**
+	 * Gets the SHA-256 hash of the contents of the schema file in hex. The last 
+	 * modified time of the file is checked at most once a second and the file
+	 * is hashed again when it changed. If the contents changed the compiled
+	 * schema and variants of the file are removed.
+	 * @param schemaFile the schema file
+	 * @return the fingerprint of the schema file
+	 * @throws IOException if the schema file cannot be read
+	 */
+	public static String getFingerprint(ClassPathResource schemaFile)
+		throws IOException
+	{
+		return FINGERPRINTS.computeIfAbsent(schemaFile.getPath(), path -> new Fingerprint()).get(schemaFile);
+	}
+
+
+	/**
+	 * Removes the compiled schema, the variants and the parsed document of the
+	 * schema file
+	 * @param path classpath location of the schema file
+	 */
+	private static void evict(String path)
+	{
+		ENTRIES.keySet().removeIf(key -> key.equals(path) || key.startsWith(path + "#"));
+		DOCUMENTS.remove(path);
+	}
+
+
+	/**
+	 * Returns a string representation of a JSON array containing the statistics
+	 * of each schema in the registry.
+	 * @return a string representation of a JSON array
+	 * @throws JsonProcessingException
+	 */
+	public static String getStatisticsAsJsonArray() throws JsonProcessingException
+	{
+		ObjectMapper objectMapper = new ObjectMapper();
+		ArrayNode statsArray = objectMapper.createArrayNode();
+		for (Map.Entry<String, Entry> mapEntry : ENTRIES.entrySet())
+		{
+			Entry entry = mapEntry.getValue();
+			ObjectNode stats = statsArray.addObject();
+			stats.put("schema", mapEntry.getKey());
+			stats.put("compiled", entry.schema != null);
+			stats.put("hits", entry.hits.get());
+			stats.put("buildTimeMillis", entry.buildNanos / 1000000.0);
+			stats.put("schemaBytes", entry.schemaBytes);
+			stats.put("buildAllocatedBytes", entry.buildAllocatedBytes);
+		}
+
+		return objectMapper.writeValueAsString(statsArray);
+	}
+
+
+	/**
+	 * Reads the schema file, skipping the Byte Order Mark (BOM) if one is
+	 * present since the library used for validation does not handle BOMs correctly.
+	 * @param schemaFile the schema file
+	 * @return the contents of the schema file without a BOM
+	 * @throws IOException
+	 */
+	static byte[] readSchemaBytes(ClassPathResource schemaFile)
+		throws IOException
+	{
+		byte[] schemaBytes;
+		try (InputStream inStream = schemaFile.getInputStream())
+		{
+			schemaBytes = inStream.readAllBytes();
+		}
+		if (schemaBytes.length > 2 && schemaBytes[0] == (byte)0xEF && schemaBytes[1] == (byte)0xBB && schemaBytes[2] == (byte)0xBF)
+			return Arrays.copyOfRange(schemaBytes, 3, schemaBytes.length);
+
+		return schemaBytes;
+	}
+
+
+	/**
+	 * Gets the number of bytes allocated by the current thread if the JVM
+	 * supports measuring it.
+	 * @return bytes allocated by the current thread, or -1 if unsupported
+	 */
+	private static long currentThreadAllocatedBytes()
+	{
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threadBean && threadBean.isThreadAllocatedMemoryEnabled())
+			return threadBean.getCurrentThreadAllocatedBytes();
+
+		return -1;
+	}
+
+
+	/**
+	 * A compiled schema and the statistics collected for it
+	 */
+	private static final class Entry
+	{
+		/**
+		 * The compiled schema, null until the first request completes
+		 */
+		private volatile Schema schema;
+
+
+		/**
+		 * Number of requests served without compiling the schema
+		 */
+		private final AtomicLong hits = new AtomicLong();
+
+
+		/**
+		 * Time in nanoseconds it took to read and compile the schema
+		 */
+		private long buildNanos;
+
+
+		/**
+		 * Size of the compiled JSON Schema in bytes
+		 */
+		private long schemaBytes;
+
+
+		/**
+		 * Bytes allocated while compiling the schema. This is an upper bound of
+		 * the memory retained by the compiled schema, -1 if the JVM cannot measure it
+		 */
+		private long buildAllocatedBytes = -1;
+
+
+		/**
+		 * Gets the compiled schema, compiling it if needed. Compiling happens
+		 * under the entry's lock so concurrent first requests only build it once.
+		 * @param source provides the JSON Schema to compile
+		 * @return the compiled schema
+		 * @throws IOException if the schema cannot be read
+		 */
+		private Schema get(SchemaSource source)
+			throws IOException
+		{
+			Schema compiled = schema;
+			if (compiled != null)
+			{
+				hits.incrementAndGet();
+				return compiled;
+			}
+
+			synchronized (this)
+			{
+				if (schema != null)
+				{
+					hits.incrementAndGet();
+					return schema;
+				}
+				long startAllocated = currentThreadAllocatedBytes();
+				long start = System.nanoTime();
+				byte[] bytes = source.read();
+				JsonValue schemaJson = new JsonParser(new ByteArrayInputStream(bytes)).parse();
+				compiled = new SchemaLoader(schemaJson).load();
+				buildNanos = System.nanoTime() - start;
+				schemaBytes = bytes.length;
+				long endAllocated = currentThreadAllocatedBytes();
+				if (startAllocated >= 0 && endAllocated >= 0)
+					buildAllocatedBytes = endAllocated - startAllocated;
+				schema = compiled;
+				return compiled;
+			}
+		}
+	}
+
+
+	/**
+	 * The hash of the contents of a schema file and the last modified time of
+	 * the file when it was hashed
+	 */
+	private static final class Fingerprint
+	{
+		/**
+		 * SHA-256 hash of the contents in hex, null until the file is hashed
+		 */
+		private volatile String hash;
+
+
+		/**
+		 * Last modified time of the file when it was hashed
+		 */
+		private long lastModified;
+
+
+		/**
+		 * Time in milliseconds the last modified time was last checked
+		 */
+		private volatile long checked;
+
+
+		/**
+		 * Gets the hash of the schema file, hashing it again if its last
+		 * modified time changed
+		 * @param schemaFile the schema file
+		 * @return the hash of the contents
+		 * @throws IOException if the schema file cannot be read
+		 */
+		private String get(ClassPathResource schemaFile)
+			throws IOException
+		{
+			String current = hash;
+			long now = System.currentTimeMillis();
+			if (current != null && now - checked < FINGERPRINT_CHECK_MILLIS)
+				return current;
+
+			synchronized (this)
+			{
+				if (hash != null && now - checked < FINGERPRINT_CHECK_MILLIS)
+					return hash;
+
+				long modified = schemaFile.lastModified();
+				checked = now;
+				if (hash != null && modified == lastModified)
+					return hash;
+
+				String newHash;
+				try
+				{
+					newHash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(readSchemaBytes(schemaFile)));
+				}
+				catch (NoSuchAlgorithmException ex)
+				{
+					throw new IOException(ex);
+				}
+				if (hash != null && !hash.equals(newHash))
+					evict(schemaFile.getPath());
+				lastModified = modified;
+				hash = newHash;
+				return newHash;
+			}
+		}
+	}
+
+
+	/**
+	 * Provides the bytes of a JSON Schema that needs to be compiled
+	 */
+	@FunctionalInterface
+	private interface SchemaSource
+	{
+		/**
+		 * @return the JSON Schema as bytes
+		 * @throws IOException if the JSON Schema cannot be read
+		 */
+		byte[] read() throws IOException;
+	}
+}
@@ -15,17 +15,14 @@
  */
 package usdot.fhwa.stol.c2c.c2c_mvt.validators;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.springframework.core.io.ClassPathResource;
 
 import com.github.erosb.jsonsKema.FormatValidationPolicy;
-import com.github.erosb.jsonsKema.JsonParser;
-import com.github.erosb.jsonsKema.JsonValue;
 import com.github.erosb.jsonsKema.Schema;
-import com.github.erosb.jsonsKema.SchemaLoader;
 import com.github.erosb.jsonsKema.ValidationFailure;
 import com.github.erosb.jsonsKema.ValidatorConfig;
 
@@ -50,9 +47,10 @@ public abstract class JsonValidator extends Validator<JsonC2CMessage>
 
 
 	/**
-	 * Validates the message against the schema. This method reads the schema file, checking 
-	 * for a Byte Order Mark (BOM) at the start of the file since the library used for validation
-	 * does not handle BOMs correctly.
+	 * Validates the message against the schema returned by {@link #getSchema(JsonC2CMessage)}.
+	 * When the message is not valid the original exception of the thrown
+	 * C2CMVTException is a {@link SchemaValidationException} with the error
+	 * message and the errors returned by {@link #getErrors}.
 	 * @param message the message to validate
 	 * @throws C2CMVTException when the message is not valid according to the schema
 	 */
@@ -61,32 +59,12 @@ public abstract class JsonValidator extends Validator<JsonC2CMessage>
 	{
 		try
 		{
-			byte[] bomCheck = new byte[3];
-			boolean includesBom = false;
-			try (InputStream inStream = schemaFile.getInputStream())
-			{
-				int bytesRead = inStream.read(bomCheck);
-				if (bytesRead > 2)
-					includesBom = bomCheck[0] == (byte)0xEF && bomCheck[1] == (byte)0xBB && bomCheck[2] == (byte)0xBF;
-			}
-
-			JsonValue schemaJson;
-			try (BufferedInputStream inStream = new BufferedInputStream(schemaFile.getInputStream()))
-			{
-				if (includesBom)
-				{
-					long bytesSkipped = inStream.skip(3);
-					if (bytesSkipped != 3)
-						throw new IOException("Failed to read the JSON Schema file.");
-				}
-				schemaJson = new JsonParser(inStream).parse();
-			}
-			Schema schema = new SchemaLoader(schemaJson).load();
+			Schema schema = getSchema(message);
 			com.github.erosb.jsonsKema.Validator validator = com.github.erosb.jsonsKema.Validator.create(schema, new ValidatorConfig(FormatValidationPolicy.ALWAYS));
 			ValidationFailure failure = validator.validate(message.getJson());
 			if (failure != null)
 			{
-				throw new Exception(getErrorMessage(failure, message));
+				throw new SchemaValidationException(getErrorMessage(failure, message), getErrors(failure, message));
 			}
 		}
 		catch (Exception oEx)
@@ -96,6 +74,22 @@ public abstract class JsonValidator extends Validator<JsonC2CMessage>
 	}
 
 
+	/**
+	 * Gets the compiled schema used to validate the message. The compiled schema 
+	 * is taken from the {@link JsonSchemaRegistry} so the schema file is only 
+	 * read and compiled the first time it is used. Children classes can override
+	 * this method to validate against a smaller part of the schema when the
+	 * message allows it.
+	 * @param message the message that is going to be validated
+	 * @return the compiled schema
+	 * @throws IOException if the schema file cannot be read
+	 */
+	protected Schema getSchema(JsonC2CMessage message) throws IOException
+	{
+		return JsonSchemaRegistry.getSchema(schemaFile);
+	}
+
+
 	/**
 	 * Determines and returns an error message from the {@link ValidationFailure}
 	 * object. Children classes need to implement this method since having knowledge
@@ -106,4 +100,53 @@ public abstract class JsonValidator extends Validator<JsonC2CMessage>
 	 * @return error message related to a failed validation attempt
 	 */
 	public abstract String getErrorMessage(ValidationFailure failure, JsonC2CMessage message);
+
+
+	/**
+	 * Gets the failures without causes of the {@link ValidationFailure}, each
+	 * with the JSON Pointer of the value of the message that failed. Children 
+	 * classes can override this method to leave out failures that do not 
+	 * apply to the message, like the other options of a "oneOf".
+	 * @param failure validation results from {@link com.github.erosb.jsonsKema.Validator#validate(com.github.erosb.jsonsKema.IJsonValue)}
+	 * @param message the message that validation was attempted on
+	 * @return the errors of the message
+	 */
+	public List<ValidationError> getErrors(ValidationFailure failure, JsonC2CMessage message)
+	{
+		List<ValidationError> errors = new ArrayList<>();
+		addErrors(failure, errors);
+		return errors;
+	}
+
+
+	/**
+	 * Recursive function that adds the failures without causes of the 
+	 * {@link ValidationFailure} to the list
+	 * @param failure the ValidationFailure
+	 * @param errors receives the errors
+	 */
+	protected static void addErrors(ValidationFailure failure, List<ValidationError> errors)
+	{
+		if (failure.getCauses().isEmpty())
+		{
+			errors.add(new ValidationError(toJsonPointer(failure.getInstance().getLocation().getPointer().toString()), 
+				failure.getSchema().getLocation().getPointer().toString(), failure.getMessage()));
+			return;
+		}
+
+		for (ValidationFailure cause : failure.getCauses())
+			addErrors(cause, errors);
+	}
+
+
+	/**
+	 * Converts a pointer of json-sKema, which is a URI fragment like 
+	 * "#/message/requestId", to a JSON Pointer like "/message/requestId"
+	 * @param pointer the json-sKema pointer
+	 * @return the JSON Pointer, "" for the whole document
+	 */
+	static String toJsonPointer(String pointer)
+	{
+		return pointer.startsWith("#") ? pointer.substring(1) : pointer;
+	}
 }
@@ -15,18 +15,44 @@
  */
 package usdot.fhwa.stol.c2c.c2c_mvt.validators;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.springframework.core.io.ClassPathResource;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.erosb.jsonsKema.Schema;
 import com.github.erosb.jsonsKema.ValidationFailure;
 
 import usdot.fhwa.stol.c2c.c2c_mvt.messages.JsonC2CMessage;
 
 
 /**
- * Implementation of {@link JsonValidator} for ngTMDD messages
+ * Implementation of {@link JsonValidator} for ngTMDD messages.
+ * 
+ * The "message" property of the ngTMDD schema is a "oneOf" that references the
+ * definition of every message type, so validating against the complete schema
+ * checks each message against every message type. When the message type of
+ * the message is one of those definitions, the message is instead validated 
+ * against a schema that only references the definition of its message type.
+ * The complete schema is only used when the message type is unknown.
  */
 public class NGTMDDJsonValidator extends JsonValidator
 {
+	/**
+	 * The message types referenced by the "oneOf" of the "message" property,
+	 * keyed by the classpath location of the schema file
+	 */
+	private static final Map<String, Set<String>> MESSAGE_TYPES = new ConcurrentHashMap<>();
+
+
 	/**
 	 * Constructor for NGTMDDJsonValidator. Sets the schema file by calling
 	 * the parent constructor.
@@ -38,9 +64,87 @@ public class NGTMDDJsonValidator extends JsonValidator
 	}
 
 
+	/**
+	 * Gets the schema that only references the definition of the message's
+	 * message type if it is one of the message types of the schema, otherwise
+	 * the complete schema.
+	 * @param message the message that is going to be validated
+	 * @return the compiled schema
+	 * @throws IOException if the schema file cannot be read
+	 */
+	@Override
+	protected Schema getSchema(JsonC2CMessage message) throws IOException
+	{
+		String messageType = message.getMessageType();
+		if (messageType == null || !getMessageTypes().contains(messageType))
+			return super.getSchema(message);
+
+		return JsonSchemaRegistry.getSchema(schemaFile, messageType, document -> createMessageTypeSchema(document, messageType));
+	}
+
+
+	/**
+	 * Gets the message types referenced by the "oneOf" of the "message" property
+	 * of the schema file.
+	 * @return the message types of the schema file
+	 * @throws IOException if the schema file cannot be read
+	 */
+	Set<String> getMessageTypes() throws IOException
+	{
+		Set<String> messageTypes = MESSAGE_TYPES.get(schemaFile.getPath());
+		if (messageTypes == null)
+		{
+			messageTypes = new HashSet<>();
+			JsonNode oneOf = JsonSchemaRegistry.getSchemaDocument(schemaFile).at("/properties/message/oneOf");
+			for (JsonNode option : oneOf)
+			{
+				String ref = option.path("$ref").asText();
+				if (ref.startsWith("#/") && ref.indexOf('/', 2) < 0)
+					messageTypes.add(ref.substring(2));
+			}
+			messageTypes = Collections.unmodifiableSet(messageTypes);
+			MESSAGE_TYPES.put(schemaFile.getPath(), messageTypes);
+		}
+
+		return messageTypes;
+	}
+
+
+	/**
+	 * Creates a schema that has the same root as the ngTMDD schema but whose
+	 * "message" property references only the definition of the given message type.
+	 * The definitions are kept at the same locations so error pointers match
+	 * the ones reported by the complete schema.
+	 * @param document the complete ngTMDD schema
+	 * @param messageType the message type
+	 * @return the schema for the message type
+	 */
+	private static ObjectNode createMessageTypeSchema(ObjectNode document, String messageType)
+	{
+		ObjectNode messageTypeSchema = document.objectNode();
+		for (String field : new String[]{"$schema", "title", "description", "type", "required", "additionalProperties"})
+		{
+			if (document.has(field))
+				messageTypeSchema.set(field, document.get(field));
+		}
+		ObjectNode messageProperty = document.path("properties").path("message").deepCopy();
+		messageProperty.remove("oneOf");
+		messageProperty.put("$ref", "#/" + messageType);
+		ObjectNode properties = document.path("properties").deepCopy();
+		properties.set("message", messageProperty);
+		messageTypeSchema.set("properties", properties);
+		JsonSchemaRegistry.copyReferencedDefinitions(document, properties, messageTypeSchema);
+
+		return messageTypeSchema;
+	}
+
+
 	/**
 	 * Parses the ValidationFailure to determine the error message for the message that failed
-	 * to validate against the schema
+	 * to validate against the schema. When the message was validated against the
+	 * definition of its message type the failure comes from that definition,
+	 * otherwise the failures of the "oneOf" are filtered to the ones for the
+	 * message type.
 	 * 
 	 * @param failure validation results from {@link com.github.erosb.jsonsKema.Validator#validate(com.github.erosb.jsonsKema.IJsonValue)}
 	 * @param message the C2C Message that failed to validate
@@ -49,13 +153,21 @@ public class NGTMDDJsonValidator extends JsonValidator
 	public String getErrorMessage(ValidationFailure failure, JsonC2CMessage message) 
 	{
 		StringBuilder error = new StringBuilder();
-		for (ValidationFailure fail : failure.getCauses())
+		if (isMessageTypePointer(failure.getSchema().getLocation().getPointer().toString(), message.getMessageType()))
+		{
+			error.append(failure.getMessage().replace("instance", failure.getInstance().toString()));
+			appendErrorPerCause(failure, error, 2);
+		}
+		else
 		{
-			String pointer = fail.getSchema().getLocation().getPointer().toString();
-			if (pointer.startsWith("#/" + message.getMessageType()) && (pointer.compareTo("#/" + message.getMessageType()) == 0 || pointer.startsWith("#/" + message.getMessageType() + "/")))
+			for (ValidationFailure fail : failure.getCauses())
 			{
-				error.append(fail.getMessage().replace("instance", fail.getInstance().toString()));
-				appendErrorPerCause(fail, error, 2);
+				String pointer = fail.getSchema().getLocation().getPointer().toString();
+				if (isMessageTypePointer(pointer, message.getMessageType()))
+				{
+					error.append(fail.getMessage().replace("instance", fail.getInstance().toString()));
+					appendErrorPerCause(fail, error, 2);
+				}
 			}
 		}
 
@@ -66,6 +178,47 @@ public class NGTMDDJsonValidator extends JsonValidator
 	}
 
 
+	/**
+	 * Gets the errors of the message the same way as {@link #getErrorMessage}:
+	 * when the message was validated against the complete schema only the 
+	 * failures of the "oneOf" for the message type are kept. If none are left
+	 * the message type is reported as invalid at the messageType property.
+	 * @param failure validation results from {@link com.github.erosb.jsonsKema.Validator#validate(com.github.erosb.jsonsKema.IJsonValue)}
+	 * @param message the C2C Message that failed to validate
+	 * @return the errors of the message
+	 */
+	@Override
+	public List<ValidationError> getErrors(ValidationFailure failure, JsonC2CMessage message)
+	{
+		if (isMessageTypePointer(failure.getSchema().getLocation().getPointer().toString(), message.getMessageType()))
+			return super.getErrors(failure, message);
+
+		List<ValidationError> errors = new ArrayList<>();
+		for (ValidationFailure fail : failure.getCauses())
+		{
+			if (isMessageTypePointer(fail.getSchema().getLocation().getPointer().toString(), message.getMessageType()))
+				addErrors(fail, errors);
+		}
+		if (errors.isEmpty())
+			errors.add(new ValidationError("/message/messageType", null, message.getMessageType() + " is an invalid message type for ngTMDD messages"));
+
+		return errors;
+	}
+
+
+	/**
+	 * Checks if the schema pointer points to the definition of the message type
+	 * or something inside of it.
+	 * @param pointer the schema pointer
+	 * @param messageType the message type
+	 * @return true if the pointer is inside of the definition of the message type
+	 */
+	private static boolean isMessageTypePointer(String pointer, String messageType)
+	{
+		return pointer.startsWith("#/" + messageType) && (pointer.compareTo("#/" + messageType) == 0 || pointer.startsWith("#/" + messageType + "/"));
+	}
+
+
 	/**
 	 * Recursive function to iterate through multiple causes of ValidationFailure.
 	 * 
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.validators;
+
+import java.util.List;
+
+/**
+ * Thrown by a {@link Validator} when a message does not match the schema. The
+ * message of the exception is the formatted error written to the validation
+ * records, {@link #getErrors()} has the same failures with their location in
+ * the message.
+ */
+public class SchemaValidationException extends Exception
+{
+	/**
+	 * The failures of the message
+	 */
+	private final List<ValidationError> errors;
+
+
+	/**
+	 * Constructor
+	 * @param message the formatted error message
+	 * @param errors the failures of the message
+	 */
+	public SchemaValidationException(String message, List<ValidationError> errors)
+	{
+		super(message);
+		this.errors = errors;
+	}
+
+
+	/**
+	 * @return the failures of the message
+	 */
+	public List<ValidationError> getErrors()
+	{
+		return errors;
+	}
+}
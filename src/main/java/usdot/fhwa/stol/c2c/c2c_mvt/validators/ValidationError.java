@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.validators;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * A single reason a message failed validation, located in the message with a
+ * JSON Pointer so clients do not have to parse the formatted error message.
+ */
+public class ValidationError
+{
+	/**
+	 * JSON Pointer (RFC 6901) of the value in the message that failed, "" for
+	 * the whole message
+	 */
+	private final String pointer;
+
+
+	/**
+	 * Location in the schema of the keyword that failed, null if the error
+	 * did not come from the schema
+	 */
+	private final String schemaPointer;
+
+
+	/**
+	 * Description of the error
+	 */
+	private final String message;
+
+
+	/**
+	 * Constructor
+	 * @param pointer JSON Pointer of the value in the message that failed, "" 
+	 * for the whole message
+	 * @param schemaPointer location in the schema of the keyword that failed,
+	 * null if the error did not come from the schema
+	 * @param message description of the error
+	 */
+	public ValidationError(String pointer, String schemaPointer, String message)
+	{
+		this.pointer = pointer;
+		this.schemaPointer = schemaPointer;
+		this.message = message;
+	}
+
+
+	/**
+	 * @return the JSON Pointer of the value in the message that failed
+	 */
+	public String getPointer()
+	{
+		return pointer;
+	}
+
+
+	/**
+	 * @return the location in the schema of the keyword that failed, null if
+	 * the error did not come from the schema
+	 */
+	public String getSchemaPointer()
+	{
+		return schemaPointer;
+	}
+
+
+	/**
+	 * @return the description of the error
+	 */
+	public String getMessage()
+	{
+		return message;
+	}
+
+
+	/**
+	 * Creates a JSON Object representing the error
+	 * @param objectMapper mapper used to create the object
+	 * @return the JSON Object
+	 */
+	public ObjectNode toJson(ObjectMapper objectMapper)
+	{
+		ObjectNode jsonObject = objectMapper.createObjectNode();
+		jsonObject.put("pointer", pointer);
+		if (schemaPointer != null)
+			jsonObject.put("schemaPointer", schemaPointer);
+		jsonObject.put("message", message);
+		return jsonObject;
+	}
+
+
+	/**
+	 * Creates an error from a JSON Object created by {@link #toJson(ObjectMapper)}
+	 * @param jsonObject the JSON Object
+	 * @return the error
+	 */
+	public static ValidationError fromJson(JsonNode jsonObject)
+	{
+		JsonNode schemaPointer = jsonObject.get("schemaPointer");
+		return new ValidationError(jsonObject.path("pointer").asText(), schemaPointer == null ? null : schemaPointer.asText(), jsonObject.path("message").asText());
+	}
+}
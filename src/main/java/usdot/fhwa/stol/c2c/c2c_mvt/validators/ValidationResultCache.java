@@ -0,0 +1,597 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.validators;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caches the result of validating a message so a message that is sent again
+ * is not parsed and validated again. C2C feeds resend the same inventory and
+ * status messages constantly, and a message always gets the same result from
+ * the same schema. Results are keyed by the standard, version and encoding, 
+ * the fingerprint of the schema file, the message type selected for the job
+ * and the SHA-256 hash of the message, so a result is no longer found once the
+ * schema file changes.
+ * <p>
+ * The least recently used results are evicted once c2c-mvt.cache.max-entries
+ * results are cached. The results are split in segments by key so validating
+ * messages in parallel does not contend on a single lock. When 
+ * c2c-mvt.cache.persistent is true every new result is also queued for a 
+ * writer thread that appends it to a file in the working directory, which is
+ * read when the application starts so the cache is warm after a restart. 
+ * Validation never waits for the file, results that do not fit in the queue
+ * are only cached in memory. The writer rewrites the file with the cached
+ * results once it has more than twice the maximum number of results.
+ */
+@Component
+public class ValidationResultCache
+{
+	/**
+	 * Logger instance
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(ValidationResultCache.class);
+
+
+	/**
+	 * Name of the file of the persistent results
+	 */
+	static final String RESULTS_FILE = "validation-results.ndjson";
+
+
+	/**
+	 * Number of segments the results are split in
+	 */
+	private static final int SEGMENTS = 16;
+
+
+	/**
+	 * Identifies the result of a message
+	 * @param standard name of the C2C standard
+	 * @param version version of the C2C standard
+	 * @param encoding encoding of the message
+	 * @param schemaFingerprint fingerprint of the schema file the message was validated against
+	 * @param messageType the message type selected for the job
+	 * @param messageHash SHA-256 hash of the message
+	 */
+	public record Key(String standard, String version, String encoding, String schemaFingerprint, String messageType, String messageHash)
+	{
+	}
+
+
+	/**
+	 * The result of validating a message
+	 * @param passed true if the message passed validation
+	 * @param messageType message type of the message, null if it is not known
+	 * @param stage tag of the stage that failed, null if the message passed
+	 * @param error the validation record of the failure, null if the message passed
+	 * @param errors errors of the message, empty if it passed
+	 */
+	public record Result(boolean passed, String messageType, String stage, String error, List<ValidationError> errors)
+	{
+	}
+
+
+	/**
+	 * A result waiting to be appended to the persistent file
+	 * @param key identifies the result
+	 * @param result the result
+	 */
+	private record PendingResult(Key key, Result result)
+	{
+	}
+
+
+	/**
+	 * Queued to stop the writer thread once the results queued before it are
+	 * written
+	 */
+	private static final PendingResult STOP = new PendingResult(null, null);
+
+
+	/**
+	 * Results of one segment, in least recently used order
+	 */
+	private static final class Segment extends LinkedHashMap<Key, Result>
+	{
+		/**
+		 * Maximum number of results of the segment
+		 */
+		private final int capacity;
+
+
+		/**
+		 * Constructor
+		 * @param capacity maximum number of results of the segment
+		 */
+		private Segment(int capacity)
+		{
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+
+		/**
+		 * Evicts the least recently used result once the segment is full
+		 * @param eldest the least recently used result
+		 * @return true if the segment is over capacity
+		 */
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Result> eldest)
+		{
+			return size() > capacity;
+		}
+	}
+
+
+	/**
+	 * Maximum number of cached results, 0 disables the cache
+	 */
+	@Value("${c2c-mvt.cache.max-entries:100000}")
+	private int maxEntries;
+
+
+	/**
+	 * True to keep the results in a file so they survive restarts
+	 */
+	@Value("${c2c-mvt.cache.persistent:false}")
+	private boolean persistent;
+
+
+	/**
+	 * Maximum number of results waiting to be appended to the persistent file
+	 */
+	@Value("${c2c-mvt.cache.queue-depth:1024}")
+	private int queueDepth;
+
+
+	/**
+	 * The segments, null if the cache is disabled
+	 */
+	private Segment[] segments;
+
+
+	/**
+	 * Mapper used for the persistent results
+	 */
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+
+	/**
+	 * The persistent file, null if the results are not persisted
+	 */
+	private Path file;
+
+
+	/**
+	 * Results waiting to be appended to the persistent file, null if the 
+	 * results are not persisted
+	 */
+	private volatile ArrayBlockingQueue<PendingResult> queue;
+
+
+	/**
+	 * Appends the queued results to the persistent file
+	 */
+	private Thread writerThread;
+
+
+	/**
+	 * Appends results to the persistent file, only used by the writer 
+	 * thread once it has started
+	 */
+	private BufferedWriter writer;
+
+
+	/**
+	 * Number of lines in the persistent file, only used by the writer thread
+	 * once it has started
+	 */
+	private int lines;
+
+
+	/**
+	 * Creates the segments
+	 */
+	@PostConstruct
+	public void init()
+	{
+		if (maxEntries <= 0)
+			return;
+
+		segments = new Segment[SEGMENTS];
+		int segmentCapacity = Math.max(1, (maxEntries + SEGMENTS - 1) / SEGMENTS);
+		for (int i = 0; i < SEGMENTS; i++)
+			segments[i] = new Segment(segmentCapacity);
+	}
+
+
+	/**
+	 * Loads the persistent results from the directory and starts the writer
+	 * thread that appends new results to them if c2c-mvt.cache.persistent is
+	 * true. The file is rewritten with only the loaded results when most of 
+	 * its lines were evicted or replaced.
+	 * @param directory directory of the persistent results, created if it does not exist
+	 * @throws IOException if the directory or file cannot be created
+	 */
+	public synchronized void open(Path directory)
+		throws IOException
+	{
+		if (!persistent || !isEnabled() || writerThread != null)
+			return;
+
+		Files.createDirectories(directory);
+		file = directory.resolve(RESULTS_FILE);
+		lines = 0;
+		if (Files.exists(file))
+		{
+			try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8))
+			{
+				String line;
+				while ((line = reader.readLine()) != null)
+				{
+					++lines;
+					try
+					{
+						JsonNode entry = objectMapper.readTree(line);
+						put(keyFromJson(entry.path("key")), resultFromJson(entry.path("result")), false);
+					}
+					catch (IOException | RuntimeException ex)
+					{
+						LOGGER.debug("Skipping unreadable cached result on line " + lines);
+					}
+				}
+			}
+		}
+		if (lines > 2 * getSize())
+			lines = compact();
+
+		writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		ArrayBlockingQueue<PendingResult> pending = new ArrayBlockingQueue<>(Math.max(1, queueDepth));
+		queue = pending;
+		writerThread = new Thread(() -> writeQueuedResults(pending), "c2c-mvt-result-writer");
+		writerThread.setDaemon(true);
+		writerThread.start();
+		LOGGER.info(String.format("Loaded %d cached validation results from %s", getSize(), file));
+	}
+
+
+	/**
+	 * Rewrites the persistent file with the cached results
+	 * @return the number of results written
+	 * @throws IOException if the file cannot be written
+	 */
+	private int compact()
+		throws IOException
+	{
+		int written = 0;
+		Path temp = file.resolveSibling(RESULTS_FILE + ".tmp");
+		try (BufferedWriter compacted = Files.newBufferedWriter(temp, StandardCharsets.UTF_8))
+		{
+			for (Segment segment : segments)
+			{
+				ArrayList<Map.Entry<Key, Result>> entries;
+				synchronized (segment)
+				{
+					entries = new ArrayList<>(segment.entrySet());
+				}
+				for (Map.Entry<Key, Result> entry : entries)
+					writeEntry(compacted, entry.getKey(), entry.getValue());
+				written += entries.size();
+			}
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return written;
+	}
+
+
+	/**
+	 * Run by the writer thread. Appends the queued results to the persistent
+	 * file in batches until {@link #STOP} is taken. Once the file has more 
+	 * than twice the maximum number of results it is rewritten with only the
+	 * cached results. If the file cannot be written the results are no 
+	 * longer persisted.
+	 * @param pending the queued results
+	 */
+	private void writeQueuedResults(ArrayBlockingQueue<PendingResult> pending)
+	{
+		ArrayList<PendingResult> batch = new ArrayList<>();
+		boolean stopping = false;
+		try
+		{
+			while (!stopping)
+			{
+				batch.add(pending.take());
+				pending.drainTo(batch);
+				for (PendingResult entry : batch)
+				{
+					if (entry == STOP)
+					{
+						stopping = true;
+						break;
+					}
+					writeEntry(writer, entry.key(), entry.result());
+					if (++lines > 2 * maxEntries)
+					{
+						writer.close();
+						lines = compact();
+						writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+					}
+				}
+				batch.clear();
+				writer.flush();
+			}
+		}
+		catch (IOException ex)
+		{
+			LOGGER.warn("Failed to persist a cached validation result, results are no longer persisted", ex);
+			queue = null;
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+		finally
+		{
+			closeWriter();
+		}
+	}
+
+
+	/**
+	 * Closes the persistent file, only called by the writer thread
+	 */
+	private void closeWriter()
+	{
+		try
+		{
+			writer.close();
+		}
+		catch (IOException ex)
+		{
+			LOGGER.warn("Failed to close the cached validation results", ex);
+		}
+	}
+
+
+	/**
+	 * Writes the queued results to the persistent file and stops the writer
+	 * thread
+	 */
+	@PreDestroy
+	public synchronized void close()
+	{
+		if (writerThread == null)
+			return;
+
+		ArrayBlockingQueue<PendingResult> pending = queue;
+		queue = null;
+		try
+		{
+			while (pending != null && writerThread.isAlive() && !pending.offer(STOP, 100, TimeUnit.MILLISECONDS))
+				continue;
+			writerThread.join();
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+		writerThread = null;
+	}
+
+
+	/**
+	 * @return true if results are cached
+	 */
+	public boolean isEnabled()
+	{
+		return segments != null;
+	}
+
+
+	/**
+	 * Gets the cached result of a message
+	 * @param key identifies the result
+	 * @return the result, null if it is not cached or the cache is disabled
+	 */
+	public Result get(Key key)
+	{
+		if (segments == null)
+			return null;
+
+		Segment segment = segmentFor(key);
+		synchronized (segment)
+		{
+			return segment.get(key);
+		}
+	}
+
+
+	/**
+	 * Caches the result of a message, queueing it for the persistent file if
+	 * the results are persisted
+	 * @param key identifies the result
+	 * @param result the result
+	 */
+	public void put(Key key, Result result)
+	{
+		put(key, result, true);
+	}
+
+
+	/**
+	 * Caches the result of a message
+	 * @param key identifies the result
+	 * @param result the result
+	 * @param persist true to queue the result for the persistent file
+	 */
+	private void put(Key key, Result result, boolean persist)
+	{
+		if (segments == null)
+			return;
+
+		Segment segment = segmentFor(key);
+		synchronized (segment)
+		{
+			segment.put(key, result);
+		}
+		ArrayBlockingQueue<PendingResult> pending = queue;
+		if (persist && pending != null && !pending.offer(new PendingResult(key, result)))
+			LOGGER.debug("Result queue is full, the result is only cached in memory");
+	}
+
+
+	/**
+	 * Removes every cached result, the persistent file is kept
+	 */
+	public void clear()
+	{
+		if (segments == null)
+			return;
+
+		for (Segment segment : segments)
+		{
+			synchronized (segment)
+			{
+				segment.clear();
+			}
+		}
+	}
+
+
+	/**
+	 * @return the number of cached results
+	 */
+	public int getSize()
+	{
+		if (segments == null)
+			return 0;
+
+		int size = 0;
+		for (Segment segment : segments)
+		{
+			synchronized (segment)
+			{
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+
+	/**
+	 * Gets the segment of a key
+	 * @param key the key
+	 * @return the segment
+	 */
+	private Segment segmentFor(Key key)
+	{
+		return segments[(key.hashCode() & 0x7fffffff) % segments.length];
+	}
+
+
+	/**
+	 * Writes a result as a line of the persistent file
+	 * @param out receives the line
+	 * @param key identifies the result
+	 * @param result the result
+	 * @throws IOException if the line cannot be written
+	 */
+	private void writeEntry(BufferedWriter out, Key key, Result result)
+		throws IOException
+	{
+		ObjectNode entry = objectMapper.createObjectNode();
+		ObjectNode keyObject = entry.putObject("key");
+		keyObject.put("standard", key.standard());
+		keyObject.put("version", key.version());
+		keyObject.put("encoding", key.encoding());
+		keyObject.put("schema", key.schemaFingerprint());
+		keyObject.put("messageType", key.messageType());
+		keyObject.put("message", key.messageHash());
+		ObjectNode resultObject = entry.putObject("result");
+		resultObject.put("passed", result.passed());
+		resultObject.put("messageType", result.messageType());
+		resultObject.put("stage", result.stage());
+		resultObject.put("error", result.error());
+		ArrayNode errorArray = resultObject.putArray("errors");
+		for (ValidationError error : result.errors())
+			errorArray.add(error.toJson(objectMapper));
+		out.write(objectMapper.writeValueAsString(entry));
+		out.newLine();
+	}
+
+
+	/**
+	 * Reads a key written by {@link #writeEntry}
+	 * @param keyObject the key as JSON
+	 * @return the key
+	 */
+	private static Key keyFromJson(JsonNode keyObject)
+	{
+		return new Key(textOrNull(keyObject, "standard"), textOrNull(keyObject, "version"), textOrNull(keyObject, "encoding"),
+			textOrNull(keyObject, "schema"), textOrNull(keyObject, "messageType"), textOrNull(keyObject, "message"));
+	}
+
+
+	/**
+	 * Reads a result written by {@link #writeEntry}
+	 * @param resultObject the result as JSON
+	 * @return the result
+	 */
+	private static Result resultFromJson(JsonNode resultObject)
+	{
+		ArrayList<ValidationError> errors = new ArrayList<>();
+		for (JsonNode error : resultObject.path("errors"))
+			errors.add(ValidationError.fromJson(error));
+		return new Result(resultObject.path("passed").asBoolean(), textOrNull(resultObject, "messageType"), textOrNull(resultObject, "stage"),
+			textOrNull(resultObject, "error"), errors);
+	}
+
+
+	/**
+	 * Gets a text property of a JSON Object
+	 * @param jsonObject the JSON Object
+	 * @param name name of the property
+	 * @return the text, null if the property is missing or null
+	 */
+	private static String textOrNull(JsonNode jsonObject, String name)
+	{
+		JsonNode value = jsonObject.get(name);
+		return value == null || value.isNull() ? null : value.asText();
+	}
+}
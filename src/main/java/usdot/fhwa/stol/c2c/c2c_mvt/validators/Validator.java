@@ -15,6 +15,8 @@
  */
 package usdot.fhwa.stol.c2c.c2c_mvt.validators;
 
+import java.io.IOException;
+
 import org.springframework.core.io.ClassPathResource;
 
 import usdot.fhwa.stol.c2c.c2c_mvt.C2CMVTException;
@@ -53,4 +55,17 @@ public abstract class Validator<T extends C2CBaseMessage>
 	 * @throws C2CMVTException when the message is not valid according to the schema
 	 */
 	public abstract void validateMessage(T message) throws C2CMVTException;
+
+
+	/**
+	 * Gets a fingerprint of the schema file that changes whenever the 
+	 * contents of the schema file change, so cached validation results can
+	 * be tied to the schema they were validated against.
+	 * @return the SHA-256 hash of the schema file in hex
+	 * @throws IOException if the schema file cannot be read
+	 */
+	public String getSchemaFingerprint() throws IOException
+	{
+		return JsonSchemaRegistry.getFingerprint(schemaFile);
+	}
 }
@@ -5,6 +5,13 @@ let sPrevText = '';
 let oFileToUpload = null;
 let nPollInterval = 1000;
 let bValidating = false;
+let sJobId = null;
+let bRecordStream = false;
+let aPendingRecords = [];
+let aShownRecordLengths = []; // length of each record in the log, oldest first
+let nShownRecordChars = 0;
+let nMaxShownRecords = 10000; // the records kept in memory by the server
+let nRecordCursor = 0;
 let sC2CMvtNull = 'c2cmvtnull';
 
 function init()
@@ -28,6 +35,7 @@ function init()
 		$('#select_version').on('change', setEncodings);
 		$('#select_version').on('change', setMessageTypes);
 	});
+	bRecordStream = openRecordStream();
 	checkMessages();
 	
 	$('#btnChooseFile').on('click', function()
@@ -112,6 +120,7 @@ function uploadFile()
 	oFormData.append('encoding', $('#select_encoding').find(':selected').val());
 	oFormData.append('message_type', $('#select_messagetype').find(':selected').val());
 	bValidating = true;
+	sJobId = null;
 	setButtonDisabled();
 
 	// Perform AJAX request with jQuery
@@ -138,6 +147,7 @@ function uploadFile()
 		},
 		success: function (response) 
 		{
+			sJobId = JSON.parse(response).job_id;
 			$('#progressBar').val(100).parent().append('<div id="upload_complete">Upload complete</div>');
 
 		},
@@ -311,13 +321,57 @@ function resetOptions()
 
 function checkValidating()
 {
+	if (sJobId === null)
+	{
+		$.ajax(
+		{
+			'url': 'status',
+			'method': 'POST',
+			'dataType': 'JSON',
+			'data': {'include_validation_records': false}
+		}).done(doneStatus);
+		return;
+	}
+	
+	$.ajax(
+	{
+		'url': 'job',
+		'method': 'POST',
+		'dataType': 'JSON',
+		'data': {'job_id': sJobId}
+	}).done(doneJob).fail(function()
+	{
+		sJobId = null;
+		checkValidating();
+	});
+}
+
+
+function doneJob(oData)
+{
+	if (oData.validating)
+	{
+		setTimeout(checkValidating, 1000);
+		return;
+	}
+	
+	sJobId = null;
+	if (bRecordStream) // the records have already been pushed by the server
+	{
+		doneStatus({'validating': false});
+		return;
+	}
 	$.ajax(
 	{
 		'url': 'status',
 		'method': 'POST',
 		'dataType': 'JSON',
-		'data': {'include_validation_records': false}
-	}).done(doneStatus);
+		'data': {'include_validation_records': true, 'since': nRecordCursor}
+	}).done(function(oStatus)
+	{
+		oStatus.validating = false; // other users' jobs may still be running, this upload is done
+		doneStatus(oStatus);
+	});
 }
 
 
@@ -328,21 +382,93 @@ function checkMessages()
 		'url': 'status',
 		'method': 'POST',
 		'dataType': 'JSON',
-		'data': {'include_validation_records': true}
+		'data': {'include_validation_records': !bRecordStream, 'since': nRecordCursor}
 	}).done(doneStatus);
 }
 
 
-function doneStatus(oData)
+function openRecordStream()
 {
-	if (oData.messages)
+	if (typeof window.EventSource === 'undefined') // fall back to polling for the records
+		return false;
+	
+	// the server sends the records in memory first, then each record as it is added.
+	// EventSource reconnects by itself and resumes after the last record it received
+	let oRecordStream = new EventSource('records/stream');
+	oRecordStream.addEventListener('record', function(oEvt)
+	{
+		if (aPendingRecords.length === 0)
+			window.requestAnimationFrame(showPendingRecords);
+		aPendingRecords.push(oEvt.data);
+	});
+	oRecordStream.addEventListener('reset', function()
 	{
-		let sVal = '';
-		for (let sMsg of oData.messages.values())
+		aPendingRecords = [];
+		clearRecords();
+		setButtonDisabled();
+	});
+	return true;
+}
+
+
+function showPendingRecords()
+{
+	if (aPendingRecords.length === 0)
+		return;
+	
+	appendRecords(aPendingRecords);
+	aPendingRecords = [];
+	setButtonDisabled();
+}
+
+
+// appends records to the end of the log without rebuilding its text, and removes the oldest records
+// once more than nMaxShownRecords are shown so the log does not grow without limit
+function appendRecords(aRecords)
+{
+	if (aRecords.length > nMaxShownRecords)
+		aRecords = aRecords.slice(aRecords.length - nMaxShownRecords);
+	
+	let oContainer = $('.msgcontainer')[0];
+	let sText = aRecords.join('\n') + '\n';
+	oContainer.setRangeText(sText, nShownRecordChars, nShownRecordChars, 'preserve');
+	nShownRecordChars += sText.length;
+	for (let sRecord of aRecords)
+		aShownRecordLengths.push(sRecord.length + 1);
+	
+	if (aShownRecordLengths.length > nMaxShownRecords)
+	{
+		let nRemovedChars = 0;
+		for (let nLength of aShownRecordLengths.splice(0, aShownRecordLengths.length - nMaxShownRecords))
+			nRemovedChars += nLength;
+		oContainer.setRangeText('', 0, nRemovedChars, 'preserve');
+		nShownRecordChars -= nRemovedChars;
+	}
+}
+
+
+function clearRecords()
+{
+	aShownRecordLengths = [];
+	nShownRecordChars = 0;
+	$('.msgcontainer').val('');
+}
+
+
+function doneStatus(oData)
+{
+	if (oData.messages) // only the records after nRecordCursor are sent
+	{
+		if (oData.cleared)
+			clearRecords();
+		if (oData.messages.length > 0)
+			appendRecords(oData.messages);
+		nRecordCursor = oData.cursor;
+		if (oData.more)
 		{
-			sVal += sMsg + '\n';
+			checkMessages();
+			return;
 		}
-		$('.msgcontainer').val(sVal);
 	}
 	if (oData.validating)
 	{
@@ -354,7 +480,7 @@ function doneStatus(oData)
 	}
 	else
 	{
-		if (oData.messages)
+		if (oData.messages || bRecordStream)
 		{
 			bValidating = false;
 			setButtonDisabled();
@@ -387,7 +513,7 @@ function setButtonDisabled()
 		let bOptionsNotSet = optionsNotSet();
 		$('#btnChooseFile').prop('disabled', bOptionsNotSet);
 		$('#btnValidate').prop('disabled', bOptionsNotSet || $('.file_textarea').val().length === 0);
-		$('button.log').prop('disabled', $('.msgcontainer').val().length === 0);
+		$('button.log').prop('disabled', aShownRecordLengths.length === 0);
 	}
 }
 
@@ -403,7 +529,7 @@ function resetLog()
 		'method': 'GET',
 		'dataType': 'JSON'
 	});
-	$('.msgcontainer').val('');
+	clearRecords();
 	setButtonDisabled();
 }
 
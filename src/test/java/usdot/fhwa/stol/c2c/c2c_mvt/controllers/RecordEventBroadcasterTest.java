@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Unit tests for RecordEventBroadcaster
+ */
+class RecordEventBroadcasterTest {
+
+	private RecordEventBroadcaster broadcaster;
+
+	private final List<String> records = new CopyOnWriteArrayList<>();
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@BeforeEach
+	void setUp() {
+		broadcaster = new RecordEventBroadcaster();
+		ReflectionTestUtils.setField(broadcaster, "timeout", 60000L);
+		ReflectionTestUtils.setField(broadcaster, "heartbeat", 0L);
+		ReflectionTestUtils.setField(broadcaster, "stallTimeout", 100L);
+		broadcaster.init();
+		broadcaster.setRecordSource((since, limit, copied) -> {
+			for (int i = (int)since; i < records.size() && copied.size() < limit; i++)
+				copied.add(records.get(i));
+			return since + 1;
+		}, records::size);
+	}
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		broadcaster.shutdown();
+	}
+
+	private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+	}
+
+	@Test
+	void testPublish_StalledClientDoesNotDelayOthers() throws Exception {
+		AtomicInteger stalledSends = new AtomicInteger();
+		SseEmitter stalled = new SseEmitter() {
+			@Override
+			public void send(SseEventBuilder builder) throws IOException {
+				stalledSends.incrementAndGet();
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		AtomicInteger sends = new AtomicInteger();
+		SseEmitter reading = new SseEmitter() {
+			@Override
+			public void send(SseEventBuilder builder) {
+				sends.incrementAndGet();
+			}
+		};
+		records.add("record 1");
+		broadcaster.subscribe(stalled, 0);
+		waitFor(() -> stalledSends.get() == 1);
+		broadcaster.subscribe(reading, 0);
+
+		for (int i = 2; i <= 100; i++) {
+			records.add("record " + i);
+			broadcaster.publish();
+		}
+		waitFor(() -> sends.get() == 100);
+		assertThat(sends.get()).isEqualTo(100);
+		assertThat(stalledSends.get()).isEqualTo(1);
+
+		Thread.sleep(150);
+		broadcaster.sendHeartbeat();
+		assertThat(broadcaster.getSubscriberCount()).isEqualTo(1);
+		waitFor(() -> sends.get() == 101);
+		assertThat(sends.get()).isEqualTo(101);
+	}
+}
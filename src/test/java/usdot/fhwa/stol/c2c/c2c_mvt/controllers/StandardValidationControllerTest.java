@@ -15,14 +15,31 @@
  */
 package usdot.fhwa.stol.c2c.c2c_mvt.controllers;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
@@ -32,19 +49,25 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import usdot.fhwa.stol.c2c.c2c_mvt.C2CMVTException;
+import usdot.fhwa.stol.c2c.c2c_mvt.jobs.ValidationJob;
+import usdot.fhwa.stol.c2c.c2c_mvt.jobs.ValidationJobEngine;
+import usdot.fhwa.stol.c2c.c2c_mvt.records.ValidationRecordStore;
+import usdot.fhwa.stol.c2c.c2c_mvt.storage.MessageStore;
 
 /**
  * Unit tests for StandardValidationController
  * 
  * @author Eric Chen
  */
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "spring.mvc.async.request-timeout=200")
 class StandardValidationControllerTest {
 
 	@LocalServerPort
@@ -53,6 +76,9 @@ class StandardValidationControllerTest {
 	@Autowired
 	private StandardValidationController controller;
 
+	@Autowired
+	private ValidationJobEngine jobEngine;
+
 
 	private final RestTemplate restTemplate = new RestTemplate();
 	
@@ -174,6 +200,23 @@ class StandardValidationControllerTest {
 		assertThat(response.getHeaders().getContentType().toString()).isEqualTo("application/octet-stream");
 	}
 
+	@Test
+	void testWriteLogBundle_ContainsRecordsAndMessages(@TempDir Path fileDir) throws Exception {
+		Path segment = Files.writeString(fileDir.resolve("segment-0000000000.log"), "{\"message\": {}}{\"message\": 1}");
+		List<MessageStore.Location> messages = List.of(new MessageStore.Location("first.json", segment, 0, 15),
+			new MessageStore.Location("second.json", segment, 15, 14), new MessageStore.Location("deleted.json", fileDir.resolve("deleted.log"), 0, 1));
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+		StandardValidationController.writeLogBundle(List.of("first record", "second record"), messages, outputStream);
+
+		List<String> entries = new ArrayList<>();
+		try (ZipInputStream zipStream = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+			for (ZipEntry entry = zipStream.getNextEntry(); entry != null; entry = zipStream.getNextEntry())
+				entries.add(entry.getName() + "=" + new String(zipStream.readAllBytes(), StandardCharsets.UTF_8));
+		}
+		assertThat(entries).containsExactly("validation_results.txt=first record\nsecond record\n", "first.json={\"message\": {}}", "second.json={\"message\": 1}");
+	}
+
 
 	@Test
 	void testValidateMessages_NoExceptionThrown() {
@@ -252,12 +295,16 @@ class StandardValidationControllerTest {
 		String selectedMessageType = "Auto Detect";
 		try
 		{
-			Field field = StandardValidationController.class.getDeclaredField("workingDirectory");
+			Field storeField = StandardValidationController.class.getDeclaredField("messageStore");
+			storeField.setAccessible(true);
+			Object messageStore = storeField.get(controller);
+			Field field = messageStore.getClass().getDeclaredField("directory");
 			field.setAccessible(true);
-			String oldWorkingDir = (String)field.get(controller);
-			field.set(controller, "/invalidpath<>:\"/|?*.txt");
+			Path oldDirectory = (Path)field.get(messageStore);
+			controller.deleteMessages();
+			field.set(messageStore, Path.of("/invalidpath<>:\"/|?*.txt"));
 			controller.validateMessages(messageBytes, fileExt, standard, version, encoding, selectedMessageType);
-			field.set(controller, oldWorkingDir);
+			field.set(messageStore, oldDirectory);
 			String errorRecord = null;
 			for (String validationRecord : StandardValidationController.getValidationRecords())
 			{
@@ -296,12 +343,16 @@ class StandardValidationControllerTest {
 		String selectedMessageType = "Auto Detect";
 		try
 		{
-			Field field = StandardValidationController.class.getDeclaredField("workingDirectory");
+			Field storeField = StandardValidationController.class.getDeclaredField("messageStore");
+			storeField.setAccessible(true);
+			Object messageStore = storeField.get(controller);
+			Field field = messageStore.getClass().getDeclaredField("directory");
 			field.setAccessible(true);
-			String oldWorkingDir = (String)field.get(controller);
-			field.set(controller, "/invalidpath<>:\"/|?*.txt");
+			Path oldDirectory = (Path)field.get(messageStore);
+			controller.deleteMessages();
+			field.set(messageStore, Path.of("/invalidpath<>:\"/|?*.txt"));
 			controller.validateMessages(messageBytes, fileExt, standard, version, encoding, selectedMessageType);
-			field.set(controller, oldWorkingDir);
+			field.set(messageStore, oldDirectory);
 			String errorRecord = null;
 			for (String validationRecord : StandardValidationController.getValidationRecords())
 			{
@@ -316,4 +367,369 @@ class StandardValidationControllerTest {
 			Assertions.fail();
 		}
 	}
-}
\ No newline at end of file
+
+	@Test
+	void testValidateMessages_MultipleMessagesRecordedInOrder() {
+		String validJson = """
+		{
+			"message":
+			{
+				"messageType": "ActivityLogRequest",
+				"ownerOrganizationId": "org_id",
+				"externalOrganizationId": "ext_org_id",
+				"requestId": "request_id"
+			}
+		}
+		""";
+		String invalidJson = "{\"message\": {\"messageType\": \"ActivityLogRequest\"}}";
+		StringBuilder payload = new StringBuilder();
+		for (int i = 0; i < 8; i++)
+			payload.append(i % 2 == 0 ? validJson : invalidJson);
+
+		ValidationJob job = new ValidationJob("multiple.json", "ngTMDD", "1.0", "UTF-8", "Auto Detect");
+		controller.validateMessages(job, ByteBuffer.wrap(payload.toString().getBytes(StandardCharsets.UTF_8)), ".json");
+		controller.deleteMessages();
+
+		int expectedMessage = 1;
+		for (String validationRecord : job.getRecords())
+		{
+			if (validationRecord.contains("Validation completed with"))
+			{
+				assertThat(validationRecord).contains(String.format("for message %d of 8", expectedMessage));
+				assertThat(validationRecord).contains(expectedMessage % 2 == 1 ? "with no errors" : "with errors");
+				++expectedMessage;
+			}
+		}
+		assertThat(expectedMessage).isEqualTo(9);
+		assertThat(job.getStatus()).isNotEqualTo(ValidationJob.Status.FAILED);
+	}
+
+	@Test
+	void testValidateMessages_DeeplyNestedMessageFailsWithoutHoldingLaterMessages() {
+		String validJson = "{\"message\": {\"messageType\": \"ActivityLogRequest\", \"ownerOrganizationId\": \"org_id\", \"externalOrganizationId\": \"ext_org_id\", \"requestId\": \"request_id\"}}";
+		String nestedJson = "{\"message\": " + "[".repeat(200000) + "]".repeat(200000) + "}";
+		String payload = validJson + nestedJson + validJson;
+
+		ValidationJob job = new ValidationJob("nested.json", "ngTMDD", "1.0", "UTF-8", "Auto Detect");
+		controller.validateMessages(job, ByteBuffer.wrap(payload.getBytes(StandardCharsets.UTF_8)), ".json");
+		controller.deleteMessages();
+
+		List<String> completed = new ArrayList<>();
+		for (String validationRecord : job.getRecords())
+		{
+			if (validationRecord.contains("Validation completed with"))
+				completed.add(validationRecord);
+		}
+		assertThat(completed).hasSize(3);
+		assertThat(completed.get(0)).contains("with no errors").contains("for message 1 of 3");
+		assertThat(completed.get(1)).contains("with errors").contains("for message 2 of 3");
+		assertThat(completed.get(2)).contains("with no errors").contains("for message 3 of 3");
+		assertThat(job.getStatus()).isEqualTo(ValidationJob.Status.COMPLETED);
+	}
+
+	@Test
+	void testValidateStream_MessagesRecordedInOrderWithoutTotal() {
+		String validJson = "{\"message\": {\"messageType\": \"ActivityLogRequest\", \"ownerOrganizationId\": \"org_id\", \"externalOrganizationId\": \"ext_org_id\", \"requestId\": \"request_id\"}}";
+		String invalidJson = "{\"message\": {\"messageType\": \"ActivityLogRequest\"}}";
+		StringBuilder payload = new StringBuilder();
+		for (int i = 0; i < 6; i++)
+			payload.append(i % 2 == 0 ? validJson : invalidJson).append('\n');
+
+		ValidationJob job = new ValidationJob("stream.json", "ngTMDD", "1.0", "UTF-8", "Auto Detect");
+		controller.validateStream(job, new ByteArrayInputStream(payload.toString().getBytes(StandardCharsets.UTF_8)), ".json");
+		controller.deleteMessages();
+
+		int expectedMessage = 1;
+		for (String validationRecord : job.getRecords())
+		{
+			if (validationRecord.contains("Validation completed with"))
+			{
+				assertThat(validationRecord).endsWith(String.format("for message %d", expectedMessage));
+				assertThat(validationRecord).contains(expectedMessage % 2 == 1 ? "with no errors" : "with errors");
+				++expectedMessage;
+			}
+		}
+		assertThat(expectedMessage).isEqualTo(7);
+		assertThat(job.toJson(new ObjectMapper(), false).get("messagesTotal").asInt()).isEqualTo(6);
+	}
+
+	@Test
+	void testUploadStream_ValidBody() {
+		String url = "http://localhost:" + port + "/uploadStream?standard=ngTMDD&version=1.0&encoding=UTF-8&message_type=Auto Detect&file_name=capture.json";
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+		byte[] body = "{\"message\": {\"messageType\": \"ActivityLogRequest\"}}{\"message\": {}}".getBytes(StandardCharsets.UTF_8);
+		ResponseEntity<String> response = restTemplate.postForEntity(url, new HttpEntity<>(body, headers), String.class);
+		controller.deleteMessages();
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(response.getBody()).contains("\"messagesTotal\":2").contains("\"status\":\"COMPLETED\"");
+	}
+
+	@Test
+	void testUploadStream_GzipContentEncoding() throws Exception {
+		String url = "http://localhost:" + port + "/uploadStream?standard=ngTMDD&version=1.0&encoding=UTF-8&message_type=Auto Detect&file_name=capture.json";
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+		headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+			gzip.write("{\"message\": {\"messageType\": \"ActivityLogRequest\"}}\n{\"message\": {}}\n".getBytes(StandardCharsets.UTF_8));
+		}
+		ResponseEntity<String> response = restTemplate.postForEntity(url, new HttpEntity<>(compressed.toByteArray(), headers), String.class);
+		controller.deleteMessages();
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(response.getBody()).contains("\"messagesTotal\":2").contains("\"status\":\"COMPLETED\"");
+	}
+
+	@Test
+	void testValidateCompressed_GzipFile() throws Exception {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+			for (int i = 0; i < 3; i++)
+				gzip.write("{\"message\": {\"messageType\": \"ActivityLogRequest\"}}".getBytes(StandardCharsets.UTF_8));
+		}
+		ValidationJob job = new ValidationJob("capture.json.gz", "ngTMDD", "1.0", "UTF-8", "Auto Detect");
+		controller.validateCompressed(job, compressed.toByteArray(), StandardValidationController.getFileExtension(job.getFileName()));
+		controller.deleteMessages();
+
+		assertThat(job.getMessagesTotal()).isEqualTo(3);
+		assertThat(job.getStatus()).isNotEqualTo(ValidationJob.Status.FAILED);
+	}
+
+	@Test
+	void testValidateCompressed_InflatedPastMaximumFailsJob() throws Exception {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+			for (int i = 0; i < 1000; i++)
+				gzip.write("{\"message\": {\"messageType\": \"ActivityLogRequest\"}}".getBytes(StandardCharsets.UTF_8));
+		}
+		ReflectionTestUtils.setField(controller, "maxInflatedBytes", 1024L);
+		ValidationJob job = new ValidationJob("capture.json.gz", "ngTMDD", "1.0", "UTF-8", "Auto Detect");
+		try {
+			controller.validateCompressed(job, compressed.toByteArray(), StandardValidationController.getFileExtension(job.getFileName()));
+		} finally {
+			ReflectionTestUtils.setField(controller, "maxInflatedBytes", 4294967296L);
+			controller.deleteMessages();
+		}
+
+		assertThat(job.getStatus()).isEqualTo(ValidationJob.Status.FAILED);
+		assertThat(job.getMessagesTotal()).isLessThan(1000);
+		assertThat(job.getRecords()).anyMatch(record -> record.contains("Validation failed to complete"));
+	}
+
+	@Test
+	void testValidateMappedFile_MessagesValidatedFromMapping(@TempDir Path directory) throws Exception {
+		Path capture = Files.writeString(directory.resolve("capture.json"),
+			"{\"message\": {\"messageType\": \"ActivityLogRequest\"}}\n{\"message\": {\"messageType\": \"CCTVStatusRequest\"}}\n");
+		ValidationJob job = new ValidationJob("capture.json", "ngTMDD", "1.0", "UTF-8", "Auto Detect");
+		controller.validateMappedFile(job, capture, ".json");
+		controller.deleteMessages();
+
+		assertThat(job.getMessagesTotal()).isEqualTo(2);
+		assertThat(job.getStatus()).isNotEqualTo(ValidationJob.Status.FAILED);
+	}
+
+	@Test
+	void testValidateFile_OnlyAllowedDirectories(@TempDir Path directory) throws Exception {
+		Path allowed = Files.createDirectory(directory.resolve("captures"));
+		Path capture = Files.writeString(allowed.resolve("capture.json"), "{\"message\": {\"messageType\": \"ActivityLogRequest\"}}");
+		Path outside = Files.writeString(directory.resolve("outside.json"), "{\"message\": {}}");
+		ReflectionTestUtils.setField(controller, "allowedDirectories", new String[] {allowed.toString()});
+		try {
+			assertThat(controller.validateFile(capture.toString(), "ngTMDD", "1.0", "UTF-8", "Auto Detect").getStatusCode()).isEqualTo(HttpStatus.OK);
+			assertThat(controller.validateFile(outside.toString(), "ngTMDD", "1.0", "UTF-8", "Auto Detect").getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+			assertThat(controller.validateFile(allowed.resolve("../outside.json").toString(), "ngTMDD", "1.0", "UTF-8", "Auto Detect").getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+			assertThat(controller.validateFile(allowed.resolve("missing.json").toString(), "ngTMDD", "1.0", "UTF-8", "Auto Detect").getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+			assertThat(controller.validateFile(directory.resolve("missing.json").toString(), "ngTMDD", "1.0", "UTF-8", "Auto Detect").getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+		} finally {
+			ReflectionTestUtils.setField(controller, "allowedDirectories", new String[0]);
+		}
+	}
+
+	@Test
+	void testInflate_RawDeflate() throws Exception {
+		byte[] messages = "{\"message\": {}}".getBytes(StandardCharsets.UTF_8);
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (DeflaterOutputStream deflate = new DeflaterOutputStream(compressed, new Deflater(Deflater.DEFAULT_COMPRESSION, true))) {
+			deflate.write(messages);
+		}
+
+		assertThat(StandardValidationController.inflate(new ByteArrayInputStream(compressed.toByteArray()), "deflate", null, 0).readAllBytes()).isEqualTo(messages);
+		assertThat(StandardValidationController.getFileExtension("capture.json.gz")).isEqualTo(".json");
+	}
+
+	@Test
+	void testValidate_StructuredResults() throws Exception {
+		String url = "http://localhost:" + port + "/validate?standard=ngTMDD&version=1.0&encoding=UTF-8&message_type=Auto Detect";
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+		byte[] body = """
+		{"message": {"messageType": "ActivityLogRequest", "ownerOrganizationId": "org_id", "externalOrganizationId": "ext_org_id", "requestId": "request_id"}}
+		{"message": {"messageType": "ActivityLogRequest", "ownerOrganizationId": 5}}
+		""".getBytes(StandardCharsets.UTF_8);
+		ResponseEntity<String> response = restTemplate.postForEntity(url, new HttpEntity<>(body, headers), String.class);
+		controller.deleteMessages();
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+		JsonNode job = new ObjectMapper().readTree(response.getBody());
+		assertThat(job.get("status").asText()).isEqualTo("COMPLETED");
+		JsonNode results = job.get("results");
+		assertThat(results).hasSize(2);
+		assertThat(results.get(0).get("index").asInt()).isEqualTo(1);
+		assertThat(results.get(0).get("messageType").asText()).isEqualTo("ActivityLogRequest");
+		assertThat(results.get(0).get("passed").asBoolean()).isTrue();
+		assertThat(results.get(0).get("errors")).isEmpty();
+		assertThat(results.get(1).get("passed").asBoolean()).isFalse();
+		assertThat(results.get(1).get("stage").asText()).isEqualTo("validateMessage");
+		assertThat(results.get(1).get("errors")).isNotEmpty();
+		assertThat(results.get(1).get("errors").findValuesAsText("pointer")).contains("/message/ownerOrganizationId");
+	}
+
+	@Test
+	void testValidate_NdjsonWhenAccepted() throws Exception {
+		String url = "http://localhost:" + port + "/validate?standard=ngTMDD&version=1.0&encoding=UTF-8&message_type=Auto Detect";
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+		headers.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+		byte[] body = "{\"message\": {\"messageType\": \"ActivityLogRequest\"}}\n{\"message\": {}}\n".getBytes(StandardCharsets.UTF_8);
+		ResponseEntity<String> response = restTemplate.postForEntity(url, new HttpEntity<>(body, headers), String.class);
+		controller.deleteMessages();
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+		String[] lines = response.getBody().split("\n");
+		ObjectMapper objectMapper = new ObjectMapper();
+		assertThat(lines).hasSize(3);
+		assertThat(objectMapper.readTree(lines[0]).get("index").asInt()).isEqualTo(1);
+		assertThat(objectMapper.readTree(lines[0]).get("passed").asBoolean()).isFalse();
+		assertThat(objectMapper.readTree(lines[1]).get("index").asInt()).isEqualTo(2);
+		assertThat(objectMapper.readTree(lines[2]).get("job").get("messagesTotal").asInt()).isEqualTo(2);
+	}
+
+	@Test
+	void testValidate_JobSlowerThanAsyncTimeoutReturnsCompleteDocument() throws Exception {
+		String url = "http://localhost:" + port + "/validate?standard=ngTMDD&version=1.0&encoding=UTF-8&message_type=Auto Detect";
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+		byte[] body = "{\"message\": {\"messageType\": \"ActivityLogRequest\"}}".getBytes(StandardCharsets.UTF_8);
+		CountDownLatch release = new CountDownLatch(1);
+		int workers = Runtime.getRuntime().availableProcessors();
+		for (int i = 0; i < workers; i++) {
+			jobEngine.submit(new ValidationJob("blocking.json", "ngTMDD", "1.0", "UTF-8", "Auto Detect"), job -> {
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+		CompletableFuture<ResponseEntity<String>> response;
+		try {
+			response = CompletableFuture.supplyAsync(() -> restTemplate.postForEntity(url, new HttpEntity<>(body, headers), String.class));
+			Thread.sleep(1000);
+		} finally {
+			release.countDown();
+		}
+		ResponseEntity<String> result = response.get(10, TimeUnit.SECONDS);
+		controller.deleteMessages();
+
+		assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+		JsonNode job = new ObjectMapper().readTree(result.getBody());
+		assertThat(job.get("status").asText()).isEqualTo("COMPLETED");
+		assertThat(job.get("results")).hasSize(1);
+	}
+
+	@Test
+	void testValidate_UnknownStandard() {
+		String url = "http://localhost:" + port + "/validate?standard=ngTMDD&version=9.9&encoding=UTF-8&message_type=Auto Detect";
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+		Assertions.assertThatThrownBy(() -> restTemplate.postForEntity(url, new HttpEntity<>("{}".getBytes(StandardCharsets.UTF_8), headers), String.class))
+			.isInstanceOf(HttpClientErrorException.BadRequest.class);
+	}
+
+	@Test
+	void testCopyRecordsSince_ReturnsOnlyNewerRecords() throws Exception {
+		String url = "http://localhost:" + port + "/status?include_validation_records=false";
+		long sequence = new ObjectMapper().readTree(restTemplate.postForEntity(url, null, String.class).getBody()).get("sequence").asLong();
+		StandardValidationController.addLogRecord("first streamed record", null);
+		StandardValidationController.addLogRecord("second streamed record", null);
+
+		List<String> records = new ArrayList<>();
+		long firstSequence = StandardValidationController.copyRecordsSince(sequence + 1, Integer.MAX_VALUE, records);
+
+		assertThat(firstSequence).isEqualTo(sequence + 2);
+		assertThat(records).anyMatch(record -> record.endsWith("second streamed record"));
+		assertThat(records).noneMatch(record -> record.endsWith("first streamed record"));
+	}
+
+	@Test
+	void testGetStatus_SinceReturnsRecordsAfterCursor() throws Exception {
+		String url = "http://localhost:" + port + "/status?include_validation_records=false";
+		long sequence = new ObjectMapper().readTree(restTemplate.postForEntity(url, null, String.class).getBody()).get("sequence").asLong();
+		StandardValidationController.addLogRecord("cursor record one", null);
+		StandardValidationController.addLogRecord("cursor record two", null);
+
+		url = "http://localhost:" + port + "/status?include_validation_records=true&since=" + sequence + "&limit=1";
+		JsonNode status = new ObjectMapper().readTree(restTemplate.postForEntity(url, null, String.class).getBody());
+
+		assertThat(status.get("messages")).hasSize(1);
+		assertThat(status.get("messages").get(0).asText()).endsWith("cursor record one");
+		assertThat(status.get("cursor").asLong()).isEqualTo(sequence + 1);
+		assertThat(status.get("more").asBoolean()).isTrue();
+	}
+
+	@Test
+	void testGetStatus_SinceAfterLastRecordStartsOver() throws Exception {
+		StandardValidationController.addLogRecord("record before restart", null);
+		String url = "http://localhost:" + port + "/status?include_validation_records=false";
+		long sequence = new ObjectMapper().readTree(restTemplate.postForEntity(url, null, String.class).getBody()).get("sequence").asLong();
+
+		url = "http://localhost:" + port + "/status?include_validation_records=true&since=" + (sequence + 1000);
+		JsonNode status = new ObjectMapper().readTree(restTemplate.postForEntity(url, null, String.class).getBody());
+
+		assertThat(status.get("cleared").asBoolean()).isTrue();
+		assertThat(status.get("messages").size()).isPositive();
+		assertThat(status.get("cursor").asLong()).isEqualTo(sequence);
+	}
+
+	@Test
+	void testGetStatus_ExpiredRecordsMissedNotCleared() throws Exception {
+		StandardValidationController.addLogRecord("record that expires", null);
+		String url = "http://localhost:" + port + "/status?include_validation_records=false";
+		long sequence = new ObjectMapper().readTree(restTemplate.postForEntity(url, null, String.class).getBody()).get("sequence").asLong();
+		ValidationRecordStore store = (ValidationRecordStore)ReflectionTestUtils.getField(StandardValidationController.class, "recordStore");
+		Thread.sleep(5);
+		assertThat(store.expireBefore(System.currentTimeMillis(), Integer.MAX_VALUE)).isPositive();
+		StandardValidationController.addLogRecord("record after expiry", null);
+
+		url = "http://localhost:" + port + "/status?include_validation_records=true&since=" + (sequence - 1);
+		JsonNode status = new ObjectMapper().readTree(restTemplate.postForEntity(url, null, String.class).getBody());
+
+		assertThat(status.get("cleared").asBoolean()).isFalse();
+		assertThat(status.get("missed").asLong()).isEqualTo(1);
+		assertThat(status.get("messages")).hasSize(1);
+		assertThat(status.get("messages").get(0).asText()).endsWith("record after expiry");
+	}
+
+	@Test
+	void testValidateMessages_StageMetricsPublished() {
+		String jsonString = """
+		{"message": {"messageType": "ActivityLogRequest", "ownerOrganizationId": "org_id", "externalOrganizationId": "ext_org_id", "requestId": "request_id"}}
+		""";
+		controller.validateMessages(jsonString.getBytes(StandardCharsets.UTF_8), ".json", "ngTMDD", "1.0", "UTF-8", "Auto Detect");
+		controller.deleteMessages();
+
+		String url = "http://localhost:" + port + "/actuator/prometheus";
+		ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(response.getBody()).containsPattern("c2cmvt_stage_seconds_count\\{[^}]*messageType=\"ActivityLogRequest\"[^}]*stage=\"validateMessage\"");
+		assertThat(response.getBody()).contains("c2cmvt_messages_total");
+		assertThat(response.getBody()).contains("c2cmvt_jobs_queued");
+		assertThat(response.getBody()).contains("c2cmvt_records_retained");
+	}
+}
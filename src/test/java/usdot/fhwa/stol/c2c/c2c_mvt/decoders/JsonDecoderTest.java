@@ -20,8 +20,12 @@ import org.junit.jupiter.api.Test;
 import usdot.fhwa.stol.c2c.c2c_mvt.C2CMVTException;
 import usdot.fhwa.stol.c2c.c2c_mvt.messages.JsonC2CMessage;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -38,13 +42,12 @@ class JsonDecoderTest {
 	@BeforeEach
 	void setUp() {
 		jsonDecoder = new JsonDecoder();
-		jsonDecoder.setEncoding(StandardCharsets.UTF_8.name());
 	}
 
 	@Test
 	void testSeparateMessages_ValidJsonArray() throws Exception {
 		String json = "{\"key1\":\"value1\"},{\"key2\":\"value2\"}";
-		ArrayList<byte[]> messages = jsonDecoder.separateMessages(json.getBytes(StandardCharsets.UTF_8));
+		ArrayList<byte[]> messages = jsonDecoder.separateMessages(json.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
 
 		assertThat(messages).hasSize(2);
 		assertThat(new String(messages.get(0), StandardCharsets.UTF_8)).isEqualTo("{\"key1\":\"value1\"}");
@@ -54,7 +57,7 @@ class JsonDecoderTest {
 	@Test
 	void testSeparateMessages_ValidJsonObject() throws Exception {
 		String json = "{\"key\":\"value\"}";
-		ArrayList<byte[]> messages = jsonDecoder.separateMessages(json.getBytes(StandardCharsets.UTF_8));
+		ArrayList<byte[]> messages = jsonDecoder.separateMessages(json.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
 
 		assertThat(messages).hasSize(1);
 		assertThat(new String(messages.get(0), StandardCharsets.UTF_8)).isEqualTo(json);
@@ -65,7 +68,7 @@ class JsonDecoderTest {
 		String invalidJson = "{\"key\":\"value\""; // Missing closing brace
 
 		C2CMVTException exception = assertThrows(C2CMVTException.class, () -> {
-			jsonDecoder.separateMessages(invalidJson.getBytes(StandardCharsets.UTF_8));
+			jsonDecoder.separateMessages(invalidJson.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
 		});
 
 		assertThat(exception.getMessage()).contains("Error occured in separateMessage()");
@@ -74,7 +77,7 @@ class JsonDecoderTest {
 	@Test
 	void testSeparateMessages_EmptyInput() throws Exception {
 		String emptyJson = "";
-		ArrayList<byte[]> messages = jsonDecoder.separateMessages(emptyJson.getBytes(StandardCharsets.UTF_8));
+		ArrayList<byte[]> messages = jsonDecoder.separateMessages(emptyJson.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
 
 		assertThat(messages).isEmpty();
 	}
@@ -121,9 +124,108 @@ class JsonDecoderTest {
 	@Test
 	void testSeparateMessages_WithBOM() throws Exception {
 		byte[] jsonWithBOM = new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF, '{', '"', 'k', 'e', 'y', '"', ':', '"', 'v', 'a', 'l', 'u', 'e', '"', '}'};
-		ArrayList<byte[]> messages = jsonDecoder.separateMessages(jsonWithBOM);
+		ArrayList<byte[]> messages = jsonDecoder.separateMessages(jsonWithBOM, StandardCharsets.UTF_8);
 
 		assertThat(messages).hasSize(1);
 		assertThat(new String(messages.get(0), StandardCharsets.UTF_8)).isEqualTo("{\"key\":\"value\"}");
 	}
-}
\ No newline at end of file
+
+	@Test
+	void testSeparateMessages_SlicesSharePayload() throws Exception {
+		byte[] payload = " {\"a\":[1,{}]} x [\"}\\\"\"] ".getBytes(StandardCharsets.UTF_8);
+		ArrayList<ByteBuffer> slices = jsonDecoder.separateMessages(ByteBuffer.wrap(payload, 1, payload.length - 1), StandardCharsets.UTF_8);
+
+		assertThat(slices).hasSize(2);
+		assertThat(StandardCharsets.UTF_8.decode(slices.get(0)).toString()).isEqualTo("{\"a\":[1,{}]}");
+		assertThat(StandardCharsets.UTF_8.decode(slices.get(1)).toString()).isEqualTo("[\"}\\\"\"]");
+		assertThat(slices.get(0).array()).isSameAs(payload);
+	}
+
+	@Test
+	void testSeparateMessages_UnclosedQuoteReportsCharacter() {
+		String invalidJson = "{\"\u00e9\u00e9\":1}{\"\ud83d\ude00\":\"value}";
+
+		C2CMVTException exception = assertThrows(C2CMVTException.class, () -> {
+			jsonDecoder.separateMessages(invalidJson.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+		});
+
+		assertThat(exception.originalException.getMessage()).isEqualTo("Reached end of file without finding closing double quote starting from character 15");
+	}
+
+	@Test
+	void testSeparateMessages_Utf16ConvertedToUtf8() throws Exception {
+		ArrayList<byte[]> messages = jsonDecoder.separateMessages("{\"key\":\"\u00e9\"} [1]".getBytes(StandardCharsets.UTF_16), StandardCharsets.UTF_16);
+
+		assertThat(messages).hasSize(2);
+		assertThat(new String(messages.get(0), StandardCharsets.UTF_8)).isEqualTo("{\"key\":\"\u00e9\"}");
+		assertThat(new String(messages.get(1), StandardCharsets.UTF_8)).isEqualTo("[1]");
+	}
+
+	@Test
+	void testGetCharset_UnsupportedEncodingThrowsException() {
+		C2CMVTException exception = assertThrows(C2CMVTException.class, () -> Decoder.getCharset("not-an-encoding"));
+
+		assertThat(exception.additionalMessage).isEqualTo("Unsupported encoding not-an-encoding");
+	}
+
+	@Test
+	void testCheckSyntax_SliceIsNotCopied() throws Exception {
+		byte[] payload = "{\"a\":1}{\"key\":\"value\"}".getBytes(StandardCharsets.UTF_8);
+		ArrayList<ByteBuffer> slices = jsonDecoder.separateMessages(ByteBuffer.wrap(payload), StandardCharsets.UTF_8);
+		JsonC2CMessage message = jsonDecoder.checkSyntax(slices.get(1));
+
+		assertThat(message.getBuffer().array()).isSameAs(payload);
+		assertThat(message.getBuffer().remaining()).isEqualTo(15);
+		assertThat(new String(message.getBytes(), StandardCharsets.UTF_8)).isEqualTo("{\"key\":\"value\"}");
+		assertThat(message.getInputStream().readAllBytes()).isEqualTo(message.getBytes());
+	}
+
+	@Test
+	void testSeparateMessagesStream_MessagesSplitAcrossReads() throws Exception {
+		byte[] payload = "\uFEFF{\"a\":\"\u00e9}\"} junk [1,[2]]{\"b\":{}}".getBytes(StandardCharsets.UTF_8);
+		InputStream oneByteAtATime = new ByteArrayInputStream(payload) {
+			@Override
+			public synchronized int read(byte[] bytes, int offset, int length) {
+				return super.read(bytes, offset, Math.min(length, 1));
+			}
+		};
+		List<String> messages = new ArrayList<>();
+		jsonDecoder.separateMessages(oneByteAtATime, StandardCharsets.UTF_8, Integer.MAX_VALUE, message -> messages.add(StandardCharsets.UTF_8.decode(message).toString()));
+
+		assertThat(messages).containsExactly("{\"a\":\"\u00e9}\"}", "[1,[2]]", "{\"b\":{}}");
+	}
+
+	@Test
+	void testSeparateMessagesStream_IncompleteMessageThrowsException() {
+		List<ByteBuffer> messages = new ArrayList<>();
+
+		C2CMVTException exception = assertThrows(C2CMVTException.class, () -> {
+			jsonDecoder.separateMessages(new ByteArrayInputStream("{}{\"key\":".getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8, Integer.MAX_VALUE, messages::add);
+		});
+
+		assertThat(messages).hasSize(1);
+		assertThat(exception.originalException.getMessage()).isEqualTo("JSON data must end with ] or }");
+	}
+
+	@Test
+	void testSeparateMessagesStream_MessageLongerThanMaximumThrowsException() {
+		List<ByteBuffer> messages = new ArrayList<>();
+		byte[] payload = "{\"a\":1} {\"key\":\"value\"}".getBytes(StandardCharsets.UTF_8);
+
+		C2CMVTException exception = assertThrows(C2CMVTException.class, () -> {
+			jsonDecoder.separateMessages(new ByteArrayInputStream(payload), StandardCharsets.UTF_8, 10, messages::add);
+		});
+
+		assertThat(messages).hasSize(1);
+		assertThat(exception.originalException.getMessage()).isEqualTo("Message 2 is longer than the maximum of 10 bytes");
+	}
+
+	@Test
+	void testSeparateMessagesStream_Utf16ConvertedToUtf8() throws Exception {
+		byte[] payload = "{\"key\":\"\u00e9\"} [1]".getBytes(StandardCharsets.UTF_16);
+		List<String> messages = new ArrayList<>();
+		jsonDecoder.separateMessages(new ByteArrayInputStream(payload), StandardCharsets.UTF_16, Integer.MAX_VALUE, message -> messages.add(StandardCharsets.UTF_8.decode(message).toString()));
+
+		assertThat(messages).containsExactly("{\"key\":\"\u00e9\"}", "[1]");
+	}
+}
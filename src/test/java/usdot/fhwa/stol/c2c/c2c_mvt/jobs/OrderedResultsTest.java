@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.jobs;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for OrderedResults
+ */
+class OrderedResultsTest {
+
+	@Test
+	void testComplete_OutOfOrderResultsPassedInOrder() {
+		List<String> received = new ArrayList<>();
+		OrderedResults<String> results = new OrderedResults<>(received::add);
+
+		results.complete(2, "c");
+		assertThat(received).isEmpty();
+		results.complete(0, "a");
+		assertThat(received).containsExactly("a");
+		results.complete(3, "d");
+		results.complete(1, "b");
+		assertThat(received).containsExactly("a", "b", "c", "d");
+	}
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.jobs;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import usdot.fhwa.stol.c2c.c2c_mvt.C2CMVTException;
+
+/**
+ * Unit tests for ValidationJobEngine
+ */
+class ValidationJobEngineTest {
+
+	private ValidationJobEngine engine;
+
+	@BeforeEach
+	void setUp() {
+		engine = new ValidationJobEngine();
+		ReflectionTestUtils.setField(engine, "threads", 1);
+		ReflectionTestUtils.setField(engine, "queueDepth", 1);
+		ReflectionTestUtils.setField(engine, "retainedJobs", 10);
+		ReflectionTestUtils.setField(engine, "maxJobRecords", 10);
+		ReflectionTestUtils.setField(engine, "maxJobMessageTypes", 250);
+		engine.init();
+	}
+
+	@AfterEach
+	void tearDown() {
+		engine.shutdown();
+	}
+
+	private static ValidationJob newJob() {
+		return new ValidationJob("test.json", "ngTMDD", "1.0", "UTF-8", "Auto Detect");
+	}
+
+	private static void waitForJob(ValidationJob job) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (job.isActive() && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+	}
+
+	@Test
+	void testSubmit_RejectsWhenQueueIsFull() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch running = new CountDownLatch(1);
+		ValidationJob first = engine.submit(newJob(), job -> {
+			running.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+		ValidationJob second = engine.submit(newJob(), job -> {});
+		ValidationJob third = newJob();
+
+		assertThatThrownBy(() -> engine.submit(third, job -> {})).isInstanceOf(RejectedExecutionException.class);
+		assertThat(engine.getJob(third.getId())).isNull();
+		assertThat(engine.isValidating()).isTrue();
+		assertThat(second.getStatus()).isEqualTo(ValidationJob.Status.QUEUED);
+
+		release.countDown();
+		waitForJob(first);
+		waitForJob(second);
+		assertThat(first.getStatus()).isEqualTo(ValidationJob.Status.COMPLETED);
+		assertThat(second.getStatus()).isEqualTo(ValidationJob.Status.COMPLETED);
+		assertThat(engine.isValidating()).isFalse();
+	}
+
+	@Test
+	void testSubmit_KeepsRecordsAndStatusPerJob() throws Exception {
+		ValidationJob passed = engine.submit(newJob(), job -> job.addRecord("passed record"));
+		ValidationJob failed = engine.submit(newJob(), job -> {
+			job.addRecord("failed record");
+			job.fail();
+		});
+		waitForJob(passed);
+		waitForJob(failed);
+
+		assertThat(engine.getJob(passed.getId()).getRecords()).containsExactly("passed record");
+		assertThat(engine.getJob(failed.getId()).getRecords()).containsExactly("failed record");
+		assertThat(failed.getStatus()).isEqualTo(ValidationJob.Status.FAILED);
+	}
+
+	@Test
+	void testSubmit_KeepsLatestRecordsUpToMaximum() throws Exception {
+		ReflectionTestUtils.setField(engine, "maxJobRecords", 2);
+		ValidationJob job = engine.submit(newJob(), submitted -> {
+			for (int i = 1; i <= 5; i++)
+				submitted.addRecord("record " + i);
+		});
+		waitForJob(job);
+
+		assertThat(job.getRecords()).containsExactly("record 4", "record 5");
+		assertThat(job.getRecordsOmitted()).isEqualTo(3);
+		assertThat(job.toJson(new ObjectMapper(), true).get("recordsOmitted").asLong()).isEqualTo(3);
+	}
+
+	@Test
+	void testSubmit_MessageTypesPastMaximumCountedAsOther() throws Exception {
+		ReflectionTestUtils.setField(engine, "maxJobMessageTypes", 2);
+		ValidationJob job = engine.submit(newJob(), submitted -> {
+			for (int i = 1; i <= 5; i++)
+				submitted.countMessageType("Type" + i);
+			submitted.countMessageType("Type1");
+		});
+		waitForJob(job);
+
+		JsonNode messageTypes = job.toJson(new ObjectMapper(), false).get("messageTypes");
+		assertThat(messageTypes).hasSize(3);
+		assertThat(messageTypes.get("Type1").asInt()).isEqualTo(2);
+		assertThat(messageTypes.get("Type2").asInt()).isEqualTo(1);
+		assertThat(messageTypes.get(ValidationJob.OTHER_MESSAGE_TYPE).asInt()).isEqualTo(3);
+	}
+
+	@Test
+	void testSubmit_ExceptionMarksJobFailed() throws Exception {
+		ValidationJob job = engine.submit(newJob(), submitted -> {
+			throw new IllegalStateException("boom");
+		});
+		waitForJob(job);
+
+		assertThat(job.getStatus()).isEqualTo(ValidationJob.Status.FAILED);
+		assertThat(engine.isValidating()).isFalse();
+	}
+
+	@Test
+	void testSubmit_StackOverflowMarksJobFailed() throws Exception {
+		ValidationJob job = engine.submit(newJob(), submitted -> {
+			throw new StackOverflowError();
+		});
+		waitForJob(job);
+
+		assertThat(job.getStatus()).isEqualTo(ValidationJob.Status.FAILED);
+		assertThat(engine.isValidating()).isFalse();
+	}
+
+	@Test
+	void testForEachMessage_FailedMessageDoesNotStopOtherMessages() {
+		ReflectionTestUtils.setField(engine, "messageParallelism", 2);
+		List<String> received = new ArrayList<>();
+		OrderedResults<String> results = new OrderedResults<>(received::add);
+		AtomicInteger failures = new AtomicInteger();
+
+		engine.forEachMessage(10, index -> {
+			if (index == 3 && failures.getAndIncrement() == 0)
+				throw new IllegalStateException("boom");
+			results.complete(index, "item " + index);
+		});
+
+		assertThat(failures.get()).isEqualTo(1);
+		assertThat(received).containsExactly("item 0", "item 1", "item 2");
+		results.complete(3, "item 3");
+		assertThat(received).hasSize(10);
+	}
+
+	@Test
+	void testRunOnCallingThread_EvictedJobsPassedToListener() {
+		List<ValidationJob> evicted = new ArrayList<>();
+		engine.setEvictionListener(evicted::add);
+		List<ValidationJob> jobs = new ArrayList<>();
+		for (int i = 0; i < 12; i++)
+			jobs.add(engine.runOnCallingThread(newJob(), job -> {}));
+
+		assertThat(evicted).containsExactly(jobs.get(0), jobs.get(1));
+		assertThat(engine.getJob(jobs.get(0).getId())).isNull();
+		assertThat(engine.getJob(jobs.get(2).getId())).isNotNull();
+	}
+
+	@Test
+	void testForEachStreamedMessage_ProcessesEveryItemWithBoundedQueue() throws Exception {
+		ReflectionTestUtils.setField(engine, "messageParallelism", 3);
+		ReflectionTestUtils.setField(engine, "streamQueueDepth", 1);
+		List<String> received = new ArrayList<>();
+		OrderedResults<String> results = new OrderedResults<>(received::add);
+
+		engine.<Integer>forEachStreamedMessage(sink -> {
+			for (int i = 0; i < 100; i++)
+				sink.accept(i);
+		}, (item, index) -> results.complete(index, "item " + item));
+
+		assertThat(received).hasSize(100);
+		assertThat(received.get(0)).isEqualTo("item 0");
+		assertThat(received.get(99)).isEqualTo("item 99");
+	}
+
+	@Test
+	void testForEachStreamedMessage_NoHelpersWhileWaitingForItems() throws Exception {
+		ReflectionTestUtils.setField(engine, "messageParallelism", 3);
+		ForkJoinPool messagePool = (ForkJoinPool)ReflectionTestUtils.getField(engine, "messagePool");
+		AtomicInteger busyHelpers = new AtomicInteger(-1);
+		AtomicInteger processed = new AtomicInteger();
+
+		engine.<Integer>forEachStreamedMessage(sink -> {
+			sink.accept(1);
+			long deadline = System.currentTimeMillis() + 5000;
+			while (messagePool.getActiveThreadCount() > 0 && System.currentTimeMillis() < deadline)
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+			busyHelpers.set(messagePool.getActiveThreadCount());
+			sink.accept(2);
+		}, (item, index) -> processed.incrementAndGet());
+
+		assertThat(busyHelpers.get()).isZero();
+		assertThat(processed.get()).isEqualTo(2);
+	}
+
+	@Test
+	void testRunOnCallingThread_RejectsPastMaxStreams() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch running = new CountDownLatch(1);
+		Thread stream = new Thread(() -> engine.runOnCallingThread(newJob(), job -> {
+			running.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+		stream.start();
+		assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+		ValidationJob refused = newJob();
+
+		assertThatThrownBy(() -> engine.runOnCallingThread(refused, job -> {})).isInstanceOf(RejectedExecutionException.class);
+		assertThat(engine.getJob(refused.getId())).isNull();
+
+		release.countDown();
+		stream.join(5000);
+		assertThat(engine.runOnCallingThread(newJob(), job -> {}).getStatus()).isEqualTo(ValidationJob.Status.COMPLETED);
+	}
+
+	@Test
+	void testForEachStreamedMessage_ProducerFailureKeepsProducedItems() {
+		ReflectionTestUtils.setField(engine, "messageParallelism", 2);
+		AtomicInteger processed = new AtomicInteger();
+
+		assertThatThrownBy(() -> engine.<Integer>forEachStreamedMessage(sink -> {
+			sink.accept(1);
+			sink.accept(2);
+			throw new C2CMVTException(new Exception("broken stream"), null);
+		}, (item, index) -> processed.incrementAndGet())).isInstanceOf(C2CMVTException.class);
+		assertThat(processed.get()).isEqualTo(2);
+	}
+}
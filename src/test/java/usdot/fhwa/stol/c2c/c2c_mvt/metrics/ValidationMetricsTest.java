@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Path;
+import java.util.List;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import usdot.fhwa.stol.c2c.c2c_mvt.jobs.ValidationJob;
+import usdot.fhwa.stol.c2c.c2c_mvt.metrics.ValidationMetrics.Stage;
+import usdot.fhwa.stol.c2c.c2c_mvt.metrics.ValidationMetrics.StageTimer;
+
+/**
+ * Unit tests for ValidationMetrics
+ */
+class ValidationMetricsTest {
+
+	private SimpleMeterRegistry registry;
+
+	private ValidationMetrics metrics;
+
+	private final ValidationJob job = new ValidationJob("test.json", "ngTMDD", "1.0", "UTF-8", "Auto Detect");
+
+	@BeforeEach
+	void setUp() {
+		registry = new SimpleMeterRegistry();
+		metrics = new ValidationMetrics();
+		ReflectionTestUtils.setField(metrics, "registry", registry);
+		ReflectionTestUtils.setField(metrics, "maxMessageTypes", 2);
+	}
+
+	@Test
+	void testStageTimer_TaggedByStageAndOutcome() throws InterruptedException {
+		StageTimer stageTimer = metrics.startStage(Stage.CHECK_SYNTAX, job, 1, 100);
+		Thread.sleep(5);
+		stageTimer.next(Stage.VALIDATE_MESSAGE, "ActivityLogRequest");
+		stageTimer.end("ActivityLogRequest", false);
+
+		assertThat(registry.get(ValidationMetrics.STAGE_TIMER).tags("stage", "checkSyntax", "outcome", "success", "standard", "ngTMDD", "version", "1.0", "messageType", "ActivityLogRequest")
+			.timer().totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(5);
+		assertThat(registry.get(ValidationMetrics.STAGE_TIMER).tags("stage", "validateMessage", "outcome", "error").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	void testCountMessage_MessageTypesPastTheCapAreOther() {
+		metrics.countMessage(job, "ActivityLogRequest", true, 100);
+		metrics.countMessage(job, null, false, 10);
+		metrics.countMessage(job, "CCTVImageLinkRequest", true, 100);
+		metrics.countMessage(job, "CCTVStatusRequest", false, 100);
+		metrics.countMessage(job, "ActivityLogRequest", false, 100);
+
+		assertThat(registry.get(ValidationMetrics.MESSAGES_COUNTER).tags("messageType", "ActivityLogRequest").counters()).hasSize(2);
+		assertThat(registry.get(ValidationMetrics.MESSAGES_COUNTER).tags("messageType", ValidationMetrics.UNKNOWN).counter().count()).isEqualTo(1);
+		assertThat(registry.get(ValidationMetrics.MESSAGES_COUNTER).tags("messageType", "CCTVImageLinkRequest").counter().count()).isEqualTo(1);
+		assertThat(registry.get(ValidationMetrics.MESSAGES_COUNTER).tags("messageType", ValidationMetrics.OTHER).counter().count()).isEqualTo(1);
+		assertThat(registry.get(ValidationMetrics.BYTES_COUNTER).counter().count()).isEqualTo(410);
+	}
+
+	@Test
+	void testStageTimer_FlightRecorderEventsEmitted(@TempDir Path tempDir) throws Exception {
+		Path file = tempDir.resolve("stages.jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable(MessageStageEvent.NAME).withThreshold(Duration.ZERO);
+			recording.enable(ValidationJobEvent.NAME);
+			recording.start();
+			StageTimer stageTimer = metrics.startStage(Stage.PARSE_MESSAGE, job, 3, 250);
+			stageTimer.end("ActivityLogRequest", false);
+			ValidationJobEvent jobEvent = new ValidationJobEvent();
+			jobEvent.begin();
+			jobEvent.commit(job, 250);
+			recording.stop();
+			recording.dump(file);
+		}
+
+		List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+		RecordedEvent stage = events.stream().filter(event -> event.getEventType().getName().equals(MessageStageEvent.NAME)).findFirst().orElseThrow();
+		assertThat(stage.getString("jobId")).isEqualTo(job.getId());
+		assertThat(stage.getInt("messageNumber")).isEqualTo(3);
+		assertThat(stage.getLong("bytes")).isEqualTo(250);
+		assertThat(stage.getString("messageType")).isEqualTo("ActivityLogRequest");
+		assertThat(stage.getString("stage")).isEqualTo("parseMessage");
+		assertThat(stage.getString("outcome")).isEqualTo("error");
+		RecordedEvent jobRecorded = events.stream().filter(event -> event.getEventType().getName().equals(ValidationJobEvent.NAME)).findFirst().orElseThrow();
+		assertThat(jobRecorded.getString("fileName")).isEqualTo("test.json");
+		assertThat(jobRecorded.getString("outcome")).isEqualTo("completed");
+	}
+}
@@ -3,6 +3,7 @@ package usdot.fhwa.stol.c2c.c2c_mvt.parsers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.assertj.core.api.Assertions;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import usdot.fhwa.stol.c2c.c2c_mvt.decoders.JsonDecoder;
 import usdot.fhwa.stol.c2c.c2c_mvt.C2CMVTException;
@@ -15,7 +16,6 @@ class NGTMDDJsonParserTest {
     @BeforeEach
     void setUp() {
         jsonDecoder = new JsonDecoder();
-        jsonDecoder.setEncoding(StandardCharsets.UTF_8.name());
         parser = new NGTMDDJsonParser();
     }
 
@@ -92,4 +92,22 @@ class NGTMDDJsonParserTest {
             Assertions.fail("Exception was thrown when it was not expected", exception);
         }
     }
-}
\ No newline at end of file
+
+    // 7. Message type read from the bytes, skipping values before it
+    @Test
+    void testSniffMessageType_SkipsOtherValues() {
+        String jsonMessage = "{\"header\": {\"messageType\": \"wrong\", \"list\": [\"}\", {}]}, \"message\": {\"id\": 1, \"messageType\": \"Dms\\u0053tatus\"}}";
+        ByteBuffer bytes = ByteBuffer.wrap(jsonMessage.getBytes(StandardCharsets.UTF_8));
+
+        Assertions.assertThat(parser.sniffMessageType(bytes)).isEqualTo("DmsStatus");
+        Assertions.assertThat(bytes.position()).isZero();
+    }
+
+    // 8. Message type that cannot be read from the bytes
+    @Test
+    void testSniffMessageType_NotFoundReturnsNull() {
+        Assertions.assertThat(parser.sniffMessageType(ByteBuffer.wrap("{\"message\":{\"messageType\":123}}".getBytes(StandardCharsets.UTF_8)))).isNull();
+        Assertions.assertThat(parser.sniffMessageType(ByteBuffer.wrap("[{\"message\":{\"messageType\":\"X\"}}]".getBytes(StandardCharsets.UTF_8)))).isNull();
+        Assertions.assertThat(parser.sniffMessageType(ByteBuffer.wrap("{\"message\":{\"messageType\":\"X".getBytes(StandardCharsets.UTF_8)))).isNull();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.records;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for ValidationRecordStore
+ */
+class ValidationRecordStoreTest {
+
+	@Test
+	void testReadSince_ReturnsRecordsAfterCursorUpToLimit() {
+		ValidationRecordStore store = new ValidationRecordStore(10);
+		assertThat(store.append("a")).isEqualTo(1);
+		assertThat(store.append("b")).isEqualTo(2);
+		assertThat(store.append("c")).isEqualTo(3);
+
+		List<String> records = new ArrayList<>();
+		long first = store.readSince(1, 1, records);
+
+		assertThat(first).isEqualTo(2);
+		assertThat(records).containsExactly("b");
+	}
+
+	@Test
+	void testAppend_OverwritesOldestWhenFull() {
+		ValidationRecordStore store = new ValidationRecordStore(3);
+		for (String record : new String[] {"a", "b", "c", "d", "e"})
+			store.append(record);
+
+		List<String> records = new ArrayList<>();
+		long first = store.readSince(0, Integer.MAX_VALUE, records);
+
+		assertThat(first).isEqualTo(3);
+		assertThat(records).containsExactly("c", "d", "e");
+		ObjectNode statistics = store.getStatisticsAsJson(new ObjectMapper());
+		assertThat(statistics.get("evicted").asLong()).isEqualTo(2);
+		assertThat(statistics.get("size").asLong()).isEqualTo(3);
+		assertThat(statistics.get("retainedChars").asLong()).isEqualTo(3);
+	}
+
+	@Test
+	void testClear_KeepsSequenceNumbers() {
+		ValidationRecordStore store = new ValidationRecordStore(4);
+		store.append("a");
+		store.append("b");
+
+		assertThat(store.clear()).isEqualTo(2);
+		assertThat(store.getSize()).isZero();
+		assertThat(store.append("c")).isEqualTo(3);
+
+		List<String> records = new ArrayList<>();
+		assertThat(store.readSince(0, Integer.MAX_VALUE, records)).isEqualTo(3);
+		assertThat(records).containsExactly("c");
+	}
+
+	@Test
+	void testExpireBefore_RemovesOldestRecords() throws InterruptedException {
+		ValidationRecordStore store = new ValidationRecordStore(10);
+		store.append("a");
+		store.append("b");
+		store.append("c");
+		Thread.sleep(5);
+		long cutoff = System.currentTimeMillis();
+		store.append("d");
+
+		assertThat(store.expireBefore(cutoff, 2)).isEqualTo(2);
+		assertThat(store.expireBefore(cutoff, 10)).isEqualTo(1);
+		assertThat(store.expireBefore(cutoff, 10)).isZero();
+
+		List<String> records = new ArrayList<>();
+		assertThat(store.readSince(0, Integer.MAX_VALUE, records)).isEqualTo(4);
+		assertThat(records).containsExactly("d");
+		assertThat(store.getSize()).isEqualTo(1);
+		assertThat(store.getClearedThrough()).isZero();
+	}
+}
@@ -60,6 +60,20 @@ class C2CMVTStandardsTest {
         assertThat(validator.getClass().getSimpleName()).isEqualTo("NGTMDDJsonValidator");
     }
 
+    @Test
+    void testGetComponentInstances_SharedBetweenCalls() throws Exception {
+        assertThat(standards.getDecoderInstance("ngTMDD", "1.0")).isSameAs(standards.getDecoderInstance("ngTMDD", "1.0"));
+        assertThat(standards.getParserInstance("ngTMDD", "1.0")).isSameAs(standards.getParserInstance("ngTMDD", "1.0"));
+        assertThat(standards.getValidatorInstance("ngTMDD", "1.0")).isSameAs(standards.getValidatorInstance("ngTMDD", "1.0"));
+    }
+
+    @Test
+    void testMissingValidatorClass_FailsWhenConfigurationIsRead() {
+        assertThatThrownBy(() -> new C2CMVTStandards(new ClassPathResource("c2c-mvt-missing-validator.json")))
+                .isInstanceOf(C2CMVTException.class)
+                .hasMessage("Failed to instantiate validator for version 1.0 of standard ngTMDD");
+    }
+
     @Test
     void testThrowsExceptionForUnknownStandard() {
         assertThatThrownBy(() -> standards.getVersionsAsJsonArray("unknown"))
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import usdot.fhwa.stol.c2c.c2c_mvt.jobs.ValidationJob;
+
+/**
+ * Unit tests for MessageStore
+ */
+class MessageStoreTest {
+
+	@TempDir
+	Path directory;
+
+	private MessageStore store;
+
+	private final ByteBuffer heartbeat = ByteBuffer.wrap("{\"message\": {\"messageType\": \"Heartbeat\"}}".getBytes(StandardCharsets.UTF_8));
+
+	@BeforeEach
+	void setUp() throws Exception {
+		store = new MessageStore();
+		ReflectionTestUtils.setField(store, "queueDepth", 16);
+		ReflectionTestUtils.setField(store, "segmentBytes", 64L);
+		ReflectionTestUtils.setField(store, "fsync", "batch");
+		store.open(directory);
+	}
+
+	@AfterEach
+	void tearDown() {
+		store.close();
+	}
+
+	private static String read(MessageStore.Location location) throws IOException {
+		byte[] segment = Files.readAllBytes(location.segment());
+		return new String(segment, (int)location.offset(), location.length(), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	void testStore_IdenticalMessagesWrittenOnce() throws Exception {
+		ValidationJob job = new ValidationJob("a.json", "ngTMDD", "1.0", "UTF-8", "Auto Detect");
+		String id = MessageStore.hash(heartbeat);
+		for (int i = 0; i < 3; i++)
+			store.store(job, id, heartbeat, ".json");
+		store.flush(job);
+
+		assertThat(id).hasSize(64);
+		assertThat(heartbeat.position()).isZero();
+		List<MessageStore.Location> locations = store.getLocations();
+		assertThat(locations).hasSize(1);
+		assertThat(locations.get(0).name()).isEqualTo(id + ".json");
+		assertThat(read(locations.get(0))).isEqualTo("{\"message\": {\"messageType\": \"Heartbeat\"}}");
+		assertThat(store.getStoredMessages()).isEqualTo(1);
+		assertThat(store.getDuplicates()).isEqualTo(2);
+		assertThat(store.getBytesOnDisk()).isEqualTo(heartbeat.remaining());
+	}
+
+	@Test
+	void testStore_MessagesAppendedToSegments() throws Exception {
+		ValidationJob job = new ValidationJob("a.json", "ngTMDD", "1.0", "UTF-8", "Auto Detect");
+		for (int i = 0; i < 10; i++) {
+			ByteBuffer message = ByteBuffer.wrap(("{\"message\": {\"number\": " + i + "}}").getBytes(StandardCharsets.UTF_8));
+			store.store(job, MessageStore.hash(message), message, ".json");
+			store.flush(job);
+		}
+
+		List<MessageStore.Location> locations = store.getLocations();
+		assertThat(locations).hasSize(10);
+		for (MessageStore.Location location : locations)
+			assertThat(location.name()).isEqualTo(MessageStore.hash(ByteBuffer.wrap(read(location).getBytes(StandardCharsets.UTF_8))) + ".json");
+		try (var files = Files.list(directory)) {
+			assertThat(files).hasSize(5);
+		}
+	}
+
+	@Test
+	void testRelease_DeletedWhenNoJobReferencesIt() throws Exception {
+		ValidationJob first = new ValidationJob("a.json", "ngTMDD", "1.0", "UTF-8", "Auto Detect");
+		ValidationJob second = new ValidationJob("b.json", "ngTMDD", "1.0", "UTF-8", "Auto Detect");
+		String id = MessageStore.hash(heartbeat);
+		store.store(first, id, heartbeat, ".json");
+		store.store(second, id, heartbeat, ".json");
+		store.store(second, id, heartbeat, ".json");
+		store.flush(second);
+
+		store.release(first);
+		assertThat(store.getLocations()).hasSize(1);
+
+		store.release(second);
+		assertThat(store.getLocations()).isEmpty();
+		assertThat(store.getStoredMessages()).isZero();
+	}
+
+	@Test
+	void testRelease_EvictedMessageStoredAgainKeptForNewJob() throws Exception {
+		ValidationJob first = new ValidationJob("a.json", "ngTMDD", "1.0", "UTF-8", "Auto Detect");
+		ValidationJob second = new ValidationJob("b.json", "ngTMDD", "1.0", "UTF-8", "Auto Detect");
+		String id = MessageStore.hash(heartbeat);
+		store.store(first, id, heartbeat, ".json");
+		store.flush(first);
+
+		assertThat(store.evictOldestSegment(Long.MAX_VALUE, 0, 0)).isPositive();
+		assertThat(store.getLocations()).isEmpty();
+		assertThat(store.getStoredMessages()).isZero();
+
+		store.store(second, id, heartbeat, ".json");
+		store.flush(second);
+		store.release(first);
+
+		List<MessageStore.Location> locations = store.getLocations();
+		assertThat(locations).hasSize(1);
+		assertThat(read(locations.get(0))).isEqualTo("{\"message\": {\"messageType\": \"Heartbeat\"}}");
+		assertThat(store.getStoredMessages()).isEqualTo(1);
+
+		store.release(second);
+		assertThat(store.getLocations()).isEmpty();
+		assertThat(store.getStoredMessages()).isZero();
+		assertThat(store.getSegmentCount()).isLessThanOrEqualTo(1);
+	}
+
+	@Test
+	void testClear_MessageStoredAgainWhilePendingWrittenOnce() throws Exception {
+		ValidationJob first = new ValidationJob("a.json", "ngTMDD", "1.0", "UTF-8", "Auto Detect");
+		ValidationJob second = new ValidationJob("b.json", "ngTMDD", "1.0", "UTF-8", "Auto Detect");
+		ByteBuffer other = ByteBuffer.wrap("{\"message\": {\"messageType\": \"Other\"}}".getBytes(StandardCharsets.UTF_8));
+		String id = MessageStore.hash(heartbeat);
+		Object segmentLock = ReflectionTestUtils.getField(store, "segmentLock");
+		ArrayBlockingQueue<?> queue = (ArrayBlockingQueue<?>)ReflectionTestUtils.getField(store, "queue");
+		synchronized (segmentLock) {
+			store.store(first, MessageStore.hash(other), other, ".json");
+			long deadline = System.currentTimeMillis() + 5000;
+			while (!queue.isEmpty() && System.currentTimeMillis() < deadline)
+				Thread.sleep(10);
+			Thread.sleep(50); // the writer is waiting for the lock with a batch of only the first message
+
+			store.store(first, id, heartbeat, ".json");
+			store.clear();
+			store.store(second, id, heartbeat, ".json");
+		}
+		store.flush(second);
+
+		assertThat(store.getBytesOnDisk()).isEqualTo(heartbeat.remaining());
+		List<MessageStore.Location> locations = store.getLocations();
+		assertThat(locations).hasSize(1);
+		assertThat(read(locations.get(0))).isEqualTo("{\"message\": {\"messageType\": \"Heartbeat\"}}");
+
+		store.release(first);
+		store.release(second);
+		assertThat(store.getLocations()).isEmpty();
+		assertThat(store.getStoredMessages()).isZero();
+	}
+
+	@Test
+	void testFlush_WriteFailureReportedToJob() throws Exception {
+		ValidationJob job = new ValidationJob("a.json", "ngTMDD", "1.0", "UTF-8", "Auto Detect");
+		store.clear();
+		ReflectionTestUtils.setField(store, "directory", directory.resolve("missing"));
+		store.store(job, MessageStore.hash(heartbeat), heartbeat, ".json");
+
+		assertThatThrownBy(() -> store.flush(job)).isInstanceOf(IOException.class).hasMessageContaining("1 message(s)");
+		assertThat(store.getStoredMessages()).isZero();
+		store.flush(job);
+	}
+
+	@Test
+	void testClear_DeletesEveryFile() throws Exception {
+		ValidationJob job = new ValidationJob("a.json", "ngTMDD", "1.0", "UTF-8", "Auto Detect");
+		ByteBuffer other = ByteBuffer.wrap("{\"message\": {}}".getBytes(StandardCharsets.UTF_8));
+		store.store(job, MessageStore.hash(heartbeat), heartbeat, ".json");
+		store.store(job, MessageStore.hash(other), other, ".json");
+		store.flush(job);
+
+		store.clear();
+
+		try (var files = Files.list(directory)) {
+			assertThat(files).isEmpty();
+		}
+		assertThat(store.getBytesOnDisk()).isZero();
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import usdot.fhwa.stol.c2c.c2c_mvt.jobs.ValidationJob;
+import usdot.fhwa.stol.c2c.c2c_mvt.metrics.ValidationMetrics;
+import usdot.fhwa.stol.c2c.c2c_mvt.records.ValidationRecordStore;
+
+/**
+ * Unit tests for RetentionJanitor
+ */
+class RetentionJanitorTest {
+
+	@TempDir
+	Path directory;
+
+	private MessageStore store;
+
+	private RetentionJanitor janitor;
+
+	private SimpleMeterRegistry registry;
+
+	private final ValidationJob job = new ValidationJob("a.json", "ngTMDD", "1.0", "UTF-8", "Auto Detect");
+
+	@BeforeEach
+	void setUp() throws Exception {
+		store = new MessageStore();
+		ReflectionTestUtils.setField(store, "queueDepth", 16);
+		ReflectionTestUtils.setField(store, "segmentBytes", 1L);
+		ReflectionTestUtils.setField(store, "fsync", "never");
+		store.open(directory);
+
+		registry = new SimpleMeterRegistry();
+		ValidationMetrics metrics = new ValidationMetrics();
+		ReflectionTestUtils.setField(metrics, "registry", registry);
+		janitor = new RetentionJanitor();
+		ReflectionTestUtils.setField(janitor, "messageStore", store);
+		ReflectionTestUtils.setField(janitor, "metrics", metrics);
+		ReflectionTestUtils.setField(janitor, "batchSize", 2);
+		janitor.init();
+	}
+
+	@AfterEach
+	void tearDown() {
+		janitor.shutdown();
+		store.close();
+	}
+
+	private void storeMessages(int count) throws Exception {
+		for (int i = 0; i < count; i++) {
+			ByteBuffer message = ByteBuffer.wrap(("{\"message\": {\"number\": " + i + "}}").getBytes(StandardCharsets.UTF_8));
+			store.store(job, MessageStore.hash(message), message, ".json");
+			store.flush(job);
+		}
+	}
+
+	@Test
+	void testEvict_OldestSegmentsPastMaxFiles() throws Exception {
+		ReflectionTestUtils.setField(janitor, "maxFiles", 2);
+		storeMessages(5);
+		assertThat(store.getSegmentCount()).isEqualTo(5);
+		String newest = store.getLocations().get(4).name();
+
+		assertThat(janitor.evict(System.currentTimeMillis())).isTrue();
+		assertThat(janitor.evict(System.currentTimeMillis())).isFalse();
+
+		assertThat(store.getSegmentCount()).isEqualTo(2);
+		assertThat(store.getStoredMessages()).isEqualTo(2);
+		assertThat(store.getLocations()).extracting(MessageStore.Location::name).contains(newest);
+		try (var files = Files.list(directory)) {
+			assertThat(files).hasSize(2);
+		}
+		assertThat(registry.get("c2cmvt.retention.reclaimed").counter().count()).isEqualTo(3 * 26);
+	}
+
+	@Test
+	void testEvict_MessagesAndRecordsPastTtl() throws Exception {
+		ReflectionTestUtils.setField(janitor, "ttl", 60000L);
+		ValidationRecordStore records = new ValidationRecordStore(10);
+		records.append("first record");
+		records.append("second record");
+		janitor.setRecordStore(() -> records);
+		storeMessages(1);
+
+		janitor.evict(System.currentTimeMillis());
+		assertThat(store.getSegmentCount()).isEqualTo(1);
+		assertThat(records.getSize()).isEqualTo(2);
+
+		janitor.evict(System.currentTimeMillis() + 120000);
+		assertThat(store.getSegmentCount()).isZero();
+		assertThat(store.getStoredMessages()).isZero();
+		assertThat(store.getBytesOnDisk()).isZero();
+		assertThat(records.getSize()).isZero();
+		assertThat(registry.get("c2cmvt.retention.records").counter().count()).isEqualTo(2);
+	}
+
+	@Test
+	void testReleaseJob_MessagesKeptUntilRecordsOfJobRemoved() throws Exception {
+		ValidationRecordStore records = new ValidationRecordStore(2);
+		janitor.setRecordStore(() -> records);
+		storeMessages(1);
+		job.addRecord("record of job", records.append("record of job"));
+
+		janitor.releaseJob(job);
+		assertThat(store.getStoredMessages()).isEqualTo(1);
+
+		records.append("second record");
+		janitor.evict(System.currentTimeMillis());
+		assertThat(store.getStoredMessages()).isEqualTo(1);
+		assertThat(store.getLocations()).hasSize(1);
+
+		records.append("third record");
+		janitor.evict(System.currentTimeMillis());
+		assertThat(store.getStoredMessages()).isZero();
+		assertThat(store.getLocations()).isEmpty();
+	}
+
+	@Test
+	void testReleaseJob_MessagesReleasedOnceLogReset() throws Exception {
+		ValidationRecordStore records = new ValidationRecordStore(10);
+		janitor.setRecordStore(() -> records);
+		storeMessages(1);
+		job.addRecord("record of job", records.append("record of job"));
+		janitor.releaseJob(job);
+		assertThat(store.getStoredMessages()).isEqualTo(1);
+
+		records.clear();
+		janitor.releaseMessagesOfRemovedRecords();
+		assertThat(store.getStoredMessages()).isZero();
+	}
+
+	@Test
+	void testReleaseJob_RecordsAlreadyRemovedReleasedRightAway() throws Exception {
+		ValidationRecordStore records = new ValidationRecordStore(1);
+		janitor.setRecordStore(() -> records);
+		storeMessages(1);
+		job.addRecord("record of job", records.append("record of job"));
+		records.append("later record");
+
+		janitor.releaseJob(job);
+		assertThat(store.getStoredMessages()).isZero();
+	}
+}
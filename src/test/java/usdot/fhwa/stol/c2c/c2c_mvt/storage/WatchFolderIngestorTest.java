@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import usdot.fhwa.stol.c2c.c2c_mvt.jobs.ValidationJob;
+import usdot.fhwa.stol.c2c.c2c_mvt.jobs.ValidationJobEngine;
+import usdot.fhwa.stol.c2c.c2c_mvt.metrics.ValidationMetrics;
+
+/**
+ * Unit tests for WatchFolderIngestor
+ */
+class WatchFolderIngestorTest {
+
+	@TempDir
+	Path directory;
+
+	@TempDir
+	Path workingDirectory;
+
+	private ValidationJobEngine engine;
+
+	private final List<String> validated = new CopyOnWriteArrayList<>();
+
+	private final List<String> errors = new CopyOnWriteArrayList<>();
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@BeforeEach
+	void setUp() {
+		engine = new ValidationJobEngine();
+		ReflectionTestUtils.setField(engine, "threads", 2);
+		ReflectionTestUtils.setField(engine, "queueDepth", 4);
+		ReflectionTestUtils.setField(engine, "retainedJobs", 10);
+		engine.init();
+	}
+
+	@AfterEach
+	void tearDown() {
+		engine.shutdown();
+	}
+
+	private WatchFolderIngestor newIngestor(String processedDirectory) throws Exception {
+		ValidationMetrics metrics = new ValidationMetrics();
+		ReflectionTestUtils.setField(metrics, "registry", new SimpleMeterRegistry());
+		WatchFolderIngestor ingestor = new WatchFolderIngestor();
+		ReflectionTestUtils.setField(ingestor, "directories", new String[] {directory.toString()});
+		ReflectionTestUtils.setField(ingestor, "standard", "ngTMDD");
+		ReflectionTestUtils.setField(ingestor, "version", "1.0");
+		ReflectionTestUtils.setField(ingestor, "encoding", "UTF-8");
+		ReflectionTestUtils.setField(ingestor, "messageType", "Auto Detect");
+		ReflectionTestUtils.setField(ingestor, "stableTime", 100L);
+		ReflectionTestUtils.setField(ingestor, "maxJobs", 1);
+		ReflectionTestUtils.setField(ingestor, "processedDirectory", processedDirectory);
+		ReflectionTestUtils.setField(ingestor, "maxAttempts", 3);
+		ReflectionTestUtils.setField(ingestor, "failedDirectory", "failed");
+		ReflectionTestUtils.setField(ingestor, "jobEngine", engine);
+		ReflectionTestUtils.setField(ingestor, "metrics", metrics);
+		BiConsumer<ValidationJob, Path> validator = (job, file) -> {
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			validated.add(job.getFileName());
+		};
+		ReflectionTestUtils.setField(ingestor, "validator", validator);
+		BiConsumer<ValidationJob, String> errorLog = (job, message) -> errors.add(message);
+		ReflectionTestUtils.setField(ingestor, "errorLog", errorLog);
+		ingestor.open(workingDirectory.resolve(WatchFolderIngestor.CHECKPOINT_FILE));
+		return ingestor;
+	}
+
+	private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+	}
+
+	@Test
+	void testScan_StableFilesValidatedAndMoved() throws Exception {
+		Files.writeString(directory.resolve("a.json"), "{}");
+		Files.writeString(directory.resolve("b.json"), "{}");
+		Files.writeString(directory.resolve("c.json.part"), "{}");
+		WatchFolderIngestor ingestor = newIngestor("processed");
+
+		ingestor.scan(0);
+		ingestor.scan(50);
+		assertThat(engine.getActiveJobs()).isZero();
+
+		ingestor.scan(100);
+		ingestor.scan(200);
+		assertThat(engine.getActiveJobs()).isEqualTo(1);
+
+		release.countDown();
+		waitFor(() -> validated.size() == 1);
+		waitFor(() -> engine.getActiveJobs() == 0);
+		ingestor.scan(300);
+		waitFor(() -> validated.size() == 2 && Files.exists(directory.resolve("processed").resolve("b.json")));
+		ingestor.shutdown();
+
+		assertThat(validated).containsExactlyInAnyOrder("a.json", "b.json");
+		assertThat(directory.resolve("processed").resolve("a.json")).exists();
+		assertThat(directory.resolve("a.json")).doesNotExist();
+		assertThat(directory.resolve("c.json.part")).exists();
+		assertThat(Files.readAllLines(workingDirectory.resolve(WatchFolderIngestor.CHECKPOINT_FILE))).hasSize(2);
+	}
+
+	@Test
+	void testOpen_CheckpointedFilesNotValidatedAfterRestart() throws Exception {
+		release.countDown();
+		Path file = directory.resolve("capture.json");
+		Files.writeString(file, "{}");
+		WatchFolderIngestor ingestor = newIngestor("");
+		ingestor.scan(0);
+		ingestor.scan(100);
+		waitFor(() -> validated.size() == 1 && engine.getActiveJobs() == 0);
+		ingestor.shutdown();
+
+		WatchFolderIngestor restarted = newIngestor("");
+		restarted.scan(1000);
+		restarted.scan(1100);
+		Thread.sleep(100);
+		assertThat(validated).hasSize(1);
+		assertThat(file).exists();
+
+		Files.writeString(file, "{\"message\": {}}");
+		for (long now = 2000; validated.size() < 2 && now < 7000; now += 100) {
+			restarted.scan(now);
+			Thread.sleep(100);
+		}
+		restarted.shutdown();
+		assertThat(validated).containsExactly("capture.json", "capture.json");
+	}
+
+	@Test
+	void testScan_FileRequeuedWhenValidationThrows() throws Exception {
+		Path file = directory.resolve("capture.json");
+		Files.writeString(file, "{}");
+		WatchFolderIngestor ingestor = newIngestor("processed");
+		AtomicInteger attempts = new AtomicInteger();
+		BiConsumer<ValidationJob, Path> validator = (job, validatedFile) -> {
+			if (attempts.incrementAndGet() == 1)
+				throw new IllegalStateException("failed");
+			validated.add(job.getFileName());
+		};
+		ReflectionTestUtils.setField(ingestor, "validator", validator);
+
+		ingestor.scan(0);
+		ingestor.scan(100);
+		waitFor(() -> attempts.get() == 1 && engine.getActiveJobs() == 0);
+		assertThat(file).exists();
+		assertThat(workingDirectory.resolve(WatchFolderIngestor.CHECKPOINT_FILE)).doesNotExist();
+
+		for (long now = 200; validated.isEmpty() && now < 5000; now += 100) {
+			ingestor.scan(now);
+			Thread.sleep(20);
+		}
+		waitFor(() -> Files.exists(directory.resolve("processed").resolve("capture.json")));
+		ingestor.shutdown();
+
+		assertThat(attempts.get()).isEqualTo(2);
+		assertThat(validated).containsExactly("capture.json");
+		assertThat(Files.readAllLines(workingDirectory.resolve(WatchFolderIngestor.CHECKPOINT_FILE))).hasSize(1);
+	}
+
+	@Test
+	void testScan_FileMovedToFailedAfterMaximumAttempts() throws Exception {
+		Path file = directory.resolve("capture.json");
+		Files.writeString(file, "{}");
+		WatchFolderIngestor ingestor = newIngestor("processed");
+		AtomicInteger attempts = new AtomicInteger();
+		BiConsumer<ValidationJob, Path> validator = (job, validatedFile) -> {
+			attempts.incrementAndGet();
+			throw new IllegalStateException("failed");
+		};
+		ReflectionTestUtils.setField(ingestor, "validator", validator);
+
+		for (long now = 0; !Files.exists(directory.resolve("failed").resolve("capture.json")) && now < 10000; now += 100) {
+			ingestor.scan(now);
+			Thread.sleep(20);
+		}
+		for (long now = 10000; now < 12000; now += 100)
+			ingestor.scan(now);
+		waitFor(() -> engine.getActiveJobs() == 0);
+		ingestor.shutdown();
+
+		assertThat(attempts.get()).isEqualTo(3);
+		assertThat(directory.resolve("failed").resolve("capture.json")).exists();
+		assertThat(file).doesNotExist();
+		assertThat(errors).hasSize(1);
+		assertThat(errors.get(0)).contains("after 3 failed attempts");
+		assertThat(Files.readAllLines(workingDirectory.resolve(WatchFolderIngestor.CHECKPOINT_FILE))).hasSize(1);
+	}
+}
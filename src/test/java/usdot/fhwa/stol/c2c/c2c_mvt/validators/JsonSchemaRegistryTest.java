@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.validators;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.erosb.jsonsKema.Schema;
+
+/**
+ * Unit tests for JsonSchemaRegistry
+ */
+class JsonSchemaRegistryTest {
+
+	private static final String SCHEMA_PATH = "ngTMDD/ngTMDD_Schema_v1.0.json";
+
+	@BeforeEach
+	void setUp() {
+		JsonSchemaRegistry.clear();
+	}
+
+	@Test
+	void testGetSchema_ReturnsSameInstance() throws Exception {
+		Schema first = JsonSchemaRegistry.getSchema(new ClassPathResource(SCHEMA_PATH));
+		Schema second = JsonSchemaRegistry.getSchema(new ClassPathResource(SCHEMA_PATH));
+
+		assertThat(first).isNotNull();
+		assertThat(second).isSameAs(first);
+	}
+
+	@Test
+	void testGetSchema_ConcurrentRequestsBuildOnce() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Schema>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++)
+				futures.add(executor.submit(() -> JsonSchemaRegistry.getSchema(new ClassPathResource(SCHEMA_PATH))));
+
+			Schema expected = futures.get(0).get();
+			for (Future<Schema> future : futures)
+				assertThat(future.get()).isSameAs(expected);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		JsonNode stats = new ObjectMapper().readTree(JsonSchemaRegistry.getStatisticsAsJsonArray());
+		assertThat(stats).hasSize(1);
+		assertThat(stats.get(0).get("schema").asText()).isEqualTo(SCHEMA_PATH);
+		assertThat(stats.get(0).get("hits").asLong()).isEqualTo(7);
+		assertThat(stats.get(0).get("schemaBytes").asLong()).isPositive();
+	}
+
+	@Test
+	void testGetFingerprint_HashOfSchemaFile() throws Exception {
+		String fingerprint = JsonSchemaRegistry.getFingerprint(new ClassPathResource(SCHEMA_PATH));
+
+		assertThat(fingerprint).hasSize(64).matches("[0-9a-f]+");
+		assertThat(JsonSchemaRegistry.getFingerprint(new ClassPathResource(SCHEMA_PATH))).isEqualTo(fingerprint);
+		assertThatThrownBy(() -> JsonSchemaRegistry.getFingerprint(new ClassPathResource("missing-schema.json")))
+				.isInstanceOf(IOException.class);
+	}
+
+	@Test
+	void testGetSchema_MissingFileThrowsException() {
+		assertThatThrownBy(() -> JsonSchemaRegistry.getSchema(new ClassPathResource("missing-schema.json")))
+				.isInstanceOf(IOException.class);
+	}
+}
@@ -11,15 +11,18 @@ import com.github.erosb.jsonsKema.ValidatorConfig;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.core.io.ClassPathResource;
+import usdot.fhwa.stol.c2c.c2c_mvt.C2CMVTException;
 import usdot.fhwa.stol.c2c.c2c_mvt.messages.JsonC2CMessage;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 class NGTMDDJsonValidatorTest {
 
@@ -105,6 +108,60 @@ class NGTMDDJsonValidatorTest {
         assertThat(errorMsg).contains("the \"BAD_ENUM\" is not equal to any enum values");
     }
 
+    @Test
+    void testGetErrors_InvalidEnumValuePointer() {
+        String instanceStr = """
+        {
+          "message": {
+            "messageType": "DMSControlRequest",
+            "mode": "BAD_ENUM"
+          }
+        }
+        """;
+
+        JsonValue schemaJson = new JsonParser(SCHEMA).parse();
+        Schema schema = new SchemaLoader(schemaJson).load();
+        JsonValue instanceJson = new JsonParser(instanceStr).parse();
+
+        Validator validator = Validator.create(schema, new ValidatorConfig(FormatValidationPolicy.ALWAYS));
+        ValidationFailure failure = validator.validate(instanceJson);
+
+        NGTMDDJsonValidator ngValidator = new NGTMDDJsonValidator(new ClassPathResource("dummy-schema.json"));
+        JsonC2CMessage message = new JsonC2CMessage(instanceStr.getBytes(StandardCharsets.UTF_8), instanceJson);
+        message.setMessageType("DMSControlRequest");
+
+        List<ValidationError> errors = ngValidator.getErrors(failure, message);
+        assertThat(errors).hasSize(1);
+        assertThat(errors.get(0).getPointer()).isEqualTo("/message/mode");
+        assertThat(errors.get(0).getSchemaPointer()).startsWith("#/DMSControlRequest");
+        assertThat(errors.get(0).getMessage()).contains("enum");
+    }
+
+    @Test
+    void testGetErrors_InvalidMessageType() {
+        String instanceStr = """
+        {
+          "message": {
+            "messageType": "InvalidType"
+          }
+        }
+        """;
+
+        JsonValue schemaJson = new JsonParser(SCHEMA).parse();
+        Schema schema = new SchemaLoader(schemaJson).load();
+        JsonValue instanceJson = new JsonParser(instanceStr).parse();
+
+        Validator validator = Validator.create(schema, new ValidatorConfig(FormatValidationPolicy.ALWAYS));
+        ValidationFailure failure = validator.validate(instanceJson);
+
+        NGTMDDJsonValidator ngValidator = new NGTMDDJsonValidator(new ClassPathResource("dummy-schema.json"));
+        JsonC2CMessage message = new JsonC2CMessage(instanceStr.getBytes(StandardCharsets.UTF_8), instanceJson);
+        message.setMessageType("InvalidType");
+
+        List<ValidationError> errors = ngValidator.getErrors(failure, message);
+        assertThat(errors).extracting(ValidationError::getPointer).containsExactly("/message/messageType");
+    }
+
     @Test
     void testGetErrorMessage_MissingRequiredField() {
         String instanceStr = """
@@ -195,4 +252,83 @@ class NGTMDDJsonValidatorTest {
         assertThat(errorText).contains("required properties are missing: cctvId");
         assertThat(errorText).contains("the \"suppressed\" is not equal to any enum values");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetMessageTypes_ReadsOneOfReferences() throws Exception {
+        NGTMDDJsonValidator ngValidator = new NGTMDDJsonValidator(new ClassPathResource("ngTMDD/ngTMDD_Schema_v1.0.json"));
+
+        assertThat(ngValidator.getMessageTypes()).contains("ActivityLogRequest", "CCTVImageLinkRequest");
+        assertThat(ngValidator.getMessageTypes()).doesNotContain("$defs");
+    }
+
+    @Test
+    void testValidateMessage_KnownMessageTypeValid() throws Exception {
+        String instanceStr = """
+        {
+          "message": {
+            "messageType": "ActivityLogRequest",
+            "ownerOrganizationId": "org_id",
+            "externalOrganizationId": "ext_org_id",
+            "requestId": "request_id"
+          }
+        }
+        """;
+        NGTMDDJsonValidator ngValidator = new NGTMDDJsonValidator(new ClassPathResource("ngTMDD/ngTMDD_Schema_v1.0.json"));
+        JsonC2CMessage message = new JsonC2CMessage(instanceStr.getBytes(StandardCharsets.UTF_8), new JsonParser(instanceStr).parse());
+        message.setMessageType("ActivityLogRequest");
+
+        ngValidator.validateMessage(message);
+    }
+
+    @Test
+    void testValidateMessage_KnownMessageTypeInvalid() {
+        String instanceStr = """
+        {
+          "message":
+          {
+            "messageType": "CCTVImageLinkRequest",
+            "deviceInformationRequest":
+            {
+              "ownerOrganization": 
+              {
+                "organizationId": "myorg"
+              },
+              "deviceType": "cctv camera",
+              "deviceInformationType": "image link"
+            },
+            "imageType": "suppressed"
+          }
+        }
+        """;
+        NGTMDDJsonValidator ngValidator = new NGTMDDJsonValidator(new ClassPathResource("ngTMDD/ngTMDD_Schema_v1.0.json"));
+        JsonC2CMessage message = new JsonC2CMessage(instanceStr.getBytes(StandardCharsets.UTF_8), new JsonParser(instanceStr).parse());
+        message.setMessageType("CCTVImageLinkRequest");
+
+        assertThatThrownBy(() -> ngValidator.validateMessage(message))
+                .isInstanceOf(C2CMVTException.class)
+                .satisfies(exception -> {
+                    String errorText = ((C2CMVTException)exception).originalException.getMessage();
+                    assertThat(errorText).contains("required properties are missing: cctvId");
+                    assertThat(errorText).contains("the \"suppressed\" is not equal to any enum values");
+                });
+    }
+
+    @Test
+    void testValidateMessage_UnknownMessageTypeUsesCompleteSchema() {
+        String instanceStr = """
+        {
+          "message": {
+            "messageType": "InvalidType"
+          }
+        }
+        """;
+        NGTMDDJsonValidator ngValidator = new NGTMDDJsonValidator(new ClassPathResource("ngTMDD/ngTMDD_Schema_v1.0.json"));
+        JsonC2CMessage message = new JsonC2CMessage(instanceStr.getBytes(StandardCharsets.UTF_8), new JsonParser(instanceStr).parse());
+        message.setMessageType("InvalidType");
+
+        assertThatThrownBy(() -> ngValidator.validateMessage(message))
+                .isInstanceOf(C2CMVTException.class)
+                .satisfies(exception -> assertThat(((C2CMVTException)exception).originalException.getMessage())
+                        .contains("InvalidType is an invalid message type for ngTMDD messages"));
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2025 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package usdot.fhwa.stol.c2c.c2c_mvt.validators;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import usdot.fhwa.stol.c2c.c2c_mvt.validators.ValidationResultCache.Key;
+import usdot.fhwa.stol.c2c.c2c_mvt.validators.ValidationResultCache.Result;
+
+/**
+ * Unit tests for ValidationResultCache
+ */
+class ValidationResultCacheTest {
+
+	@TempDir
+	Path directory;
+
+	private static ValidationResultCache newCache(int maxEntries, boolean persistent) {
+		ValidationResultCache cache = new ValidationResultCache();
+		ReflectionTestUtils.setField(cache, "maxEntries", maxEntries);
+		ReflectionTestUtils.setField(cache, "persistent", persistent);
+		ReflectionTestUtils.setField(cache, "queueDepth", 1024);
+		cache.init();
+		return cache;
+	}
+
+	private static Key key(String schemaFingerprint, String messageHash) {
+		return new Key("ngTMDD", "1.0", "UTF-8", schemaFingerprint, "Auto Detect", messageHash);
+	}
+
+	@Test
+	void testGet_KeyedBySchemaFingerprint() {
+		ValidationResultCache cache = newCache(100, false);
+		cache.put(key("schema1", "message1"), new Result(true, "ActivityLogRequest", null, null, List.of()));
+
+		assertThat(cache.get(key("schema1", "message1")).messageType()).isEqualTo("ActivityLogRequest");
+		assertThat(cache.get(key("schema2", "message1"))).isNull();
+		assertThat(cache.get(key("schema1", "message2"))).isNull();
+	}
+
+	@Test
+	void testPut_LeastRecentlyUsedEvicted() {
+		ValidationResultCache cache = newCache(16, false);
+		Result passed = new Result(true, "ActivityLogRequest", null, null, List.of());
+		for (int i = 0; i < 1000; i++)
+			cache.put(key("schema", "message" + i), passed);
+
+		assertThat(cache.getSize()).isLessThanOrEqualTo(16);
+		assertThat(cache.get(key("schema", "message999"))).isNotNull();
+		assertThat(cache.get(key("schema", "message0"))).isNull();
+	}
+
+	@Test
+	void testOpen_PersistentResultsReloaded() throws Exception {
+		ValidationResultCache cache = newCache(100, true);
+		cache.open(directory);
+		Result failed = new Result(false, "ActivityLogRequest", "validateMessage", "Failed to validate message",
+				List.of(new ValidationError("/message/messageType", "/oneOf", "not a valid message type")));
+		cache.put(key("schema", "message"), failed);
+		cache.close();
+		Files.writeString(directory.resolve(ValidationResultCache.RESULTS_FILE), "{not json\n", StandardOpenOption.APPEND);
+
+		ValidationResultCache reloaded = newCache(100, true);
+		reloaded.open(directory);
+		Result result = reloaded.get(key("schema", "message"));
+		reloaded.close();
+
+		assertThat(reloaded.getSize()).isEqualTo(1);
+		assertThat(result.passed()).isFalse();
+		assertThat(result.stage()).isEqualTo("validateMessage");
+		assertThat(result.error()).isEqualTo("Failed to validate message");
+		assertThat(result.errors()).hasSize(1);
+		assertThat(result.errors().get(0).getPointer()).isEqualTo("/message/messageType");
+		assertThat(result.errors().get(0).getSchemaPointer()).isEqualTo("/oneOf");
+	}
+
+	@Test
+	void testClose_PersistentFileCompactedPastTwiceMaxEntries() throws Exception {
+		ValidationResultCache cache = newCache(16, true);
+		cache.open(directory);
+		Result passed = new Result(true, "ActivityLogRequest", null, null, List.of());
+		for (int i = 0; i < 1000; i++)
+			cache.put(key("schema", "message" + i), passed);
+		cache.close();
+
+		assertThat(Files.readAllLines(directory.resolve(ValidationResultCache.RESULTS_FILE))).hasSizeLessThanOrEqualTo(32);
+		ValidationResultCache reloaded = newCache(16, true);
+		reloaded.open(directory);
+		reloaded.close();
+		assertThat(reloaded.get(key("schema", "message999"))).isNotNull();
+	}
+
+	@Test
+	void testGet_DisabledWhenMaxEntriesIsZero() {
+		ValidationResultCache cache = newCache(0, false);
+		cache.put(key("schema", "message"), new Result(true, "ActivityLogRequest", null, null, List.of()));
+
+		assertThat(cache.isEnabled()).isFalse();
+		assertThat(cache.get(key("schema", "message"))).isNull();
+		assertThat(cache.getSize()).isZero();
+	}
+}